@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sets up routing of read-only transactions to the read replicas when any are configured. Without replicas the data
+ * source is set up by Spring Boot as usual.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "net.maritimecloud.idreg.datasource", name = "replicas[0].url")
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+public class DataSourceConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource routingDataSource(DataSourceProperties primaryProperties, ReplicaDataSourceProperties replicaProperties) {
+        DataSource primary = primaryProperties.initializeDataSourceBuilder().build();
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReplicaDataSourceProperties.Replica> replicaList = replicaProperties.getReplicas();
+        for (int i = 0; i < replicaList.size(); i++) {
+            ReplicaDataSourceProperties.Replica replica = replicaList.get(i);
+            DataSourceBuilder<?> builder = DataSourceBuilder.create().url(replica.getUrl());
+            if (replica.getUsername() != null) {
+                builder.username(replica.getUsername()).password(replica.getPassword());
+            }
+            if (replica.getDriverClassName() != null) {
+                builder.driverClassName(replica.getDriverClassName());
+            }
+            replicas.put("replica-" + i, builder.build());
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, replicaProperties.getMaxLag(), replicaProperties.getLagQuery(),
+                replicaProperties.getLagCheckInterval());
+    }
+
+    /**
+     * The connection is fetched on the first statement instead of when the transaction starts, so that the routing
+     * knows whether the transaction is read-only
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.config;
+
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.jcache.JCacheRegionFactory;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Properties;
+
+/**
+ * JCache region factory for the Hibernate second-level cache that can read the cache configuration from the
+ * classpath, so that the same configuration is used when running from the war and in the tests.
+ *
+ * A hibernate.javax.cache.uri starting with classpath: is resolved to the resource, other URIs are handled as usual.
+ */
+public class HibernateCacheRegionFactory extends JCacheRegionFactory {
+
+    private static final String PROVIDER_PROPERTY = "hibernate.javax.cache.provider";
+    private static final String URI_PROPERTY = "hibernate.javax.cache.uri";
+    private static final String CLASSPATH_PREFIX = "classpath:";
+
+    @Override
+    protected CacheManager getCacheManager(Properties properties) {
+        String uri = properties.getProperty(URI_PROPERTY);
+        if (uri == null || !uri.startsWith(CLASSPATH_PREFIX)) {
+            return super.getCacheManager(properties);
+        }
+        ClassLoader classLoader = getClass().getClassLoader();
+        String resource = uri.substring(CLASSPATH_PREFIX.length());
+        URL url = classLoader.getResource(resource.startsWith("/") ? resource.substring(1) : resource);
+        if (url == null) {
+            throw new CacheException("The cache configuration " + uri + " could not be found");
+        }
+        String provider = properties.getProperty(PROVIDER_PROPERTY);
+        CachingProvider cachingProvider = provider == null ? Caching.getCachingProvider(classLoader) : Caching.getCachingProvider(provider, classLoader);
+        try {
+            return cachingProvider.getCacheManager(url.toURI(), classLoader);
+        } catch (URISyntaxException e) {
+            throw new CacheException("The cache configuration " + uri + " could not be loaded", e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The read replicas of the database, see {@link ReplicaRoutingDataSource}
+ */
+@ConfigurationProperties(prefix = "net.maritimecloud.idreg.datasource")
+@Getter
+@Setter
+public class ReplicaDataSourceProperties {
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    // The highest lag in seconds a replica can have and still be used
+    private long maxLag = 5;
+
+    // A query run on a replica that returns its lag in seconds. The lag is not checked if empty.
+    private String lagQuery;
+
+    // How often in seconds the lag of the replicas is checked
+    private long lagCheckInterval = 5;
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+    }
+}
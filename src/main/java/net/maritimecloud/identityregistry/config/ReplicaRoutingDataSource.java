@@ -0,0 +1,260 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions to the replicas and everything else to the primary.
+ *
+ * A replica is only used while its lag is within the tolerance. Once a request has run a read-write transaction the
+ * rest of the request reads from the primary, so that it sees its own writes.
+ *
+ * A replica can be behind a change whose cached copies have just been evicted, so what is read from it must not be
+ * cached. Loads that fill a cache of the application go through {@link #readFromPrimary(Supplier)}, and a transaction
+ * that reads from a replica does not put anything into the Hibernate second-level and query caches.
+ *
+ * The routing is decided when the connection is fetched, so this must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} for the read-only flag of the transaction
+ * to be set at that point.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    public static final String PRIMARY = "primary";
+
+    private static final String PINNED_TO_PRIMARY = ReplicaRoutingDataSource.class.getName() + ".PINNED_TO_PRIMARY";
+
+    private static final ThreadLocal<Boolean> READING_FROM_PRIMARY = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLag;
+    private final String lagQuery;
+    private final long lagCheckInterval;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private ScheduledExecutorService lagChecker;
+
+    /**
+     * @param primary the data source of the primary
+     * @param replicas the data sources of the replicas by name
+     * @param maxLag the highest lag in seconds a replica can have and still be used
+     * @param lagQuery a query run on a replica that returns its lag in seconds, or null if the lag is not checked
+     * @param lagCheckInterval how often in seconds the lag of the replicas is checked
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, long maxLag, String lagQuery, long lagCheckInterval) {
+        this.primary = primary;
+        this.maxLag = maxLag;
+        this.lagQuery = lagQuery == null || lagQuery.trim().isEmpty() ? null : lagQuery;
+        this.lagCheckInterval = lagCheckInterval;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach((name, dataSource) -> {
+            this.replicas.add(new Replica(name, dataSource));
+            targets.put(name, dataSource);
+        });
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        if (lagQuery != null && !replicas.isEmpty()) {
+            checkReplicaLag();
+            lagChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "replica-lag-checker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            lagChecker.scheduleWithFixedDelay(this::checkReplicaLag, lagCheckInterval, lagCheckInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (lagChecker != null) {
+            lagChecker.shutdownNow();
+        }
+        close(primary);
+        for (Replica replica : replicas) {
+            close(replica.dataSource);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                pinToPrimary();
+            }
+            return PRIMARY;
+        }
+        if (isPinnedToPrimary() || READING_FROM_PRIMARY.get() != null) {
+            return PRIMARY;
+        }
+        List<Replica> usable = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.lag >= 0 && replica.lag <= maxLag) {
+                usable.add(replica);
+            }
+        }
+        if (usable.isEmpty()) {
+            return PRIMARY;
+        }
+        skipCachePuts();
+        return usable.get(Math.floorMod(next.getAndIncrement(), usable.size())).name;
+    }
+
+    /**
+     * Runs the reader with its read-only transactions going to the primary. Used for the loads whose result is
+     * cached, so that a lagging replica cannot refill a cache with what was there before a change. The connection is
+     * routed when it is fetched, so the reader must run before the current transaction has run any statement, as it
+     * does at the start of a service call.
+     */
+    public static <T> T readFromPrimary(Supplier<T> reader) {
+        Boolean previous = READING_FROM_PRIMARY.get();
+        READING_FROM_PRIMARY.set(Boolean.TRUE);
+        try {
+            return reader.get();
+        } finally {
+            if (previous == null) {
+                READING_FROM_PRIMARY.remove();
+            } else {
+                READING_FROM_PRIMARY.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Checks the lag of every replica. A replica where the check fails is not used until a later check succeeds.
+     */
+    public void checkReplicaLag() {
+        for (Replica replica : replicas) {
+            long lag = -1;
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                if (resultSet.next()) {
+                    lag = resultSet.getLong(1);
+                    if (resultSet.wasNull()) {
+                        lag = -1;
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                log.warn("Could not check the lag of {}: {}", replica.name, e.getMessage());
+            }
+            if (lag < 0 || lag > maxLag) {
+                log.debug("Not using {} with a lag of {} seconds", replica.name, lag);
+            }
+            replica.lag = lag;
+        }
+    }
+
+    /**
+     * @return the names of the replicas that are currently used for reads
+     */
+    public List<String> getUsableReplicas() {
+        List<String> names = new ArrayList<>();
+        for (Replica replica : replicas) {
+            if (replica.lag >= 0 && replica.lag <= maxLag) {
+                names.add(replica.name);
+            }
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    private static void pinToPrimary() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(PINNED_TO_PRIMARY, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private static boolean isPinnedToPrimary() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null && attributes.getAttribute(PINNED_TO_PRIMARY, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+
+    /**
+     * Lets the Hibernate session of the current transaction read from the caches without putting what it loads into
+     * them. The cache mode is restored when the transaction completes, as with open-in-view the session is used for
+     * the following transactions of the request as well.
+     */
+    private static void skipCachePuts() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+            if (resource instanceof EntityManagerHolder) {
+                Session session = ((EntityManagerHolder) resource).getEntityManager().unwrap(Session.class);
+                CacheMode cacheMode = session.getCacheMode();
+                session.setCacheMode(CacheMode.GET);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        session.setCacheMode(cacheMode);
+                    }
+                });
+            }
+        }
+    }
+
+    private static void close(DataSource dataSource) throws Exception {
+        if (dataSource instanceof AutoCloseable) {
+            ((AutoCloseable) dataSource).close();
+        }
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        // The lag in seconds as of the last check, or -1 if it could not be checked. Replicas are used until the lag
+        // has been checked if there is no lag query.
+        private volatile long lag = 0;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -16,13 +16,20 @@
 
 package net.maritimecloud.identityregistry.config;
 
+import net.maritimecloud.identityregistry.controllers.PathOrganizationArgumentResolver;
+import net.maritimecloud.identityregistry.controllers.RateLimitInterceptor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurationSupport;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 
+import java.util.List;
+
 @Configuration
 @EnableWebMvc
 @EnableSpringDataWebSupport
@@ -36,4 +43,22 @@ public class WebConfig extends WebMvcConfigurationSupport {
         return hm;
     }
 
+    // The handler adapter is set up by the configuration imported by @EnableWebMvc, which only picks up resolvers
+    // and interceptors from the WebMvcConfigurer beans
+    @Bean
+    public WebMvcConfigurer controllerConfigurer(PathOrganizationArgumentResolver pathOrganizationArgumentResolver,
+                                                 RateLimitInterceptor rateLimitInterceptor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addArgumentResolvers(List<HandlerMethodArgumentResolver> argumentResolvers) {
+                argumentResolvers.add(pathOrganizationArgumentResolver);
+            }
+
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(rateLimitInterceptor);
+            }
+        };
+    }
+
 }
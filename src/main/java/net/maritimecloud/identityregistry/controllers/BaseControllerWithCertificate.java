@@ -17,32 +17,46 @@ package net.maritimecloud.identityregistry.controllers;
 
 import net.maritimecloud.identityregistry.exception.McBasicRestException;
 import net.maritimecloud.identityregistry.model.data.CertificateBundle;
+import net.maritimecloud.identityregistry.model.data.CertificateJob;
 import net.maritimecloud.identityregistry.model.data.CertificateRevocation;
+import net.maritimecloud.identityregistry.model.data.OrganizationSnapshot;
 import net.maritimecloud.identityregistry.model.data.PemCertificate;
 import net.maritimecloud.identityregistry.model.database.Certificate;
 import net.maritimecloud.identityregistry.model.database.CertificateModel;
-import net.maritimecloud.identityregistry.model.database.Organization;
 import net.maritimecloud.identityregistry.model.database.entities.EntityModel;
 import net.maritimecloud.identityregistry.model.database.entities.NonHumanEntityModel;
 import net.maritimecloud.identityregistry.services.CertificateService;
+import net.maritimecloud.identityregistry.utils.CertificateJobUtil;
+import net.maritimecloud.identityregistry.utils.CertificateTemplateUtil;
 import net.maritimecloud.identityregistry.utils.CertificateUtil;
+import net.maritimecloud.identityregistry.utils.IdempotencyUtil;
 import net.maritimecloud.identityregistry.utils.MCIdRegConstants;
 import net.maritimecloud.identityregistry.utils.PasswordUtil;
 import net.maritimecloud.pki.CertificateBuilder;
 import net.maritimecloud.pki.CertificateHandler;
 import net.maritimecloud.pki.PKIConstants;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
 import java.math.BigInteger;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
+import java.security.PublicKey;
 import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.Base64;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 
@@ -56,9 +70,112 @@ public abstract class BaseControllerWithCertificate {
     @Autowired
     protected CertificateUtil certificateUtil;
 
-    protected CertificateBundle issueCertificate(CertificateModel certOwner, Organization org, String type, HttpServletRequest request) throws McBasicRestException {
+    @Autowired
+    private CertificateTemplateUtil certificateTemplateUtil;
+
+    @Autowired
+    private IdempotencyUtil idempotencyUtil;
+
+    @Autowired
+    private CertificateJobUtil certificateJobUtil;
+
+    /**
+     * Issues a new certificate for the given entity. If the request has an Idempotency-Key header, the result of an
+     * earlier request with the same key from the same principal is returned instead, as long as it is within the TTL
+     * window. A key reused for a request with another path, query or body is rejected.
+     *
+     * @return the certificate bundle of the new certificate
+     * @throws McBasicRestException
+     */
+    protected CertificateBundle issueCertificate(CertificateModel certOwner, OrganizationSnapshot org, String type, HttpServletRequest request) throws McBasicRestException {
+        String idempotencyKey = request.getHeader(IdempotencyUtil.IDEMPOTENCY_KEY_HEADER);
+        if (idempotencyKey == null || idempotencyKey.trim().isEmpty()) {
+            return issueCertificate(certOwner, org, type, null, request.getServletPath());
+        }
+        String owner = SecurityContextHolder.getContext().getAuthentication().getName();
+        return idempotencyUtil.issueOnce(owner, idempotencyKey, IdempotencyUtil.fingerprint(request), () -> {
+            // The result might have been issued by another instance or before a restart, in which case we no longer have the private key
+            String scopedKey = IdempotencyUtil.scopeKey(owner, idempotencyKey);
+            Date issuedAfter = new Date(System.currentTimeMillis() - idempotencyUtil.getTtlMillis());
+            if (certificateService.isIssuedWithIdempotencyKey(scopedKey, issuedAfter)) {
+                throw new McBasicRestException(HttpStatus.CONFLICT, MCIdRegConstants.CERTIFICATE_ALREADY_ISSUED, request.getServletPath());
+            }
+            return issueCertificate(certOwner, org, type, scopedKey, request.getServletPath());
+        }, request.getServletPath());
+    }
+
+    private CertificateBundle issueCertificate(CertificateModel certOwner, OrganizationSnapshot org, String type, String idempotencyKey, String path) throws McBasicRestException {
         // Generate keypair for user
         KeyPair userKeyPair = CertificateBuilder.generateKeyPair();
+        X509Certificate userCert = signCertificate(certOwner, org, type, userKeyPair.getPublic(), path);
+        String pemCertificate = getPemCertificate(userCert);
+        String pemPublicKey = CertificateHandler.getPemFromEncoded("PUBLIC KEY", userKeyPair.getPublic().getEncoded()).replace("\n", "\\n");
+        String pemPrivateKey = CertificateHandler.getPemFromEncoded("PRIVATE KEY", userKeyPair.getPrivate().getEncoded()).replace("\n", "\\n");
+        PemCertificate ret = new PemCertificate(pemPrivateKey, pemPublicKey, pemCertificate);
+
+        // create the JKS and PKCS12 keystores and pack them in a bundle with the PEM certificate
+        String name = getName(certOwner);
+        String keystorePassword = PasswordUtil.generatePassword();
+        byte[] jksKeystore = CertificateHandler.createOutputKeystore("JKS", name, keystorePassword, userKeyPair.getPrivate(), userCert);
+        byte[] pkcs12Keystore = CertificateHandler.createOutputKeystore("PKCS12", name, keystorePassword, userKeyPair.getPrivate(), userCert);
+        Base64.Encoder encoder = Base64.getEncoder();
+        CertificateBundle certificateBundle = new CertificateBundle(ret, new String(encoder.encode(jksKeystore)), new String(encoder.encode(pkcs12Keystore)), keystorePassword);
+
+        saveCertificate(certOwner, org, userCert, pemCertificate, idempotencyKey);
+        return certificateBundle;
+    }
+
+    /**
+     * Starts an asynchronous issuance of a new certificate for the given entity. The result can be fetched from the
+     * job resource given in the Location header, within the retention window.
+     *
+     * @return a reply with the pending job
+     * @throws McBasicRestException
+     */
+    protected ResponseEntity<CertificateJob> issueCertificateAsync(CertificateModel certOwner, OrganizationSnapshot org, String type, HttpServletRequest request) throws McBasicRestException {
+        String path = request.getServletPath();
+        String owner = SecurityContextHolder.getContext().getAuthentication().getName();
+        CertificateJob job = certificateJobUtil.submit(org.getMrn(), owner, () -> issueCertificate(certOwner, org, type, null, path), path);
+        // The job resource is placed under the same prefix (oidc or x509) as the request
+        String location = path.substring(0, path.indexOf("/api/")) + "/api/org/" + org.getMrn() + "/certificate/job/" + job.getJobId();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setLocation(URI.create(location));
+        return new ResponseEntity<>(job, headers, HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * Renews a certificate by signing a new certificate with a fresh validity period for the public key of the
+     * given certificate. No new key material is generated, so the result only contains the certificate and public key.
+     * Revoked and expired certificates can not be renewed.
+     *
+     * @return the PEM of the new certificate and its public key
+     * @throws McBasicRestException
+     */
+    protected PemCertificate renewCertificate(CertificateModel certOwner, OrganizationSnapshot org, String type, Certificate oldCert, HttpServletRequest request) throws McBasicRestException {
+        if (oldCert.isRevoked()) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.CERTIFICATE_REVOKED, request.getServletPath());
+        }
+        X509Certificate oldX509Cert;
+        try {
+            // The PEM is stored with escaped newlines
+            byte[] oldPem = oldCert.getCertificate().replace("\\n", "\n").getBytes(StandardCharsets.UTF_8);
+            CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
+            oldX509Cert = (X509Certificate) certificateFactory.generateCertificate(new ByteArrayInputStream(oldPem));
+        } catch (CertificateException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        if (oldX509Cert.getNotAfter().before(new Date())) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.CERTIFICATE_EXPIRED, request.getServletPath());
+        }
+        PublicKey publicKey = oldX509Cert.getPublicKey();
+        X509Certificate userCert = signCertificate(certOwner, org, type, publicKey, request.getServletPath());
+        String pemCertificate = getPemCertificate(userCert);
+        String pemPublicKey = CertificateHandler.getPemFromEncoded("PUBLIC KEY", publicKey.getEncoded()).replace("\n", "\\n");
+        saveCertificate(certOwner, org, userCert, pemCertificate, null);
+        return new PemCertificate(null, pemPublicKey, pemCertificate);
+    }
+
+    private X509Certificate signCertificate(CertificateModel certOwner, OrganizationSnapshot org, String type, PublicKey publicKey, String path) throws McBasicRestException {
         // Find special MC attributes to put in the certificate
         HashMap<String, String> attrs = getAttr(certOwner);
 
@@ -67,45 +184,38 @@ public abstract class BaseControllerWithCertificate {
         String email = getEmail(certOwner);
         String uid = getUid(certOwner);
         if (uid == null || uid.trim().isEmpty()) {
-            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.ENTITY_ORG_ID_MISSING, request.getServletPath());
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.ENTITY_ORG_ID_MISSING, path);
         }
         BigInteger serialNumber = certificateUtil.getCertificateBuilder().generateSerialNumber();
-        X509Certificate userCert;
         try {
-            userCert = certificateUtil.getCertificateBuilder().generateCertForEntity(serialNumber, org.getCountry(), o, type, name, email, uid, userKeyPair.getPublic(), attrs, org.getCertificateAuthority(), certificateUtil.getBaseCrlOcspCrlURI());
+            return certificateTemplateUtil.generateCertForEntity(serialNumber, org.getCountry(), o, type, name, email, uid, publicKey, attrs, org.getCertificateAuthority());
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage(), e);
         }
-        String pemCertificate;
+    }
+
+    private String getPemCertificate(X509Certificate userCert) {
         try {
-            pemCertificate = CertificateHandler.getPemFromEncoded("CERTIFICATE", userCert.getEncoded()).replace("\n", "\\n");
+            return CertificateHandler.getPemFromEncoded("CERTIFICATE", userCert.getEncoded()).replace("\n", "\\n");
         } catch (CertificateEncodingException e) {
            throw new RuntimeException(e.getMessage(), e);
         }
-        String pemPublicKey = CertificateHandler.getPemFromEncoded("PUBLIC KEY", userKeyPair.getPublic().getEncoded()).replace("\n", "\\n");
-        String pemPrivateKey = CertificateHandler.getPemFromEncoded("PRIVATE KEY", userKeyPair.getPrivate().getEncoded()).replace("\n", "\\n");
-        PemCertificate ret = new PemCertificate(pemPrivateKey, pemPublicKey, pemCertificate);
-
-        // create the JKS and PKCS12 keystores and pack them in a bundle with the PEM certificate
-        String keystorePassword = PasswordUtil.generatePassword();
-        byte[] jksKeystore = CertificateHandler.createOutputKeystore("JKS", name, keystorePassword, userKeyPair.getPrivate(), userCert);
-        byte[] pkcs12Keystore = CertificateHandler.createOutputKeystore("PKCS12", name, keystorePassword, userKeyPair.getPrivate(), userCert);
-        Base64.Encoder encoder = Base64.getEncoder();
-        CertificateBundle certificateBundle = new CertificateBundle(ret, new String(encoder.encode(jksKeystore)), new String(encoder.encode(pkcs12Keystore)), keystorePassword);
+    }
 
+    private void saveCertificate(CertificateModel certOwner, OrganizationSnapshot org, X509Certificate userCert, String pemCertificate, String idempotencyKey) {
         // Create the certificate
         Certificate newMCCert = new Certificate();
         certOwner.assignToCert(newMCCert);
         newMCCert.setCertificate(pemCertificate);
-        newMCCert.setSerialNumber(serialNumber);
+        newMCCert.setSerialNumber(userCert.getSerialNumber());
         newMCCert.setCertificateAuthority(org.getCertificateAuthority());
+        newMCCert.setIdempotencyKey(idempotencyKey);
         // The dates we extract from the cert is in localtime, so they are converted to UTC before saving into the DB
         Calendar cal = Calendar.getInstance();
         long offset = cal.get(Calendar.ZONE_OFFSET) + cal.get(Calendar.DST_OFFSET);
         newMCCert.setStart(new Date(userCert.getNotBefore().getTime() - offset));
         newMCCert.setEnd(new Date(userCert.getNotAfter().getTime() - offset));
         this.certificateService.saveCertificate(newMCCert);
-        return certificateBundle;
     }
 
     protected void revokeCertificate(BigInteger certId, CertificateRevocation input, HttpServletRequest request) throws McBasicRestException {
@@ -122,6 +232,43 @@ public abstract class BaseControllerWithCertificate {
         this.certificateService.saveCertificate(cert);
     }
 
+    /**
+     * Revokes several certificates of an organization and its entities in one update
+     *
+     * @param org the organization the certificates belongs to
+     * @param serialNumbers the serial numbers of the certificates to revoke, or null to revoke all active certificates
+     * @return the number of revoked certificates
+     * @throws McBasicRestException
+     */
+    protected int revokeCertificates(OrganizationSnapshot org, Collection<BigInteger> serialNumbers, CertificateRevocation input, HttpServletRequest request) throws McBasicRestException {
+        validateRevocation(input, request);
+        if (serialNumbers == null) {
+            return this.certificateService.revokeAllCertificates(org.getId(), input.getRevokedAt(), input.getRevokationReason());
+        }
+        return this.certificateService.revokeCertificates(org.getId(), serialNumbers, input.getRevokedAt(), input.getRevokationReason());
+    }
+
+    /**
+     * Revokes all active certificates of an entity in one update, without loading them
+     *
+     * @param owner the entity the certificates belongs to
+     * @return the number of revoked certificates
+     * @throws McBasicRestException
+     */
+    protected int revokeAllCertificatesOf(EntityModel owner, CertificateRevocation input, HttpServletRequest request) throws McBasicRestException {
+        validateRevocation(input, request);
+        return this.certificateService.revokeAllCertificatesOf(owner, input.getRevokedAt(), input.getRevokationReason());
+    }
+
+    private static void validateRevocation(CertificateRevocation input, HttpServletRequest request) throws McBasicRestException {
+        if (!input.validateReason()) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.INVALID_REVOCATION_REASON, request.getServletPath());
+        }
+        if (input.getRevokedAt() == null) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.INVALID_REVOCATION_DATE, request.getServletPath());
+        }
+    }
+
     /* Override if the entity type of the controller isn't of type NonHumanEntityModel */
     protected String getName(CertificateModel certOwner) {
         return ((NonHumanEntityModel)certOwner).getName();
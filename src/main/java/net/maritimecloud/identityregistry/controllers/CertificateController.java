@@ -19,6 +19,8 @@ import lombok.extern.slf4j.Slf4j;
 import net.maritimecloud.identityregistry.model.database.Certificate;
 import net.maritimecloud.identityregistry.services.CertificateService;
 import net.maritimecloud.identityregistry.utils.CertificateUtil;
+import net.maritimecloud.identityregistry.utils.RateLimitUtil;
+import net.maritimecloud.identityregistry.utils.TrustBundleUtil;
 import net.maritimecloud.pki.CertificateHandler;
 import net.maritimecloud.pki.PKIConstants;
 import net.maritimecloud.pki.Revocation;
@@ -32,14 +34,19 @@ import org.bouncycastle.cert.ocsp.RevokedStatus;
 import org.bouncycastle.cert.ocsp.UnknownStatus;
 import org.bouncycastle.util.encoders.Base64;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
@@ -53,6 +60,7 @@ import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping(value={"oidc", "x509"})
@@ -72,6 +80,53 @@ public class CertificateController {
         this.certUtil = certUtil;
     }
 
+    private TrustBundleUtil trustBundleUtil;
+
+    @Autowired
+    public void setTrustBundleUtil(TrustBundleUtil trustBundleUtil) {
+        this.trustBundleUtil = trustBundleUtil;
+    }
+
+    /**
+     * Returns the MC root and sub CA certificates as a PEM chain, or as a JKS or PKCS12 truststore with the password
+     * "changeit". The bundle is versioned with an ETag, so clients can poll using If-None-Match.
+     *
+     * @return a reply...
+     */
+    @RequestMapping(
+            value = "/api/certificates/trust-bundle/{format}",
+            method = RequestMethod.GET)
+    @ResponseBody
+    public ResponseEntity<?> getTrustBundle(WebRequest webRequest, @PathVariable String format) {
+        TrustBundleUtil.TrustBundle bundle = trustBundleUtil.getTrustBundle();
+        MediaType contentType;
+        Object body;
+        switch (format) {
+            case "pem":
+                contentType = MediaType.parseMediaType("application/x-pem-file;charset=UTF-8");
+                body = bundle.getPem();
+                break;
+            case "jks":
+                contentType = MediaType.APPLICATION_OCTET_STREAM;
+                body = bundle.getJks();
+                break;
+            case "pkcs12":
+                contentType = MediaType.parseMediaType("application/x-pkcs12");
+                body = bundle.getPkcs12();
+                break;
+            default:
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        CacheControl cacheControl = CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic();
+        // Handles lists of ETags and weak ETags, and sets the ETag header of the reply. It does not handle *, which
+        // matches any current version of the bundle
+        boolean notModified = webRequest.checkNotModified("\"" + bundle.getHash() + "-" + format + "\"");
+        if (notModified || "*".equals(StringUtils.trimWhitespace(webRequest.getHeader(HttpHeaders.IF_NONE_MATCH)))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().cacheControl(cacheControl).contentType(contentType).body(body);
+    }
+
     /**
      * Returns info about the device identified by the given ID
      * 
@@ -112,6 +167,7 @@ public class CertificateController {
         }
     }
 
+    @RateLimited(RateLimitUtil.Budget.OCSP)
     @RequestMapping(
             value = "/api/certificates/ocsp/{caAlias}",
             method = RequestMethod.POST,
@@ -129,6 +185,7 @@ public class CertificateController {
         return new ResponseEntity<>(byteResponse, HttpStatus.OK);
     }
 
+    @RateLimited(RateLimitUtil.Budget.OCSP)
     @RequestMapping(
             value = "/api/certificates/ocsp/{caAlias}/**",
             method = RequestMethod.GET,
@@ -17,10 +17,17 @@ package net.maritimecloud.identityregistry.controllers;
 
 import net.maritimecloud.identityregistry.exception.McBasicRestException;
 import net.maritimecloud.identityregistry.model.data.CertificateBundle;
+import net.maritimecloud.identityregistry.model.data.CertificateJob;
 import net.maritimecloud.identityregistry.model.data.CertificateRevocation;
+import net.maritimecloud.identityregistry.model.data.KeysetPage;
+import net.maritimecloud.identityregistry.model.data.NonHumanEntitySummary;
+import net.maritimecloud.identityregistry.model.data.OrganizationSnapshot;
+import net.maritimecloud.identityregistry.model.data.PemCertificate;
 import net.maritimecloud.identityregistry.model.database.Certificate;
 import net.maritimecloud.identityregistry.model.database.entities.Device;
 import net.maritimecloud.identityregistry.services.EntityService;
+import net.maritimecloud.identityregistry.utils.KeysetUtil;
+import net.maritimecloud.identityregistry.utils.RateLimitUtil;
 import net.maritimecloud.identityregistry.utils.ValidateUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -32,6 +39,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -58,10 +66,10 @@ public class DeviceController extends EntityController<Device> {
             method = RequestMethod.POST,
             produces = "application/json;charset=UTF-8")
     @ResponseBody
-    @PreAuthorize("hasRole('DEVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<Device> createDevice(HttpServletRequest request, @PathVariable String orgMrn, @Valid @RequestBody Device input, BindingResult bindingResult) throws McBasicRestException {
+    @PreAuthorize("hasRole('DEVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<Device> createDevice(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @Valid @RequestBody Device input, BindingResult bindingResult) throws McBasicRestException {
         ValidateUtil.hasErrors(bindingResult, request);
-        return this.createEntity(request, orgMrn, input);
+        return this.createEntity(request, org, input);
     }
 
     /**
@@ -75,9 +83,9 @@ public class DeviceController extends EntityController<Device> {
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
     @ResponseBody
-    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<Device> getDevice(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String deviceMrn) throws McBasicRestException {
-        return this.getEntity(request, orgMrn, deviceMrn);
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<Device> getDevice(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String deviceMrn) throws McBasicRestException {
+        return this.getEntity(request, org, deviceMrn);
     }
 
     /**
@@ -90,10 +98,10 @@ public class DeviceController extends EntityController<Device> {
             value = "/api/org/{orgMrn}/device/{deviceMrn}",
             method = RequestMethod.PUT)
     @ResponseBody
-    @PreAuthorize("hasRole('DEVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> updateDevice(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String deviceMrn, @Valid @RequestBody Device input, BindingResult bindingResult) throws McBasicRestException {
+    @PreAuthorize("hasRole('DEVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> updateDevice(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String deviceMrn, @Valid @RequestBody Device input, BindingResult bindingResult) throws McBasicRestException {
         ValidateUtil.hasErrors(bindingResult, request);
-        return this.updateEntity(request, orgMrn, deviceMrn, input);
+        return this.updateEntity(request, org, deviceMrn, input);
     }
 
     /**
@@ -106,9 +114,9 @@ public class DeviceController extends EntityController<Device> {
             value = "/api/org/{orgMrn}/device/{deviceMrn}",
             method = RequestMethod.DELETE)
     @ResponseBody
-    @PreAuthorize("hasRole('DEVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> deleteDevice(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String deviceMrn) throws McBasicRestException {
-        return this.deleteEntity(request, orgMrn, deviceMrn);
+    @PreAuthorize("hasRole('DEVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> deleteDevice(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String deviceMrn) throws McBasicRestException {
+        return this.deleteEntity(request, org, deviceMrn);
     }
 
     /**
@@ -121,9 +129,42 @@ public class DeviceController extends EntityController<Device> {
             value = "/api/org/{orgMrn}/devices",
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
-    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public Page<Device> getOrganizationDevices(HttpServletRequest request, @PathVariable String orgMrn, Pageable pageable) throws McBasicRestException {
-        return this.getOrganizationEntities(request, orgMrn, pageable);
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public Page<Device> getOrganizationDevices(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, Pageable pageable) throws McBasicRestException {
+        return this.getOrganizationEntities(request, org, pageable);
+    }
+
+    /**
+     * Returns a list of summaries of the devices owned by the organization identified by the given ID. Only the
+     * columns of the summaries are read, so this is cheaper than the full list.
+     *
+     * @return a reply...
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/devices/summaries",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public Page<NonHumanEntitySummary> getOrganizationDeviceSummaries(@PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, Pageable pageable) {
+        return this.getOrganizationEntitySummaries(org, pageable, NonHumanEntitySummary.class);
+    }
+
+    /**
+     * Returns a page of devices belonging to the organization identified by the given ID, continuing after the given
+     * cursor. The next field of the reply is the cursor of the following page and is left out on the last page.
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/devices",
+            method = RequestMethod.GET,
+            params = KeysetUtil.CURSOR_PARAM,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public KeysetPage<NonHumanEntitySummary> getOrganizationDevicesAfter(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org,
+            @RequestParam String cursor, @RequestParam(defaultValue = KeysetUtil.DEFAULT_SIZE) int size) throws McBasicRestException {
+        return this.getOrganizationEntitiesAfter(request, org, cursor, size, NonHumanEntitySummary.class);
     }
 
     /**
@@ -132,13 +173,30 @@ public class DeviceController extends EntityController<Device> {
      * @return a reply...
      * @throws McBasicRestException 
      */
+    @RateLimited(RateLimitUtil.Budget.CERTIFICATE_ISSUANCE)
     @RequestMapping(
             value = "/api/org/{orgMrn}/device/{deviceMrn}/certificate/issue-new",
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
-    @PreAuthorize("hasRole('DEVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<CertificateBundle> newDeviceCert(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String deviceMrn) throws McBasicRestException {
-        return this.newEntityCert(request, orgMrn, deviceMrn, "device");
+    @PreAuthorize("hasRole('DEVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<CertificateBundle> newDeviceCert(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String deviceMrn) throws McBasicRestException {
+        return this.newEntityCert(request, org, deviceMrn, "device");
+    }
+
+    /**
+     * Starts an asynchronous issuance of a new certificate for the device identified by the given ID
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RateLimited(RateLimitUtil.Budget.CERTIFICATE_ISSUANCE)
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/device/{deviceMrn}/certificate/issue-new",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('DEVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<CertificateJob> newDeviceCertAsync(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String deviceMrn) throws McBasicRestException {
+        return this.newEntityCertAsync(request, org, deviceMrn, "device");
     }
 
     /**
@@ -151,9 +209,39 @@ public class DeviceController extends EntityController<Device> {
             value = "/api/org/{orgMrn}/device/{deviceMrn}/certificate/{certId}/revoke",
             method = RequestMethod.POST,
             produces = "application/json;charset=UTF-8")
-    @PreAuthorize("hasRole('DEVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> revokeDeviceCert(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String deviceMrn, @PathVariable BigInteger certId, @Valid @RequestBody CertificateRevocation input) throws McBasicRestException {
-        return this.revokeEntityCert(request, orgMrn, deviceMrn, certId, input);
+    @PreAuthorize("hasRole('DEVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> revokeDeviceCert(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String deviceMrn, @PathVariable BigInteger certId, @Valid @RequestBody CertificateRevocation input) throws McBasicRestException {
+        return this.revokeEntityCert(request, org, deviceMrn, certId, input);
+    }
+
+    /**
+     * Revokes all active certificates of the device identified by the given ID
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/device/{deviceMrn}/certificates/revoke",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('DEVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> revokeAllDeviceCerts(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String deviceMrn, @Valid @RequestBody CertificateRevocation input) throws McBasicRestException {
+        return this.revokeAllEntityCerts(request, org, deviceMrn, input);
+    }
+
+    /**
+     * Renews certificate for the device identified by the given ID, reusing its public key
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/device/{deviceMrn}/certificate/{certId}/renew",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('DEVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<PemCertificate> renewDeviceCert(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String deviceMrn, @PathVariable BigInteger certId) throws McBasicRestException {
+        return this.renewEntityCert(request, org, deviceMrn, certId, "device");
     }
 
     @Override
@@ -17,15 +17,20 @@ package net.maritimecloud.identityregistry.controllers;
 
 import net.maritimecloud.identityregistry.exception.McBasicRestException;
 import net.maritimecloud.identityregistry.model.data.CertificateBundle;
+import net.maritimecloud.identityregistry.model.data.CertificateJob;
 import net.maritimecloud.identityregistry.model.data.CertificateRevocation;
+import net.maritimecloud.identityregistry.model.data.EntitySummary;
+import net.maritimecloud.identityregistry.model.data.KeysetPage;
+import net.maritimecloud.identityregistry.model.data.OrganizationSnapshot;
+import net.maritimecloud.identityregistry.model.data.PemCertificate;
 import net.maritimecloud.identityregistry.model.database.Certificate;
 import net.maritimecloud.identityregistry.model.database.CertificateModel;
-import net.maritimecloud.identityregistry.model.database.Organization;
 import net.maritimecloud.identityregistry.model.database.entities.EntityModel;
 import net.maritimecloud.identityregistry.services.CertificateService;
 import net.maritimecloud.identityregistry.services.EntityService;
 import net.maritimecloud.identityregistry.services.OrganizationService;
 import net.maritimecloud.identityregistry.utils.CertificateUtil;
+import net.maritimecloud.identityregistry.utils.KeysetUtil;
 import net.maritimecloud.identityregistry.utils.MCIdRegConstants;
 import net.maritimecloud.identityregistry.utils.MrnUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,6 +43,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
 import java.math.BigInteger;
+import java.util.List;
 
 @RestController
 public abstract class EntityController<T extends EntityModel> extends BaseControllerWithCertificate {
@@ -64,23 +70,18 @@ public abstract class EntityController<T extends EntityModel> extends BaseContro
      * @return a reply...
      * @throws McBasicRestException
      */
-    protected ResponseEntity<T> createEntity(HttpServletRequest request, String orgMrn, T input) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being created belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(input.getMrn()))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            input.setIdOrganization(org.getId());
-            try {
-                input.setMrn(input.getMrn().toLowerCase());
-                T newEntity = this.entityService.save(input);
-                return new ResponseEntity<>(newEntity, HttpStatus.OK);
-            } catch (DataIntegrityViolationException e) {
-                throw new McBasicRestException(HttpStatus.CONFLICT, e.getRootCause().getMessage(), request.getServletPath());
-            }
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+    protected ResponseEntity<T> createEntity(HttpServletRequest request, OrganizationSnapshot org, T input) throws McBasicRestException {
+        // Check that the entity being created belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(org.getMrn()).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(input.getMrn()))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        input.setIdOrganization(org.getId());
+        try {
+            input.setMrn(input.getMrn().toLowerCase());
+            T newEntity = this.entityService.save(input);
+            return new ResponseEntity<>(newEntity, HttpStatus.OK);
+        } catch (DataIntegrityViolationException e) {
+            throw new McBasicRestException(HttpStatus.CONFLICT, e.getRootCause().getMessage(), request.getServletPath());
         }
     }
 
@@ -90,24 +91,19 @@ public abstract class EntityController<T extends EntityModel> extends BaseContro
      * @return a reply...
      * @throws McBasicRestException
      */
-    protected ResponseEntity<T> getEntity(HttpServletRequest request, String orgMrn, String entityMrn) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being queried belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(entityMrn))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            T entity = this.entityService.getByMrn(entityMrn);
-            if (entity == null) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
-            }
-            if (entity.getIdOrganization().compareTo(org.getId()) == 0) {
-                return new ResponseEntity<>(entity, HttpStatus.OK);
-            }
-            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+    protected ResponseEntity<T> getEntity(HttpServletRequest request, OrganizationSnapshot org, String entityMrn) throws McBasicRestException {
+        // Check that the entity being queried belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(org.getMrn()).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(entityMrn))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        T entity = this.entityService.getByMrn(entityMrn);
+        if (entity == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
+        }
+        if (entity.getIdOrganization().compareTo(org.getId()) == 0) {
+            return new ResponseEntity<>(entity, HttpStatus.OK);
         }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
     }
 
     /**
@@ -116,29 +112,24 @@ public abstract class EntityController<T extends EntityModel> extends BaseContro
      * @return a reply...
      * @throws McBasicRestException
      */
-    protected ResponseEntity<?> updateEntity(HttpServletRequest request, String orgMrn, String entityMrn, T input) throws McBasicRestException {
+    protected ResponseEntity<?> updateEntity(HttpServletRequest request, OrganizationSnapshot org, String entityMrn, T input) throws McBasicRestException {
         if (!entityMrn.equalsIgnoreCase(input.getMrn())) {
             throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.URL_DATA_MISMATCH, request.getServletPath());
         }
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being updated belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(entityMrn))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            T entity = this.entityService.getByMrn(entityMrn);
-            if (entity == null) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
-            }
-            if (entity.getIdOrganization().compareTo(org.getId()) == 0) {
-                input.selectiveCopyTo(entity);
-                this.entityService.save(entity);
-                return new ResponseEntity<>(HttpStatus.OK);
-            }
-            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+        // Check that the entity being updated belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(org.getMrn()).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(entityMrn))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        T entity = this.entityService.getByMrn(entityMrn);
+        if (entity == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
         }
+        if (entity.getIdOrganization().compareTo(org.getId()) == 0) {
+            input.selectiveCopyTo(entity);
+            this.entityService.save(entity);
+            return new ResponseEntity<>(HttpStatus.OK);
+        }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
     }
 
     /**
@@ -147,25 +138,20 @@ public abstract class EntityController<T extends EntityModel> extends BaseContro
      * @return a reply...
      * @throws McBasicRestException
      */
-    protected ResponseEntity<?> deleteEntity(HttpServletRequest request, String orgMrn, String entityMrn) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being deleted belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(entityMrn))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            T entity = this.entityService.getByMrn(entityMrn);
-            if (entity == null) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
-            }
-            if (entity.getIdOrganization().compareTo(org.getId()) == 0) {
-                this.entityService.delete(entity.getId());
-                return new ResponseEntity<>(HttpStatus.OK);
-            }
-            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+    protected ResponseEntity<?> deleteEntity(HttpServletRequest request, OrganizationSnapshot org, String entityMrn) throws McBasicRestException {
+        // Check that the entity being deleted belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(org.getMrn()).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(entityMrn))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        T entity = this.entityService.getByMrn(entityMrn);
+        if (entity == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
+        }
+        if (entity.getIdOrganization().compareTo(org.getId()) == 0) {
+            this.entityService.delete(entity.getId());
+            return new ResponseEntity<>(HttpStatus.OK);
         }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
     }
 
     /**
@@ -174,13 +160,30 @@ public abstract class EntityController<T extends EntityModel> extends BaseContro
      * @return a reply...
      * @throws McBasicRestException
      */
-    protected Page<T> getOrganizationEntities(HttpServletRequest request, String orgMrn, Pageable pageable) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            return this.entityService.listPageFromOrg(org.getId(), pageable);
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
-        }
+    protected Page<T> getOrganizationEntities(HttpServletRequest request, OrganizationSnapshot org, Pageable pageable) throws McBasicRestException {
+        return this.entityService.listPageFromOrg(org.getId(), pageable);
+    }
+
+    /**
+     * Returns a list of entities owned by the given organization, read as the given interface projection
+     *
+     * @return a page of the projections
+     */
+    protected <P> Page<P> getOrganizationEntitySummaries(OrganizationSnapshot org, Pageable pageable, Class<P> type) {
+        return this.entityService.listPageFromOrg(org.getId(), pageable, type);
+    }
+
+    /**
+     * Returns the page of entities of the organization that comes after the given cursor
+     *
+     * @return a reply...
+     * @throws McBasicRestException if the cursor is not valid
+     */
+    protected <P extends EntitySummary> KeysetPage<P> getOrganizationEntitiesAfter(HttpServletRequest request, OrganizationSnapshot org, String cursor, int size, Class<P> type) throws McBasicRestException {
+        Long afterId = KeysetUtil.decodeCursor(cursor, request.getServletPath());
+        int limit = KeysetUtil.limit(size);
+        List<P> rows = this.entityService.listFromOrgAfter(org.getId(), afterId, limit + 1, type);
+        return KeysetUtil.toPage(rows, limit, EntitySummary::getId);
     }
 
 
@@ -190,25 +193,21 @@ public abstract class EntityController<T extends EntityModel> extends BaseContro
      * @return a reply...
      * @throws McBasicRestException
      */
-    protected ResponseEntity<CertificateBundle> newEntityCert(HttpServletRequest request, String orgMrn, String entityMrn, String type) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being queried belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(entityMrn))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            T entity = this.entityService.getByMrn(entityMrn);
-            if (entity == null) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
-            }
-            if (entity.getIdOrganization().compareTo(org.getId()) == 0) {
-                CertificateBundle ret = this.issueCertificate(entity, org, type, request);
-                return new ResponseEntity<>(ret, HttpStatus.OK);
-            }
-            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
-        }
+    protected ResponseEntity<CertificateBundle> newEntityCert(HttpServletRequest request, OrganizationSnapshot org, String entityMrn, String type) throws McBasicRestException {
+        T entity = getEntityOfOrganization(request, org, entityMrn);
+        CertificateBundle ret = this.issueCertificate(entity, org, type, request);
+        return new ResponseEntity<>(ret, HttpStatus.OK);
+    }
+
+    /**
+     * Starts an asynchronous issuance of a new certificate for the entity identified by the given ID
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    protected ResponseEntity<CertificateJob> newEntityCertAsync(HttpServletRequest request, OrganizationSnapshot org, String entityMrn, String type) throws McBasicRestException {
+        T entity = getEntityOfOrganization(request, org, entityMrn);
+        return this.issueCertificateAsync(entity, org, type, request);
     }
 
     /**
@@ -217,29 +216,108 @@ public abstract class EntityController<T extends EntityModel> extends BaseContro
      * @return a reply...
      * @throws McBasicRestException
      */
-    protected ResponseEntity<?> revokeEntityCert(HttpServletRequest request, String orgMrn, String entityMrn, BigInteger certId, CertificateRevocation input) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being queried belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(entityMrn))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            T entity = this.entityService.getByMrn(entityMrn.toLowerCase());
-            if (entity == null) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
-            }
-            if (entity.getIdOrganization().compareTo(org.getId()) == 0) {
-                Certificate cert = this.certificateService.getCertificateBySerialNumber(certId);
-                T certEntity = getCertEntity(cert);
-                if (certEntity != null && certEntity.getId().compareTo(entity.getId()) == 0) {
-                    this.revokeCertificate(cert.getSerialNumber(), input, request);
-                    return new ResponseEntity<>(HttpStatus.OK);
-                }
+    protected ResponseEntity<?> revokeEntityCert(HttpServletRequest request, OrganizationSnapshot org, String entityMrn, BigInteger certId, CertificateRevocation input) throws McBasicRestException {
+        // Check that the entity being queried belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(org.getMrn()).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(entityMrn))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        T entity = this.entityService.getByMrn(entityMrn.toLowerCase());
+        if (entity == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
+        }
+        if (entity.getIdOrganization().compareTo(org.getId()) == 0) {
+            Certificate cert = this.certificateService.getCertificateBySerialNumber(certId);
+            T certEntity = getCertEntity(cert);
+            if (certEntity != null && certEntity.getId().compareTo(entity.getId()) == 0) {
+                this.revokeCertificate(cert.getSerialNumber(), input, request);
+                return new ResponseEntity<>(HttpStatus.OK);
             }
+        }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+    }
+
+    /**
+     * Revokes all active certificates of the entity identified by the given ID
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    protected ResponseEntity<?> revokeAllEntityCerts(HttpServletRequest request, OrganizationSnapshot org, String entityMrn, CertificateRevocation input) throws McBasicRestException {
+        // Check that the entity being queried belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(org.getMrn()).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(entityMrn))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        T entity = this.entityService.getByMrn(entityMrn.toLowerCase());
+        if (entity == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
+        }
+        if (entity.getIdOrganization().compareTo(org.getId()) == 0) {
+            this.revokeAllCertificatesOf(entity, input, request);
+            return new ResponseEntity<>(HttpStatus.OK);
+        }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+    }
+
+    /**
+     * Renews a certificate of the entity identified by the given ID, reusing the public key of the certificate
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    protected ResponseEntity<PemCertificate> renewEntityCert(HttpServletRequest request, OrganizationSnapshot org, String entityMrn, BigInteger certId, String type) throws McBasicRestException {
+        T entity = getEntityOfOrganization(request, org, entityMrn);
+        Certificate cert = getCertificateOfEntity(request, entity, certId);
+        PemCertificate ret = this.renewCertificate(entity, org, type, cert, request);
+        return new ResponseEntity<>(ret, HttpStatus.OK);
+    }
+
+    /**
+     * Returns the entity identified by the given MRN if it belongs to the given organization
+     *
+     * @return the entity
+     * @throws McBasicRestException if the entity does not exist or belongs to another organization
+     */
+    protected T getEntityOfOrganization(HttpServletRequest request, OrganizationSnapshot org, String entityMrn) throws McBasicRestException {
+        // Check that the entity being queried belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(org.getMrn()).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(entityMrn))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        T entity = this.entityService.getByMrn(entityMrn);
+        return checkEntityOfOrganization(request, org, entity);
+    }
+
+    /**
+     * Checks that the given entity exists and belongs to the given organization
+     *
+     * @return the entity
+     * @throws McBasicRestException if the entity does not exist or belongs to another organization
+     */
+    protected T checkEntityOfOrganization(HttpServletRequest request, OrganizationSnapshot org, T entity) throws McBasicRestException {
+        if (entity == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
+        }
+        if (entity.getIdOrganization().compareTo(org.getId()) != 0) {
+            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        return entity;
+    }
+
+    /**
+     * Returns the certificate with the given serial number if it belongs to the given entity
+     *
+     * @return the certificate
+     * @throws McBasicRestException if the certificate does not exist or belongs to another entity
+     */
+    protected Certificate getCertificateOfEntity(HttpServletRequest request, T entity, BigInteger certId) throws McBasicRestException {
+        Certificate cert = this.certificateService.getCertificateBySerialNumber(certId);
+        if (cert == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.CERTIFICATE_NOT_FOUND, request.getServletPath());
+        }
+        T certEntity = getCertEntity(cert);
+        if (certEntity == null || certEntity.getId().compareTo(entity.getId()) != 0) {
             throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
         }
+        return cert;
     }
 
     protected T getCertEntity(Certificate cert) {
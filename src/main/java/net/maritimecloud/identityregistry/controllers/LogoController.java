@@ -66,20 +66,15 @@ public class LogoController {
             value = "/api/org/{orgMrn}/logo",
             method = RequestMethod.POST)
     @ResponseBody
-    @PreAuthorize("hasRole('ORG_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> createLogoPost(HttpServletRequest request, @PathVariable String orgMrn, @RequestParam("logo") MultipartFile logo) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            try {
-                this.updateLogo(org, logo.getInputStream());
-                organizationService.save(org);
-                return new ResponseEntity<>(HttpStatus.CREATED);
-            } catch (IOException e) {
-                log.error("Unable to create logo", e);
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.INVALID_IMAGE, request.getServletPath());
-            }
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+    @PreAuthorize("hasRole('ORG_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> createLogoPost(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization Organization org, @RequestParam("logo") MultipartFile logo) throws McBasicRestException {
+        try {
+            this.updateLogo(org, logo.getInputStream());
+            organizationService.save(org);
+            return new ResponseEntity<>(HttpStatus.CREATED);
+        } catch (IOException e) {
+            log.error("Unable to create logo", e);
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.INVALID_IMAGE, request.getServletPath());
         }
     }
 
@@ -93,20 +88,15 @@ public class LogoController {
             value = "/api/org/{orgMrn}/logo",
             method = RequestMethod.GET)
     @ResponseBody
-    public ResponseEntity<?> getLogo(HttpServletRequest request, @PathVariable String orgMrn) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            if (org.getLogo() != null) {
-                byte[] image = org.getLogo().getImage();
-                HttpHeaders responseHeaders = new HttpHeaders();
-                responseHeaders.setContentLength(image.length);
-                responseHeaders.setContentType(MediaType.IMAGE_PNG);
-                return new ResponseEntity<>(image, responseHeaders, HttpStatus.OK);
-            } else {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.LOGO_NOT_FOUND, request.getServletPath());
-            }
+    public ResponseEntity<?> getLogo(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization(requireAccess = false) Organization org) throws McBasicRestException {
+        if (org.getLogo() != null) {
+            byte[] image = org.getLogo().getImage();
+            HttpHeaders responseHeaders = new HttpHeaders();
+            responseHeaders.setContentLength(image.length);
+            responseHeaders.setContentType(MediaType.IMAGE_PNG);
+            return new ResponseEntity<>(image, responseHeaders, HttpStatus.OK);
         } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.LOGO_NOT_FOUND, request.getServletPath());
         }
 
     }
@@ -122,22 +112,17 @@ public class LogoController {
             value = "/api/org/{orgMrn}/logo",
             method = RequestMethod.PUT)
     @ResponseBody
-    @PreAuthorize("hasRole('ORG_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> createLogoPut(HttpServletRequest request, @PathVariable String orgMrn, @RequestBody byte[] logo) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            try {
-                ByteArrayInputStream inputLogo = new ByteArrayInputStream(logo);
-                this.updateLogo(org, inputLogo);
-                organizationService.save(org);
-            } catch (IOException e) {
-                e.printStackTrace();
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.INVALID_IMAGE, request.getServletPath());
-            }
-            return new ResponseEntity<>(HttpStatus.CREATED);
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+    @PreAuthorize("hasRole('ORG_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> createLogoPut(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization Organization org, @RequestBody byte[] logo) throws McBasicRestException {
+        try {
+            ByteArrayInputStream inputLogo = new ByteArrayInputStream(logo);
+            this.updateLogo(org, inputLogo);
+            organizationService.save(org);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.INVALID_IMAGE, request.getServletPath());
         }
+        return new ResponseEntity<>(HttpStatus.CREATED);
     }
     /**
      * Deletes a Logo
@@ -149,18 +134,13 @@ public class LogoController {
             value = "/api/org/{orgMrn}/logo",
             method = RequestMethod.DELETE)
     @ResponseBody
-    @PreAuthorize("hasRole('ORG_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> deleteLogo(HttpServletRequest request, @PathVariable String orgMrn) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            if (org.getLogo() != null) {
-                org.setLogo(null);
-                organizationService.save(org);
-            }
-            return new ResponseEntity<>(HttpStatus.OK);
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+    @PreAuthorize("hasRole('ORG_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> deleteLogo(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization Organization org) throws McBasicRestException {
+        if (org.getLogo() != null) {
+            org.setLogo(null);
+            organizationService.save(org);
         }
+        return new ResponseEntity<>(HttpStatus.OK);
     }
     // this method belongs to on the Organization class, not as a free function in the controller
     private void updateLogo(Organization org, InputStream logoInputStream) throws IOException {
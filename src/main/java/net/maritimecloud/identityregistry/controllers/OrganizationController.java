@@ -16,23 +16,28 @@
 package net.maritimecloud.identityregistry.controllers;
 
 import net.maritimecloud.identityregistry.exception.McBasicRestException;
+import net.maritimecloud.identityregistry.model.data.BulkCertificateRevocation;
 import net.maritimecloud.identityregistry.model.data.CertificateBundle;
+import net.maritimecloud.identityregistry.model.data.CertificateJob;
 import net.maritimecloud.identityregistry.model.data.CertificateRevocation;
+import net.maritimecloud.identityregistry.model.data.KeysetPage;
+import net.maritimecloud.identityregistry.model.data.OrganizationSnapshot;
+import net.maritimecloud.identityregistry.model.data.OrganizationSummary;
+import net.maritimecloud.identityregistry.model.data.PemCertificate;
 import net.maritimecloud.identityregistry.model.database.Certificate;
 import net.maritimecloud.identityregistry.model.database.CertificateModel;
 import net.maritimecloud.identityregistry.model.database.IdentityProviderAttribute;
 import net.maritimecloud.identityregistry.model.database.Organization;
-import net.maritimecloud.identityregistry.model.database.entities.Device;
-import net.maritimecloud.identityregistry.model.database.entities.Service;
 import net.maritimecloud.identityregistry.model.database.entities.User;
-import net.maritimecloud.identityregistry.model.database.entities.Vessel;
 import net.maritimecloud.identityregistry.services.CertificateService;
 import net.maritimecloud.identityregistry.services.EntityService;
 import net.maritimecloud.identityregistry.services.OrganizationService;
-import net.maritimecloud.identityregistry.services.RoleService;
+import net.maritimecloud.identityregistry.utils.CertificateJobUtil;
 import net.maritimecloud.identityregistry.utils.EmailUtil;
 import net.maritimecloud.identityregistry.utils.KeycloakAdminUtil;
+import net.maritimecloud.identityregistry.utils.KeysetUtil;
 import net.maritimecloud.identityregistry.utils.MCIdRegConstants;
+import net.maritimecloud.identityregistry.utils.RateLimitUtil;
 import net.maritimecloud.identityregistry.utils.ValidateUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -41,11 +46,13 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
@@ -58,18 +65,9 @@ import java.util.HashMap;
 
 @RestController
 public class OrganizationController extends BaseControllerWithCertificate {
-    // These 4 services are used when deleting an organization
-    @Autowired
-    private EntityService<Device> deviceService;
-    @Autowired
-    private EntityService<Service> serviceService;
+    // Used to remove the users of an organization from the shared project IDP when deleting the organization
     @Autowired
     private EntityService<User> userService;
-    @Autowired
-    private EntityService<Vessel> vesselService;
-
-    @Autowired
-    private RoleService roleService;
 
     @Autowired
     private EmailUtil emailUtil;
@@ -83,12 +81,16 @@ public class OrganizationController extends BaseControllerWithCertificate {
     @Autowired
     private CertificateService certificateService;
 
+    @Autowired
+    private CertificateJobUtil certificateJobUtil;
+
     /**
      * Receives an application for a new organization and root-user
      * 
      * @return a reply...
      * @throws McBasicRestException 
      */
+    @RateLimited(RateLimitUtil.Budget.ORGANIZATION_APPLICATION)
     @RequestMapping(
             value = "/api/org/apply",
             method = RequestMethod.POST,
@@ -131,6 +133,25 @@ public class OrganizationController extends BaseControllerWithCertificate {
         return this.organizationService.getUnapprovedOrganizations(pageable);
     }
 
+    /**
+     * Returns a page of unapproved organizations continuing after the given cursor
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/unapprovedorgs",
+            method = RequestMethod.GET,
+            params = KeysetUtil.CURSOR_PARAM,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('ROLE_APPROVE_ORG')")
+    public KeysetPage<Organization> getUnapprovedOrganizationsAfter(HttpServletRequest request, @RequestParam String cursor,
+                                                                    @RequestParam(defaultValue = KeysetUtil.DEFAULT_SIZE) int size) throws McBasicRestException {
+        Long afterId = KeysetUtil.decodeCursor(cursor, request.getServletPath());
+        int limit = KeysetUtil.limit(size);
+        return KeysetUtil.toPage(this.organizationService.getUnapprovedOrganizationsAfter(afterId, limit + 1), limit, Organization::getId);
+    }
+
     /**
      * Approves the organization identified by the given ID
      * 
@@ -178,11 +199,8 @@ public class OrganizationController extends BaseControllerWithCertificate {
             value = "/api/org/{orgMrn}",
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
-    public ResponseEntity<Organization> getOrganization(HttpServletRequest request, @PathVariable String orgMrn) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org == null) {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
-        }
+    // Anyone may see an organization, the sensitive fields are cleared for callers without access to it
+    public ResponseEntity<Organization> getOrganization(@PathOrganization(requireAccess = false) Organization org) {
         return new ResponseEntity<>(org, HttpStatus.OK);
     }
 
@@ -218,6 +236,38 @@ public class OrganizationController extends BaseControllerWithCertificate {
         return this.organizationService.listAllPage(pageable);
     }
 
+    /**
+     * Returns a list of summaries of all organizations. Only the columns of the summaries are read, so this is
+     * cheaper than the full list.
+     *
+     * @return a reply...
+     */
+    @RequestMapping(
+            value = "/api/orgs/summaries",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    public Page<OrganizationSummary> getOrganizationSummaries(Pageable pageable) {
+        return this.organizationService.listAllSummaryPage(pageable);
+    }
+
+    /**
+     * Returns a page of approved organizations continuing after the given cursor
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/orgs",
+            method = RequestMethod.GET,
+            params = KeysetUtil.CURSOR_PARAM,
+            produces = "application/json;charset=UTF-8")
+    public KeysetPage<OrganizationSummary> getOrganizationsAfter(HttpServletRequest request, @RequestParam String cursor,
+                                                                 @RequestParam(defaultValue = KeysetUtil.DEFAULT_SIZE) int size) throws McBasicRestException {
+        Long afterId = KeysetUtil.decodeCursor(cursor, request.getServletPath());
+        int limit = KeysetUtil.limit(size);
+        return KeysetUtil.toPage(this.organizationService.listAllAfter(afterId, limit + 1), limit, OrganizationSummary::getId);
+    }
+
     /**
      * Updates info about the organization identified by the given ID
      * 
@@ -227,44 +277,39 @@ public class OrganizationController extends BaseControllerWithCertificate {
     @RequestMapping(
             value = "/api/org/{orgMrn}",
             method = RequestMethod.PUT)
-    @PreAuthorize("hasRole('ORG_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> updateOrganization(HttpServletRequest request, @PathVariable String orgMrn,
+    @PreAuthorize("hasRole('ORG_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> updateOrganization(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization Organization org,
             @Valid @RequestBody Organization input, BindingResult bindingResult) throws McBasicRestException {
         ValidateUtil.hasErrors(bindingResult, request);
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            if (!orgMrn.equalsIgnoreCase(input.getMrn())) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.URL_DATA_MISMATCH, request.getServletPath());
-            }
-            // If a well-known url and client id and secret was supplied, and it is different from the current data we create a new IDP, or update it.
-            if ("own-idp".equals(input.getFederationType()) && input.getIdentityProviderAttributes() != null && !input.getIdentityProviderAttributes().isEmpty()) {
-                keycloakAU.init(KeycloakAdminUtil.BROKER_INSTANCE);
-                // If the IDP setup is different we delete the old IDP in keycloak
-                if (org.getIdentityProviderAttributes() != null && !org.getIdentityProviderAttributes().isEmpty()
-                        && !IdentityProviderAttribute.listsEquals(org.getIdentityProviderAttributes(), input.getIdentityProviderAttributes())) {
-                    keycloakAU.deleteIdentityProvider(input.getMrn());
-                }
-                try {
-                    keycloakAU.createIdentityProvider(input.getMrn().toLowerCase(), input.getIdentityProviderAttributes());
-                } catch (InternalServerErrorException e) {
-                    throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.INVALID_IDP_URL, request.getServletPath());
-                } catch (IOException e) {
-                    throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.COULD_NOT_GET_DATA_FROM_IDP, request.getServletPath());
-                }
-                org.setFederationType("own-idp");
-            } else if (org.getIdentityProviderAttributes() != null && !org.getIdentityProviderAttributes().isEmpty()) {
-                // Remove old IDP if new input doesn't contain IDP info
-                keycloakAU.init(KeycloakAdminUtil.BROKER_INSTANCE);
+        if (!orgMrn.equalsIgnoreCase(input.getMrn())) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.URL_DATA_MISMATCH, request.getServletPath());
+        }
+        // If a well-known url and client id and secret was supplied, and it is different from the current data we create a new IDP, or update it.
+        if ("own-idp".equals(input.getFederationType()) && input.getIdentityProviderAttributes() != null && !input.getIdentityProviderAttributes().isEmpty()) {
+            keycloakAU.init(KeycloakAdminUtil.BROKER_INSTANCE);
+            // If the IDP setup is different we delete the old IDP in keycloak
+            if (org.getIdentityProviderAttributes() != null && !org.getIdentityProviderAttributes().isEmpty()
+                    && !IdentityProviderAttribute.listsEquals(org.getIdentityProviderAttributes(), input.getIdentityProviderAttributes())) {
                 keycloakAU.deleteIdentityProvider(input.getMrn());
-                // TODO: Determine if setting to "external-idp" could be done as well.
-                org.setFederationType("test-idp");
             }
-            input.selectiveCopyTo(org);
-            this.organizationService.save(org);
-            return new ResponseEntity<>(HttpStatus.OK);
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+            try {
+                keycloakAU.createIdentityProvider(input.getMrn().toLowerCase(), input.getIdentityProviderAttributes());
+            } catch (InternalServerErrorException e) {
+                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.INVALID_IDP_URL, request.getServletPath());
+            } catch (IOException e) {
+                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.COULD_NOT_GET_DATA_FROM_IDP, request.getServletPath());
+            }
+            org.setFederationType("own-idp");
+        } else if (org.getIdentityProviderAttributes() != null && !org.getIdentityProviderAttributes().isEmpty()) {
+            // Remove old IDP if new input doesn't contain IDP info
+            keycloakAU.init(KeycloakAdminUtil.BROKER_INSTANCE);
+            keycloakAU.deleteIdentityProvider(input.getMrn());
+            // TODO: Determine if setting to "external-idp" could be done as well.
+            org.setFederationType("test-idp");
         }
+        input.selectiveCopyTo(org);
+        this.organizationService.save(org);
+        return new ResponseEntity<>(HttpStatus.OK);
     }
 
     /**
@@ -291,12 +336,7 @@ public class OrganizationController extends BaseControllerWithCertificate {
                     keycloakAU.deleteUser(user.getEmail());
                 }
             }
-            this.deviceService.deleteByOrg(org.getId());
-            this.serviceService.deleteByOrg(org.getId());
-            this.userService.deleteByOrg(org.getId());
-            this.vesselService.deleteByOrg(org.getId());
-            this.roleService.deleteByOrg(org.getId());
-            this.organizationService.delete(org.getId());
+            this.organizationService.deleteWithEntities(org.getId());
             return new ResponseEntity<>(HttpStatus.OK);
         } else {
             throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
@@ -309,19 +349,55 @@ public class OrganizationController extends BaseControllerWithCertificate {
      * @return a reply...
      * @throws McBasicRestException
      */
+    @RateLimited(RateLimitUtil.Budget.CERTIFICATE_ISSUANCE)
     @RequestMapping(
             value = "/api/org/{orgMrn}/certificate/issue-new",
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
-    @PreAuthorize("hasRole('ORG_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<CertificateBundle> newOrgCert(HttpServletRequest request, @PathVariable String orgMrn) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            CertificateBundle ret = this.issueCertificate(org, org, "organization", request);
-            return new ResponseEntity<>(ret, HttpStatus.OK);
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+    @PreAuthorize("hasRole('ORG_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<CertificateBundle> newOrgCert(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization Organization org) throws McBasicRestException {
+        CertificateBundle ret = this.issueCertificate(org, OrganizationSnapshot.of(org), "organization", request);
+        return new ResponseEntity<>(ret, HttpStatus.OK);
+    }
+
+    /**
+     * Starts an asynchronous issuance of a new certificate for the organization identified by the given ID
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RateLimited(RateLimitUtil.Budget.CERTIFICATE_ISSUANCE)
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/certificate/issue-new",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('ORG_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<CertificateJob> newOrgCertAsync(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization Organization org) throws McBasicRestException {
+        return this.issueCertificateAsync(org, OrganizationSnapshot.of(org), "organization", request);
+    }
+
+    /**
+     * Returns an asynchronous certificate issuance job. While the job is pending 202 is returned, when it is done the
+     * job contains the certificate bundle or the error. Only the user that started the job can fetch it.
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/certificate/job/{jobId}",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<CertificateJob> getCertificateJob(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String jobId) throws McBasicRestException {
+        String owner = SecurityContextHolder.getContext().getAuthentication().getName();
+        CertificateJob job = this.certificateJobUtil.getJob(jobId, orgMrn, owner);
+        if (job == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.CERTIFICATE_JOB_NOT_FOUND, request.getServletPath());
+        }
+        if (job.getStatus() == CertificateJob.Status.PENDING) {
+            return new ResponseEntity<>(job, HttpStatus.ACCEPTED);
         }
+        return new ResponseEntity<>(job, HttpStatus.OK);
     }
 
     /**
@@ -334,20 +410,56 @@ public class OrganizationController extends BaseControllerWithCertificate {
             value = "/api/org/{orgMrn}/certificate/{certId}/revoke",
             method = RequestMethod.POST,
             produces = "application/json;charset=UTF-8")
-    @PreAuthorize("hasRole('ORG_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> revokeOrgCert(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable BigInteger certId, @Valid @RequestBody CertificateRevocation input) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            Certificate cert = this.certificateService.getCertificateBySerialNumber(certId);
-            Organization certOrg = cert.getOrganization();
-            if (certOrg != null && certOrg.getId().compareTo(org.getId()) == 0) {
-                this.revokeCertificate(certId, input, request);
-                return new ResponseEntity<>(HttpStatus.OK);
-            }
-            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+    @PreAuthorize("hasRole('ORG_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> revokeOrgCert(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable BigInteger certId, @Valid @RequestBody CertificateRevocation input) throws McBasicRestException {
+        Certificate cert = this.certificateService.getCertificateBySerialNumber(certId);
+        Organization certOrg = cert.getOrganization();
+        if (certOrg != null && certOrg.getId().compareTo(org.getId()) == 0) {
+            this.revokeCertificate(certId, input, request);
+            return new ResponseEntity<>(HttpStatus.OK);
+        }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+    }
+
+    /**
+     * Revokes the certificates with the given serial numbers, or all active certificates, of the organization and
+     * its entities
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/certificates/revoke",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('ORG_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> revokeOrgCerts(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @Valid @RequestBody BulkCertificateRevocation input) throws McBasicRestException {
+        this.revokeCertificates(org, input.getSerialNumbers(), input, request);
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    /**
+     * Renews certificate for the organization identified by the given ID, reusing its public key
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/certificate/{certId}/renew",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('ORG_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<PemCertificate> renewOrgCert(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization Organization org, @PathVariable BigInteger certId) throws McBasicRestException {
+        Certificate cert = this.certificateService.getCertificateBySerialNumber(certId);
+        if (cert == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.CERTIFICATE_NOT_FOUND, request.getServletPath());
+        }
+        Organization certOrg = cert.getOrganization();
+        if (certOrg != null && certOrg.getId().compareTo(org.getId()) == 0) {
+            PemCertificate ret = this.renewCertificate(org, OrganizationSnapshot.of(org), "organization", cert, request);
+            return new ResponseEntity<>(ret, HttpStatus.OK);
         }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
     }
 
     @Override
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.controllers;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler method parameter that should be the organization identified by a path variable. The organization
+ * is looked up once per request by {@link PathOrganizationArgumentResolver}, which replies with 404 if it does not
+ * exist, or with 403 if access to it is required and the caller has none.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface PathOrganization {
+
+    /**
+     * @return the name of the path variable holding the MRN of the organization
+     */
+    String value() default "orgMrn";
+
+    /**
+     * Whether the caller must have access to the organization, as checked by AccessControlUtil.hasAccessToOrg. Callers
+     * without access are denied before the organization is looked up, so they get 403 whether or not it exists. The
+     * handler method must still check access in its @PreAuthorize, this only decides what is done before that.
+     * Handlers that anyone may call, like the organization details, set this to false.
+     *
+     * @return true if the caller must have access to the organization
+     */
+    boolean requireAccess() default true;
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.controllers;
+
+import net.maritimecloud.identityregistry.exception.McBasicRestException;
+import net.maritimecloud.identityregistry.model.data.OrganizationSnapshot;
+import net.maritimecloud.identityregistry.model.database.Organization;
+import net.maritimecloud.identityregistry.services.OrganizationService;
+import net.maritimecloud.identityregistry.utils.AccessControlUtil;
+import net.maritimecloud.identityregistry.utils.MCIdRegConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Map;
+
+/**
+ * Resolves parameters annotated with {@link PathOrganization} to the organization identified by the path variable.
+ * An {@link OrganizationSnapshot} parameter is served from the cache in OrganizationService, while an
+ * {@link Organization} parameter is loaded as an entity, for the handlers that show or change the organization. Either
+ * is kept as a request attribute, so it is only looked up once per request.
+ *
+ * Arguments are resolved before the @PreAuthorize of the handler method is evaluated. If the parameter requires
+ * access to the organization and the caller has none, the request is denied here without looking the organization
+ * up, so such callers get 403 whether or not the organization exists.
+ */
+@Component
+public class PathOrganizationArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private static final String REQUEST_ATTRIBUTE = PathOrganizationArgumentResolver.class.getName() + ".ORGANIZATION";
+    private static final String SNAPSHOT_REQUEST_ATTRIBUTE = PathOrganizationArgumentResolver.class.getName() + ".SNAPSHOT";
+
+    private OrganizationService organizationService;
+
+    @Autowired
+    public void setOrganizationService(OrganizationService organizationService) {
+        this.organizationService = organizationService;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(PathOrganization.class)
+                && (Organization.class.isAssignableFrom(parameter.getParameterType())
+                || OrganizationSnapshot.class.isAssignableFrom(parameter.getParameterType()));
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer, NativeWebRequest webRequest,
+                                  WebDataBinderFactory binderFactory) throws McBasicRestException {
+        String path = webRequest.getNativeRequest(HttpServletRequest.class).getServletPath();
+        PathOrganization annotation = parameter.getParameterAnnotation(PathOrganization.class);
+        String variable = annotation.value();
+        @SuppressWarnings("unchecked")
+        Map<String, String> uriVariables = (Map<String, String>) webRequest.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        String orgMrn = uriVariables != null ? uriVariables.get(variable) : null;
+        if (orgMrn == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, path);
+        }
+        if (annotation.requireAccess() && !AccessControlUtil.hasAccessToOrg(orgMrn)) {
+            throw new AccessDeniedException("Access is denied");
+        }
+        if (OrganizationSnapshot.class.isAssignableFrom(parameter.getParameterType())) {
+            Object cached = webRequest.getAttribute(SNAPSHOT_REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (cached instanceof OrganizationSnapshot && orgMrn.equalsIgnoreCase(((OrganizationSnapshot) cached).getMrn())) {
+                return cached;
+            }
+            OrganizationSnapshot org = this.organizationService.getOrganizationSnapshot(orgMrn);
+            if (org == null) {
+                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, path);
+            }
+            webRequest.setAttribute(SNAPSHOT_REQUEST_ATTRIBUTE, org, RequestAttributes.SCOPE_REQUEST);
+            return org;
+        }
+        Object cached = webRequest.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (cached instanceof Organization && orgMrn.equalsIgnoreCase(((Organization) cached).getMrn())) {
+            return cached;
+        }
+        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
+        if (org == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, path);
+        }
+        webRequest.setAttribute(REQUEST_ATTRIBUTE, org, RequestAttributes.SCOPE_REQUEST);
+        return org;
+    }
+}
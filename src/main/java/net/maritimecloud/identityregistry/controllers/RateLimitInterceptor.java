@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.controllers;
+
+import net.maritimecloud.identityregistry.utils.MCIdRegConstants;
+import net.maritimecloud.identityregistry.utils.RateLimitUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Rejects requests to handler methods annotated with {@link RateLimited} with 429 and a Retry-After header when the
+ * client has used its budget. Clients are identified by the name of their authentication, which is the MRN of a
+ * client certificate or the subject of a bearer token, and by their IP address if they are anonymous. Behind a
+ * trusted reverse proxy the IP address is taken from the X-Forwarded-For header it sets.
+ *
+ * The interceptor runs before the arguments of the handler are resolved, so a rejected request is cheap.
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    // The addresses of the reverse proxies whose X-Forwarded-For header is trusted
+    @Value("${net.maritimecloud.idreg.rate-limit.trusted-proxies:127.0.0.1,0:0:0:0:0:0:0:1}")
+    private String[] trustedProxies = {"127.0.0.1", "0:0:0:0:0:0:0:1"};
+
+    private RateLimitUtil rateLimitUtil;
+
+    @Autowired
+    public void setRateLimitUtil(RateLimitUtil rateLimitUtil) {
+        this.rateLimitUtil = rateLimitUtil;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        RateLimited rateLimited = ((HandlerMethod) handler).getMethodAnnotation(RateLimited.class);
+        if (rateLimited == null) {
+            return true;
+        }
+        long retryAfter = rateLimitUtil.acquire(rateLimited.value(), getClientId(request));
+        if (retryAfter == 0) {
+            return true;
+        }
+        // The error is sent rather than thrown, as some of the endpoints, like OCSP, can not produce a JSON reply
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), MCIdRegConstants.TOO_MANY_REQUESTS);
+        return false;
+    }
+
+    String getClientId(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+            return "client:" + auth.getName();
+        }
+        return "ip:" + getClientAddress(request);
+    }
+
+    private String getClientAddress(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        String forwardedFor = request.getHeader(FORWARDED_FOR_HEADER);
+        if (forwardedFor == null || !isTrustedProxy(address)) {
+            return address;
+        }
+        // Each proxy appends the address it got the request from, so the client is the last address that is not a
+        // trusted proxy. The addresses before it are sent by the client and can not be trusted.
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (!hop.isEmpty()) {
+                address = hop;
+                if (!isTrustedProxy(hop)) {
+                    break;
+                }
+            }
+        }
+        return address;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        for (String trustedProxy : trustedProxies) {
+            if (trustedProxy.trim().equals(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -16,9 +16,8 @@
 package net.maritimecloud.identityregistry.controllers;
 
 import net.maritimecloud.identityregistry.exception.McBasicRestException;
-import net.maritimecloud.identityregistry.model.database.Organization;
+import net.maritimecloud.identityregistry.model.data.OrganizationSnapshot;
 import net.maritimecloud.identityregistry.model.database.Role;
-import net.maritimecloud.identityregistry.services.OrganizationService;
 import net.maritimecloud.identityregistry.services.RoleService;
 import net.maritimecloud.identityregistry.utils.AccessControlUtil;
 import net.maritimecloud.identityregistry.utils.MCIdRegConstants;
@@ -47,8 +46,6 @@ public class RoleController {
     @Autowired
     private RoleService roleService;
     @Autowired
-    private OrganizationService organizationService;
-    @Autowired
     private AccessControlUtil accessControlUtil;
 
     /**
@@ -61,15 +58,10 @@ public class RoleController {
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
     @ResponseBody
-    @PreAuthorize("hasRole('ORG_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<List<Role>> getRoles(HttpServletRequest request, @PathVariable String orgMrn) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            List<Role> roles = this.roleService.listFromOrg(org.getId());
-            return new ResponseEntity<>(roles, HttpStatus.OK);
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
-        }
+    @PreAuthorize("hasRole('ORG_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<List<Role>> getRoles(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org) throws McBasicRestException {
+        List<Role> roles = this.roleService.listFromOrg(org.getId());
+        return new ResponseEntity<>(roles, HttpStatus.OK);
     }
 
     @RequestMapping(
@@ -77,20 +69,15 @@ public class RoleController {
             method = RequestMethod.POST,
             produces = "application/json;charset=UTF-8")
     @ResponseBody
-    @PreAuthorize("(hasRole('ORG_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn) and #input.roleName != 'ROLE_SITE_ADMIN') or hasRole('SITE_ADMIN')")
-    public ResponseEntity<Role> createRole(HttpServletRequest request, @PathVariable String orgMrn, @Valid @RequestBody Role input, BindingResult bindingResult) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            if ((input.getRoleName().equals("ROLE_SITE_ADMIN") || input.getRoleName().equals("ROLE_APPROVE_ORG"))
-                    && !accessControlUtil.hasRole("ROLE_SITE_ADMIN")) {
-                throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            input.setIdOrganization(org.getId());
-            Role newRole = this.roleService.save(input);
-            return new ResponseEntity<>(newRole, HttpStatus.OK);
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+    @PreAuthorize("(hasRole('ORG_ADMIN') and hasAccessToOrg(#orgMrn) and #input.roleName != 'ROLE_SITE_ADMIN') or hasRole('SITE_ADMIN')")
+    public ResponseEntity<Role> createRole(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @Valid @RequestBody Role input, BindingResult bindingResult) throws McBasicRestException {
+        if ((input.getRoleName().equals("ROLE_SITE_ADMIN") || input.getRoleName().equals("ROLE_APPROVE_ORG"))
+                && !accessControlUtil.hasRole("ROLE_SITE_ADMIN")) {
+            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
         }
+        input.setIdOrganization(org.getId());
+        Role newRole = this.roleService.save(input);
+        return new ResponseEntity<>(newRole, HttpStatus.OK);
     }
 
     /**
@@ -104,21 +91,16 @@ public class RoleController {
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
     @ResponseBody
-    @PreAuthorize("hasRole('ORG_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<Role> getRole(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable Long roleId) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            Role role = this.roleService.getById(roleId);
-            if (role == null) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ROLE_NOT_FOUND, request.getServletPath());
-            }
-            if (role.getIdOrganization().compareTo(org.getId()) == 0) {
-                return new ResponseEntity<>(role, HttpStatus.OK);
-            }
-            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+    @PreAuthorize("hasRole('ORG_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<Role> getRole(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable Long roleId) throws McBasicRestException {
+        Role role = this.roleService.getById(roleId);
+        if (role == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ROLE_NOT_FOUND, request.getServletPath());
+        }
+        if (role.getIdOrganization().compareTo(org.getId()) == 0) {
+            return new ResponseEntity<>(role, HttpStatus.OK);
         }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
 
     }
 
@@ -132,28 +114,23 @@ public class RoleController {
             value = "/api/org/{orgMrn}/role/{roleId}",
             method = RequestMethod.PUT)
     @ResponseBody
-    @PreAuthorize("(hasRole('ORG_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn) and #input.roleName != 'ROLE_SITE_ADMIN') or hasRole('SITE_ADMIN')")
-    public ResponseEntity<?> updateRole(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable Long roleId, @Valid @RequestBody Role input, BindingResult bindingResult) throws McBasicRestException {
+    @PreAuthorize("(hasRole('ORG_ADMIN') and hasAccessToOrg(#orgMrn) and #input.roleName != 'ROLE_SITE_ADMIN') or hasRole('SITE_ADMIN')")
+    public ResponseEntity<?> updateRole(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable Long roleId, @Valid @RequestBody Role input, BindingResult bindingResult) throws McBasicRestException {
         ValidateUtil.hasErrors(bindingResult, request);
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            Role role = this.roleService.getById(roleId);
-            if (role == null) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ROLE_NOT_FOUND, request.getServletPath());
-            }
-            if (role.getIdOrganization().compareTo(org.getId()) != 0) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.URL_DATA_MISMATCH, request.getServletPath());
-            }
-            if ((input.getRoleName().equals("ROLE_SITE_ADMIN") || input.getRoleName().equals("ROLE_APPROVE_ORG"))
-                    && !accessControlUtil.hasRole("ROLE_SITE_ADMIN")) {
-                throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            input.copyTo(role);
-            this.roleService.save(role);
-            return new ResponseEntity<>(HttpStatus.OK);
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+        Role role = this.roleService.getById(roleId);
+        if (role == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ROLE_NOT_FOUND, request.getServletPath());
         }
+        if (role.getIdOrganization().compareTo(org.getId()) != 0) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.URL_DATA_MISMATCH, request.getServletPath());
+        }
+        if ((input.getRoleName().equals("ROLE_SITE_ADMIN") || input.getRoleName().equals("ROLE_APPROVE_ORG"))
+                && !accessControlUtil.hasRole("ROLE_SITE_ADMIN")) {
+            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        input.copyTo(role);
+        this.roleService.save(role);
+        return new ResponseEntity<>(HttpStatus.OK);
     }
 
     /**
@@ -166,22 +143,17 @@ public class RoleController {
             value = "/api/org/{orgMrn}/role/{roleId}",
             method = RequestMethod.DELETE)
     @ResponseBody
-    @PreAuthorize("hasRole('ORG_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> deleteRole(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable Long roleId) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            Role role = this.roleService.getById(roleId);
-            if (role == null) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ROLE_NOT_FOUND, request.getServletPath());
-            }
-            if (role.getIdOrganization().compareTo(org.getId()) == 0) {
-                this.roleService.delete(roleId);
-                return new ResponseEntity<>(HttpStatus.OK);
-            }
-            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+    @PreAuthorize("hasRole('ORG_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> deleteRole(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable Long roleId) throws McBasicRestException {
+        Role role = this.roleService.getById(roleId);
+        if (role == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ROLE_NOT_FOUND, request.getServletPath());
+        }
+        if (role.getIdOrganization().compareTo(org.getId()) == 0) {
+            this.roleService.delete(roleId);
+            return new ResponseEntity<>(HttpStatus.OK);
         }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
     }
 
     /**
@@ -19,10 +19,14 @@ import lombok.extern.slf4j.Slf4j;
 import net.maritimecloud.identityregistry.exception.DuplicatedKeycloakEntry;
 import net.maritimecloud.identityregistry.exception.McBasicRestException;
 import net.maritimecloud.identityregistry.model.data.CertificateBundle;
+import net.maritimecloud.identityregistry.model.data.CertificateJob;
 import net.maritimecloud.identityregistry.model.data.CertificateRevocation;
+import net.maritimecloud.identityregistry.model.data.KeysetPage;
+import net.maritimecloud.identityregistry.model.data.OrganizationSnapshot;
+import net.maritimecloud.identityregistry.model.data.PemCertificate;
+import net.maritimecloud.identityregistry.model.data.ServiceSummary;
 import net.maritimecloud.identityregistry.model.database.Certificate;
 import net.maritimecloud.identityregistry.model.database.CertificateModel;
-import net.maritimecloud.identityregistry.model.database.Organization;
 import net.maritimecloud.identityregistry.model.database.entities.Service;
 import net.maritimecloud.identityregistry.model.database.entities.Vessel;
 import net.maritimecloud.identityregistry.services.EntityService;
@@ -30,8 +34,10 @@ import net.maritimecloud.identityregistry.services.ServiceService;
 import net.maritimecloud.identityregistry.services.VesselServiceImpl;
 import net.maritimecloud.identityregistry.utils.AttributesUtil;
 import net.maritimecloud.identityregistry.utils.KeycloakAdminUtil;
+import net.maritimecloud.identityregistry.utils.KeysetUtil;
 import net.maritimecloud.identityregistry.utils.MCIdRegConstants;
 import net.maritimecloud.identityregistry.utils.MrnUtil;
+import net.maritimecloud.identityregistry.utils.RateLimitUtil;
 import net.maritimecloud.identityregistry.utils.ValidateUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -47,6 +53,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -82,57 +89,52 @@ public class ServiceController extends EntityController<Service> {
             method = RequestMethod.POST,
             produces = "application/json;charset=UTF-8")
     @ResponseBody
-    @PreAuthorize("hasRole('SERVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<Service> createService(HttpServletRequest request, @PathVariable String orgMrn, @Valid @RequestBody Service input, BindingResult bindingResult) throws McBasicRestException {
+    @PreAuthorize("hasRole('SERVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<Service> createService(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @Valid @RequestBody Service input, BindingResult bindingResult) throws McBasicRestException {
         ValidateUtil.hasErrors(bindingResult, request);
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being created belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(input.getMrn()))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            input.setIdOrganization(org.getId());
-            input.setMrn(input.getMrn().toLowerCase());
-            // If the service requested to be created contains a vessel, add it to the service
-            this.addVesselToServiceIfPresent(input, orgMrn, request);
-            // Setup a keycloak client for the service if needed
-            if (input.getOidcAccessType() != null && !input.getOidcAccessType().trim().isEmpty()) {
-                // Check if the redirect uri is set if access type is not "bearer-only"
-                if (!"bearer-only".equals(input.getOidcAccessType()) && (input.getOidcRedirectUri() == null || input.getOidcRedirectUri().trim().isEmpty())) {
-                    throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.OIDC_MISSING_REDIRECT_URL, request.getServletPath());
-                }
-                keycloakAU.init(KeycloakAdminUtil.BROKER_INSTANCE);
-                input.generateOidcClientId();
-                try {
-                    String clientSecret = keycloakAU.createClient(input.getOidcClientId(), input.getOidcAccessType(), input.getOidcRedirectUri());
-                    if ("confidential".equals(input.getOidcAccessType())) {
-                        input.setOidcClientSecret(clientSecret);
-                    } else {
-                        input.setOidcClientSecret(null);
-                    }
-                } catch(IOException e) {
-                    throw new McBasicRestException(HttpStatus.INTERNAL_SERVER_ERROR, MCIdRegConstants.ERROR_CREATING_KC_CLIENT, request.getServletPath());
-                } catch (DuplicatedKeycloakEntry dke) {
-                    throw new McBasicRestException(HttpStatus.CONFLICT, dke.getErrorMessage(), request.getServletPath());
-                }
-            } else {
-                input.setOidcAccessType(null);
-                input.setOidcClientId(null);
-                input.setOidcClientSecret(null);
-                input.setOidcRedirectUri(null);
+        // Check that the entity being created belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(input.getMrn()))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        input.setIdOrganization(org.getId());
+        input.setMrn(input.getMrn().toLowerCase());
+        // If the service requested to be created contains a vessel, add it to the service
+        this.addVesselToServiceIfPresent(input, orgMrn, request);
+        // Setup a keycloak client for the service if needed
+        if (input.getOidcAccessType() != null && !input.getOidcAccessType().trim().isEmpty()) {
+            // Check if the redirect uri is set if access type is not "bearer-only"
+            if (!"bearer-only".equals(input.getOidcAccessType()) && (input.getOidcRedirectUri() == null || input.getOidcRedirectUri().trim().isEmpty())) {
+                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.OIDC_MISSING_REDIRECT_URL, request.getServletPath());
             }
+            keycloakAU.init(KeycloakAdminUtil.BROKER_INSTANCE);
+            input.generateOidcClientId();
             try {
-                Service newService = this.entityService.save(input);
-                return new ResponseEntity<>(newService, HttpStatus.OK);
-            } catch (DataIntegrityViolationException e) {
-                // If save to DB failed, remove the client from keycloak if it was created.
-                if (input.getOidcAccessType() != null && !input.getOidcAccessType().trim().isEmpty()) {
-                    keycloakAU.deleteClient(input.getOidcClientId());
+                String clientSecret = keycloakAU.createClient(input.getOidcClientId(), input.getOidcAccessType(), input.getOidcRedirectUri());
+                if ("confidential".equals(input.getOidcAccessType())) {
+                    input.setOidcClientSecret(clientSecret);
+                } else {
+                    input.setOidcClientSecret(null);
                 }
-                throw new McBasicRestException(HttpStatus.CONFLICT, e.getRootCause().getMessage(), request.getServletPath());
+            } catch(IOException e) {
+                throw new McBasicRestException(HttpStatus.INTERNAL_SERVER_ERROR, MCIdRegConstants.ERROR_CREATING_KC_CLIENT, request.getServletPath());
+            } catch (DuplicatedKeycloakEntry dke) {
+                throw new McBasicRestException(HttpStatus.CONFLICT, dke.getErrorMessage(), request.getServletPath());
             }
         } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+            input.setOidcAccessType(null);
+            input.setOidcClientId(null);
+            input.setOidcClientSecret(null);
+            input.setOidcRedirectUri(null);
+        }
+        try {
+            Service newService = this.entityService.save(input);
+            return new ResponseEntity<>(newService, HttpStatus.OK);
+        } catch (DataIntegrityViolationException e) {
+            // If save to DB failed, remove the client from keycloak if it was created.
+            if (input.getOidcAccessType() != null && !input.getOidcAccessType().trim().isEmpty()) {
+                keycloakAU.deleteClient(input.getOidcClientId());
+            }
+            throw new McBasicRestException(HttpStatus.CONFLICT, e.getRootCause().getMessage(), request.getServletPath());
         }
     }
 
@@ -147,25 +149,20 @@ public class ServiceController extends EntityController<Service> {
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
     @ResponseBody
-    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public Page<Service> getService(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String serviceMrn, Pageable pageable) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being queried belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(serviceMrn))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            Page<Service> services = ((ServiceService) this.entityService).getServicesByMrn(serviceMrn, pageable);
-            if (services == null || !services.hasContent()) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
-            }
-            if (services.iterator().next().getIdOrganization().compareTo(org.getId()) == 0) {
-                return services;
-            }
-            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public Page<Service> getService(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String serviceMrn, Pageable pageable) throws McBasicRestException {
+        // Check that the entity being queried belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(serviceMrn))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        Page<Service> services = ((ServiceService) this.entityService).getServicesByMrn(serviceMrn, pageable);
+        if (services == null || !services.hasContent()) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
+        }
+        if (services.iterator().next().getIdOrganization().compareTo(org.getId()) == 0) {
+            return services;
         }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
     }
 
     /**
@@ -179,25 +176,20 @@ public class ServiceController extends EntityController<Service> {
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
     @ResponseBody
-    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<Service> getServiceVersion(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String serviceMrn, @PathVariable String version) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being queried belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(serviceMrn))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            Service service = ((ServiceService) this.entityService).getServiceByMrnAndVersion(serviceMrn, version);
-            if (service == null) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
-            }
-            if (service.getIdOrganization().compareTo(org.getId()) == 0) {
-                return new ResponseEntity<>(service, HttpStatus.OK);
-            }
-            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<Service> getServiceVersion(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String serviceMrn, @PathVariable String version) throws McBasicRestException {
+        // Check that the entity being queried belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(serviceMrn))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        Service service = ((ServiceService) this.entityService).getServiceByMrnAndVersion(serviceMrn, version);
+        if (service == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
+        }
+        if (service.getIdOrganization().compareTo(org.getId()) == 0) {
+            return new ResponseEntity<>(service, HttpStatus.OK);
         }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
     }
 
     /**
@@ -210,71 +202,66 @@ public class ServiceController extends EntityController<Service> {
             value = "/api/org/{orgMrn}/service/{serviceMrn}/{version}",
             method = RequestMethod.PUT)
     @ResponseBody
-    @PreAuthorize("hasRole('SERVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> updateService(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String serviceMrn, @PathVariable String version, @Valid @RequestBody Service input, BindingResult bindingResult) throws McBasicRestException {
+    @PreAuthorize("hasRole('SERVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> updateService(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String serviceMrn, @PathVariable String version, @Valid @RequestBody Service input, BindingResult bindingResult) throws McBasicRestException {
         ValidateUtil.hasErrors(bindingResult, request);
         if (!serviceMrn.equalsIgnoreCase(input.getMrn()) || !version.equals(input.getInstanceVersion())) {
             throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.URL_DATA_MISMATCH, request.getServletPath());
         }
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being updated belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(input.getMrn()))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            Service service = ((ServiceService) this.entityService).getServiceByMrnAndVersion(serviceMrn, version);
-            if (service == null) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
-            }
-            if (service.getIdOrganization().compareTo(org.getId()) == 0) {
-                // Update the keycloak client for the service if needed
-                if (input.getOidcAccessType() != null && !input.getOidcAccessType().trim().isEmpty()) {
-                    // Check if the redirect uri is set if access type is not "bearer-only"
-                    if (!"bearer-only".equals(input.getOidcAccessType()) && (input.getOidcRedirectUri() == null || input.getOidcRedirectUri().trim().isEmpty())) {
-                        throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.OIDC_MISSING_REDIRECT_URL, request.getServletPath());
-                    }
-                    keycloakAU.init(KeycloakAdminUtil.BROKER_INSTANCE);
-                    String clientSecret;
-                    try {
-                        if (service.getOidcClientId() != null && !service.getOidcClientId().isEmpty()) {
-                            clientSecret = keycloakAU.updateClient(service.getOidcClientId(), input.getOidcAccessType(), input.getOidcRedirectUri());
-                        } else {
-                            service.generateOidcClientId();
-                            clientSecret = keycloakAU.createClient(service.getOidcClientId(), input.getOidcAccessType(), input.getOidcRedirectUri());
-                        }
-                    } catch (IOException e){
-                        log.error("Error while updating/creation client in keycloak.", e);
-                        throw new McBasicRestException(HttpStatus.INTERNAL_SERVER_ERROR, MCIdRegConstants.ERROR_CREATING_KC_CLIENT, request.getServletPath());
-                    } catch (DuplicatedKeycloakEntry dke) {
-                        throw new McBasicRestException(HttpStatus.CONFLICT, dke.getErrorMessage(), request.getServletPath());
-                    }
-                    if ("confidential".equals(input.getOidcAccessType())) {
-                        service.setOidcClientSecret(clientSecret);
+        // Check that the entity being updated belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(input.getMrn()))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        Service service = ((ServiceService) this.entityService).getServiceByMrnAndVersion(serviceMrn, version);
+        if (service == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
+        }
+        if (service.getIdOrganization().compareTo(org.getId()) == 0) {
+            // Update the keycloak client for the service if needed
+            if (input.getOidcAccessType() != null && !input.getOidcAccessType().trim().isEmpty()) {
+                // Check if the redirect uri is set if access type is not "bearer-only"
+                if (!"bearer-only".equals(input.getOidcAccessType()) && (input.getOidcRedirectUri() == null || input.getOidcRedirectUri().trim().isEmpty())) {
+                    throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.OIDC_MISSING_REDIRECT_URL, request.getServletPath());
+                }
+                keycloakAU.init(KeycloakAdminUtil.BROKER_INSTANCE);
+                String clientSecret;
+                try {
+                    if (service.getOidcClientId() != null && !service.getOidcClientId().isEmpty()) {
+                        clientSecret = keycloakAU.updateClient(service.getOidcClientId(), input.getOidcAccessType(), input.getOidcRedirectUri());
                     } else {
-                        service.setOidcClientSecret(null);
+                        service.generateOidcClientId();
+                        clientSecret = keycloakAU.createClient(service.getOidcClientId(), input.getOidcAccessType(), input.getOidcRedirectUri());
                     }
-                } else if (service.getOidcAccessType() != null && !service.getOidcAccessType().trim().isEmpty()) {
-                    // Delete the keycloak client since the updated service does not use it
-                    keycloakAU.init(KeycloakAdminUtil.BROKER_INSTANCE);
-                    keycloakAU.deleteClient(service.getOidcClientId());
-                    service.setOidcAccessType(null);
-                    service.setOidcClientId(null);
-                    service.setOidcClientSecret(null);
-                    service.setOidcRedirectUri(null);
+                } catch (IOException e){
+                    log.error("Error while updating/creation client in keycloak.", e);
+                    throw new McBasicRestException(HttpStatus.INTERNAL_SERVER_ERROR, MCIdRegConstants.ERROR_CREATING_KC_CLIENT, request.getServletPath());
+                } catch (DuplicatedKeycloakEntry dke) {
+                    throw new McBasicRestException(HttpStatus.CONFLICT, dke.getErrorMessage(), request.getServletPath());
                 }
-                this.addVesselToServiceIfPresent(input, orgMrn, request);
-                input.selectiveCopyTo(service);
-                try {
-                    this.entityService.save(service);
-                    return new ResponseEntity<>(HttpStatus.OK);
-                } catch (DataIntegrityViolationException e) {
-                    throw new McBasicRestException(HttpStatus.CONFLICT, e.getRootCause().getMessage(), request.getServletPath());
+                if ("confidential".equals(input.getOidcAccessType())) {
+                    service.setOidcClientSecret(clientSecret);
+                } else {
+                    service.setOidcClientSecret(null);
                 }
+            } else if (service.getOidcAccessType() != null && !service.getOidcAccessType().trim().isEmpty()) {
+                // Delete the keycloak client since the updated service does not use it
+                keycloakAU.init(KeycloakAdminUtil.BROKER_INSTANCE);
+                keycloakAU.deleteClient(service.getOidcClientId());
+                service.setOidcAccessType(null);
+                service.setOidcClientId(null);
+                service.setOidcClientSecret(null);
+                service.setOidcRedirectUri(null);
+            }
+            this.addVesselToServiceIfPresent(input, orgMrn, request);
+            input.selectiveCopyTo(service);
+            try {
+                this.entityService.save(service);
+                return new ResponseEntity<>(HttpStatus.OK);
+            } catch (DataIntegrityViolationException e) {
+                throw new McBasicRestException(HttpStatus.CONFLICT, e.getRootCause().getMessage(), request.getServletPath());
             }
-            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
         }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
     }
 
     /**
@@ -287,31 +274,26 @@ public class ServiceController extends EntityController<Service> {
             value = "/api/org/{orgMrn}/service/{serviceMrn}/{version}",
             method = RequestMethod.DELETE)
     @ResponseBody
-    @PreAuthorize("hasRole('SERVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> deleteService(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String serviceMrn, @PathVariable String version) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being deleted belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(serviceMrn))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            Service service = ((ServiceService) this.entityService).getServiceByMrnAndVersion(serviceMrn, version);
-            if (service == null) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
-            }
-            if (service.getIdOrganization().compareTo(org.getId()) == 0) {
-                // Delete the keycloak client for the service if needed
-                if (service.getOidcClientId() != null && !service.getOidcClientId().trim().isEmpty()) {
-                    keycloakAU.init(KeycloakAdminUtil.BROKER_INSTANCE);
-                    keycloakAU.deleteClient(service.getOidcClientId());
-                }
-                this.entityService.delete(service.getId());
-                return new ResponseEntity<>(HttpStatus.OK);
+    @PreAuthorize("hasRole('SERVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> deleteService(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String serviceMrn, @PathVariable String version) throws McBasicRestException {
+        // Check that the entity being deleted belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(serviceMrn))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        Service service = ((ServiceService) this.entityService).getServiceByMrnAndVersion(serviceMrn, version);
+        if (service == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
+        }
+        if (service.getIdOrganization().compareTo(org.getId()) == 0) {
+            // Delete the keycloak client for the service if needed
+            if (service.getOidcClientId() != null && !service.getOidcClientId().trim().isEmpty()) {
+                keycloakAU.init(KeycloakAdminUtil.BROKER_INSTANCE);
+                keycloakAU.deleteClient(service.getOidcClientId());
             }
-            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+            this.entityService.delete(service.getId());
+            return new ResponseEntity<>(HttpStatus.OK);
         }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
     }
 
     /**
@@ -324,9 +306,42 @@ public class ServiceController extends EntityController<Service> {
             value = "/api/org/{orgMrn}/services",
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
-    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public Page<Service> getOrganizationServices(HttpServletRequest request, @PathVariable String orgMrn, Pageable pageable) throws McBasicRestException {
-        return this.getOrganizationEntities(request, orgMrn, pageable);
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public Page<Service> getOrganizationServices(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, Pageable pageable) throws McBasicRestException {
+        return this.getOrganizationEntities(request, org, pageable);
+    }
+
+    /**
+     * Returns a list of summaries of the services owned by the organization identified by the given ID. Only the
+     * columns of the summaries are read, so this is cheaper than the full list.
+     *
+     * @return a reply...
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/services/summaries",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public Page<ServiceSummary> getOrganizationServiceSummaries(@PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, Pageable pageable) {
+        return this.getOrganizationEntitySummaries(org, pageable, ServiceSummary.class);
+    }
+
+    /**
+     * Returns a page of services belonging to the organization identified by the given ID, continuing after the given
+     * cursor. The next field of the reply is the cursor of the following page and is left out on the last page.
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/services",
+            method = RequestMethod.GET,
+            params = KeysetUtil.CURSOR_PARAM,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public KeysetPage<ServiceSummary> getOrganizationServicesAfter(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org,
+            @RequestParam String cursor, @RequestParam(defaultValue = KeysetUtil.DEFAULT_SIZE) int size) throws McBasicRestException {
+        return this.getOrganizationEntitiesAfter(request, org, cursor, size, ServiceSummary.class);
     }
 
     /**
@@ -335,30 +350,33 @@ public class ServiceController extends EntityController<Service> {
      * @return a reply...
      * @throws McBasicRestException 
      */
+    @RateLimited(RateLimitUtil.Budget.CERTIFICATE_ISSUANCE)
     @RequestMapping(
             value = "/api/org/{orgMrn}/service/{serviceMrn}/{version}/certificate/issue-new",
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
-    @PreAuthorize("hasRole('SERVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<CertificateBundle> newServiceCert(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String serviceMrn, @PathVariable String version) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being queried belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(serviceMrn))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            Service service = ((ServiceService) this.entityService).getServiceByMrnAndVersion(serviceMrn, version);
-            if (service == null) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
-            }
-            if (service.getIdOrganization().compareTo(org.getId()) == 0) {
-                CertificateBundle ret = this.issueCertificate(service, org, "service", request);
-                return new ResponseEntity<>(ret, HttpStatus.OK);
-            }
-            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
-        }
+    @PreAuthorize("hasRole('SERVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<CertificateBundle> newServiceCert(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String serviceMrn, @PathVariable String version) throws McBasicRestException {
+        Service service = getServiceOfOrganization(request, org, serviceMrn, version);
+        CertificateBundle ret = this.issueCertificate(service, org, "service", request);
+        return new ResponseEntity<>(ret, HttpStatus.OK);
+    }
+
+    /**
+     * Starts an asynchronous issuance of a new certificate for the service identified by the given ID
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RateLimited(RateLimitUtil.Budget.CERTIFICATE_ISSUANCE)
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/service/{serviceMrn}/{version}/certificate/issue-new",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('SERVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<CertificateJob> newServiceCertAsync(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String serviceMrn, @PathVariable String version) throws McBasicRestException {
+        Service service = getServiceOfOrganization(request, org, serviceMrn, version);
+        return this.issueCertificateAsync(service, org, "service", request);
     }
 
     /**
@@ -371,30 +389,85 @@ public class ServiceController extends EntityController<Service> {
             value = "/api/org/{orgMrn}/service/{serviceMrn}/{version}/certificate/{certId}/revoke",
             method = RequestMethod.POST,
             produces = "application/json;charset=UTF-8")
-    @PreAuthorize("hasRole('SERVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> revokeServiceCert(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String serviceMrn, @PathVariable String version, @PathVariable BigInteger certId, @Valid @RequestBody CertificateRevocation input) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being queried belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(serviceMrn))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            Service service = ((ServiceService) this.entityService).getServiceByMrnAndVersion(serviceMrn, version);
-            if (service == null) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
-            }
-            if (service.getIdOrganization().compareTo(org.getId()) == 0) {
-                Certificate cert = this.certificateService.getCertificateBySerialNumber(certId);
-                Service certEntity = getCertEntity(cert);
-                if (certEntity != null && certEntity.getId().compareTo(service.getId()) == 0) {
-                    this.revokeCertificate(cert.getSerialNumber(), input, request);
-                    return new ResponseEntity<>(HttpStatus.OK);
-                }
+    @PreAuthorize("hasRole('SERVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> revokeServiceCert(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String serviceMrn, @PathVariable String version, @PathVariable BigInteger certId, @Valid @RequestBody CertificateRevocation input) throws McBasicRestException {
+        // Check that the entity being queried belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(serviceMrn))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        Service service = ((ServiceService) this.entityService).getServiceByMrnAndVersion(serviceMrn, version);
+        if (service == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
+        }
+        if (service.getIdOrganization().compareTo(org.getId()) == 0) {
+            Certificate cert = this.certificateService.getCertificateBySerialNumber(certId);
+            Service certEntity = getCertEntity(cert);
+            if (certEntity != null && certEntity.getId().compareTo(service.getId()) == 0) {
+                this.revokeCertificate(cert.getSerialNumber(), input, request);
+                return new ResponseEntity<>(HttpStatus.OK);
             }
-            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
         }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+    }
+
+    /**
+     * Revokes all active certificates of the service identified by the given ID
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/service/{serviceMrn}/{version}/certificates/revoke",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('SERVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> revokeAllServiceCerts(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String serviceMrn, @PathVariable String version, @Valid @RequestBody CertificateRevocation input) throws McBasicRestException {
+        // Check that the entity being queried belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(serviceMrn))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        Service service = ((ServiceService) this.entityService).getServiceByMrnAndVersion(serviceMrn, version);
+        if (service == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
+        }
+        if (service.getIdOrganization().compareTo(org.getId()) == 0) {
+            this.revokeAllCertificatesOf(service, input, request);
+            return new ResponseEntity<>(HttpStatus.OK);
+        }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+    }
+
+    /**
+     * Renews certificate for the service identified by the given ID, reusing its public key
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/service/{serviceMrn}/{version}/certificate/{certId}/renew",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('SERVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<PemCertificate> renewServiceCert(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String serviceMrn, @PathVariable String version, @PathVariable BigInteger certId) throws McBasicRestException {
+        Service service = getServiceOfOrganization(request, org, serviceMrn, version);
+        Certificate cert = getCertificateOfEntity(request, service, certId);
+        PemCertificate ret = this.renewCertificate(service, org, "service", cert, request);
+        return new ResponseEntity<>(ret, HttpStatus.OK);
+    }
+
+    /**
+     * Returns the service identified by the given MRN and version if it belongs to the given organization
+     *
+     * @return the service
+     * @throws McBasicRestException if the service does not exist or belongs to another organization
+     */
+    private Service getServiceOfOrganization(HttpServletRequest request, OrganizationSnapshot org, String serviceMrn, String version) throws McBasicRestException {
+        // Check that the entity being queried belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(org.getMrn()).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(serviceMrn))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        Service service = ((ServiceService) this.entityService).getServiceByMrnAndVersion(serviceMrn, version);
+        return checkEntityOfOrganization(request, org, service);
     }
 
     /**
@@ -408,31 +481,26 @@ public class ServiceController extends EntityController<Service> {
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
     @ResponseBody
-    @PreAuthorize("hasRole('SERVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<String> getServiceKeycloakJson(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String serviceMrn, @PathVariable String version) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being queried belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(serviceMrn))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            Service service = ((ServiceService) this.entityService).getServiceByMrnAndVersion(serviceMrn, version);
-            if (service == null) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
-            }
-            if (service.getIdOrganization().compareTo(org.getId()) == 0) {
-                // Get the keycloak json for the client the service represents if it exists
-                if (service.getOidcAccessType() != null && !service.getOidcAccessType().trim().isEmpty()) {
-                    keycloakAU.init(KeycloakAdminUtil.BROKER_INSTANCE);
-                    String keycloakJson = keycloakAU.getClientKeycloakJson(service.getOidcClientId());
-                    return new ResponseEntity<>(keycloakJson, HttpStatus.OK);
-                }
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.OIDC_CONF_FILE_NOT_AVAILABLE, request.getServletPath());
+    @PreAuthorize("hasRole('SERVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<String> getServiceKeycloakJson(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String serviceMrn, @PathVariable String version) throws McBasicRestException {
+        // Check that the entity being queried belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(serviceMrn))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        Service service = ((ServiceService) this.entityService).getServiceByMrnAndVersion(serviceMrn, version);
+        if (service == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
+        }
+        if (service.getIdOrganization().compareTo(org.getId()) == 0) {
+            // Get the keycloak json for the client the service represents if it exists
+            if (service.getOidcAccessType() != null && !service.getOidcAccessType().trim().isEmpty()) {
+                keycloakAU.init(KeycloakAdminUtil.BROKER_INSTANCE);
+                String keycloakJson = keycloakAU.getClientKeycloakJson(service.getOidcClientId());
+                return new ResponseEntity<>(keycloakJson, HttpStatus.OK);
             }
-            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.OIDC_CONF_FILE_NOT_AVAILABLE, request.getServletPath());
         }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
     }
 
     /**
@@ -445,34 +513,29 @@ public class ServiceController extends EntityController<Service> {
             value = "/api/org/{orgMrn}/service/{serviceMrn}/{version}/jbossxml",
             method = RequestMethod.GET)
     @ResponseBody
-    @PreAuthorize("hasRole('SERVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<String> getServiceJbossXml(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String serviceMrn, @PathVariable String version) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being queried belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(serviceMrn))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            Service service = ((ServiceService) this.entityService).getServiceByMrnAndVersion(serviceMrn, version);
-            if (service == null) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
-            }
-            if (service.getIdOrganization().compareTo(org.getId()) == 0) {
-                // Get the jboss xml for the client the service represents if it exists
-                if (service.getOidcAccessType() != null && !service.getOidcAccessType().trim().isEmpty()) {
-                    keycloakAU.init(KeycloakAdminUtil.BROKER_INSTANCE);
-                    String jbossXml = keycloakAU.getClientJbossXml(service.getOidcClientId());
-                    HttpHeaders responseHeaders = new HttpHeaders();
-                    responseHeaders.setContentLength(jbossXml.length());
-                    responseHeaders.setContentType(MediaType.APPLICATION_XML);
-                    return new ResponseEntity<>(jbossXml, responseHeaders, HttpStatus.OK);
-                }
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.OIDC_CONF_FILE_NOT_AVAILABLE, request.getServletPath());
+    @PreAuthorize("hasRole('SERVICE_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<String> getServiceJbossXml(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String serviceMrn, @PathVariable String version) throws McBasicRestException {
+        // Check that the entity being queried belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(serviceMrn))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        Service service = ((ServiceService) this.entityService).getServiceByMrnAndVersion(serviceMrn, version);
+        if (service == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
+        }
+        if (service.getIdOrganization().compareTo(org.getId()) == 0) {
+            // Get the jboss xml for the client the service represents if it exists
+            if (service.getOidcAccessType() != null && !service.getOidcAccessType().trim().isEmpty()) {
+                keycloakAU.init(KeycloakAdminUtil.BROKER_INSTANCE);
+                String jbossXml = keycloakAU.getClientJbossXml(service.getOidcClientId());
+                HttpHeaders responseHeaders = new HttpHeaders();
+                responseHeaders.setContentLength(jbossXml.length());
+                responseHeaders.setContentType(MediaType.APPLICATION_XML);
+                return new ResponseEntity<>(jbossXml, responseHeaders, HttpStatus.OK);
             }
-            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.OIDC_CONF_FILE_NOT_AVAILABLE, request.getServletPath());
         }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
     }
 
     @Override
@@ -19,7 +19,12 @@ import io.swagger.annotations.ApiOperation;
 import net.maritimecloud.identityregistry.exception.DuplicatedKeycloakEntry;
 import net.maritimecloud.identityregistry.exception.McBasicRestException;
 import net.maritimecloud.identityregistry.model.data.CertificateBundle;
+import net.maritimecloud.identityregistry.model.data.CertificateJob;
 import net.maritimecloud.identityregistry.model.data.CertificateRevocation;
+import net.maritimecloud.identityregistry.model.data.KeysetPage;
+import net.maritimecloud.identityregistry.model.data.OrganizationSnapshot;
+import net.maritimecloud.identityregistry.model.data.PemCertificate;
+import net.maritimecloud.identityregistry.model.data.UserSummary;
 import net.maritimecloud.identityregistry.model.database.Certificate;
 import net.maritimecloud.identityregistry.model.database.CertificateModel;
 import net.maritimecloud.identityregistry.model.database.Organization;
@@ -30,9 +35,11 @@ import net.maritimecloud.identityregistry.services.RoleService;
 import net.maritimecloud.identityregistry.utils.AccessControlUtil;
 import net.maritimecloud.identityregistry.utils.EmailUtil;
 import net.maritimecloud.identityregistry.utils.KeycloakAdminUtil;
+import net.maritimecloud.identityregistry.utils.KeysetUtil;
 import net.maritimecloud.identityregistry.utils.MCIdRegConstants;
 import net.maritimecloud.identityregistry.utils.MrnUtil;
 import net.maritimecloud.identityregistry.utils.PasswordUtil;
+import net.maritimecloud.identityregistry.utils.RateLimitUtil;
 import net.maritimecloud.identityregistry.utils.ValidateUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -94,46 +101,41 @@ public class UserController extends EntityController<User> {
             method = RequestMethod.POST,
             produces = "application/json;charset=UTF-8")
     @ResponseBody
-    @PreAuthorize("hasRole('USER_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<User> createUser(HttpServletRequest request, @PathVariable String orgMrn, @Valid @RequestBody User input, BindingResult bindingResult) throws McBasicRestException {
+    @PreAuthorize("hasRole('USER_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<User> createUser(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization Organization org, @Valid @RequestBody User input, BindingResult bindingResult) throws McBasicRestException {
         ValidateUtil.hasErrors(bindingResult, request);
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being created belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(input.getMrn()))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        // Check that the entity being created belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(input.getMrn()))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        input.setMrn(input.getMrn().toLowerCase());
+        // If the organization doesn't have its own Identity Provider we create the user in a special keycloak instance
+        if ("test-idp".equals(org.getFederationType()) && (org.getIdentityProviderAttributes() == null || org.getIdentityProviderAttributes().isEmpty())) {
+            String password = PasswordUtil.generatePassword();
+            keycloakAU.init(KeycloakAdminUtil.USER_INSTANCE);
+            try {
+                keycloakAU.checkUserExistence(input.getEmail());
+                keycloakAU.createUser(input.getMrn(), password, input.getFirstName(), input.getLastName(), input.getEmail(), orgMrn, input.getPermissions(), true);
+            } catch (DuplicatedKeycloakEntry dke) {
+                throw new McBasicRestException(HttpStatus.CONFLICT, dke.getErrorMessage(), request.getServletPath());
+            } catch (IOException e) {
+                throw new McBasicRestException(HttpStatus.INTERNAL_SERVER_ERROR, MCIdRegConstants.ERROR_CREATING_KC_USER, request.getServletPath());
             }
-            input.setMrn(input.getMrn().toLowerCase());
-            // If the organization doesn't have its own Identity Provider we create the user in a special keycloak instance
+            // Send email to user with credentials
+            emailUtil.sendUserCreatedEmail(input.getEmail(), input.getFirstName() + " " + input.getLastName(), input.getEmail(), password);
+        } else if (("external-idp".equals(org.getFederationType()) || "own-idp".equals(org.getFederationType())) && !allowCreateUserForFederatedOrg) {
+            throw new McBasicRestException(HttpStatus.METHOD_NOT_ALLOWED, MCIdRegConstants.ORG_IS_FEDERATED, request.getServletPath());
+        }
+        input.setIdOrganization(org.getId());
+        try {
+            User newUser = this.entityService.save(input);
+            return new ResponseEntity<>(newUser, HttpStatus.OK);
+        } catch (DataIntegrityViolationException e) {
+            // If save to DB failed, remove the user from keycloak if it was created.
             if ("test-idp".equals(org.getFederationType()) && (org.getIdentityProviderAttributes() == null || org.getIdentityProviderAttributes().isEmpty())) {
-                String password = PasswordUtil.generatePassword();
-                keycloakAU.init(KeycloakAdminUtil.USER_INSTANCE);
-                try {
-                    keycloakAU.checkUserExistence(input.getEmail());
-                    keycloakAU.createUser(input.getMrn(), password, input.getFirstName(), input.getLastName(), input.getEmail(), orgMrn, input.getPermissions(), true);
-                } catch (DuplicatedKeycloakEntry dke) {
-                    throw new McBasicRestException(HttpStatus.CONFLICT, dke.getErrorMessage(), request.getServletPath());
-                } catch (IOException e) {
-                    throw new McBasicRestException(HttpStatus.INTERNAL_SERVER_ERROR, MCIdRegConstants.ERROR_CREATING_KC_USER, request.getServletPath());
-                }
-                // Send email to user with credentials
-                emailUtil.sendUserCreatedEmail(input.getEmail(), input.getFirstName() + " " + input.getLastName(), input.getEmail(), password);
-            } else if (("external-idp".equals(org.getFederationType()) || "own-idp".equals(org.getFederationType())) && !allowCreateUserForFederatedOrg) {
-                throw new McBasicRestException(HttpStatus.METHOD_NOT_ALLOWED, MCIdRegConstants.ORG_IS_FEDERATED, request.getServletPath());
+                keycloakAU.deleteUser(input.getEmail());
             }
-            input.setIdOrganization(org.getId());
-            try {
-                User newUser = this.entityService.save(input);
-                return new ResponseEntity<>(newUser, HttpStatus.OK);
-            } catch (DataIntegrityViolationException e) {
-                // If save to DB failed, remove the user from keycloak if it was created.
-                if ("test-idp".equals(org.getFederationType()) && (org.getIdentityProviderAttributes() == null || org.getIdentityProviderAttributes().isEmpty())) {
-                    keycloakAU.deleteUser(input.getEmail());
-                }
-                throw new McBasicRestException(HttpStatus.CONFLICT, e.getRootCause().getMessage(), request.getServletPath());
-            }
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+            throw new McBasicRestException(HttpStatus.CONFLICT, e.getRootCause().getMessage(), request.getServletPath());
         }
     }
 
@@ -148,9 +150,9 @@ public class UserController extends EntityController<User> {
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
     @ResponseBody
-    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<User> getUser(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String userMrn) throws McBasicRestException {
-        return this.getEntity(request, orgMrn, userMrn);
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<User> getUser(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String userMrn) throws McBasicRestException {
+        return this.getEntity(request, org, userMrn);
     }
 
     /**
@@ -163,44 +165,39 @@ public class UserController extends EntityController<User> {
             value = "/api/org/{orgMrn}/user/{userMrn}",
             method = RequestMethod.PUT)
     @ResponseBody
-    @PreAuthorize("hasRole('USER_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> updateUser(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String userMrn, @Valid @RequestBody User input, BindingResult bindingResult) throws McBasicRestException {
+    @PreAuthorize("hasRole('USER_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> updateUser(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization Organization org, @PathVariable String userMrn, @Valid @RequestBody User input, BindingResult bindingResult) throws McBasicRestException {
         ValidateUtil.hasErrors(bindingResult, request);
         if (!userMrn.equalsIgnoreCase(input.getMrn())) {
             throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.URL_DATA_MISMATCH, request.getServletPath());
         }
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being updated belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(input.getMrn()))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            User user = this.entityService.getByMrn(userMrn);
-            if (user == null) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.USER_NOT_FOUND, request.getServletPath());
-            }
-            if (!user.getMrn().equalsIgnoreCase(input.getMrn()) || user.getIdOrganization().compareTo(org.getId()) != 0) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.URL_DATA_MISMATCH, request.getServletPath());
-            }
-            // Update user in keycloak if created there.
-            if ("test-idp".equals(org.getFederationType()) && (org.getIdentityProviderAttributes() == null || org.getIdentityProviderAttributes().isEmpty())) {
-                keycloakAU.init(KeycloakAdminUtil.USER_INSTANCE);
-                try {
-                    keycloakAU.updateUser(input.getMrn(), input.getFirstName(), input.getLastName(), input.getEmail(), input.getPermissions(), true, request.getServletPath());
-                } catch (IOException e) {
-                    throw new McBasicRestException(HttpStatus.INTERNAL_SERVER_ERROR, MCIdRegConstants.ERROR_UPDATING_KC_USER, request.getServletPath());
-                }
-            }
-            // If the org is federated they should only update their users in their own identity provider
-            else if (("external-idp".equals(org.getFederationType()) || "own-idp".equals(org.getFederationType())) && !allowCreateUserForFederatedOrg) {
-                throw new McBasicRestException(HttpStatus.METHOD_NOT_ALLOWED, MCIdRegConstants.ORG_IS_FEDERATED, request.getServletPath());
+        // Check that the entity being updated belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(input.getMrn()))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        User user = this.entityService.getByMrn(userMrn);
+        if (user == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.USER_NOT_FOUND, request.getServletPath());
+        }
+        if (!user.getMrn().equalsIgnoreCase(input.getMrn()) || user.getIdOrganization().compareTo(org.getId()) != 0) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.URL_DATA_MISMATCH, request.getServletPath());
+        }
+        // Update user in keycloak if created there.
+        if ("test-idp".equals(org.getFederationType()) && (org.getIdentityProviderAttributes() == null || org.getIdentityProviderAttributes().isEmpty())) {
+            keycloakAU.init(KeycloakAdminUtil.USER_INSTANCE);
+            try {
+                keycloakAU.updateUser(input.getMrn(), input.getFirstName(), input.getLastName(), input.getEmail(), input.getPermissions(), true, request.getServletPath());
+            } catch (IOException e) {
+                throw new McBasicRestException(HttpStatus.INTERNAL_SERVER_ERROR, MCIdRegConstants.ERROR_UPDATING_KC_USER, request.getServletPath());
             }
-            input.selectiveCopyTo(user);
-            this.entityService.save(user);
-            return new ResponseEntity<>(HttpStatus.OK);
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
         }
+        // If the org is federated they should only update their users in their own identity provider
+        else if (("external-idp".equals(org.getFederationType()) || "own-idp".equals(org.getFederationType())) && !allowCreateUserForFederatedOrg) {
+            throw new McBasicRestException(HttpStatus.METHOD_NOT_ALLOWED, MCIdRegConstants.ORG_IS_FEDERATED, request.getServletPath());
+        }
+        input.selectiveCopyTo(user);
+        this.entityService.save(user);
+        return new ResponseEntity<>(HttpStatus.OK);
     }
 
     /**
@@ -213,31 +210,26 @@ public class UserController extends EntityController<User> {
             value = "/api/org/{orgMrn}/user/{userMrn}",
             method = RequestMethod.DELETE)
     @ResponseBody
-    @PreAuthorize("hasRole('USER_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> deleteUser(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String userMrn) throws McBasicRestException {
-        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
-        if (org != null) {
-            // Check that the entity being deleted belongs to the organization
-            if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(userMrn))) {
-                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-            }
-            User user = this.entityService.getByMrn(userMrn);
-            if (user == null) {
-                throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.USER_NOT_FOUND, request.getServletPath());
-            }
-            if (user.getIdOrganization().compareTo(org.getId()) == 0) {
-                this.entityService.delete(user.getId());
-                // Remove user from keycloak if created there.
-                if (org.getIdentityProviderAttributes() == null || org.getIdentityProviderAttributes().isEmpty()) {
-                    keycloakAU.init(KeycloakAdminUtil.USER_INSTANCE);
-                    keycloakAU.deleteUser(user.getEmail());
-                }
-                return new ResponseEntity<>(HttpStatus.OK);
+    @PreAuthorize("hasRole('USER_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> deleteUser(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization Organization org, @PathVariable String userMrn) throws McBasicRestException {
+        // Check that the entity being deleted belongs to the organization
+        if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(userMrn))) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        }
+        User user = this.entityService.getByMrn(userMrn);
+        if (user == null) {
+            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.USER_NOT_FOUND, request.getServletPath());
+        }
+        if (user.getIdOrganization().compareTo(org.getId()) == 0) {
+            this.entityService.delete(user.getId());
+            // Remove user from keycloak if created there.
+            if (org.getIdentityProviderAttributes() == null || org.getIdentityProviderAttributes().isEmpty()) {
+                keycloakAU.init(KeycloakAdminUtil.USER_INSTANCE);
+                keycloakAU.deleteUser(user.getEmail());
             }
-            throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-        } else {
-            throw new McBasicRestException(HttpStatus.NOT_FOUND, MCIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+            return new ResponseEntity<>(HttpStatus.OK);
         }
+        throw new McBasicRestException(HttpStatus.FORBIDDEN, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
     }
 
     /**
@@ -250,9 +242,42 @@ public class UserController extends EntityController<User> {
             value = "/api/org/{orgMrn}/users",
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
-    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public Page<User> getOrganizationUsers(HttpServletRequest request, @PathVariable String orgMrn, Pageable pageable) throws McBasicRestException {
-        return this.getOrganizationEntities(request, orgMrn, pageable);
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public Page<User> getOrganizationUsers(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, Pageable pageable) throws McBasicRestException {
+        return this.getOrganizationEntities(request, org, pageable);
+    }
+
+    /**
+     * Returns a list of summaries of the users owned by the organization identified by the given ID. Only the
+     * columns of the summaries are read, so this is cheaper than the full list.
+     *
+     * @return a reply...
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/users/summaries",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public Page<UserSummary> getOrganizationUserSummaries(@PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, Pageable pageable) {
+        return this.getOrganizationEntitySummaries(org, pageable, UserSummary.class);
+    }
+
+    /**
+     * Returns a page of users belonging to the organization identified by the given ID, continuing after the given
+     * cursor. The next field of the reply is the cursor of the following page and is left out on the last page.
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/users",
+            method = RequestMethod.GET,
+            params = KeysetUtil.CURSOR_PARAM,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public KeysetPage<UserSummary> getOrganizationUsersAfter(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org,
+            @RequestParam String cursor, @RequestParam(defaultValue = KeysetUtil.DEFAULT_SIZE) int size) throws McBasicRestException {
+        return this.getOrganizationEntitiesAfter(request, org, cursor, size, UserSummary.class);
     }
 
     /**
@@ -261,13 +286,30 @@ public class UserController extends EntityController<User> {
      * @return a reply...
      * @throws McBasicRestException 
      */
+    @RateLimited(RateLimitUtil.Budget.CERTIFICATE_ISSUANCE)
     @RequestMapping(
             value = "/api/org/{orgMrn}/user/{userMrn}/certificate/issue-new",
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
-    @PreAuthorize("hasRole('USER_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<CertificateBundle> newUserCert(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String userMrn) throws McBasicRestException {
-        return this.newEntityCert(request, orgMrn, userMrn, "user");
+    @PreAuthorize("hasRole('USER_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<CertificateBundle> newUserCert(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String userMrn) throws McBasicRestException {
+        return this.newEntityCert(request, org, userMrn, "user");
+    }
+
+    /**
+     * Starts an asynchronous issuance of a new certificate for the user identified by the given ID
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RateLimited(RateLimitUtil.Budget.CERTIFICATE_ISSUANCE)
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/user/{userMrn}/certificate/issue-new",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('USER_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<CertificateJob> newUserCertAsync(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String userMrn) throws McBasicRestException {
+        return this.newEntityCertAsync(request, org, userMrn, "user");
     }
 
     /**
@@ -280,9 +322,39 @@ public class UserController extends EntityController<User> {
             value = "/api/org/{orgMrn}/user/{userMrn}/certificate/{certId}/revoke",
             method = RequestMethod.POST,
             produces = "application/json;charset=UTF-8")
-    @PreAuthorize("hasRole('USER_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> revokeUserCert(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String userMrn, @PathVariable BigInteger certId, @Valid @RequestBody CertificateRevocation input) throws McBasicRestException {
-        return this.revokeEntityCert(request, orgMrn, userMrn, certId, input);
+    @PreAuthorize("hasRole('USER_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> revokeUserCert(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String userMrn, @PathVariable BigInteger certId, @Valid @RequestBody CertificateRevocation input) throws McBasicRestException {
+        return this.revokeEntityCert(request, org, userMrn, certId, input);
+    }
+
+    /**
+     * Revokes all active certificates of the user identified by the given ID
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/user/{userMrn}/certificates/revoke",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('USER_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> revokeAllUserCerts(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String userMrn, @Valid @RequestBody CertificateRevocation input) throws McBasicRestException {
+        return this.revokeAllEntityCerts(request, org, userMrn, input);
+    }
+
+    /**
+     * Renews certificate for the user identified by the given ID, reusing its public key
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/user/{userMrn}/certificate/{certId}/renew",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('USER_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<PemCertificate> renewUserCert(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String userMrn, @PathVariable BigInteger certId) throws McBasicRestException {
+        return this.renewEntityCert(request, org, userMrn, certId, "user");
     }
 
     /**
@@ -17,15 +17,22 @@ package net.maritimecloud.identityregistry.controllers;
 
 import net.maritimecloud.identityregistry.exception.McBasicRestException;
 import net.maritimecloud.identityregistry.model.data.CertificateBundle;
+import net.maritimecloud.identityregistry.model.data.CertificateJob;
 import net.maritimecloud.identityregistry.model.data.CertificateRevocation;
+import net.maritimecloud.identityregistry.model.data.KeysetPage;
+import net.maritimecloud.identityregistry.model.data.NonHumanEntitySummary;
+import net.maritimecloud.identityregistry.model.data.OrganizationSnapshot;
+import net.maritimecloud.identityregistry.model.data.PemCertificate;
 import net.maritimecloud.identityregistry.model.database.Certificate;
 import net.maritimecloud.identityregistry.model.database.CertificateModel;
 import net.maritimecloud.identityregistry.model.database.entities.Service;
 import net.maritimecloud.identityregistry.model.database.entities.Vessel;
 import net.maritimecloud.identityregistry.services.EntityService;
 import net.maritimecloud.identityregistry.utils.AttributesUtil;
+import net.maritimecloud.identityregistry.utils.KeysetUtil;
 import net.maritimecloud.identityregistry.utils.MCIdRegConstants;
 import net.maritimecloud.identityregistry.utils.MrnUtil;
+import net.maritimecloud.identityregistry.utils.RateLimitUtil;
 import net.maritimecloud.identityregistry.utils.ValidateUtil;
 import net.maritimecloud.identityregistry.validators.VesselValidator;
 import org.slf4j.Logger;
@@ -44,6 +51,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -81,10 +89,10 @@ public class VesselController extends EntityController<Vessel> {
             method = RequestMethod.POST,
             produces = "application/json;charset=UTF-8")
     @ResponseBody
-    @PreAuthorize("hasRole('VESSEL_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<Vessel> createVessel(HttpServletRequest request, @PathVariable String orgMrn, @Validated @RequestBody Vessel input, BindingResult bindingResult) throws McBasicRestException {
+    @PreAuthorize("hasRole('VESSEL_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<Vessel> createVessel(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @Validated @RequestBody Vessel input, BindingResult bindingResult) throws McBasicRestException {
         ValidateUtil.hasErrors(bindingResult, request);
-        return this.createEntity(request, orgMrn, input);
+        return this.createEntity(request, org, input);
     }
 
     /**
@@ -98,9 +106,9 @@ public class VesselController extends EntityController<Vessel> {
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
     @ResponseBody
-    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<Vessel> getVessel(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String vesselMrn) throws McBasicRestException {
-        return this.getEntity(request, orgMrn, vesselMrn);
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<Vessel> getVessel(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String vesselMrn) throws McBasicRestException {
+        return this.getEntity(request, org, vesselMrn);
     }
 
     /**
@@ -113,10 +121,10 @@ public class VesselController extends EntityController<Vessel> {
             value = "/api/org/{orgMrn}/vessel/{vesselMrn}",
             method = RequestMethod.PUT)
     @ResponseBody
-    @PreAuthorize("hasRole('VESSEL_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> updateVessel(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String vesselMrn, @Validated @RequestBody Vessel input, BindingResult bindingResult) throws McBasicRestException {
+    @PreAuthorize("hasRole('VESSEL_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> updateVessel(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String vesselMrn, @Validated @RequestBody Vessel input, BindingResult bindingResult) throws McBasicRestException {
         ValidateUtil.hasErrors(bindingResult, request);
-        return this.updateEntity(request, orgMrn, vesselMrn, input);
+        return this.updateEntity(request, org, vesselMrn, input);
     }
 
     /**
@@ -131,7 +139,7 @@ public class VesselController extends EntityController<Vessel> {
             produces = "application/json;charset=UTF-8"
     )
     @ResponseBody
-    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
     public ResponseEntity<Set<Service>> getVesselServices(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String vesselMrn) throws McBasicRestException {
         if (!MrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(MrnUtil.getOrgShortNameFromEntityMrn(vesselMrn))) {
             throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, request.getServletPath());
@@ -151,9 +159,9 @@ public class VesselController extends EntityController<Vessel> {
             value = "/api/org/{orgMrn}/vessel/{vesselMrn}",
             method = RequestMethod.DELETE)
     @ResponseBody
-    @PreAuthorize("hasRole('VESSEL_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> deleteVessel(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String vesselMrn) throws McBasicRestException {
-        return this.deleteEntity(request, orgMrn, vesselMrn);
+    @PreAuthorize("hasRole('VESSEL_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> deleteVessel(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String vesselMrn) throws McBasicRestException {
+        return this.deleteEntity(request, org, vesselMrn);
     }
 
     /**
@@ -166,9 +174,42 @@ public class VesselController extends EntityController<Vessel> {
             value = "/api/org/{orgMrn}/vessels",
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
-    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public Page<Vessel> getOrganizationVessels(HttpServletRequest request, @PathVariable String orgMrn, Pageable pageable) throws McBasicRestException {
-        return this.getOrganizationEntities(request, orgMrn, pageable);
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public Page<Vessel> getOrganizationVessels(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, Pageable pageable) throws McBasicRestException {
+        return this.getOrganizationEntities(request, org, pageable);
+    }
+
+    /**
+     * Returns a list of summaries of the vessels owned by the organization identified by the given ID. Only the
+     * columns of the summaries are read, so this is cheaper than the full list.
+     *
+     * @return a reply...
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/vessels/summaries",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public Page<NonHumanEntitySummary> getOrganizationVesselSummaries(@PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, Pageable pageable) {
+        return this.getOrganizationEntitySummaries(org, pageable, NonHumanEntitySummary.class);
+    }
+
+    /**
+     * Returns a page of vessels belonging to the organization identified by the given ID, continuing after the given
+     * cursor. The next field of the reply is the cursor of the following page and is left out on the last page.
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/vessels",
+            method = RequestMethod.GET,
+            params = KeysetUtil.CURSOR_PARAM,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
+    public KeysetPage<NonHumanEntitySummary> getOrganizationVesselsAfter(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org,
+            @RequestParam String cursor, @RequestParam(defaultValue = KeysetUtil.DEFAULT_SIZE) int size) throws McBasicRestException {
+        return this.getOrganizationEntitiesAfter(request, org, cursor, size, NonHumanEntitySummary.class);
     }
 
     /**
@@ -177,13 +218,30 @@ public class VesselController extends EntityController<Vessel> {
      * @return a reply...
      * @throws McBasicRestException 
      */
+    @RateLimited(RateLimitUtil.Budget.CERTIFICATE_ISSUANCE)
     @RequestMapping(
             value = "/api/org/{orgMrn}/vessel/{vesselMrn}/certificate/issue-new",
             method = RequestMethod.GET,
             produces = "application/json;charset=UTF-8")
-    @PreAuthorize("hasRole('VESSEL_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<CertificateBundle> newVesselCert(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String vesselMrn) throws McBasicRestException {
-        return this.newEntityCert(request, orgMrn, vesselMrn, "vessel");
+    @PreAuthorize("hasRole('VESSEL_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<CertificateBundle> newVesselCert(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String vesselMrn) throws McBasicRestException {
+        return this.newEntityCert(request, org, vesselMrn, "vessel");
+    }
+
+    /**
+     * Starts an asynchronous issuance of a new certificate for the vessel identified by the given ID
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RateLimited(RateLimitUtil.Budget.CERTIFICATE_ISSUANCE)
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/vessel/{vesselMrn}/certificate/issue-new",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('VESSEL_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<CertificateJob> newVesselCertAsync(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String vesselMrn) throws McBasicRestException {
+        return this.newEntityCertAsync(request, org, vesselMrn, "vessel");
     }
 
     /**
@@ -196,9 +254,39 @@ public class VesselController extends EntityController<Vessel> {
             value = "/api/org/{orgMrn}/vessel/{vesselMrn}/certificate/{certId}/revoke",
             method = RequestMethod.POST,
             produces = "application/json;charset=UTF-8")
-    @PreAuthorize("hasRole('VESSEL_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<?> revokeVesselCert(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String vesselMrn, @PathVariable BigInteger certId, @Valid @RequestBody CertificateRevocation input) throws McBasicRestException {
-        return this.revokeEntityCert(request, orgMrn, vesselMrn, certId, input);
+    @PreAuthorize("hasRole('VESSEL_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> revokeVesselCert(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String vesselMrn, @PathVariable BigInteger certId, @Valid @RequestBody CertificateRevocation input) throws McBasicRestException {
+        return this.revokeEntityCert(request, org, vesselMrn, certId, input);
+    }
+
+    /**
+     * Revokes all active certificates of the vessel identified by the given ID
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/vessel/{vesselMrn}/certificates/revoke",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('VESSEL_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<?> revokeAllVesselCerts(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String vesselMrn, @Valid @RequestBody CertificateRevocation input) throws McBasicRestException {
+        return this.revokeAllEntityCerts(request, org, vesselMrn, input);
+    }
+
+    /**
+     * Renews certificate for the vessel identified by the given ID, reusing its public key
+     *
+     * @return a reply...
+     * @throws McBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/vessel/{vesselMrn}/certificate/{certId}/renew",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('VESSEL_ADMIN') and hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<PemCertificate> renewVesselCert(HttpServletRequest request, @PathVariable String orgMrn, @PathOrganization OrganizationSnapshot org, @PathVariable String vesselMrn, @PathVariable BigInteger certId) throws McBasicRestException {
+        return this.renewEntityCert(request, org, vesselMrn, certId, "vessel");
     }
 
     protected HashMap<String, String> getAttr(CertificateModel certOwner) {
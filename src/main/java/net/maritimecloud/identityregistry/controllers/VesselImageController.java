@@ -68,7 +68,7 @@ public class VesselImageController {
             method = RequestMethod.POST
     )
     @ResponseBody
-    @PreAuthorize("hasRole('VESSEL_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    @PreAuthorize("hasRole('VESSEL_ADMIN') and hasAccessToOrg(#orgMrn)")
     public ResponseEntity<?> createVesselImagePost(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String vesselMrn, @RequestParam("image") MultipartFile image) throws McBasicRestException {
         Vessel vessel = this.vesselService.getByMrn(vesselMrn);
         if (vessel != null) {
@@ -98,7 +98,7 @@ public class VesselImageController {
             method = RequestMethod.PUT
     )
     @ResponseBody
-    @PreAuthorize("hasRole('VESSEL_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    @PreAuthorize("hasRole('VESSEL_ADMIN') and hasAccessToOrg(#orgMrn)")
     public ResponseEntity<?> createVesselImagePut(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String vesselMrn, @RequestBody byte[] image) throws McBasicRestException {
         Vessel vessel = this.vesselService.getByMrn(vesselMrn);
         if (vessel != null) {
@@ -129,7 +129,7 @@ public class VesselImageController {
             method = RequestMethod.GET
     )
     @ResponseBody
-    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
+    @PreAuthorize("hasAccessToOrg(#orgMrn)")
     public ResponseEntity<?> getVesselImage(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String vesselMrn) throws McBasicRestException {
         Vessel vessel = this.vesselService.getByMrn(vesselMrn);
         if (vessel != null) {
@@ -156,7 +156,7 @@ public class VesselImageController {
             method = RequestMethod.DELETE
     )
     @ResponseBody
-    @PreAuthorize("hasRole('VESSEL_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    @PreAuthorize("hasRole('VESSEL_ADMIN') and hasAccessToOrg(#orgMrn)")
     public ResponseEntity<?> deleteVesselImage(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String vesselMrn) throws McBasicRestException {
         Vessel vessel = this.vesselService.getByMrn(vesselMrn);
         if (vessel != null) {
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.model.data;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.math.BigInteger;
+import java.util.List;
+
+@Getter
+@Setter
+@ToString(callSuper = true)
+public class BulkCertificateRevocation extends CertificateRevocation {
+
+    @ApiModelProperty(value = "The serial numbers of the certificates to revoke. If not given all active certificates are revoked.")
+    private List<BigInteger> serialNumbers;
+}
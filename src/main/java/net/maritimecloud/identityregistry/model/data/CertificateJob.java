@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.model.data;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import net.maritimecloud.identityregistry.model.JsonSerializable;
+
+/**
+ * Object representing an asynchronous certificate issuance. The certificate bundle is set when the job is done, and
+ * the error is set if the issuance failed.
+ */
+@Getter
+@Setter
+@ToString(exclude = "certificateBundle")
+public class CertificateJob implements JsonSerializable {
+
+    public enum Status {
+        PENDING, DONE, FAILED
+    }
+
+    private String jobId;
+    private volatile Status status;
+    private volatile CertificateBundle certificateBundle;
+    private volatile ExceptionModel error;
+
+    // The organization and the user that requested the certificate, only they are allowed to fetch the result
+    @JsonIgnore
+    private String orgMrn;
+    @JsonIgnore
+    private String owner;
+    @JsonIgnore
+    private volatile long expiresAt;
+
+    public CertificateJob(String jobId, String orgMrn, String owner, long expiresAt) {
+        this.jobId = jobId;
+        this.orgMrn = orgMrn;
+        this.owner = owner;
+        this.expiresAt = expiresAt;
+        this.status = Status.PENDING;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.model.data;
+
+import java.util.Date;
+
+/**
+ * The columns of an entity that are shown in lists. Lists are read as this interface projection, so only these
+ * columns are selected and no entities are loaded into the persistence context.
+ */
+public interface EntitySummary {
+    Long getId();
+
+    Date getCreatedAt();
+
+    Date getUpdatedAt();
+
+    Long getIdOrganization();
+
+    String getMrn();
+
+    String getPermissions();
+}
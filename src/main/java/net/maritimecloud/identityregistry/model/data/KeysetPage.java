@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.model.data;
+
+import lombok.Getter;
+import lombok.ToString;
+import net.maritimecloud.identityregistry.model.JsonSerializable;
+
+import java.util.List;
+
+/**
+ * A page of a list read with keyset pagination. Instead of a page number and a total count it has an opaque token
+ * that is passed as the cursor to get the next page. The token is left out on the last page.
+ */
+@Getter
+@ToString
+public class KeysetPage<T> implements JsonSerializable {
+
+    private final List<T> content;
+    private final String next;
+
+    public KeysetPage(List<T> content, String next) {
+        this.content = content;
+        this.next = next;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.model.data;
+
+import lombok.Getter;
+import lombok.ToString;
+import net.maritimecloud.identityregistry.model.database.Organization;
+
+/**
+ * Immutable read only view of an approved organization, holding what authentication and the handlers of the
+ * entities of an organization need. It has no certificates, logo or identity provider setup, so it can be cached
+ * and shared between requests. Handlers that show or change the organization itself use the entity instead.
+ */
+@Getter
+@ToString
+public final class OrganizationSnapshot {
+
+    private final Long id;
+    private final String mrn;
+    private final String name;
+    private final String country;
+    private final String certificateAuthority;
+
+    private OrganizationSnapshot(Long id, String mrn, String name, String country, String certificateAuthority) {
+        this.id = id;
+        this.mrn = mrn;
+        this.name = name;
+        this.country = country;
+        this.certificateAuthority = certificateAuthority;
+    }
+
+    /** Creates a snapshot of the plain columns of the organization, without touching its lazy associations */
+    public static OrganizationSnapshot of(Organization org) {
+        return new OrganizationSnapshot(org.getId(), org.getMrn(), org.getName(), org.getCountry(), org.getCertificateAuthority());
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.model.data;
+
+import java.util.Date;
+
+/**
+ * The columns of an organization that are shown in lists. The identity provider setup is left out, as it is
+ * sensitive.
+ */
+public interface OrganizationSummary {
+    Long getId();
+
+    Date getCreatedAt();
+
+    Date getUpdatedAt();
+
+    String getName();
+
+    String getMrn();
+
+    String getEmail();
+
+    String getUrl();
+
+    String getAddress();
+
+    String getCountry();
+}
@@ -32,6 +32,7 @@ import net.maritimecloud.pki.ocsp.CertStatus;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
@@ -92,28 +93,33 @@ public class Certificate extends TimestampModel {
     @Column(name= "certificate_authority", nullable = false)
     private String certificateAuthority;
 
+    // The Idempotency-Key of the request that issued the certificate scoped to its principal, see IdempotencyUtil.scopeKey
     @JsonIgnore
-    @ManyToOne
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_vessel")
     private Vessel vessel;
 
     @JsonIgnore
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_user")
     private User user;
 
     @JsonIgnore
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_device")
     private Device device;
 
     @JsonIgnore
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_service")
     private Service service;
 
     @JsonIgnore
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_organization")
     private Organization organization;
 
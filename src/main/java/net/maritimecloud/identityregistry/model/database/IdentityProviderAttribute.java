@@ -23,9 +23,12 @@ import lombok.Setter;
 import lombok.ToString;
 import lombok.experimental.Accessors;
 import net.maritimecloud.identityregistry.validators.InPredefinedList;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
@@ -36,6 +39,7 @@ import java.util.Set;
 
 @Entity
 @Table(name = "identity_provider_attributes")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "identity-provider-attribute")
 @Getter
 @Setter
 @Accessors(chain = true)
@@ -66,7 +70,7 @@ public class IdentityProviderAttribute extends TimestampModel {
     private String attributeValue;
 
     @JsonIgnore
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_organization", nullable = false)
     private Organization organization;
 
@@ -20,7 +20,11 @@ import io.swagger.annotations.ApiModelProperty;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import net.maritimecloud.identityregistry.utils.MrnUtil;
 import net.maritimecloud.identityregistry.validators.MRN;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.Length;
 import org.hibernate.validator.constraints.URL;
 
@@ -29,6 +33,8 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
 import javax.persistence.PostPersist;
@@ -45,9 +51,13 @@ import java.util.Set;
 
 @Entity
 @Table(name = "organizations")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "organization")
+// Only one collection is joined, as joining both would return every certificate once per attribute. The attributes
+// are loaded in a batch or from the second level cache, and the logo when it is asked for.
+@NamedEntityGraph(name = "Organization.detail", attributeNodes = @NamedAttributeNode("certificates"))
 @Getter
 @Setter
-@ToString
+@ToString(exclude = {"logo", "certificates", "identityProviderAttributes"})
 public class Organization extends CertificateModel {
 
     @ApiModelProperty(value = "The name of the organization", required = true)
@@ -97,16 +107,19 @@ public class Organization extends CertificateModel {
     private String federationType;
 
     @JsonIgnore
-    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name="id_logo")
     private Logo logo;
 
     @ApiModelProperty(value = "Cannot be created/updated by editing in the model. Use the dedicate create and revoke calls.")
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "organization")
+    @BatchSize(size = 100)
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "organization")
     private Set<Certificate> certificates;
 
     @Valid
-    @OneToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL, mappedBy = "organization", orphanRemoval=true)
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "organization-identity-provider-attributes")
+    @OneToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL, mappedBy = "organization", orphanRemoval=true)
     private Set<IdentityProviderAttribute> identityProviderAttributes;
 
     @JsonIgnore
@@ -163,6 +176,10 @@ public class Organization extends CertificateModel {
         cert.setOrganization(this);
     }
 
+    /** MRNs are stored in lowercase, so that they can be looked up by exact match */
+    public void setMrn(String mrn) {
+        this.mrn = MrnUtil.normalize(mrn);
+    }
 
     /** Creates a copy of this organization */
     public Organization copy() {
@@ -18,6 +18,8 @@ package net.maritimecloud.identityregistry.model.database;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.annotations.ApiModelProperty;
 import net.maritimecloud.identityregistry.validators.InPredefinedList;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -30,6 +32,7 @@ import java.util.Objects;
 
 @Entity
 @Table(name="roles")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "role")
 public class Role extends TimestampModel {
 
     public Role() {
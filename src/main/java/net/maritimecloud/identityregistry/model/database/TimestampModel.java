@@ -20,6 +20,7 @@ import lombok.Setter;
 import lombok.ToString;
 import net.maritimecloud.identityregistry.model.JsonSerializable;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.Column;
 import javax.persistence.GeneratedValue;
@@ -35,9 +36,19 @@ import java.util.Date;
 @Setter
 @ToString
 public abstract class TimestampModel implements JsonSerializable {
+    // IDs are taken from a table in blocks instead of using auto increment columns, so that inserts can be batched.
+    // Each entity table has its own row in id_sequences, and the ID columns have no default, so every insert must take
+    // its ID from there.
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO, generator = "native")
-    @GenericGenerator(name = "native", strategy = "native")
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "pooled")
+    @GenericGenerator(name = "pooled", strategy = "org.hibernate.id.enhanced.TableGenerator", parameters = {
+            @Parameter(name = "table_name", value = "id_sequences"),
+            @Parameter(name = "segment_column_name", value = "sequence_name"),
+            @Parameter(name = "value_column_name", value = "next_val"),
+            @Parameter(name = "prefer_entity_table_as_segment_value", value = "true"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     @Column(name = "id", nullable = false)
     protected Long id;
 
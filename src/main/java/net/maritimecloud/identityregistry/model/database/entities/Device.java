@@ -17,9 +17,12 @@ package net.maritimecloud.identityregistry.model.database.entities;
 
 import io.swagger.annotations.ApiModelProperty;
 import net.maritimecloud.identityregistry.model.database.Certificate;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
 import java.util.Set;
@@ -30,12 +33,14 @@ import java.util.Set;
 
 @Entity
 @Table(name = "devices")
+@NamedEntityGraph(name = "Device.detail", attributeNodes = @NamedAttributeNode("certificates"))
 public class Device extends NonHumanEntityModel {
 
     public Device() {
     }
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "device")
+    @BatchSize(size = 100)
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "device")
     @ApiModelProperty(value = "Cannot be created/updated by editing in the model. Use the dedicate create and revoke calls.")
     private Set<Certificate> certificates;
 
@@ -20,6 +20,7 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 import net.maritimecloud.identityregistry.model.database.CertificateModel;
+import net.maritimecloud.identityregistry.utils.MrnUtil;
 import net.maritimecloud.identityregistry.validators.MRN;
 
 import javax.persistence.Column;
@@ -44,6 +45,11 @@ public abstract class EntityModel extends CertificateModel {
     @Column(name = "permissions")
     private String permissions;
 
+    /** MRNs are stored in lowercase, so that they can be looked up by exact match */
+    public void setMrn(String mrn) {
+        this.mrn = MrnUtil.normalize(mrn);
+    }
+
     /** Copies this entity into the other */
     public EntityModel copyTo(EntityModel entity) {
         Objects.requireNonNull(entity);
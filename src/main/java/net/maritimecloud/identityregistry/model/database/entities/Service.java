@@ -21,12 +21,17 @@ import lombok.Setter;
 import lombok.ToString;
 import net.maritimecloud.identityregistry.model.database.Certificate;
 import net.maritimecloud.identityregistry.validators.InPredefinedList;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedEntityGraphs;
+import javax.persistence.NamedSubgraph;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
 import javax.validation.constraints.NotBlank;
@@ -39,9 +44,20 @@ import java.util.Set;
 
 @Entity
 @Table(name = "services")
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = "Service.detail", attributeNodes = {
+                @NamedAttributeNode("certificates"),
+                @NamedAttributeNode(value = "vessel", subgraph = "vessel")
+        }, subgraphs = @NamedSubgraph(name = "vessel", attributeNodes = {
+                @NamedAttributeNode("attributes"),
+                @NamedAttributeNode("certificates")
+        })),
+        // Collections can not be fetched with a page of services, so lists only fetch the vessel
+        @NamedEntityGraph(name = "Service.list", attributeNodes = @NamedAttributeNode("vessel"))
+})
 @Getter
 @Setter
-@ToString
+@ToString(exclude = {"certificates", "vessel"})
 public class Service extends NonHumanEntityModel {
 
     public Service() {
@@ -75,11 +91,12 @@ public class Service extends NonHumanEntityModel {
     private String instanceVersion;
 
     @ApiModelProperty(value = "Cannot be created/updated by editing in the model. Use the dedicate create and revoke calls.")
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "service")
+    @BatchSize(size = 100)
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "service")
     private Set<Certificate> certificates;
 
     @ApiModelProperty(value = "The vessel that is linked to this service.")
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_vessel")
     private Vessel vessel;
 
@@ -16,17 +16,23 @@
 package net.maritimecloud.identityregistry.model.database.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import io.swagger.annotations.ApiModelProperty;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 import net.maritimecloud.identityregistry.model.database.Certificate;
 import net.maritimecloud.identityregistry.model.database.VesselImage;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
 import javax.persistence.PostPersist;
@@ -40,27 +46,35 @@ import java.util.Set;
 
 @Entity
 @Table(name = "vessels")
+@NamedEntityGraph(name = "Vessel.detail", attributeNodes = {
+        @NamedAttributeNode("attributes"),
+        @NamedAttributeNode("certificates")
+})
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Getter
 @Setter
-@ToString(exclude = "services")
+@ToString(exclude = {"attributes", "certificates", "services", "image"})
 public class Vessel extends NonHumanEntityModel {
 
     public Vessel() {
     }
 
-    @OneToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL, mappedBy = "vessel", orphanRemoval=true)
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "vessel-attributes")
+    @OneToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL, mappedBy = "vessel", orphanRemoval=true)
     private Set<VesselAttribute> attributes;
 
     @ApiModelProperty(value = "Cannot be created/updated by editing in the model. Use the dedicate create and revoke calls.")
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "vessel")
+    @BatchSize(size = 100)
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "vessel")
     private Set<Certificate> certificates;
 
     @JsonIgnore
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "vessel")
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "vessel")
     private Set<Service> services;
 
     @JsonIgnore
-    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name="id_image")
     private VesselImage image;
 
@@ -22,9 +22,12 @@ import lombok.Setter;
 import lombok.ToString;
 import net.maritimecloud.identityregistry.model.database.TimestampModel;
 import net.maritimecloud.identityregistry.validators.InPredefinedList;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
@@ -36,6 +39,7 @@ import java.util.Date;
 
 @Entity
 @Table(name = "vessel_attributes")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "vessel-attribute")
 @Getter
 @Setter
 @ToString(exclude = "vessel")
@@ -60,7 +64,7 @@ public class VesselAttribute extends TimestampModel {
     private Date end;
 
     @JsonIgnore
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_vessel", nullable = false)
     private Vessel vessel;
 
@@ -17,11 +17,17 @@ package net.maritimecloud.identityregistry.repositories;
 
 import net.maritimecloud.identityregistry.model.database.Certificate;
 import net.maritimecloud.identityregistry.model.database.entities.Device;
+import net.maritimecloud.identityregistry.model.database.entities.Service;
 import net.maritimecloud.identityregistry.model.database.entities.User;
 import net.maritimecloud.identityregistry.model.database.entities.Vessel;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 public interface CertificateRepository extends CrudRepository<Certificate, Long> {
@@ -30,5 +36,52 @@ public interface CertificateRepository extends CrudRepository<Certificate, Long>
     List<Certificate> findBydevice(Device device);
     List<Certificate> findByuser(User user);
     List<Certificate> findByCertificateAuthorityIgnoreCaseAndRevokedTrue(String caAlias);
+    boolean existsByIdempotencyKeyAndCreatedAtAfter(String idempotencyKey, Date createdAfter);
+
+    // Certificates can belong to the organization itself or to one of its entities
+    String IN_ORGANIZATION = "(c.organization.id = :idOrganization " +
+            "OR c.vessel IN (SELECT v FROM Vessel v WHERE v.idOrganization = :idOrganization) " +
+            "OR c.user IN (SELECT u FROM User u WHERE u.idOrganization = :idOrganization) " +
+            "OR c.device IN (SELECT d FROM Device d WHERE d.idOrganization = :idOrganization) " +
+            "OR c.service IN (SELECT s FROM Service s WHERE s.idOrganization = :idOrganization))";
+
+    String REVOKE = "UPDATE Certificate c SET c.revoked = true, c.revokedAt = :revokedAt, c.revokeReason = :revokeReason, " +
+            "c.updatedAt = :updatedAt WHERE c.revoked = false AND ";
+
+    @Modifying
+    @Query(REVOKE + "c.serialNumber IN :serialNumbers AND " + IN_ORGANIZATION)
+    int revokeBySerialNumbers(@Param("idOrganization") Long idOrganization, @Param("serialNumbers") Collection<BigInteger> serialNumbers,
+                              @Param("revokedAt") Date revokedAt, @Param("revokeReason") String revokeReason, @Param("updatedAt") Date updatedAt);
+
+    // Clears the persistence context, as the certificates of loaded entities are no longer theirs
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Certificate c SET c.organization = NULL, c.vessel = NULL, c.user = NULL, c.device = NULL, " +
+            "c.service = NULL, c.updatedAt = :updatedAt WHERE " + IN_ORGANIZATION)
+    int detachAllInOrganization(@Param("idOrganization") Long idOrganization, @Param("updatedAt") Date updatedAt);
+
+    @Modifying
+    @Query(REVOKE + IN_ORGANIZATION)
+    int revokeAllInOrganization(@Param("idOrganization") Long idOrganization, @Param("revokedAt") Date revokedAt,
+                                @Param("revokeReason") String revokeReason, @Param("updatedAt") Date updatedAt);
+
+    @Modifying
+    @Query(REVOKE + "c.vessel = :owner")
+    int revokeAllOfVessel(@Param("owner") Vessel owner, @Param("revokedAt") Date revokedAt,
+                          @Param("revokeReason") String revokeReason, @Param("updatedAt") Date updatedAt);
+
+    @Modifying
+    @Query(REVOKE + "c.user = :owner")
+    int revokeAllOfUser(@Param("owner") User owner, @Param("revokedAt") Date revokedAt,
+                        @Param("revokeReason") String revokeReason, @Param("updatedAt") Date updatedAt);
+
+    @Modifying
+    @Query(REVOKE + "c.device = :owner")
+    int revokeAllOfDevice(@Param("owner") Device owner, @Param("revokedAt") Date revokedAt,
+                          @Param("revokeReason") String revokeReason, @Param("updatedAt") Date updatedAt);
+
+    @Modifying
+    @Query(REVOKE + "c.service = :owner")
+    int revokeAllOfService(@Param("owner") Service owner, @Param("revokedAt") Date revokedAt,
+                           @Param("revokeReason") String revokeReason, @Param("updatedAt") Date updatedAt);
 }
 
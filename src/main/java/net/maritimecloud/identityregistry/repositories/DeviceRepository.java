@@ -16,10 +16,15 @@
 package net.maritimecloud.identityregistry.repositories;
 
 import net.maritimecloud.identityregistry.model.database.entities.Device;
+import org.springframework.data.jpa.repository.EntityGraph;
 
 import java.util.List;
 
 public interface DeviceRepository extends EntityRepository<Device> {
     List<Device> findByName(String lastName);
 
+    @Override
+    @EntityGraph("Device.detail")
+    Device getByMrn(String mrn);
+
 }
@@ -17,8 +17,11 @@ package net.maritimecloud.identityregistry.repositories;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.NoRepositoryBean;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
@@ -28,7 +31,15 @@ public interface EntityRepository<T> extends PagingAndSortingRepository<T, Long>
 
     Page<T> findByidOrganization(Long orgId, Pageable pageable);
 
-    void deleteByidOrganization(Long orgId);
+    <P> Page<P> findByidOrganization(Long orgId, Pageable pageable, Class<P> type);
 
-    T getByMrnIgnoreCase(String mrn);
+    <P> List<P> findByIdOrganizationAndIdGreaterThanOrderByIdAsc(Long orgId, Long afterId, Pageable pageable, Class<P> type);
+
+    // Deletes in bulk without loading the entities, see OrganizationService.deleteWithEntities for what must be done
+    // first
+    @Modifying
+    @Query("DELETE FROM #{#entityName} e WHERE e.idOrganization = :idOrganization")
+    int deleteByidOrganization(@Param("idOrganization") Long orgId);
+
+    T getByMrn(String mrn);
 }
@@ -15,22 +15,34 @@
  */
 package net.maritimecloud.identityregistry.repositories;
 
+import net.maritimecloud.identityregistry.model.data.OrganizationSummary;
 import net.maritimecloud.identityregistry.model.database.Organization;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface OrganizationRepository extends PagingAndSortingRepository<Organization, Long> {
+    // Used for the snapshots behind authentication, which are cached, so nothing is joined
     Organization findByMrnAndApprovedTrue(String mrn);
 
+    @EntityGraph("Organization.detail")
     Organization findByMrn(String mrn);
 
+    @EntityGraph("Organization.detail")
     Optional<Organization> findById(Long id);
 
     Page<Organization> findByApprovedFalse(Pageable pageable);
 
+    List<Organization> findByApprovedFalseAndIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
     Page<Organization> findByApprovedTrue(Pageable pageable);
 
+    <P> Page<P> findByApprovedTrue(Pageable pageable, Class<P> type);
+
+    List<OrganizationSummary> findByApprovedTrueAndIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
 }
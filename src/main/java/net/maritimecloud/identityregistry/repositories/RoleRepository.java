@@ -16,14 +16,26 @@
 package net.maritimecloud.identityregistry.repositories;
 
 import net.maritimecloud.identityregistry.model.database.Role;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
 public interface RoleRepository extends CrudRepository<Role, Long> {
     List<Role> findByidOrganization(Long orgId);
 
-    void deleteByidOrganization(Long orgId);
+    @Modifying
+    @Query("DELETE FROM Role r WHERE r.idOrganization = :idOrganization")
+    int deleteByidOrganization(@Param("idOrganization") Long orgId);
 
+    // Run for every authenticated request, so the result is kept in the query cache until the roles table changes
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "role-permission-query")
+    })
     List<Role> findByIdOrganizationAndPermission(Long idOrganization, String permission);
 }
@@ -18,18 +18,40 @@ package net.maritimecloud.identityregistry.repositories;
 import net.maritimecloud.identityregistry.model.database.entities.Service;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface ServiceRepository extends PagingAndSortingRepository<Service, Long> {
+    @EntityGraph("Service.list")
     Page<Service> findByidOrganization(Long orgId, Pageable pageable);
+
+    <P> Page<P> findByidOrganization(Long orgId, Pageable pageable, Class<P> type);
+
+    <P> List<P> findByIdOrganizationAndIdGreaterThanOrderByIdAsc(Long orgId, Long afterId, Pageable pageable, Class<P> type);
+
     List<Service> findByidOrganization(Long orgId);
 
-    void deleteByidOrganization(Long orgId);
+    // Deletes in bulk without loading the entities, see OrganizationService.deleteWithEntities for what must be done
+    // first
+    @Modifying
+    @Query("DELETE FROM Service e WHERE e.idOrganization = :idOrganization")
+    int deleteByidOrganization(@Param("idOrganization") Long orgId);
+
+    // Services can be linked to vessels of other organizations
+    @Modifying
+    @Query("UPDATE Service s SET s.vessel = NULL WHERE s.vessel IN (SELECT v FROM Vessel v WHERE v.idOrganization = :idOrganization)")
+    int unlinkVesselsOfOrganization(@Param("idOrganization") Long orgId);
 
     List<Service> findByName(String lastName);
 
-    Service getByMrnIgnoreCaseAndInstanceVersion(String mrn, String version);
-    Page<Service> findByMrnIgnoreCase(String mrn, Pageable pageable);
+    @EntityGraph("Service.detail")
+    Service getByMrnAndInstanceVersion(String mrn, String version);
+
+    @EntityGraph("Service.list")
+    Page<Service> findByMrn(String mrn, Pageable pageable);
 }
@@ -16,7 +16,11 @@
 package net.maritimecloud.identityregistry.repositories;
 
 import net.maritimecloud.identityregistry.model.database.entities.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 
 public interface UserRepository extends EntityRepository<User> {
 
+    @Override
+    @EntityGraph("User.detail")
+    User getByMrn(String mrn);
 }
@@ -16,9 +16,30 @@
 package net.maritimecloud.identityregistry.repositories;
 
 import net.maritimecloud.identityregistry.model.database.entities.Vessel;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface VesselRepository extends EntityRepository<Vessel> {
     List<Vessel> findByName(String lastName);
+
+    @Override
+    @EntityGraph("Vessel.detail")
+    Vessel getByMrn(String mrn);
+
+    @Query("SELECT v.image.id FROM Vessel v WHERE v.idOrganization = :idOrganization AND v.image IS NOT NULL")
+    List<Long> findImageIdsByIdOrganization(@Param("idOrganization") Long orgId);
+
+    @Modifying
+    @Query("DELETE FROM VesselAttribute a WHERE a.vessel IN (SELECT v FROM Vessel v WHERE v.idOrganization = :idOrganization)")
+    int deleteAttributesByIdOrganization(@Param("idOrganization") Long orgId);
+
+    // The images must be deleted after the vessels referencing them
+    @Modifying
+    @Query("DELETE FROM VesselImage i WHERE i.id IN :ids")
+    int deleteImagesByIdIn(@Param("ids") Collection<Long> ids);
 }
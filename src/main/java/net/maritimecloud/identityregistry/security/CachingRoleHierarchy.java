@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.security;
+
+import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The cache of the roles reachable through the role hierarchy. Remembers the reachable authorities of each distinct
+ * set of authority names, so that the hierarchy is walked once per set instead of on every role check. It is the
+ * role hierarchy bean, so the security expressions, the authentication providers and AccessControlUtil share it.
+ * When created from the text of the hierarchy the roles of the hierarchy are numbered, so that {@link ReachableRoles}
+ * keeps them as bits.
+ */
+public class CachingRoleHierarchy implements RoleHierarchy {
+
+    // The number of distinct sets of authority names whose reachable roles are kept. There are only a few distinct
+    // sets, so when full the roles of new sets are computed on every check rather than evicting the common sets.
+    private static final int MAX_SIZE = 1000;
+
+    private final RoleHierarchy roleHierarchy;
+
+    // The bit of each role of the hierarchy, shared by the reachable roles
+    private final Map<String, Long> roleBits;
+
+    // Maps the sorted names of a set of authorities to the roles reachable from them
+    private final Map<List<String>, Reachable> reachableCache = new ConcurrentHashMap<>();
+
+    /**
+     * Caches the given hierarchy, whose roles are not known, so the reachable roles are kept by name
+     */
+    public CachingRoleHierarchy(RoleHierarchy roleHierarchy) {
+        this(roleHierarchy, Collections.emptyList());
+    }
+
+    /**
+     * Creates the hierarchy from its text, like "ROLE_A > ROLE_B\nROLE_B > ROLE_C", and numbers the roles in it
+     */
+    public CachingRoleHierarchy(String hierarchy) {
+        this(createRoleHierarchy(hierarchy), rolesOf(hierarchy));
+    }
+
+    private CachingRoleHierarchy(RoleHierarchy roleHierarchy, Collection<String> roles) {
+        this.roleHierarchy = roleHierarchy;
+        this.roleBits = ReachableRoles.roleBits(roles);
+    }
+
+    private static RoleHierarchy createRoleHierarchy(String hierarchy) {
+        RoleHierarchyImpl roleHierarchy = new RoleHierarchyImpl();
+        roleHierarchy.setHierarchy(hierarchy);
+        return roleHierarchy;
+    }
+
+    // The roles of the hierarchy in the order they are first mentioned
+    private static Collection<String> rolesOf(String hierarchy) {
+        Set<String> roles = new LinkedHashSet<>();
+        for (String role : hierarchy.split("[\\s>]+")) {
+            if (!role.isEmpty()) {
+                roles.add(role);
+            }
+        }
+        return roles;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getReachableGrantedAuthorities(Collection<? extends GrantedAuthority> authorities) {
+        if (authorities == null || authorities.isEmpty()) {
+            return roleHierarchy.getReachableGrantedAuthorities(authorities);
+        }
+        return getReachable(authorities).authorities;
+    }
+
+    /**
+     * @return the roles reachable from the given authorities, for checking them without walking the authorities
+     */
+    public ReachableRoles getReachableRoles(Collection<? extends GrantedAuthority> authorities) {
+        if (authorities == null || authorities.isEmpty()) {
+            return new ReachableRoles(roleBits, roleHierarchy.getReachableGrantedAuthorities(authorities));
+        }
+        return getReachable(authorities).roles;
+    }
+
+    private Reachable getReachable(Collection<? extends GrantedAuthority> authorities) {
+        // The key is a copy, so it can not change while it is in the map, and sorted, so the order does not matter
+        Set<String> names = new TreeSet<>();
+        for (GrantedAuthority authority : authorities) {
+            if (authority.getAuthority() != null) {
+                names.add(authority.getAuthority());
+            }
+        }
+        List<String> key = Collections.unmodifiableList(new ArrayList<>(names));
+        Reachable reachable = reachableCache.get(key);
+        if (reachable == null) {
+            reachable = new Reachable(roleBits, roleHierarchy.getReachableGrantedAuthorities(authorities));
+            if (reachableCache.size() < MAX_SIZE) {
+                reachableCache.put(key, reachable);
+            }
+        }
+        return reachable;
+    }
+
+    private static final class Reachable {
+        private final Collection<GrantedAuthority> authorities;
+        private final ReachableRoles roles;
+
+        Reachable(Map<String, Long> roleBits, Collection<? extends GrantedAuthority> authorities) {
+            this.authorities = Collections.unmodifiableCollection(new ArrayList<>(authorities));
+            this.roles = new ReachableRoles(roleBits, authorities);
+        }
+    }
+}
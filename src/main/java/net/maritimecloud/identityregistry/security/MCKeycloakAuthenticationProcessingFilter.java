@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.security;
+
+import net.maritimecloud.identityregistry.services.OrganizationChangedEvent;
+import net.maritimecloud.identityregistry.services.RolesChangedEvent;
+import net.maritimecloud.identityregistry.utils.AccessControlUtil;
+import net.maritimecloud.identityregistry.utils.MrnUtil;
+import org.bouncycastle.util.encoders.Hex;
+import org.keycloak.KeycloakSecurityContext;
+import org.keycloak.adapters.springsecurity.filter.KeycloakAuthenticationProcessingFilter;
+import org.keycloak.adapters.springsecurity.token.KeycloakAuthenticationToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Keeps the authentication of bearer tokens until the tokens expire, so that requests repeating a token skip the
+ * verification of its signature and the mapping of its permissions to roles.
+ */
+public class MCKeycloakAuthenticationProcessingFilter extends KeycloakAuthenticationProcessingFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(MCKeycloakAuthenticationProcessingFilter.class);
+
+    private static final String BEARER_PREFIX = "bearer ";
+
+    // The longest time in seconds an authentication is kept even if the token is valid for longer, and how many
+    // tokens are kept
+    @Value("${net.maritimecloud.idreg.oidc.token-cache-max-ttl:300}")
+    private long cacheMaxTtl = 300;
+    @Value("${net.maritimecloud.idreg.oidc.token-cache-size:10000}")
+    private int cacheSize = 10000;
+
+    // Maps the hash of a bearer token to its authentication
+    private final Map<String, CachedAuthentication> authenticationCache = new ConcurrentHashMap<>();
+    // The cached authentications in the order they were added, the oldest are evicted first when the cache is full
+    private final Queue<CachedAuthentication> cacheOrder = new ConcurrentLinkedQueue<>();
+
+    private Clock clock = Clock.systemUTC();
+
+    public MCKeycloakAuthenticationProcessingFilter(AuthenticationManager authenticationManager) {
+        super(authenticationManager);
+    }
+
+    @Override
+    public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response) throws AuthenticationException, IOException, ServletException {
+        String token = getBearerToken(request);
+        if (token == null) {
+            return authenticate(request, response);
+        }
+        String key = hash(token);
+        long now = clock.millis();
+        CachedAuthentication cached = authenticationCache.get(key);
+        if (cached != null) {
+            if (cached.expiresAt > now) {
+                logger.debug("Using cached authentication of bearer token");
+                // The token is not verified again, so the security context is exposed here like the Keycloak
+                // adapter does when it has verified the token
+                request.setAttribute(KeycloakSecurityContext.class.getName(), cached.authentication.getCredentials());
+                return cached.authentication;
+            }
+            authenticationCache.remove(key, cached);
+        }
+        Authentication authentication = authenticate(request, response);
+        if (authentication instanceof KeycloakAuthenticationToken && authentication.isAuthenticated()) {
+            KeycloakSecurityContext ksc = (KeycloakSecurityContext) authentication.getCredentials();
+            // The token is never used after it has expired, and is verified again after the max TTL
+            long expiresAt = Math.min(ksc.getToken().getExpiration() * 1000L, now + cacheMaxTtl * 1000);
+            if (expiresAt > now) {
+                String orgMrn = (String) ksc.getToken().getOtherClaims().get(AccessControlUtil.ORG_PROPERTY_NAME);
+                CachedAuthentication entry = new CachedAuthentication(key, authentication, MrnUtil.normalize(orgMrn), expiresAt);
+                authenticationCache.put(key, entry);
+                cacheOrder.add(entry);
+                removeOldest(now);
+            }
+        }
+        return authentication;
+    }
+
+    /**
+     * Verifies the bearer token and maps it to an authentication with the Keycloak adapter
+     */
+    protected Authentication authenticate(HttpServletRequest request, HttpServletResponse response) throws AuthenticationException, IOException, ServletException {
+        return super.attemptAuthentication(request, response);
+    }
+
+    /**
+     * Drops the oldest entries while they have expired, have been replaced, or there are too many
+     */
+    private void removeOldest(long now) {
+        CachedAuthentication oldest;
+        while ((oldest = cacheOrder.peek()) != null) {
+            boolean stored = authenticationCache.get(oldest.key) == oldest;
+            if (stored && oldest.expiresAt > now && authenticationCache.size() <= cacheSize) {
+                break;
+            }
+            // Another request might have removed it in the meantime
+            if (cacheOrder.remove(oldest)) {
+                authenticationCache.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    /**
+     * The roles of a token are mapped from its permissions through the roles of the organization, so the cache is
+     * cleared when a change to them is committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRolesChanged(RolesChangedEvent event) {
+        clearCache();
+    }
+
+    /**
+     * The roles of a token depend on its organization, so the tokens of a changed organization are dropped. A
+     * deleted organization is only known by its id, so then the whole cache is cleared.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrganizationChanged(OrganizationChangedEvent event) {
+        if (event.isDeleted() || event.getMrn() == null) {
+            clearCache();
+        } else {
+            evictOrganization(event.getMrn());
+        }
+    }
+
+    /**
+     * Drops the authentications of the tokens of the given organization. Organizations change rarely, so the entries
+     * are scanned rather than indexed by organization.
+     */
+    private void evictOrganization(String orgMrn) {
+        String mrn = MrnUtil.normalize(orgMrn);
+        authenticationCache.values().removeIf(entry -> mrn.equals(entry.orgMrn));
+        cacheOrder.removeIf(entry -> mrn.equals(entry.orgMrn));
+    }
+
+    public void clearCache() {
+        authenticationCache.clear();
+        cacheOrder.clear();
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    private static String getBearerToken(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        if (header == null || header.length() <= BEARER_PREFIX.length()
+                || !header.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return null;
+        }
+        return header.substring(BEARER_PREFIX.length()).trim();
+    }
+
+    private static String hash(String token) {
+        try {
+            return Hex.toHexString(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private static final class CachedAuthentication {
+        private final String key;
+        private final Authentication authentication;
+        // The normalized MRN of the organization of the token, if it has one
+        private final String orgMrn;
+        private final long expiresAt;
+
+        CachedAuthentication(String key, Authentication authentication, String orgMrn, long expiresAt) {
+            this.key = key;
+            this.authentication = authentication;
+            this.orgMrn = orgMrn;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -16,8 +16,7 @@
 package net.maritimecloud.identityregistry.security;
 
 
-import net.maritimecloud.identityregistry.model.database.Organization;
-import net.maritimecloud.identityregistry.model.database.Role;
+import net.maritimecloud.identityregistry.model.data.OrganizationSnapshot;
 import net.maritimecloud.identityregistry.services.OrganizationService;
 import net.maritimecloud.identityregistry.services.RoleService;
 import net.maritimecloud.identityregistry.utils.AccessControlUtil;
@@ -28,12 +27,14 @@ import org.keycloak.adapters.springsecurity.token.KeycloakAuthenticationToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.mapping.GrantedAuthoritiesMapper;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +49,8 @@ public class MCKeycloakAuthenticationProvider extends KeycloakAuthenticationProv
     private OrganizationService organizationService;
     @Autowired
     private RoleService roleService;
+    @Autowired
+    private RoleHierarchy roleHierarchy;
 
     @Override
     public void setGrantedAuthoritiesMapper(GrantedAuthoritiesMapper grantedAuthoritiesMapper) {
@@ -61,27 +64,22 @@ public class MCKeycloakAuthenticationProvider extends KeycloakAuthenticationProv
         KeycloakSecurityContext ksc = (KeycloakSecurityContext)token.getCredentials();
         Map<String, Object> otherClaims = ksc.getToken().getOtherClaims();
 
-        Organization org = null;
+        OrganizationSnapshot org = null;
         if (otherClaims.containsKey(AccessControlUtil.ORG_PROPERTY_NAME)) {
             String orgMrn = (String) otherClaims.get(AccessControlUtil.ORG_PROPERTY_NAME);
             logger.debug("Found org mrn: " + orgMrn);
-            org = organizationService.getOrganizationByMrnNoFilter(orgMrn);
+            org = organizationService.getOrganizationSnapshot(orgMrn);
 
             if (org != null) {
                 if (otherClaims.containsKey(AccessControlUtil.PERMISSIONS_PROPERTY_NAME)) {
                     ArrayList<String> usersPermissions = (ArrayList<String>) otherClaims.get(AccessControlUtil.PERMISSIONS_PROPERTY_NAME);
+                    List<String> auths = new ArrayList<>();
                     for (String permission : usersPermissions) {
-                        String[] auths = permission.split(",");
-                        for (String auth : auths) {
-                            logger.debug("Looking up role: " + auth);
-                            List<Role> foundRoles = roleService.getRolesByIdOrganizationAndPermission(org.getId(), auth);
-                            if (foundRoles != null) {
-                                for (Role foundRole : foundRoles) {
-                                    logger.debug("Replacing role " + auth + ", with: " + foundRole.getRoleName());
-                                    grantedAuthorities.add(new KeycloakRole(foundRole.getRoleName()));
-                                }
-                            }
-                        }
+                        auths.addAll(Arrays.asList(permission.split(",")));
+                    }
+                    logger.debug("Looking up roles: " + auths);
+                    for (String roleName : roleService.getRoleNamesByIdOrganizationAndPermissions(org.getId(), auths)) {
+                        grantedAuthorities.add(new KeycloakRole(roleName));
                     }
                 }
                 if (grantedAuthorities.isEmpty()) {
@@ -89,7 +87,9 @@ public class MCKeycloakAuthenticationProvider extends KeycloakAuthenticationProv
                 }
             }
         }
-        return new KeycloakAuthenticationToken(token.getAccount(), mapAuthorities(grantedAuthorities));
+        Collection<? extends GrantedAuthority> authorities = mapAuthorities(grantedAuthorities);
+        // The reachable roles are computed once here, so role checks during the request are set lookups
+        return new MCKeycloakAuthenticationToken(token.getAccount(), authorities, ReachableRoles.of(roleHierarchy, authorities));
     }
 
     private Collection<? extends GrantedAuthority> mapAuthorities(
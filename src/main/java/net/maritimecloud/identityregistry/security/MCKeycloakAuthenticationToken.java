@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.security;
+
+import org.keycloak.adapters.spi.KeycloakAccount;
+import org.keycloak.adapters.springsecurity.token.KeycloakAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+/**
+ * Keycloak authentication that also carries the roles reachable from its authorities
+ */
+public class MCKeycloakAuthenticationToken extends KeycloakAuthenticationToken implements ReachableRoles.Holder {
+
+    private final ReachableRoles reachableRoles;
+
+    public MCKeycloakAuthenticationToken(KeycloakAccount account, Collection<? extends GrantedAuthority> authorities, ReachableRoles reachableRoles) {
+        super(account, authorities);
+        this.reachableRoles = reachableRoles;
+    }
+
+    @Override
+    public ReachableRoles getReachableRoles() {
+        return reachableRoles;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.security;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.parameters.DefaultSecurityParameterNameDiscoverer;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Expression handler for the @PreAuthorize annotations, which does the work that does not depend on the call once
+ * per method instead of on every call:
+ * <ul>
+ *     <li>Spring Security parses each expression once per method. With this parser the SpEL compiler also compiles
+ *     the parsed expression to bytecode after its first interpreted calls. An expression that can not be compiled
+ *     stays interpreted.</li>
+ *     <li>The access checks are methods of {@link MCMethodSecurityExpressionRoot}, so they are called on the root
+ *     instead of being looked up as beans.</li>
+ *     <li>The parameter names that #orgMrn and the like are bound to are discovered once per method.</li>
+ *     <li>The roles reachable through the role hierarchy are cached by {@link CachingRoleHierarchy}.</li>
+ * </ul>
+ */
+public class MCMethodSecurityExpressionHandler extends DefaultMethodSecurityExpressionHandler {
+
+    public MCMethodSecurityExpressionHandler() {
+        setExpressionParser(new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED,
+                MCMethodSecurityExpressionHandler.class.getClassLoader())));
+        setParameterNameDiscoverer(new CachingParameterNameDiscoverer(new DefaultSecurityParameterNameDiscoverer()));
+    }
+
+    @Override
+    protected MethodSecurityExpressionOperations createSecurityExpressionRoot(Authentication authentication, MethodInvocation invocation) {
+        MCMethodSecurityExpressionRoot root = new MCMethodSecurityExpressionRoot(authentication);
+        root.setThis(invocation.getThis());
+        root.setPermissionEvaluator(getPermissionEvaluator());
+        root.setTrustResolver(new AuthenticationTrustResolverImpl());
+        root.setRoleHierarchy(getRoleHierarchy());
+        return root;
+    }
+
+    /**
+     * Remembers the parameter names of each method, which are otherwise looked up through reflection on every call
+     */
+    static class CachingParameterNameDiscoverer implements ParameterNameDiscoverer {
+
+        // Stands in for methods without parameter names, as the map can not hold null
+        private static final String[] NO_NAMES = new String[0];
+
+        private final ParameterNameDiscoverer parameterNameDiscoverer;
+        private final Map<Method, String[]> parameterNames = new ConcurrentHashMap<>();
+
+        CachingParameterNameDiscoverer(ParameterNameDiscoverer parameterNameDiscoverer) {
+            this.parameterNameDiscoverer = parameterNameDiscoverer;
+        }
+
+        @Override
+        public String[] getParameterNames(Method method) {
+            String[] names = parameterNames.computeIfAbsent(method, m -> {
+                String[] discovered = parameterNameDiscoverer.getParameterNames(m);
+                return discovered != null ? discovered : NO_NAMES;
+            });
+            return names == NO_NAMES ? null : names;
+        }
+
+        @Override
+        public String[] getParameterNames(Constructor<?> ctor) {
+            return parameterNameDiscoverer.getParameterNames(ctor);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.security;
+
+import net.maritimecloud.identityregistry.utils.AccessControlUtil;
+import org.springframework.security.access.expression.SecurityExpressionRoot;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionOperations;
+import org.springframework.security.core.Authentication;
+
+/**
+ * The root object of the @PreAuthorize expressions. Besides the usual operations like hasRole it has the access
+ * checks of AccessControlUtil, so the expressions call them on the root instead of looking up a bean. Methods of a
+ * public root class can be compiled by the SpEL compiler, bean references can not.
+ */
+public class MCMethodSecurityExpressionRoot extends SecurityExpressionRoot implements MethodSecurityExpressionOperations {
+
+    private Object filterObject;
+    private Object returnObject;
+    private Object target;
+
+    public MCMethodSecurityExpressionRoot(Authentication authentication) {
+        super(authentication);
+    }
+
+    /**
+     * @see AccessControlUtil#hasAccessToOrg(String)
+     */
+    public boolean hasAccessToOrg(String orgMrn) {
+        return AccessControlUtil.hasAccessToOrg(orgMrn);
+    }
+
+    @Override
+    public void setFilterObject(Object filterObject) {
+        this.filterObject = filterObject;
+    }
+
+    @Override
+    public Object getFilterObject() {
+        return filterObject;
+    }
+
+    @Override
+    public void setReturnObject(Object returnObject) {
+        this.returnObject = returnObject;
+    }
+
+    @Override
+    public Object getReturnObject() {
+        return returnObject;
+    }
+
+    void setThis(Object target) {
+        this.target = target;
+    }
+
+    @Override
+    public Object getThis() {
+        return target;
+    }
+}
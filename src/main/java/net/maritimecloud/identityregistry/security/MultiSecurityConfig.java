@@ -16,8 +16,8 @@
 package net.maritimecloud.identityregistry.security;
 
 import net.maritimecloud.identityregistry.config.SimpleCorsFilter;
+import net.maritimecloud.identityregistry.security.x509.MCPreAuthenticatedAuthenticationProvider;
 import net.maritimecloud.identityregistry.security.x509.X509HeaderUserDetailsService;
-import net.maritimecloud.identityregistry.security.x509.X509UserDetailsService;
 import net.maritimecloud.identityregistry.utils.AccessControlUtil;
 import org.keycloak.adapters.springsecurity.config.KeycloakWebSecurityConfigurerAdapter;
 import org.keycloak.adapters.springsecurity.filter.KeycloakAuthenticationProcessingFilter;
@@ -31,9 +31,8 @@ import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.access.expression.SecurityExpressionHandler;
 import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
-import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
+import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
-import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -42,9 +41,8 @@ import org.springframework.security.core.userdetails.UserDetailsByNameServiceWra
 import org.springframework.security.web.FilterInvocation;
 import org.springframework.security.web.access.channel.ChannelProcessingFilter;
 import org.springframework.security.web.access.expression.DefaultWebSecurityExpressionHandler;
-import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationProvider;
-import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
 import org.springframework.security.web.authentication.preauth.RequestHeaderAuthenticationFilter;
+import org.springframework.security.web.authentication.preauth.x509.X509AuthenticationFilter;
 import org.springframework.security.web.authentication.session.NullAuthenticatedSessionStrategy;
 import org.springframework.security.web.authentication.session.SessionAuthenticationStrategy;
 import org.springframework.security.web.firewall.DefaultHttpFirewall;
@@ -52,7 +50,6 @@ import org.springframework.security.web.firewall.HttpFirewall;
 
 @Configuration
 @EnableWebSecurity
-@EnableGlobalMethodSecurity(prePostEnabled = true)
 public class MultiSecurityConfig {
 
     @Bean
@@ -77,6 +74,17 @@ public class MultiSecurityConfig {
             return new MCKeycloakAuthenticationProvider();
         }
 
+        /**
+         * Replaces the Keycloak filter with one that keeps the authentication of bearer tokens until they expire.
+         */
+        @Bean
+        @Override
+        protected KeycloakAuthenticationProcessingFilter keycloakAuthenticationProcessingFilter() throws Exception {
+            KeycloakAuthenticationProcessingFilter filter = new MCKeycloakAuthenticationProcessingFilter(authenticationManagerBean());
+            filter.setSessionAuthenticationStrategy(sessionAuthenticationStrategy());
+            return filter;
+        }
+
         /**
          * Defines the session authentication strategy.
          */
@@ -105,6 +113,7 @@ public class MultiSecurityConfig {
                     .antMatchers(HttpMethod.POST, "/oidc/api/report-bug").permitAll()
                     .antMatchers(HttpMethod.POST, "/oidc/api/org/apply").permitAll()
                     .antMatchers(HttpMethod.GET, "/oidc/api/certificates/crl/*").permitAll()
+                    .antMatchers(HttpMethod.GET, "/oidc/api/certificates/trust-bundle/*").permitAll()
                     .antMatchers(HttpMethod.GET, "/oidc/api/certificates/ocsp/**").permitAll()
                     .antMatchers(HttpMethod.POST, "/oidc/api/certificates/ocsp/*").permitAll()
                     .antMatchers(HttpMethod.POST, "/oidc/api/**").authenticated()
@@ -132,21 +141,19 @@ public class MultiSecurityConfig {
 
         @Bean
         public RoleHierarchy roleHierarchy() {
-            RoleHierarchyImpl roleHierarchy = new RoleHierarchyImpl();
             // If the hierarchy is changed, remember to update the hierarchy below and the list in
             // net.maritimecloud.identityregistry.controllers.RoleController:getAvailableRoles()
-            roleHierarchy.setHierarchy("ROLE_SITE_ADMIN > ROLE_APPROVE_ORG\n" +
-                                        "ROLE_SITE_ADMIN > ROLE_ORG_ADMIN\n" +
-                                        "ROLE_ORG_ADMIN > ROLE_ENTITY_ADMIN\n" +
-                                        "ROLE_ENTITY_ADMIN > ROLE_USER_ADMIN\n" +
-                                        "ROLE_ENTITY_ADMIN > ROLE_VESSEL_ADMIN\n" +
-                                        "ROLE_ENTITY_ADMIN > ROLE_SERVICE_ADMIN\n" +
-                                        "ROLE_ENTITY_ADMIN > ROLE_DEVICE_ADMIN\n" +
-                                        "ROLE_USER_ADMIN > ROLE_USER\n" +
-                                        "ROLE_VESSEL_ADMIN > ROLE_USER\n" +
-                                        "ROLE_SERVICE_ADMIN > ROLE_USER\n" +
-                                        "ROLE_DEVICE_ADMIN > ROLE_USER");
-            return roleHierarchy;
+            return new CachingRoleHierarchy("ROLE_SITE_ADMIN > ROLE_APPROVE_ORG\n" +
+                                            "ROLE_SITE_ADMIN > ROLE_ORG_ADMIN\n" +
+                                            "ROLE_ORG_ADMIN > ROLE_ENTITY_ADMIN\n" +
+                                            "ROLE_ENTITY_ADMIN > ROLE_USER_ADMIN\n" +
+                                            "ROLE_ENTITY_ADMIN > ROLE_VESSEL_ADMIN\n" +
+                                            "ROLE_ENTITY_ADMIN > ROLE_SERVICE_ADMIN\n" +
+                                            "ROLE_ENTITY_ADMIN > ROLE_DEVICE_ADMIN\n" +
+                                            "ROLE_USER_ADMIN > ROLE_USER\n" +
+                                            "ROLE_VESSEL_ADMIN > ROLE_USER\n" +
+                                            "ROLE_SERVICE_ADMIN > ROLE_USER\n" +
+                                            "ROLE_DEVICE_ADMIN > ROLE_USER");
         }
 
         private SecurityExpressionHandler<FilterInvocation> webExpressionHandler() {
@@ -161,26 +168,21 @@ public class MultiSecurityConfig {
     @Order(2)
     public static class X509WebSecurityConfigurationAdapter extends WebSecurityConfigurerAdapter {
 
+        // If true the servlet container terminates mutual TLS and gives the client certificate, otherwise it is
+        // given in a header by a reverse proxy
         @Value("${server.ssl.enabled:false}")
         private boolean useStandardSSL;
-        private X509HeaderUserDetailsService userDetailsService;
-        private PreAuthenticatedAuthenticationProvider preAuthenticatedProvider;
-
-        public X509WebSecurityConfigurationAdapter() {
-            super();
-            if (!useStandardSSL) {
-                userDetailsService = new X509HeaderUserDetailsService();
-                UserDetailsByNameServiceWrapper<PreAuthenticatedAuthenticationToken> wrapper = new UserDetailsByNameServiceWrapper<>(userDetailsService);
-                preAuthenticatedProvider = new PreAuthenticatedAuthenticationProvider();
-                preAuthenticatedProvider.setPreAuthenticatedUserDetailsService(wrapper);
-            }
-        }
 
         @Override
         protected void configure(AuthenticationManagerBuilder authenticationManagerBuilder) throws Exception {
-            if (!useStandardSSL) {
-                authenticationManagerBuilder.authenticationProvider(preAuthenticatedProvider);
+            MCPreAuthenticatedAuthenticationProvider preAuthenticatedProvider = new MCPreAuthenticatedAuthenticationProvider();
+            preAuthenticatedProvider.setRoleHierarchy(roleHierarchy());
+            if (useStandardSSL) {
+                preAuthenticatedProvider.setPreAuthenticatedUserDetailsService(x509HeaderUserDetailsService());
+            } else {
+                preAuthenticatedProvider.setPreAuthenticatedUserDetailsService(new UserDetailsByNameServiceWrapper<>(x509HeaderUserDetailsService()));
             }
+            authenticationManagerBuilder.authenticationProvider(preAuthenticatedProvider);
         }
 
         @Override
@@ -193,6 +195,7 @@ public class MultiSecurityConfig {
                     .antMatchers(HttpMethod.POST, "/x509/api/report-bug").permitAll()
                     .antMatchers(HttpMethod.POST, "/x509/api/org/apply").permitAll()
                     .antMatchers(HttpMethod.GET, "/x509/api/certificates/crl/*").permitAll()
+                    .antMatchers(HttpMethod.GET, "/x509/api/certificates/trust-bundle/*").permitAll()
                     .antMatchers(HttpMethod.GET, "/x509/api/certificates/ocsp/**").permitAll()
                     .antMatchers(HttpMethod.POST, "/x509/api/certificates/ocsp/*").permitAll()
                     .antMatchers(HttpMethod.POST, "/x509/api/**").authenticated()
@@ -209,43 +212,42 @@ public class MultiSecurityConfig {
                 certFilter.setExceptionIfHeaderMissing(false);
                 http.addFilter(certFilter);
             } else {
-                // Using this approach is not recommended since we don't extract all the information from
-                // the certificate, as done in the approach above.
-                http
-                    .x509()
-                        .subjectPrincipalRegex("(.*)") // Extract all and let it be handled by the X509UserDetailsService. "CN=(.*?)," for CommonName only
-                        .userDetailsService(x509UserDetailsService())
-                ;
+                http.addFilter(x509AuthenticationFilter(authenticationManager()));
             }
         }
 
-        @Bean
-        public X509HeaderUserDetailsService x509HeaderUserDetailsService() {
-            return userDetailsService;
+        /**
+         * Creates the filter used to get the client certificate verified by the servlet container. The id of the
+         * TLS session is passed on as details, so the user details can be reused within it.
+         */
+        static X509AuthenticationFilter x509AuthenticationFilter(AuthenticationManager authenticationManager) {
+            X509AuthenticationFilter certFilter = new X509AuthenticationFilter();
+            certFilter.setAuthenticationManager(authenticationManager);
+            certFilter.setPrincipalExtractor(cert -> cert.getSubjectX500Principal().getName());
+            certFilter.setAuthenticationDetailsSource(request -> request.getAttribute(X509HeaderUserDetailsService.TLS_SESSION_ID_ATTRIBUTE));
+            return certFilter;
         }
-        
+
         @Bean
-        public X509UserDetailsService x509UserDetailsService() {
-            return new X509UserDetailsService();
+        public X509HeaderUserDetailsService x509HeaderUserDetailsService() {
+            return new X509HeaderUserDetailsService();
         }
 
         @Bean
         public RoleHierarchy roleHierarchy() {
-            RoleHierarchyImpl roleHierarchy = new RoleHierarchyImpl();
             // If the hierarchy is changed, remember to update the hierarchy above and the list in
             // net.maritimecloud.identityregistry.controllers.RoleController:getAvailableRoles()
-            roleHierarchy.setHierarchy("ROLE_SITE_ADMIN > ROLE_APPROVE_ORG\n" +
-                                        "ROLE_SITE_ADMIN > ROLE_ORG_ADMIN\n" +
-                                        "ROLE_ORG_ADMIN > ROLE_ENTITY_ADMIN\n" +
-                                        "ROLE_ENTITY_ADMIN > ROLE_USER_ADMIN\n" +
-                                        "ROLE_ENTITY_ADMIN > ROLE_VESSEL_ADMIN\n" +
-                                        "ROLE_ENTITY_ADMIN > ROLE_SERVICE_ADMIN\n" +
-                                        "ROLE_ENTITY_ADMIN > ROLE_DEVICE_ADMIN\n" +
-                                        "ROLE_USER_ADMIN > ROLE_USER\n" +
-                                        "ROLE_VESSEL_ADMIN > ROLE_USER\n" +
-                                        "ROLE_SERVICE_ADMIN > ROLE_USER\n" +
-                                        "ROLE_DEVICE_ADMIN > ROLE_USER");
-            return roleHierarchy;
+            return new CachingRoleHierarchy("ROLE_SITE_ADMIN > ROLE_APPROVE_ORG\n" +
+                                            "ROLE_SITE_ADMIN > ROLE_ORG_ADMIN\n" +
+                                            "ROLE_ORG_ADMIN > ROLE_ENTITY_ADMIN\n" +
+                                            "ROLE_ENTITY_ADMIN > ROLE_USER_ADMIN\n" +
+                                            "ROLE_ENTITY_ADMIN > ROLE_VESSEL_ADMIN\n" +
+                                            "ROLE_ENTITY_ADMIN > ROLE_SERVICE_ADMIN\n" +
+                                            "ROLE_ENTITY_ADMIN > ROLE_DEVICE_ADMIN\n" +
+                                            "ROLE_USER_ADMIN > ROLE_USER\n" +
+                                            "ROLE_VESSEL_ADMIN > ROLE_USER\n" +
+                                            "ROLE_SERVICE_ADMIN > ROLE_USER\n" +
+                                            "ROLE_DEVICE_ADMIN > ROLE_USER");
         }
 
         private SecurityExpressionHandler<FilterInvocation> webExpressionHandler() {
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.security;
+
+import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The authorities reachable through the role hierarchy from the authorities of a user, looked up both with and
+ * without the role prefix like hasRole in the security expressions. The roles of the hierarchy are kept as bits, so
+ * checking one of them is a map lookup of a constant and a bit test. Other authorities are kept by name.
+ */
+public final class ReachableRoles implements Serializable {
+
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    // The number of roles of the hierarchy that fit in the bits, the roles after them are kept by name
+    private static final int MAX_ROLE_BITS = Long.SIZE;
+
+    // Maps the roles of the hierarchy, with and without the prefix, to their bit. It is shared by all the reachable
+    // roles of a hierarchy.
+    private final Map<String, Long> roleBits;
+    private long bits;
+    private final Set<String> otherAuthorities = new HashSet<>();
+    private final Set<String> otherUnprefixedRoles = new HashSet<>();
+
+    /**
+     * Keeps all the given authorities by name, as there is no role hierarchy to number the roles by
+     */
+    public ReachableRoles(Collection<? extends GrantedAuthority> reachable) {
+        this(Collections.emptyMap(), reachable);
+    }
+
+    ReachableRoles(Map<String, Long> roleBits, Collection<? extends GrantedAuthority> reachable) {
+        this.roleBits = roleBits;
+        for (GrantedAuthority authority : reachable) {
+            String name = authority.getAuthority();
+            if (name == null) {
+                continue;
+            }
+            Long bit = name.startsWith(ROLE_PREFIX) ? roleBits.get(name) : null;
+            if (bit != null) {
+                bits |= bit;
+            } else {
+                otherAuthorities.add(name);
+                if (name.startsWith(ROLE_PREFIX)) {
+                    otherUnprefixedRoles.add(name.substring(ROLE_PREFIX.length()));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the roles reachable from the given authorities through the given role hierarchy
+     */
+    public static ReachableRoles of(RoleHierarchy roleHierarchy, Collection<? extends GrantedAuthority> authorities) {
+        if (roleHierarchy instanceof CachingRoleHierarchy) {
+            return ((CachingRoleHierarchy) roleHierarchy).getReachableRoles(authorities);
+        }
+        return new ReachableRoles(roleHierarchy.getReachableGrantedAuthorities(authorities));
+    }
+
+    /**
+     * Numbers the given roles of a role hierarchy, the index of a role is its bit
+     *
+     * @return the bit of each role, with and without the prefix
+     */
+    static Map<String, Long> roleBits(Collection<String> roles) {
+        Map<String, Long> roleBits = new HashMap<>();
+        int bit = 0;
+        for (String role : roles) {
+            if (bit == MAX_ROLE_BITS) {
+                break;
+            }
+            if (role.startsWith(ROLE_PREFIX) && !roleBits.containsKey(role)) {
+                roleBits.put(role, 1L << bit);
+                roleBits.put(role.substring(ROLE_PREFIX.length()), 1L << bit);
+                bit++;
+            }
+        }
+        return Collections.unmodifiableMap(roleBits);
+    }
+
+    public boolean contains(String role) {
+        Long bit = roleBits.get(role);
+        if (bit != null) {
+            return (bits & bit) != 0;
+        }
+        return role.startsWith(ROLE_PREFIX) ? otherAuthorities.contains(role) : otherUnprefixedRoles.contains(role);
+    }
+
+    /**
+     * Implemented by authentications that carry the roles reachable from their authorities, so that they are
+     * computed once when authenticating instead of on every role check.
+     */
+    public interface Holder {
+        ReachableRoles getReachableRoles();
+    }
+}
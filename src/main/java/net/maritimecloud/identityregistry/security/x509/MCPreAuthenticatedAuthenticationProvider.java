@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.security.x509;
+
+import net.maritimecloud.identityregistry.security.ReachableRoles;
+import org.springframework.security.access.hierarchicalroles.NullRoleHierarchy;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationProvider;
+
+/**
+ * Authenticates certificates like PreAuthenticatedAuthenticationProvider, and attaches the roles reachable from the
+ * authorities of the certificate to the authentication.
+ */
+public class MCPreAuthenticatedAuthenticationProvider extends PreAuthenticatedAuthenticationProvider {
+
+    private RoleHierarchy roleHierarchy = new NullRoleHierarchy();
+
+    public void setRoleHierarchy(RoleHierarchy roleHierarchy) {
+        this.roleHierarchy = roleHierarchy;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        Authentication result = super.authenticate(authentication);
+        if (result == null) {
+            return null;
+        }
+        MCPreAuthenticatedAuthenticationToken token = new MCPreAuthenticatedAuthenticationToken(result.getPrincipal(),
+                result.getCredentials(), result.getAuthorities(), ReachableRoles.of(roleHierarchy, result.getAuthorities()));
+        token.setDetails(result.getDetails());
+        return token;
+    }
+}
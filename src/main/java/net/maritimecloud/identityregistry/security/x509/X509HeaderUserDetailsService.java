@@ -15,55 +15,196 @@
  */
 package net.maritimecloud.identityregistry.security.x509;
 
-import net.maritimecloud.identityregistry.model.database.Organization;
-import net.maritimecloud.identityregistry.model.database.Role;
+import net.maritimecloud.identityregistry.model.data.OrganizationSnapshot;
+import net.maritimecloud.identityregistry.model.database.Certificate;
+import net.maritimecloud.identityregistry.services.CertificateService;
+import net.maritimecloud.identityregistry.services.CertificatesRevokedEvent;
 import net.maritimecloud.identityregistry.services.OrganizationService;
 import net.maritimecloud.identityregistry.services.RoleService;
+import net.maritimecloud.identityregistry.services.RolesChangedEvent;
 import net.maritimecloud.pki.CertificateHandler;
 import net.maritimecloud.pki.PKIIdentity;
+import org.bouncycastle.util.encoders.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.AuthenticationUserDetailsService;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.ldap.userdetails.InetOrgPerson;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Creates the user details of a client certificate, either given in the X-Client-Certificate header by a reverse
+ * proxy, or by the servlet container when it terminates mutual TLS itself.
+ */
 @Service("userDetailsService")
-public class X509HeaderUserDetailsService implements UserDetailsService {
+public class X509HeaderUserDetailsService implements UserDetailsService, AuthenticationUserDetailsService<PreAuthenticatedAuthenticationToken> {
+
+    // The request attribute holding the id of the TLS session when the servlet container terminates TLS
+    public static final String TLS_SESSION_ID_ATTRIBUTE = "javax.servlet.request.ssl_session_id";
 
     @Autowired
     private OrganizationService organizationService;
     @Autowired
     private RoleService roleService;
+    @Autowired
+    private CertificateService certificateService;
 
     /*@Autowired
-    private CertificateService certificateService;
-    @Autowired
     private CertificateUtil certUtil;*/
 
     private static final Logger logger = LoggerFactory.getLogger(X509HeaderUserDetailsService.class);
 
+    // How long in seconds the user details of a certificate are cached, and how many certificates are cached
+    @Value("${net.maritimecloud.idreg.x509.user-details-cache-ttl:300}")
+    private long cacheTtl = 300;
+    @Value("${net.maritimecloud.idreg.x509.user-details-cache-size:10000}")
+    private int cacheSize = 10000;
+
+    // Maps the hash of a certificate header, or the TLS session a certificate was presented in, to the user details.
+    // In access order, so the least recently used certificate is evicted when the cache is full.
+    private final Map<String, CachedUserDetails> userDetailsCache = new LinkedHashMap<String, CachedUserDetails>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedUserDetails> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
     @Override
     public UserDetails loadUserByUsername(String certificateHeader) throws UsernameNotFoundException {
         if (certificateHeader == null || certificateHeader.length() < 10) {
             logger.warn("No certificate header found");
             throw new UsernameNotFoundException("No certificate header found");
         }
-        X509Certificate userCertificate = CertificateHandler.getCertFromNginxHeader(certificateHeader);
-        if (userCertificate == null) {
-            logger.error("Extracting certificate from header failed");
-            throw new UsernameNotFoundException("Extracting certificate from header failed");
+        String key = hash(certificateHeader.getBytes(StandardCharsets.UTF_8));
+        UserDetails userDetails = getCachedUserDetails(key, null);
+        if (userDetails == null) {
+            X509Certificate userCertificate = CertificateHandler.getCertFromNginxHeader(certificateHeader);
+            if (userCertificate == null) {
+                logger.error("Extracting certificate from header failed");
+                throw new UsernameNotFoundException("Extracting certificate from header failed");
+            }
+            userDetails = createUserDetails(userCertificate);
+            cacheUserDetails(key, null, userDetails);
+        }
+        return userDetails;
+    }
+
+    /**
+     * Loads the user details of a certificate verified by the servlet container. The details of the token is the id
+     * of the TLS session, so resumed sessions and later requests on the same connection reuse the user details.
+     * The truststore verification of the servlet container does not check the CRL, so the certificate is only
+     * accepted if it was issued by this registry and has not been revoked. Revocations clear the cache.
+     */
+    @Override
+    public UserDetails loadUserDetails(PreAuthenticatedAuthenticationToken token) throws UsernameNotFoundException {
+        if (!(token.getCredentials() instanceof X509Certificate)) {
+            logger.warn("No client certificate found");
+            throw new UsernameNotFoundException("No client certificate found");
+        }
+        X509Certificate userCertificate = (X509Certificate) token.getCredentials();
+        String key;
+        if (token.getDetails() instanceof String) {
+            key = "tls:" + token.getDetails();
+        } else {
+            try {
+                key = "cert:" + hash(userCertificate.getEncoded());
+            } catch (CertificateEncodingException e) {
+                throw new UsernameNotFoundException("Encoding the client certificate failed", e);
+            }
+        }
+        UserDetails userDetails = getCachedUserDetails(key, userCertificate);
+        if (userDetails == null) {
+            checkNotRevoked(userCertificate);
+            userDetails = createUserDetails(userCertificate);
+            cacheUserDetails(key, userCertificate, userDetails);
+        }
+        return userDetails;
+    }
+
+    private void checkNotRevoked(X509Certificate userCertificate) {
+        Certificate cert = certificateService.getCertificateBySerialNumber(userCertificate.getSerialNumber());
+        if (cert == null) {
+            logger.warn("The client certificate was not issued by this registry");
+            throw new UsernameNotFoundException("The client certificate was not issued by this registry");
+        }
+        if (cert.isRevoked()) {
+            logger.warn("The client certificate has been revoked");
+            throw new UsernameNotFoundException("The client certificate has been revoked");
+        }
+    }
+
+    private UserDetails getCachedUserDetails(String key, X509Certificate userCertificate) {
+        long now = System.currentTimeMillis();
+        synchronized (userDetailsCache) {
+            CachedUserDetails cached = userDetailsCache.get(key);
+            if (cached != null) {
+                if (cached.expiresAt > now && (userCertificate == null || userCertificate.equals(cached.certificate))) {
+                    return cached.userDetails;
+                }
+                userDetailsCache.remove(key);
+            }
+        }
+        return null;
+    }
+
+    private void cacheUserDetails(String key, X509Certificate userCertificate, UserDetails userDetails) {
+        synchronized (userDetailsCache) {
+            userDetailsCache.put(key, new CachedUserDetails(userCertificate, userDetails, System.currentTimeMillis() + cacheTtl * 1000));
         }
-        
+    }
+
+    /**
+     * The roles of a certificate depends on the roles of its organization, so the cache is cleared when a change to
+     * them is committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRolesChanged(RolesChangedEvent event) {
+        clearCache();
+    }
+
+    /**
+     * Revoked certificates must not keep the user details they had before they were revoked
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCertificatesRevoked(CertificatesRevokedEvent event) {
+        clearCache();
+    }
+
+    public void clearCache() {
+        synchronized (userDetailsCache) {
+            userDetailsCache.clear();
+        }
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            return Hex.toHexString(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private UserDetails createUserDetails(X509Certificate userCertificate) {
         // Actually authenticate certificate against root cert.
         // This is actually done by the nginx reverse proxy, so do we really need to do it again?
         /*try {
@@ -100,20 +241,15 @@ public class X509HeaderUserDetailsService implements UserDetailsService {
         // Convert the permissions extracted from the certificate to authorities in this API
         Collection<GrantedAuthority> newRoles = new ArrayList<>();
         if (user.getPermissions() != null && !user.getPermissions().trim().isEmpty()) {
-            Organization org = organizationService.getOrganizationByMrn(user.getO());
+            OrganizationSnapshot org = organizationService.getOrganizationSnapshot(user.getO());
             if (org == null) {
                 logger.error("The Organization is unknown!");
                 throw new UsernameNotFoundException("The Organization is unknown!");
             }
-            String[] permissions = user.getPermissions().split(",");
-            for(String permission: permissions) {
-                logger.debug("Looking up role: " + permission);
-                List<Role> foundRoles = roleService.getRolesByIdOrganizationAndPermission(org.getId(), permission);
-                if (foundRoles != null) {
-                    for (Role foundRole : foundRoles) {
-                        newRoles.add(new SimpleGrantedAuthority(foundRole.getRoleName()));
-                    }
-                }
+            List<String> permissions = Arrays.asList(user.getPermissions().split(","));
+            logger.debug("Looking up roles: " + permissions);
+            for (String roleName : roleService.getRoleNamesByIdOrganizationAndPermissions(org.getId(), permissions)) {
+                newRoles.add(new SimpleGrantedAuthority(roleName));
             }
         }
         // Add ROLE_USER as standard for authenticated users with no other role.
@@ -123,4 +259,17 @@ public class X509HeaderUserDetailsService implements UserDetailsService {
         essence.setAuthorities(newRoles);
         return essence.createUserDetails();
     }
+
+    private static final class CachedUserDetails {
+        // The certificate given by the servlet container, null for certificates given in the header
+        private final X509Certificate certificate;
+        private final UserDetails userDetails;
+        private final long expiresAt;
+
+        CachedUserDetails(X509Certificate certificate, UserDetails userDetails, long expiresAt) {
+            this.certificate = certificate;
+            this.userDetails = userDetails;
+            this.expiresAt = expiresAt;
+        }
+    }
 }
@@ -17,10 +17,13 @@ package net.maritimecloud.identityregistry.services;
 
 import net.maritimecloud.identityregistry.model.database.Certificate;
 import net.maritimecloud.identityregistry.model.database.entities.Device;
+import net.maritimecloud.identityregistry.model.database.entities.EntityModel;
 import net.maritimecloud.identityregistry.model.database.entities.User;
 import net.maritimecloud.identityregistry.model.database.entities.Vessel;
 
 import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 public interface CertificateService {
@@ -37,4 +40,12 @@ public interface CertificateService {
     List<Certificate> listDeviceCertificate(Device device);
 
     List<Certificate> listRevokedCertificate(String caAlias);
+
+    boolean isIssuedWithIdempotencyKey(String idempotencyKey, Date issuedAfter);
+
+    int revokeCertificates(Long idOrganization, Collection<BigInteger> serialNumbers, Date revokedAt, String revokeReason);
+
+    int revokeAllCertificates(Long idOrganization, Date revokedAt, String revokeReason);
+
+    int revokeAllCertificatesOf(EntityModel owner, Date revokedAt, String revokeReason);
 }
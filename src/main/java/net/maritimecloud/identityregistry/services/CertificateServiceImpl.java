@@ -17,19 +17,31 @@ package net.maritimecloud.identityregistry.services;
 
 import net.maritimecloud.identityregistry.model.database.Certificate;
 import net.maritimecloud.identityregistry.model.database.entities.Device;
+import net.maritimecloud.identityregistry.model.database.entities.EntityModel;
 import net.maritimecloud.identityregistry.model.database.entities.User;
 import net.maritimecloud.identityregistry.model.database.entities.Vessel;
 import net.maritimecloud.identityregistry.repositories.CertificateRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 @Service
 public class CertificateServiceImpl implements CertificateService {
     private CertificateRepository CertificateRepository;
 
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
     @Autowired
     public void setCertificateRepository(CertificateRepository CertificateRepository) {
         this.CertificateRepository = CertificateRepository;
@@ -42,7 +54,26 @@ public class CertificateServiceImpl implements CertificateService {
 
     @Override
     public Certificate saveCertificate(Certificate certificate) {
-        return CertificateRepository.save(certificate);
+        Certificate saved = CertificateRepository.save(certificate);
+        if (saved.isRevoked()) {
+            eventPublisher.publishEvent(new CertificatesRevokedEvent(getIdOrganization(saved), 1));
+        }
+        return saved;
+    }
+
+    /**
+     * Returns the organization of the owner of the certificate, so that only the caches of that organization are
+     * evicted when it is revoked
+     */
+    private static Long getIdOrganization(Certificate cert) {
+        if (cert.getOrganization() != null) {
+            return cert.getOrganization().getId();
+        }
+        EntityModel owner = cert.getVessel() != null ? cert.getVessel()
+                : cert.getUser() != null ? cert.getUser()
+                : cert.getDevice() != null ? cert.getDevice()
+                : cert.getService();
+        return owner != null ? owner.getIdOrganization() : null;
     }
 
     @Override
@@ -70,5 +101,50 @@ public class CertificateServiceImpl implements CertificateService {
         return CertificateRepository.findByCertificateAuthorityIgnoreCaseAndRevokedTrue(caAlias);
     }
 
+    @Override
+    @Transactional
+    public int revokeCertificates(Long idOrganization, Collection<BigInteger> serialNumbers, Date revokedAt, String revokeReason) {
+        if (serialNumbers == null || serialNumbers.isEmpty()) {
+            return 0;
+        }
+        int count = CertificateRepository.revokeBySerialNumbers(idOrganization, serialNumbers, revokedAt, revokeReason, new Date());
+        eventPublisher.publishEvent(new CertificatesRevokedEvent(idOrganization, count));
+        return count;
+    }
+
+    @Override
+    @Transactional
+    public int revokeAllCertificates(Long idOrganization, Date revokedAt, String revokeReason) {
+        int count = CertificateRepository.revokeAllInOrganization(idOrganization, revokedAt, revokeReason, new Date());
+        eventPublisher.publishEvent(new CertificatesRevokedEvent(idOrganization, count));
+        return count;
+    }
+
+    @Override
+    @Transactional
+    public int revokeAllCertificatesOf(EntityModel owner, Date revokedAt, String revokeReason) {
+        Date now = new Date();
+        int count;
+        if (owner instanceof Vessel) {
+            count = CertificateRepository.revokeAllOfVessel((Vessel) owner, revokedAt, revokeReason, now);
+        } else if (owner instanceof User) {
+            count = CertificateRepository.revokeAllOfUser((User) owner, revokedAt, revokeReason, now);
+        } else if (owner instanceof Device) {
+            count = CertificateRepository.revokeAllOfDevice((Device) owner, revokedAt, revokeReason, now);
+        } else if (owner instanceof net.maritimecloud.identityregistry.model.database.entities.Service) {
+            count = CertificateRepository.revokeAllOfService((net.maritimecloud.identityregistry.model.database.entities.Service) owner,
+                    revokedAt, revokeReason, now);
+        } else {
+            throw new IllegalArgumentException("Certificates can not be owned by " + owner.getClass().getSimpleName());
+        }
+        eventPublisher.publishEvent(new CertificatesRevokedEvent(owner.getIdOrganization(), count));
+        return count;
+    }
+
+    @Override
+    public boolean isIssuedWithIdempotencyKey(String idempotencyKey, Date issuedAfter) {
+        return CertificateRepository.existsByIdempotencyKeyAndCreatedAtAfter(idempotencyKey, issuedAfter);
+    }
+
 }
 
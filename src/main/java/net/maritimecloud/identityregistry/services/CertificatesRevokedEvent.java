@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.services;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published once after one or more certificates have been revoked, so that anything derived from the revocation
+ * status of certificates can be refreshed.
+ */
+@Getter
+@ToString
+public class CertificatesRevokedEvent {
+    // The id of the organization the revoked certificates belong to, or null if it is not known
+    private final Long idOrganization;
+    private final int count;
+
+    public CertificatesRevokedEvent(Long idOrganization, int count) {
+        this.idOrganization = idOrganization;
+        this.count = count;
+    }
+}
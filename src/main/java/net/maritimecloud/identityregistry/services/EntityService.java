@@ -25,7 +25,11 @@ public interface EntityService<T> extends BaseService<T> {
 
     Page<T> listPageFromOrg(Long id, Pageable pageable);
 
-    void deleteByOrg(Long id);
+    /* Reads the page as the given interface projection, without loading the entities */
+    <P> Page<P> listPageFromOrg(Long id, Pageable pageable, Class<P> type);
+
+    /* Reads up to limit rows with an ID after the given one as the given interface projection, ordered by ID */
+    <P> List<P> listFromOrgAfter(Long id, Long afterId, int limit, Class<P> type);
 
     T getByMrn(String mrn);
 }
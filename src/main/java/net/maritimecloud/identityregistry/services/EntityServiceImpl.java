@@ -17,9 +17,10 @@ package net.maritimecloud.identityregistry.services;
 
 import net.maritimecloud.identityregistry.model.database.TimestampModel;
 import net.maritimecloud.identityregistry.repositories.EntityRepository;
+import net.maritimecloud.identityregistry.utils.MrnUtil;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -35,9 +36,12 @@ public abstract class EntityServiceImpl<T extends TimestampModel> extends BaseSe
         return this.getRepository().findByidOrganization(id, pageable);
     }
 
-    @Transactional
-    public void deleteByOrg(Long id) {
-        this.getRepository().deleteByidOrganization(id);
+    public <P> Page<P> listPageFromOrg(Long id, Pageable pageable, Class<P> type) {
+        return this.getRepository().findByidOrganization(id, pageable, type);
+    }
+
+    public <P> List<P> listFromOrgAfter(Long id, Long afterId, int limit, Class<P> type) {
+        return this.getRepository().findByIdOrganizationAndIdGreaterThanOrderByIdAsc(id, afterId, PageRequest.of(0, limit), type);
     }
 
     public EntityRepository<T> getRepository() {
@@ -45,7 +49,7 @@ public abstract class EntityServiceImpl<T extends TimestampModel> extends BaseSe
     }
 
     public T getByMrn(String mrn) {
-        return this.getRepository().getByMrnIgnoreCase(mrn);
+        return this.getRepository().getByMrn(MrnUtil.normalize(mrn));
     }
 
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.services;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published after an organization, or one of its certificates, has been created, updated or deleted, so that copies
+ * of the organization can be refreshed.
+ */
+@Getter
+@ToString
+public class OrganizationChangedEvent {
+    private final Long idOrganization;
+    // The MRN of the organization, which is not known when it has been deleted by its id
+    private final String mrn;
+    private final boolean deleted;
+
+    public OrganizationChangedEvent(Long idOrganization, String mrn, boolean deleted) {
+        this.idOrganization = idOrganization;
+        this.mrn = mrn;
+        this.deleted = deleted;
+    }
+}
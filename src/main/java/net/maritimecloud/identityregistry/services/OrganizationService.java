@@ -15,10 +15,14 @@
  */
 package net.maritimecloud.identityregistry.services;
 
+import net.maritimecloud.identityregistry.model.data.OrganizationSnapshot;
+import net.maritimecloud.identityregistry.model.data.OrganizationSummary;
 import net.maritimecloud.identityregistry.model.database.Organization;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
+
 public interface OrganizationService extends BaseService<Organization>{
     Organization getOrganizationByMrn(String mrn);
 
@@ -28,7 +32,22 @@ public interface OrganizationService extends BaseService<Organization>{
     /* Does not filter sensitive data from the result! */
     Organization getOrganizationByMrnNoFilter(String mrn);
 
+    /* Returns a cached snapshot of the approved organization, for callers that only need its plain columns */
+    OrganizationSnapshot getOrganizationSnapshot(String mrn);
+
     Page<Organization> getUnapprovedOrganizations(Pageable page);
 
+    /* Reads up to limit unapproved organizations with an ID after the given one, ordered by ID */
+    List<Organization> getUnapprovedOrganizationsAfter(Long afterId, int limit);
+
     Page<Organization> listAllPage(Pageable pageable);
+
+    /* Reads the page of approved organizations as summaries, without loading the entities */
+    Page<OrganizationSummary> listAllSummaryPage(Pageable pageable);
+
+    /* Reads up to limit approved organizations with an ID after the given one, ordered by ID */
+    List<OrganizationSummary> listAllAfter(Long afterId, int limit);
+
+    /* Deletes the organization with all its entities and roles, and revokes all its certificates */
+    void deleteWithEntities(Long id);
 }
\ No newline at end of file
@@ -15,30 +15,242 @@
  */
 package net.maritimecloud.identityregistry.services;
 
+import net.maritimecloud.identityregistry.config.ReplicaRoutingDataSource;
+import net.maritimecloud.identityregistry.model.data.OrganizationSnapshot;
+import net.maritimecloud.identityregistry.model.data.OrganizationSummary;
 import net.maritimecloud.identityregistry.model.database.Organization;
+import net.maritimecloud.identityregistry.repositories.CertificateRepository;
+import net.maritimecloud.identityregistry.repositories.DeviceRepository;
 import net.maritimecloud.identityregistry.repositories.OrganizationRepository;
+import net.maritimecloud.identityregistry.repositories.RoleRepository;
+import net.maritimecloud.identityregistry.repositories.ServiceRepository;
+import net.maritimecloud.identityregistry.repositories.UserRepository;
+import net.maritimecloud.identityregistry.repositories.VesselRepository;
 import net.maritimecloud.identityregistry.utils.AccessControlUtil;
+import net.maritimecloud.identityregistry.utils.MrnUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class OrganizationServiceImpl extends BaseServiceImpl<Organization> implements OrganizationService {
     private static final Logger logger = LoggerFactory.getLogger(OrganizationServiceImpl.class);
 
     private OrganizationRepository organizationRepository;
+    private CertificateRepository certificateRepository;
+    private ServiceRepository serviceRepository;
+    private UserRepository userRepository;
+    private DeviceRepository deviceRepository;
+    private VesselRepository vesselRepository;
+    private RoleRepository roleRepository;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    // How long in seconds a snapshot is used. Evictions only reach this instance, so when several instances share
+    // the database this bounds how long the others keep serving an organization that has been changed.
+    @Value("${net.maritimecloud.idreg.organization-snapshots.ttl:60}")
+    private long snapshotTtl;
+
+    @Value("${net.maritimecloud.idreg.organization-snapshots.max-entries:1000}")
+    private int snapshotMaxEntries;
+
+    // Snapshots of approved organizations by MRN. They are immutable and hold nothing sensitive, so they are handed
+    // out as they are.
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    // The snapshots in the order they were loaded, which is also the order they expire in as the TTL is fixed
+    private final Queue<Snapshot> snapshotOrder = new ArrayDeque<>();
+    // Incremented on every eviction, so that a snapshot loaded while an organization was changed is not cached
+    private long generation;
 
     @Autowired
     public void setOrganizationRepository(OrganizationRepository OrganizationRepository) {
         this.organizationRepository = OrganizationRepository;
     }
 
+    @Autowired
+    public void setCertificateRepository(CertificateRepository certificateRepository) {
+        this.certificateRepository = certificateRepository;
+    }
+
+    @Autowired
+    public void setServiceRepository(ServiceRepository serviceRepository) {
+        this.serviceRepository = serviceRepository;
+    }
+
+    @Autowired
+    public void setUserRepository(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Autowired
+    public void setDeviceRepository(DeviceRepository deviceRepository) {
+        this.deviceRepository = deviceRepository;
+    }
+
+    @Autowired
+    public void setVesselRepository(VesselRepository vesselRepository) {
+        this.vesselRepository = vesselRepository;
+    }
+
+    @Autowired
+    public void setRoleRepository(RoleRepository roleRepository) {
+        this.roleRepository = roleRepository;
+    }
+
+    @Autowired
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
     @Override
     public Organization getOrganizationByMrn(String mrn) {
-        return this.filterResult(organizationRepository.findByMrnAndApprovedTrue(mrn));
+        return this.filterResult(getOrganizationByMrnNoFilter(mrn));
+    }
+
+    @Override
+    public OrganizationSnapshot getOrganizationSnapshot(String mrn) {
+        if (mrn == null) {
+            return null;
+        }
+        mrn = MrnUtil.normalize(mrn);
+        long now = System.currentTimeMillis();
+        Snapshot snapshot = snapshots.get(mrn);
+        if (snapshot == null || snapshot.expiresAt < now) {
+            long loadedGeneration;
+            synchronized (snapshots) {
+                loadedGeneration = generation;
+            }
+            // Loaded from the primary, as a replica may not have the change that evicted the previous snapshot yet
+            String normalizedMrn = mrn;
+            OrganizationSnapshot org = ReplicaRoutingDataSource.readFromPrimary(() -> {
+                Organization loaded = organizationRepository.findByMrnAndApprovedTrue(normalizedMrn);
+                return loaded == null ? null : OrganizationSnapshot.of(loaded);
+            });
+            if (org == null) {
+                return null;
+            }
+            snapshot = new Snapshot(mrn, org, now + snapshotTtl * 1000);
+            synchronized (snapshots) {
+                if (loadedGeneration == generation) {
+                    snapshots.put(mrn, snapshot);
+                    snapshotOrder.add(snapshot);
+                    removeExpiredSnapshots(now);
+                }
+            }
+        }
+        return snapshot.organization;
+    }
+
+    /**
+     * Drops the oldest snapshots while they have expired or there are too many. Must hold the lock on snapshots.
+     */
+    private void removeExpiredSnapshots(long now) {
+        Snapshot oldest;
+        while ((oldest = snapshotOrder.peek()) != null) {
+            boolean stored = snapshots.get(oldest.mrn) == oldest;
+            if (stored && oldest.expiresAt >= now && snapshots.size() <= snapshotMaxEntries) {
+                break;
+            }
+            snapshotOrder.remove();
+            snapshots.remove(oldest.mrn, oldest);
+        }
+    }
+
+    @Override
+    @Transactional
+    public Organization save(Organization org) {
+        Organization saved = super.save(org);
+        eventPublisher.publishEvent(new OrganizationChangedEvent(saved.getId(), saved.getMrn(), false));
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public void delete(Long id) {
+        super.delete(id);
+        eventPublisher.publishEvent(new OrganizationChangedEvent(id, null, true));
+    }
+
+    /**
+     * Deletes everything belonging to the organization with bulk statements instead of loading and removing one
+     * entity at a time. The certificates are kept for the CRL and OCSP, so they are revoked and detached from their
+     * owners first. Then the rows are deleted so that nothing is deleted while still referenced.
+     */
+    @Override
+    @Transactional
+    public void deleteWithEntities(Long id) {
+        Date now = new Date();
+        // Revocation dates are converted to UTC before saving into the DB
+        Calendar cal = Calendar.getInstance();
+        long offset = cal.get(Calendar.ZONE_OFFSET) + cal.get(Calendar.DST_OFFSET);
+        Date revokedAt = new Date(cal.getTimeInMillis() - offset);
+        int revoked = certificateRepository.revokeAllInOrganization(id, revokedAt, "cessationofoperation", now);
+        certificateRepository.detachAllInOrganization(id, now);
+
+        serviceRepository.unlinkVesselsOfOrganization(id);
+        int services = serviceRepository.deleteByidOrganization(id);
+        int users = userRepository.deleteByidOrganization(id);
+        int devices = deviceRepository.deleteByidOrganization(id);
+        List<Long> imageIds = vesselRepository.findImageIdsByIdOrganization(id);
+        vesselRepository.deleteAttributesByIdOrganization(id);
+        int vessels = vesselRepository.deleteByidOrganization(id);
+        if (!imageIds.isEmpty()) {
+            vesselRepository.deleteImagesByIdIn(imageIds);
+        }
+        roleRepository.deleteByidOrganization(id);
+        // The organization itself is removed as an entity, so its logo and identity provider attributes go with it
+        organizationRepository.deleteById(id);
+        logger.debug("Deleted organization {} with {} services, {} users, {} devices and {} vessels, and revoked {} certificates",
+                id, services, users, devices, vessels, revoked);
+
+        eventPublisher.publishEvent(new RolesChangedEvent(id));
+        eventPublisher.publishEvent(new CertificatesRevokedEvent(id, revoked));
+        eventPublisher.publishEvent(new OrganizationChangedEvent(id, null, true));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrganizationChanged(OrganizationChangedEvent event) {
+        evict(event.getIdOrganization());
+    }
+
+    private void evict(Long idOrganization) {
+        synchronized (snapshots) {
+            generation++;
+            if (idOrganization == null) {
+                snapshots.clear();
+                snapshotOrder.clear();
+            } else {
+                snapshots.values().removeIf(snapshot -> idOrganization.equals(snapshot.organization.getId()));
+            }
+        }
+    }
+
+    private static final class Snapshot {
+        private final String mrn;
+        private final OrganizationSnapshot organization;
+        private final long expiresAt;
+
+        Snapshot(String mrn, OrganizationSnapshot organization, long expiresAt) {
+            this.mrn = mrn;
+            this.organization = organization;
+            this.expiresAt = expiresAt;
+        }
     }
 
     @Override
@@ -48,12 +260,15 @@ public class OrganizationServiceImpl extends BaseServiceImpl<Organization> imple
 
     @Override
     public Organization getOrganizationByMrnDisregardApproved(String mrn) {
-        return this.filterResult(organizationRepository.findByMrn(mrn));
+        return this.filterResult(organizationRepository.findByMrn(MrnUtil.normalize(mrn)));
     }
 
     /* Does not filter sensitive data from the result! */
     public Organization getOrganizationByMrnNoFilter(String mrn) {
-        return organizationRepository.findByMrnAndApprovedTrue(mrn);
+        if (mrn == null) {
+            return null;
+        }
+        return organizationRepository.findByMrnAndApprovedTrue(MrnUtil.normalize(mrn));
     }
 
     /* This only shows approved organizations */
@@ -62,6 +277,17 @@ public class OrganizationServiceImpl extends BaseServiceImpl<Organization> imple
         return this.filterResult(getRepository().findByApprovedTrue(pageable));
     }
 
+    /* This only shows approved organizations. The summaries does not contain sensitive data, so they are not filtered */
+    @Override
+    public Page<OrganizationSummary> listAllSummaryPage(Pageable pageable) {
+        return getRepository().findByApprovedTrue(pageable, OrganizationSummary.class);
+    }
+
+    @Override
+    public List<OrganizationSummary> listAllAfter(Long afterId, int limit) {
+        return getRepository().findByApprovedTrueAndIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit));
+    }
+
     @Override
     public OrganizationRepository getRepository() {
         return this.organizationRepository;
@@ -97,4 +323,8 @@ public class OrganizationServiceImpl extends BaseServiceImpl<Organization> imple
     public Page<Organization> getUnapprovedOrganizations(Pageable pageable) {
         return getRepository().findByApprovedFalse(pageable);
     }
+
+    public List<Organization> getUnapprovedOrganizationsAfter(Long afterId, int limit) {
+        return getRepository().findByApprovedFalseAndIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit));
+    }
 }
\ No newline at end of file
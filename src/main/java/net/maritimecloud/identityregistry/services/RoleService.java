@@ -17,13 +17,15 @@ package net.maritimecloud.identityregistry.services;
 
 import net.maritimecloud.identityregistry.model.database.Role;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface RoleService extends BaseService<Role> {
 
     List<Role> getRolesByIdOrganizationAndPermission(Long idOrganization, String permissions);
 
-    List<Role> listFromOrg(Long id);
+    /* Returns the distinct names of the roles granted by any of the permissions */
+    List<String> getRoleNamesByIdOrganizationAndPermissions(Long idOrganization, Collection<String> permissions);
 
-    void deleteByOrg(Long id);
+    List<Role> listFromOrg(Long id);
 }
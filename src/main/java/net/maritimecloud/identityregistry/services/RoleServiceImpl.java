@@ -15,40 +15,155 @@
  */
 package net.maritimecloud.identityregistry.services;
 
+import net.maritimecloud.identityregistry.config.ReplicaRoutingDataSource;
 import net.maritimecloud.identityregistry.model.database.Role;
 import net.maritimecloud.identityregistry.repositories.RoleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class RoleServiceImpl extends BaseServiceImpl<Role> implements RoleService {
 
     protected RoleRepository repository;
 
+    private ApplicationEventPublisher eventPublisher;
+
+    // Maps the id of an organization to its compiled roles. All the roles of an organization are loaded together, so
+    // authentication can map permissions to roles without querying the database.
+    private final Map<Long, OrganizationRoles> organizationRoles = new ConcurrentHashMap<>();
+
     @Autowired
     public void setRoleRepository(RoleRepository RoleRepository) {
         this.repository = RoleRepository;
     }
 
+    @Autowired
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
     @Override
     public List<Role> getRolesByIdOrganizationAndPermission(Long idOrganization, String permission) {
-        return repository.findByIdOrganizationAndPermission(idOrganization, permission);
+        if (idOrganization == null) {
+            return ReplicaRoutingDataSource.readFromPrimary(() -> repository.findByIdOrganizationAndPermission(null, permission));
+        }
+        return getOrganizationRoles(idOrganization).getRoles(permission);
+    }
+
+    @Override
+    public List<String> getRoleNamesByIdOrganizationAndPermissions(Long idOrganization, Collection<String> permissions) {
+        if (idOrganization == null || permissions == null || permissions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return getOrganizationRoles(idOrganization).getRoleNames(permissions);
+    }
+
+    // The roles are cached until they change, so they are loaded from the primary and not from a replica that may not
+    // have the change yet
+    private OrganizationRoles getOrganizationRoles(Long idOrganization) {
+        return organizationRoles.computeIfAbsent(idOrganization,
+                id -> new OrganizationRoles(ReplicaRoutingDataSource.readFromPrimary(() -> repository.findByidOrganization(id))));
+    }
+
+    /**
+     * Drops the cached roles of the organization once the change is committed, so that they are not reloaded from
+     * the database before the change is visible. Runs before the listeners that cache the result of authentication.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRolesChanged(RolesChangedEvent event) {
+        if (event.getIdOrganization() == null) {
+            organizationRoles.clear();
+        } else {
+            organizationRoles.remove(event.getIdOrganization());
+        }
     }
 
     public List<Role> listFromOrg(Long id) {
         return this.getRepository().findByidOrganization(id);
     }
 
+    @Override
+    @Transactional
+    public Role save(Role role) {
+        Role saved = super.save(role);
+        eventPublisher.publishEvent(new RolesChangedEvent(saved.getIdOrganization()));
+        return saved;
+    }
+
+    @Override
     @Transactional
-    public void deleteByOrg(Long id) {
-        this.getRepository().deleteByidOrganization(id);
+    public void delete(Long id) {
+        Role role = this.getRepository().findById(id).orElse(null);
+        super.delete(id);
+        if (role != null) {
+            eventPublisher.publishEvent(new RolesChangedEvent(role.getIdOrganization()));
+        }
     }
 
     public RoleRepository getRepository() {
         return this.repository;
     }
 
+    /**
+     * The roles of an organization compiled into bitsets. Each distinct role name gets an index, and each permission
+     * maps to the set of role indexes it grants, so the roles of several permissions are found by or'ing bitsets.
+     * Permissions are matched case insensitively, like the database lookup this replaces.
+     */
+    private static final class OrganizationRoles {
+        private final String[] roleNames;
+        private final Map<String, BitSet> permissionBits = new HashMap<>();
+        private final Map<String, List<Role>> permissionRoles = new HashMap<>();
+
+        OrganizationRoles(List<Role> roles) {
+            Map<String, Integer> roleIndexes = new LinkedHashMap<>();
+            for (Role role : roles) {
+                Integer index = roleIndexes.computeIfAbsent(role.getRoleName(), name -> roleIndexes.size());
+                String permission = normalize(role.getPermission());
+                permissionBits.computeIfAbsent(permission, p -> new BitSet()).set(index);
+                permissionRoles.computeIfAbsent(permission, p -> new ArrayList<>()).add(role);
+            }
+            this.roleNames = roleIndexes.keySet().toArray(new String[0]);
+            permissionRoles.replaceAll((permission, permissionRoleList) -> Collections.unmodifiableList(permissionRoleList));
+        }
+
+        private static String normalize(String permission) {
+            return permission == null ? null : permission.toLowerCase(Locale.ROOT);
+        }
+
+        List<Role> getRoles(String permission) {
+            return permissionRoles.getOrDefault(normalize(permission), Collections.emptyList());
+        }
+
+        List<String> getRoleNames(Collection<String> permissions) {
+            BitSet granted = new BitSet(roleNames.length);
+            for (String permission : permissions) {
+                BitSet bits = permissionBits.get(normalize(permission));
+                if (bits != null) {
+                    granted.or(bits);
+                }
+            }
+            List<String> names = new ArrayList<>(granted.cardinality());
+            for (int i = granted.nextSetBit(0); i >= 0; i = granted.nextSetBit(i + 1)) {
+                names.add(roleNames[i]);
+            }
+            return names;
+        }
+    }
 }
@@ -13,22 +13,22 @@
  *  See the License for the specific language governing permissions and
  *  limitations under the License.
  */
-package net.maritimecloud.identityregistry.utils;
+package net.maritimecloud.identityregistry.services;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.stereotype.Component;
+import lombok.Getter;
+import lombok.ToString;
 
 /**
- * This class is only used to help AccessControlUtil detect if a user has a role
+ * Published after the roles of an organization have been created, updated or deleted, so that anything derived from
+ * the mapping between permissions and roles can be refreshed.
  */
-@Component
-public class HasRoleUtil {
-    private static final Logger logger = LoggerFactory.getLogger(HasRoleUtil.class);
+@Getter
+@ToString
+public class RolesChangedEvent {
+    // The id of the organization the changed roles belong to
+    private final Long idOrganization;
 
-    @PreAuthorize("hasRole(#role)")
-    public void testRole(String role) {
-        logger.debug("should have role: " + role);
+    public RolesChangedEvent(Long idOrganization) {
+        this.idOrganization = idOrganization;
     }
 }
@@ -17,8 +17,10 @@ package net.maritimecloud.identityregistry.services;
 
 import net.maritimecloud.identityregistry.model.database.entities.Service;
 import net.maritimecloud.identityregistry.repositories.ServiceRepository;
+import net.maritimecloud.identityregistry.utils.MrnUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -37,6 +39,16 @@ public class ServiceServiceImpl extends EntityServiceImpl<Service> implements Se
         return this.filterResult(ret);
     }
 
+    @Override
+    public <P> Page<P> listPageFromOrg(Long orgId, Pageable pageable, Class<P> type) {
+        return repository.findByidOrganization(orgId, pageable, type);
+    }
+
+    @Override
+    public <P> List<P> listFromOrgAfter(Long orgId, Long afterId, int limit, Class<P> type) {
+        return repository.findByIdOrganizationAndIdGreaterThanOrderByIdAsc(orgId, afterId, PageRequest.of(0, limit), type);
+    }
+
     @Override
     public List<Service> listAllFromOrg(Long id) {
         List<Service> ret = repository.findByidOrganization(id);
@@ -44,7 +56,7 @@ public class ServiceServiceImpl extends EntityServiceImpl<Service> implements Se
     }
 
     public Service getServiceByMrnAndVersion(String mrn, String version) {
-        return repository.getByMrnIgnoreCaseAndInstanceVersion(mrn, version);
+        return repository.getByMrnAndInstanceVersion(MrnUtil.normalize(mrn), version);
     }
 
     public Service getByMrn(String mrn) {
@@ -52,16 +64,10 @@ public class ServiceServiceImpl extends EntityServiceImpl<Service> implements Se
     }
 
     public Page<Service> getServicesByMrn(String mrn, Pageable pageable) {
-        Page<Service> ret = repository.findByMrnIgnoreCase(mrn, pageable);
+        Page<Service> ret = repository.findByMrn(MrnUtil.normalize(mrn), pageable);
         return this.filterResult(ret);
     }
 
-    @Transactional
-    @Override
-    public void deleteByOrg(Long id) {
-        repository.deleteByidOrganization(id);
-    }
-
     @Override
     @Transactional
     public Service save(Service service) {
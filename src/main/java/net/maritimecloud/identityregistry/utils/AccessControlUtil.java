@@ -16,75 +16,56 @@
 package net.maritimecloud.identityregistry.utils;
 
 import lombok.extern.slf4j.Slf4j;
-import org.keycloak.KeycloakSecurityContext;
-import org.keycloak.adapters.springsecurity.token.KeycloakAuthenticationToken;
+import net.maritimecloud.identityregistry.security.CachingRoleHierarchy;
+import net.maritimecloud.identityregistry.security.ReachableRoles;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.hierarchicalroles.NullRoleHierarchy;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.ldap.userdetails.InetOrgPerson;
 import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
 
 @Component("accessControlUtil")
 @Slf4j
 public class AccessControlUtil {
 
-    @Autowired
-    private HasRoleUtil hasRoleUtil;
     public static final String ORG_PROPERTY_NAME = "org";
     public static final String PERMISSIONS_PROPERTY_NAME = "permissions";
 
+    private RoleHierarchy roleHierarchy = new NullRoleHierarchy();
+
+    /**
+     * The roles reachable through the role hierarchy are cached by it for the authentications that do not carry
+     * them, so a hierarchy without a cache is wrapped in one
+     */
+    @Autowired(required = false)
+    public void setRoleHierarchy(RoleHierarchy roleHierarchy) {
+        this.roleHierarchy = roleHierarchy instanceof CachingRoleHierarchy ? roleHierarchy : new CachingRoleHierarchy(roleHierarchy);
+    }
+
     public static boolean hasAccessToOrg(String orgMrn) {
         if (orgMrn == null || orgMrn.trim().isEmpty()) {
             log.debug("The orgMrn was empty!");
             return false;
         }
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        AuthorizationContext context = AuthorizationContext.current();
         // First check if the user is a SITE_ADMIN, in which case he gets access.
-        for (GrantedAuthority authority : auth.getAuthorities()) {
-            String role = authority.getAuthority();
-            log.debug("User has role: " + role);
-            if ("ROLE_SITE_ADMIN".equals(role)) {
-                return true;
-            }
+        if (context.isSiteAdmin()) {
+            return true;
         }
         log.debug("User not a SITE_ADMIN");
         // Check if the user is part of the organization
-        if (auth instanceof KeycloakAuthenticationToken) {
-            log.debug("OIDC authentication in process");
-            // Keycloak authentication
-            KeycloakAuthenticationToken kat = (KeycloakAuthenticationToken) auth;
-            KeycloakSecurityContext ksc = (KeycloakSecurityContext) kat.getCredentials();
-            Map<String, Object> otherClaims = ksc.getToken().getOtherClaims();
-            if (otherClaims.containsKey(AccessControlUtil.ORG_PROPERTY_NAME) &&
-                    ((String) otherClaims.get(AccessControlUtil.ORG_PROPERTY_NAME)).equalsIgnoreCase(orgMrn)) {
-                log.debug("Entity from org: " + otherClaims.get(AccessControlUtil.ORG_PROPERTY_NAME) + " is in " + orgMrn);
-                return true;
-            }
-            log.debug("Entity from org: " + otherClaims.get(AccessControlUtil.ORG_PROPERTY_NAME) + " is not in " + orgMrn);
-        } else if (auth instanceof PreAuthenticatedAuthenticationToken) {
-            log.debug("Certificate authentication in process");
-            // Certificate authentication
-            PreAuthenticatedAuthenticationToken token = (PreAuthenticatedAuthenticationToken) auth;
-            // Check that the Organization name of the accessed organization and the organization in the certificate is equal
-            InetOrgPerson person = ((InetOrgPerson) token.getPrincipal());
-            // The O(rganization) value in the certificate is an MRN
-            String certOrgMrn = person.getO();
-            if (orgMrn.equalsIgnoreCase(certOrgMrn)) {
-                log.debug("Entity with O=" + certOrgMrn + " is in " + orgMrn);
-                return true;
-            }
-            log.debug("Entity with O=" + certOrgMrn + " is not in " + orgMrn);
-        } else {
-            log.debug("Unknown authentication method: " + auth.getClass());
+        if (context.isInOrganization(orgMrn)) {
+            log.debug("Entity from org: {} is in {}", context.getOrgMrn(), orgMrn);
+            return true;
         }
+        log.debug("Entity from org: {} is not in {}", context.getOrgMrn(), orgMrn);
         return false;
     }
 
@@ -109,56 +90,12 @@ public class AccessControlUtil {
     }
 
     public static boolean hasPermission(String permission) {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth instanceof KeycloakAuthenticationToken) {
-            log.debug("OIDC permission lookup");
-            // Keycloak authentication
-            KeycloakAuthenticationToken kat = (KeycloakAuthenticationToken) auth;
-            KeycloakSecurityContext ksc = (KeycloakSecurityContext) kat.getCredentials();
-            Map<String, Object> otherClaims = ksc.getToken().getOtherClaims();
-            if (otherClaims.containsKey(AccessControlUtil.PERMISSIONS_PROPERTY_NAME)) {
-                String usersPermissions = (String) otherClaims.get(AccessControlUtil.PERMISSIONS_PROPERTY_NAME);
-                String[] permissionList = usersPermissions.split(",");
-                for (String per : permissionList) {
-                    if (per.equalsIgnoreCase(permission)) {
-                        return true;
-                    }
-                }
-            }
-        } else if (auth instanceof PreAuthenticatedAuthenticationToken) {
-            log.debug("Certificate permission lookup");
-            // Certificate authentication
-            PreAuthenticatedAuthenticationToken token = (PreAuthenticatedAuthenticationToken) auth;
-            // Check that the permission is granted to this user
-            InetOrgPerson person = ((InetOrgPerson) token.getPrincipal());
-            Collection<GrantedAuthority> authorities = person.getAuthorities();
-            for (GrantedAuthority authority : authorities) {
-                String usersPermissions = authority.getAuthority();
-                String[] permissionList = usersPermissions.split(",");
-                for (String per : permissionList) {
-                    if (per.equalsIgnoreCase(permission)) {
-                        return true;
-                    }
-                }
-            }
-        } else {
-            if (auth != null) {
-                log.debug("Unknown authentication method: " + auth.getClass());
-            }
-        }
-        return false;
+        return AuthorizationContext.current().hasPermission(permission);
     }
 
     public static List<String> getMyRoles() {
         log.debug("Role lookup");
-        List<String> roles = new ArrayList<>();
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth != null) {
-            for (GrantedAuthority authority : auth.getAuthorities()) {
-                roles.add(authority.getAuthority());
-            }
-        }
-        return roles;
+        return new ArrayList<>(AuthorizationContext.current().getRoles());
     }
 
     public boolean hasAnyRoles(List<String> roles) {
@@ -171,15 +108,19 @@ public class AccessControlUtil {
     }
 
     public boolean hasRole(String role) {
-        try {
-            // If the user does not have the role (or a role that is above it in the role hierarchy)
-            // an exception will be thrown by Spring Security.
-            hasRoleUtil.testRole(role);
-            log.debug("user has role " + role);
-            return true;
-        } catch (Exception ade) {
-            log.debug("user does not have role " + role);
+        // The same check as hasRole in @PreAuthorize, the user must have the role or a role above it in the hierarchy
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || role == null) {
+            log.debug("user does not have role {}", role);
             return false;
         }
+        ReachableRoles roles = auth instanceof ReachableRoles.Holder
+                ? ((ReachableRoles.Holder) auth).getReachableRoles() : ReachableRoles.of(roleHierarchy, auth.getAuthorities());
+        if (roles.contains(role)) {
+            log.debug("user has role {}", role);
+            return true;
+        }
+        log.debug("user does not have role {}", role);
+        return false;
     }
 }
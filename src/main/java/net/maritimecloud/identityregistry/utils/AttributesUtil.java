@@ -7,11 +7,26 @@ import net.maritimecloud.identityregistry.model.database.entities.Vessel;
 import net.maritimecloud.identityregistry.model.database.entities.VesselAttribute;
 import net.maritimecloud.pki.PKIConstants;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 
 @Slf4j
 public class AttributesUtil {
 
+    // Maps the names of vessel attributes to the OIDs used for them in certificates
+    private static final Map<String, String> vesselAttributeOids;
+    static {
+        Map<String, String> oids = new HashMap<>();
+        oids.put("callsign", PKIConstants.MC_OID_CALLSIGN);
+        oids.put("imo-number", PKIConstants.MC_OID_IMO_NUMBER);
+        oids.put("mmsi-number", PKIConstants.MC_OID_MMSI_NUMBER);
+        oids.put("flagstate", PKIConstants.MC_OID_FLAGSTATE);
+        oids.put("ais-class", PKIConstants.MC_OID_AIS_SHIPTYPE);
+        oids.put("port-of-register", PKIConstants.MC_OID_PORT_OF_REGISTER);
+        vesselAttributeOids = Collections.unmodifiableMap(oids);
+    }
+
     /**
      * Get the special attributes of an entity
      *
@@ -38,27 +53,11 @@ public class AttributesUtil {
         HashMap<String, String> attrs = new HashMap<>();
         for (VesselAttribute attr : vessel.getAttributes()) {
             String attrName = attr.getAttributeName().toLowerCase();
-            switch(attrName) {
-                case "callsign":
-                    attrs.put(PKIConstants.MC_OID_CALLSIGN, attr.getAttributeValue());
-                    break;
-                case "imo-number":
-                    attrs.put(PKIConstants.MC_OID_IMO_NUMBER, attr.getAttributeValue());
-                    break;
-                case "mmsi-number":
-                    attrs.put(PKIConstants.MC_OID_MMSI_NUMBER, attr.getAttributeValue());
-                    break;
-                case "flagstate":
-                    attrs.put(PKIConstants.MC_OID_FLAGSTATE, attr.getAttributeValue());
-                    break;
-                case "ais-class":
-                    attrs.put(PKIConstants.MC_OID_AIS_SHIPTYPE, attr.getAttributeValue());
-                    break;
-                case "port-of-register":
-                    attrs.put(PKIConstants.MC_OID_PORT_OF_REGISTER, attr.getAttributeValue());
-                    break;
-                default:
-                    log.debug("Unexpected attribute value: " + attrName);
+            String oid = vesselAttributeOids.get(attrName);
+            if (oid != null) {
+                attrs.put(oid, attr.getAttributeValue());
+            } else {
+                log.debug("Unexpected attribute value: " + attrName);
             }
         }
         return attrs;
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.utils;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.KeycloakSecurityContext;
+import org.keycloak.adapters.springsecurity.token.KeycloakAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.ldap.userdetails.InetOrgPerson;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The organization, roles and permissions of the current user, extracted from the authentication once per request
+ * and kept as a request attribute. Outside of a request it is extracted on every use.
+ */
+@Getter
+@Slf4j
+public final class AuthorizationContext {
+
+    private static final String REQUEST_ATTRIBUTE = AuthorizationContext.class.getName();
+
+    private final Authentication authentication;
+    // The MRN of the organization of the user, or null if it is not known
+    private final String orgMrn;
+    private final boolean siteAdmin;
+    // The authorities of the user, not including those reachable through the role hierarchy
+    private final List<String> roles;
+    // The permissions of the user, as bits of the permission index of the organization of the user, and by name in
+    // lower case for those the index has no room for
+    @Getter(AccessLevel.NONE)
+    private final PermissionIndex permissionIndex;
+    @Getter(AccessLevel.NONE)
+    private final BitSet permissionBits = new BitSet();
+    @Getter(AccessLevel.NONE)
+    private final Set<String> otherPermissions = new HashSet<>();
+
+    private AuthorizationContext(Authentication auth) {
+        this.authentication = auth;
+        List<String> authorities = new ArrayList<>();
+        if (auth != null) {
+            for (GrantedAuthority authority : auth.getAuthorities()) {
+                authorities.add(authority.getAuthority());
+            }
+        }
+        this.roles = Collections.unmodifiableList(authorities);
+        this.siteAdmin = authorities.contains("ROLE_SITE_ADMIN");
+        List<String> userPermissions = new ArrayList<>();
+        String userOrgMrn = null;
+        if (auth instanceof KeycloakAuthenticationToken) {
+            // Keycloak authentication
+            KeycloakSecurityContext ksc = (KeycloakSecurityContext) auth.getCredentials();
+            Map<String, Object> otherClaims = ksc.getToken().getOtherClaims();
+            userOrgMrn = (String) otherClaims.get(AccessControlUtil.ORG_PROPERTY_NAME);
+            Object claim = otherClaims.get(AccessControlUtil.PERMISSIONS_PROPERTY_NAME);
+            if (claim instanceof Collection) {
+                for (Object permissions : (Collection<?>) claim) {
+                    addPermissions(userPermissions, String.valueOf(permissions));
+                }
+            } else if (claim != null) {
+                addPermissions(userPermissions, claim.toString());
+            }
+        } else if (auth instanceof PreAuthenticatedAuthenticationToken) {
+            // Certificate authentication, the O(rganization) value in the certificate is an MRN
+            InetOrgPerson person = (InetOrgPerson) auth.getPrincipal();
+            userOrgMrn = person.getO();
+            for (GrantedAuthority authority : person.getAuthorities()) {
+                addPermissions(userPermissions, authority.getAuthority());
+            }
+        } else if (auth != null) {
+            log.debug("Unknown authentication method: " + auth.getClass());
+        }
+        this.orgMrn = userOrgMrn;
+        this.permissionIndex = PermissionIndex.of(userOrgMrn);
+        for (String permission : userPermissions) {
+            int index = permissionIndex.add(permission);
+            if (index >= 0) {
+                permissionBits.set(index);
+            } else {
+                otherPermissions.add(PermissionIndex.normalize(permission));
+            }
+        }
+    }
+
+    private static void addPermissions(List<String> permissions, String commaSeparated) {
+        permissions.addAll(Arrays.asList(commaSeparated.split(",")));
+    }
+
+    /**
+     * @return the authorization context of the current authentication
+     */
+    public static AuthorizationContext current() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return new AuthorizationContext(auth);
+        }
+        Object cached = attributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        // The authentication can change during a request, in which case the context is extracted again
+        if (cached instanceof AuthorizationContext && ((AuthorizationContext) cached).authentication == auth) {
+            return (AuthorizationContext) cached;
+        }
+        AuthorizationContext context = new AuthorizationContext(auth);
+        attributes.setAttribute(REQUEST_ATTRIBUTE, context, RequestAttributes.SCOPE_REQUEST);
+        return context;
+    }
+
+    public boolean isInOrganization(String mrn) {
+        return orgMrn != null && orgMrn.equalsIgnoreCase(mrn);
+    }
+
+    public boolean hasPermission(String permission) {
+        if (permission == null) {
+            return false;
+        }
+        int index = permissionIndex.indexOf(permission);
+        if (index >= 0) {
+            return permissionBits.get(index);
+        }
+        return !otherPermissions.isEmpty() && otherPermissions.contains(PermissionIndex.normalize(permission));
+    }
+}
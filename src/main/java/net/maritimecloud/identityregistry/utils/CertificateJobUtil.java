@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import net.maritimecloud.identityregistry.exception.McBasicRestException;
+import net.maritimecloud.identityregistry.model.data.CertificateJob;
+import net.maritimecloud.identityregistry.model.data.ExceptionModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs certificate issuances in the background and keeps the results until they are fetched or the retention
+ * window has passed. The results contain private keys, so they are only kept in memory.
+ */
+@Component
+@Slf4j
+public class CertificateJobUtil {
+
+    // How long in seconds the result of a job is kept
+    @Value("${net.maritimecloud.idreg.certs.job-retention:900}")
+    private long retention;
+
+    @Value("${net.maritimecloud.idreg.certs.job-threads:2}")
+    private int threads;
+
+    @Value("${net.maritimecloud.idreg.certs.job-queue-size:100}")
+    private int queueSize;
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, CertificateJob> jobs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void setup() {
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Starts a new job running the given issuance
+     *
+     * @param orgMrn the MRN of the organization the certificate is issued in
+     * @param owner the name of the user requesting the certificate
+     * @param issuance the issuance to run
+     * @param path the path of the request, used in error messages
+     * @return the new job
+     * @throws McBasicRestException if too many jobs are waiting to be run
+     */
+    public CertificateJob submit(String orgMrn, String owner, IdempotencyUtil.Issuance issuance, String path) throws McBasicRestException {
+        removeExpired(System.currentTimeMillis());
+        CertificateJob job = new CertificateJob(UUID.randomUUID().toString(), orgMrn, owner, System.currentTimeMillis() + retention * 1000);
+        jobs.put(job.getJobId(), job);
+        try {
+            executor.execute(() -> run(job, issuance, path));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getJobId());
+            throw new McBasicRestException(HttpStatus.SERVICE_UNAVAILABLE, MCIdRegConstants.TOO_MANY_CERTIFICATE_JOBS, path);
+        }
+        return job;
+    }
+
+    /**
+     * Returns the job with the given ID if it was requested by the given user in the given organization
+     *
+     * @param jobId the ID of the job
+     * @param orgMrn the MRN of the organization
+     * @param owner the name of the user fetching the job
+     * @return the job, or null if it does not exist or has expired
+     */
+    public CertificateJob getJob(String jobId, String orgMrn, String owner) {
+        removeExpired(System.currentTimeMillis());
+        CertificateJob job = jobs.get(jobId);
+        if (job == null || !job.getOrgMrn().equalsIgnoreCase(orgMrn) || !job.getOwner().equals(owner)) {
+            return null;
+        }
+        return job;
+    }
+
+    private void run(CertificateJob job, IdempotencyUtil.Issuance issuance, String path) {
+        try {
+            job.setCertificateBundle(issuance.issue());
+            finish(job, CertificateJob.Status.DONE);
+        } catch (McBasicRestException e) {
+            job.setError(new ExceptionModel(e.getTimestamp(), e.getStatus().value(), e.getError(), e.getErrorMessage(), e.getPath()));
+            finish(job, CertificateJob.Status.FAILED);
+        } catch (RuntimeException e) {
+            log.error("Certificate job " + job.getJobId() + " failed", e);
+            HttpStatus status = HttpStatus.INTERNAL_SERVER_ERROR;
+            job.setError(new ExceptionModel(System.currentTimeMillis(), status.value(), status.getReasonPhrase(), MCIdRegConstants.CERTIFICATE_JOB_FAILED, path));
+            finish(job, CertificateJob.Status.FAILED);
+        }
+    }
+
+    private void finish(CertificateJob job, CertificateJob.Status status) {
+        // The retention window starts when the result is ready
+        job.setExpiresAt(System.currentTimeMillis() + retention * 1000);
+        job.setStatus(status);
+    }
+
+    private void removeExpired(long now) {
+        jobs.values().removeIf(job -> job.getExpiresAt() < now && job.getStatus() != CertificateJob.Status.PENDING);
+    }
+}
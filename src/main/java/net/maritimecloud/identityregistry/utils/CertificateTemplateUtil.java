@@ -0,0 +1,241 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import net.maritimecloud.pki.PKIConstants;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERTaggedObject;
+import org.bouncycastle.asn1.DERUTF8String;
+import org.bouncycastle.asn1.x500.AttributeTypeAndValue;
+import org.bouncycastle.asn1.x500.RDN;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.X500NameBuilder;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issues entity certificates from cached templates, one per CA and entity type.
+ *
+ * The first certificate issued for a given CA and entity type is built by mc-pki as usual, and the parts of it that
+ * do not depend on the entity (issuer, validity period, signature algorithm and the already encoded extensions such
+ * as key usage, authority key identifier, CRL distribution point and OCSP AIA) are kept as a template. Later
+ * certificates for the same CA and entity type reuse the template, so only the subject, the subject key identifier
+ * and the subject alternative names are encoded per issuance. Since the templates are taken from certificates built
+ * by mc-pki they can not drift from what mc-pki would have produced. A template is dropped when the sub CA keystore
+ * file or the CRL/OCSP URI changes, so a rotation of the CA keys is picked up on the next issuance.
+ */
+@Component
+@Slf4j
+public class CertificateTemplateUtil {
+
+    // Maps english country names to ISO country codes, which mc-pki otherwise looks up for every certificate
+    private static final Map<String, String> countryCodes;
+    static {
+        Map<String, String> codes = new HashMap<>();
+        for (String countryCode : Locale.getISOCountries()) {
+            Locale loc = new Locale("", countryCode);
+            codes.putIfAbsent(loc.getDisplayCountry(Locale.ENGLISH), loc.getCountry());
+        }
+        countryCodes = Collections.unmodifiableMap(codes);
+    }
+
+    private final Map<String, CertificateTemplate> templates = new ConcurrentHashMap<>();
+
+    private CertificateUtil certificateUtil;
+
+    @Autowired
+    public void setCertificateUtil(CertificateUtil certificateUtil) {
+        this.certificateUtil = certificateUtil;
+    }
+
+    /**
+     * Generates a signed certificate for an entity, using the cached template of the CA and entity type if present
+     *
+     * @param serialNumber the serial number of the new certificate
+     * @param country the country of the organization of the entity
+     * @param orgName the name put in the O field of the certificate, typically the MRN of the organization
+     * @param type the type of the entity
+     * @param callName the name of the entity
+     * @param email the email of the entity, can be empty
+     * @param uid the UID of the entity, typically its MRN
+     * @param publicKey the public key of the entity
+     * @param customAttrs the special MC attributes to put in the subject alternative names, can be null
+     * @param signingAlias the alias of the CA that should sign the certificate
+     * @return the signed certificate
+     * @throws Exception if the certificate could not be built or signed
+     */
+    public X509Certificate generateCertForEntity(BigInteger serialNumber, String country, String orgName, String type,
+                                                 String callName, String email, String uid, PublicKey publicKey,
+                                                 Map<String, String> customAttrs, String signingAlias) throws Exception {
+        String templateKey = signingAlias + "|" + type;
+        // Read before issuing, so a keystore replaced during the issuance gives a stale template that is replaced
+        long keystoreLastModified = certificateUtil.getSubCaKeystoreLastModified();
+        String crlOcspUri = certificateUtil.getBaseCrlOcspCrlURI();
+        CertificateTemplate template = templates.get(templateKey);
+        if (template != null && template.isCurrent(keystoreLastModified, crlOcspUri)) {
+            return template.build(serialNumber, country, orgName, type, callName, email, uid, publicKey, customAttrs);
+        }
+        X509Certificate cert = certificateUtil.getCertificateBuilder().generateCertForEntity(serialNumber, country,
+                orgName, type, callName, email, uid, publicKey, customAttrs, signingAlias, crlOcspUri);
+        PrivateKey signingKey = certificateUtil.getKeystoreHandler().getSigningCertEntry(signingAlias).getPrivateKey();
+        templates.put(templateKey, new CertificateTemplate(cert, signingKey, keystoreLastModified, crlOcspUri));
+        log.debug("Created certificate template for CA {} and type {}", signingAlias, type);
+        return cert;
+    }
+
+    /**
+     * Builds the subject alternative names of an entity the same way as mc-pki does
+     *
+     * @param customAttrs the special MC attributes of the entity
+     * @return the subject alternative names
+     */
+    static GeneralNames getSubjectAlternativeNames(Map<String, String> customAttrs) {
+        ASN1EncodableVector genNames = new ASN1EncodableVector();
+        for (Map.Entry<String, String> entry : customAttrs.entrySet()) {
+            if (PKIConstants.X509_SAN_DNSNAME.equals(entry.getKey())) {
+                genNames.add(new GeneralName(GeneralName.dNSName, entry.getValue()));
+            } else {
+                DERSequence otherName = new DERSequence(new ASN1Encodable[]{
+                        new ASN1ObjectIdentifier(entry.getKey()), new DERTaggedObject(true, 0, new DERUTF8String(entry.getValue()))});
+                genNames.add(new GeneralName(GeneralName.otherName, otherName));
+            }
+        }
+        return GeneralNames.getInstance(new DERSequence(genNames));
+    }
+
+    private static final class CertificateTemplate {
+        private final X500Name issuer;
+        private final List<ASN1ObjectIdentifier> subjectAttributeTypes;
+        private final long validityMillis;
+        private final PrivateKey signingKey;
+        private final String signatureAlgorithm;
+        // The extensions in the order used by mc-pki. Extensions that depend on the entity are kept as null
+        // placeholders so they can be put in at the same position
+        private final List<ASN1ObjectIdentifier> extensionOrder = new ArrayList<>();
+        private final Map<ASN1ObjectIdentifier, Extension> encodedExtensions = new HashMap<>();
+        private final boolean subjectAltNamesCritical;
+        private final long keystoreLastModified;
+        private final String crlOcspUri;
+
+        CertificateTemplate(X509Certificate cert, PrivateKey signingKey, long keystoreLastModified, String crlOcspUri) throws Exception {
+            this.keystoreLastModified = keystoreLastModified;
+            this.crlOcspUri = crlOcspUri;
+            JcaX509CertificateHolder holder = new JcaX509CertificateHolder(cert);
+            this.issuer = holder.getIssuer();
+            this.subjectAttributeTypes = new ArrayList<>();
+            for (RDN rdn : holder.getSubject().getRDNs()) {
+                for (AttributeTypeAndValue typeAndValue : rdn.getTypesAndValues()) {
+                    this.subjectAttributeTypes.add(typeAndValue.getType());
+                }
+            }
+            this.validityMillis = cert.getNotAfter().getTime() - cert.getNotBefore().getTime();
+            this.signingKey = signingKey;
+            this.signatureAlgorithm = cert.getSigAlgName();
+
+            Extensions extensions = holder.getExtensions();
+            Extension subjectAltNames = extensions.getExtension(Extension.subjectAlternativeName);
+            this.subjectAltNamesCritical = subjectAltNames != null && subjectAltNames.isCritical();
+            for (ASN1ObjectIdentifier oid : extensions.getExtensionOIDs()) {
+                extensionOrder.add(oid);
+                if (!Extension.subjectAlternativeName.equals(oid) && !Extension.subjectKeyIdentifier.equals(oid)) {
+                    encodedExtensions.put(oid, extensions.getExtension(oid));
+                }
+            }
+            if (!extensionOrder.contains(Extension.subjectAlternativeName)) {
+                extensionOrder.add(Extension.subjectAlternativeName);
+            }
+        }
+
+        boolean isCurrent(long keystoreLastModified, String crlOcspUri) {
+            return this.keystoreLastModified == keystoreLastModified && Objects.equals(this.crlOcspUri, crlOcspUri);
+        }
+
+        X509Certificate build(BigInteger serialNumber, String country, String orgName, String type, String callName,
+                              String email, String uid, PublicKey publicKey, Map<String, String> customAttrs) throws Exception {
+            X500Name subject = buildSubject(country, orgName, type, callName, email, uid);
+            Date notBefore = new Date();
+            Date notAfter = new Date(notBefore.getTime() + validityMillis);
+            X509v3CertificateBuilder certBuilder = new JcaX509v3CertificateBuilder(issuer, serialNumber, notBefore, notAfter, subject, publicKey);
+            for (ASN1ObjectIdentifier oid : extensionOrder) {
+                if (Extension.subjectKeyIdentifier.equals(oid)) {
+                    certBuilder.addExtension(Extension.subjectKeyIdentifier, false, new JcaX509ExtensionUtils().createSubjectKeyIdentifier(publicKey));
+                } else if (Extension.subjectAlternativeName.equals(oid)) {
+                    if (customAttrs != null && !customAttrs.isEmpty()) {
+                        certBuilder.addExtension(Extension.subjectAlternativeName, subjectAltNamesCritical, getSubjectAlternativeNames(customAttrs));
+                    }
+                } else {
+                    certBuilder.addExtension(encodedExtensions.get(oid));
+                }
+            }
+            ContentSigner signer = new JcaContentSignerBuilder(signatureAlgorithm).build(signingKey);
+            return new JcaX509CertificateConverter().getCertificate(certBuilder.build(signer));
+        }
+
+        private X500Name buildSubject(String country, String orgName, String type, String callName, String email, String uid) {
+            X500NameBuilder nameBuilder = new X500NameBuilder(BCStyle.INSTANCE);
+            boolean hasEmail = email != null && !email.isEmpty();
+            for (ASN1ObjectIdentifier attributeType : subjectAttributeTypes) {
+                if (BCStyle.C.equals(attributeType)) {
+                    nameBuilder.addRDN(BCStyle.C, countryCodes.getOrDefault(country, country));
+                } else if (BCStyle.O.equals(attributeType)) {
+                    nameBuilder.addRDN(BCStyle.O, orgName);
+                } else if (BCStyle.OU.equals(attributeType)) {
+                    nameBuilder.addRDN(BCStyle.OU, type);
+                } else if (BCStyle.CN.equals(attributeType)) {
+                    nameBuilder.addRDN(BCStyle.CN, callName);
+                } else if (BCStyle.UID.equals(attributeType)) {
+                    nameBuilder.addRDN(BCStyle.UID, uid);
+                } else if (BCStyle.E.equals(attributeType) && hasEmail) {
+                    nameBuilder.addRDN(BCStyle.E, email);
+                }
+            }
+            if (hasEmail && !subjectAttributeTypes.contains(BCStyle.E)) {
+                nameBuilder.addRDN(BCStyle.E, email);
+            }
+            return nameBuilder.build();
+        }
+    }
+}
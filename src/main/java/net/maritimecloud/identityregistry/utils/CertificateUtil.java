@@ -24,6 +24,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.io.File;
 
 @Component
 @Slf4j
@@ -81,4 +82,20 @@ public class CertificateUtil {
         certificateBuilder = new CertificateBuilder(keystoreHandler);
     }
 
+    /**
+     * mc-pki reads the keystores from disk, so a rotation of the CA keys shows up as a change of this time
+     *
+     * @return the time the sub CA keystore was last modified
+     */
+    public long getSubCaKeystoreLastModified() {
+        return new File(subCaKeystorePath).lastModified();
+    }
+
+    /**
+     * @return the time the truststore was last modified
+     */
+    public long getTruststoreLastModified() {
+        return new File(truststorePath).lastModified();
+    }
+
 }
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import net.maritimecloud.identityregistry.exception.McBasicRestException;
+import net.maritimecloud.identityregistry.model.data.CertificateBundle;
+import org.bouncycastle.util.encoders.Hex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Keeps the results of certificate issuances that was requested with an Idempotency-Key header, so that retries of
+ * the same request within the TTL window gets the same certificate bundle instead of a new certificate.
+ *
+ * The bundles contain private keys, so they are only kept in memory and only for as long as the TTL. They are also
+ * scoped to the principal that sent the key, so another caller sending the same key never gets the bundle. At most
+ * max-entries results are kept, beyond that the oldest finished results are dropped, in which case a retry gets the
+ * same reply as one arriving after a restart.
+ *
+ * A key identifies one request, given by its method, path, query and a hash of its body. Reusing a key for a different
+ * request is rejected with 422 instead of replaying the result of the first.
+ *
+ * As the results are not persisted, a retry arriving after a restart, at another instance or after the result has
+ * been dropped can not be answered with the original bundle. The certificate is stored with the scoped key, so such a
+ * retry within the TTL gets 409 instead of a second certificate, and the client must issue a new certificate with a
+ * new key.
+ */
+@Component
+@Slf4j
+public class IdempotencyUtil {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final int MAX_KEY_LENGTH = 255;
+
+    // Time to live of the stored results in seconds
+    @Value("${net.maritimecloud.idreg.certs.idempotency-key-ttl:900}")
+    private long ttl;
+
+    @Value("${net.maritimecloud.idreg.certs.idempotency-key-cache-size:10000}")
+    private int maxEntries;
+
+    private final Map<String, IdempotentIssuance> issuances = new ConcurrentHashMap<>();
+    // The stored issuances in the order they were started, which is also the order they expire in as the TTL is fixed
+    private final Queue<IdempotentIssuance> order = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Functional interface for an issuance of a certificate
+     */
+    public interface Issuance {
+        CertificateBundle issue() throws McBasicRestException;
+    }
+
+    /**
+     * @return the time to live of the stored results in milliseconds
+     */
+    public long getTtlMillis() {
+        return ttl * 1000;
+    }
+
+    /**
+     * Scopes an Idempotency-Key to the principal that sent it. The result is a hash, so it can be stored with the
+     * certificate without storing the name of the principal.
+     *
+     * @param owner the name of the authenticated principal
+     * @param key the Idempotency-Key of the request
+     * @return the scoped key
+     */
+    public static String scopeKey(String owner, String key) {
+        try {
+            // The length of the owner is included so that the owner and key can not be split differently
+            String scoped = owner.length() + ":" + owner + key;
+            return Hex.toHexString(MessageDigest.getInstance("SHA-256").digest(scoped.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Identifies the request an Idempotency-Key is sent with, so that the key can not be reused for another request.
+     * Reads the body of the request, so it must only be used where the body is not read otherwise.
+     *
+     * @param request the request
+     * @return a hash of the method, path, query and body of the request
+     */
+    public static String fingerprint(HttpServletRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String target = request.getMethod() + " " + request.getServletPath() + "?" + (request.getQueryString() != null ? request.getQueryString() : "") + "\n";
+            digest.update(target.getBytes(StandardCharsets.UTF_8));
+            try (InputStream body = request.getInputStream()) {
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            return Hex.toHexString(digest.digest());
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the result of an earlier issuance with the same key from the same principal, or runs the issuance if
+     * there is none. Concurrent requests with the same key waits for the first one to finish.
+     *
+     * @param owner the name of the authenticated principal
+     * @param key the Idempotency-Key of the request
+     * @param fingerprint identifies the request, a key can not be reused for a different request
+     * @param issuance the issuance to run if there is no earlier result
+     * @param path the path of the request, used in error messages
+     * @return the certificate bundle
+     * @throws McBasicRestException
+     */
+    public CertificateBundle issueOnce(String owner, String key, String fingerprint, Issuance issuance, String path) throws McBasicRestException {
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.INVALID_IDEMPOTENCY_KEY, path);
+        }
+        String scopedKey = scopeKey(owner, key);
+        long now = System.currentTimeMillis();
+        removeExpired(now);
+        IdempotentIssuance newIssuance = new IdempotentIssuance(scopedKey, fingerprint, now + getTtlMillis());
+        IdempotentIssuance existing = issuances.putIfAbsent(scopedKey, newIssuance);
+        if (existing == null) {
+            order.add(newIssuance);
+        } else {
+            if (!existing.fingerprint.equals(fingerprint)) {
+                throw new McBasicRestException(HttpStatus.UNPROCESSABLE_ENTITY, MCIdRegConstants.IDEMPOTENCY_KEY_REUSED, path);
+            }
+            log.debug("Returning stored result for Idempotency-Key {}", key);
+            return existing.await();
+        }
+        try {
+            CertificateBundle bundle = issuance.issue();
+            newIssuance.result.complete(bundle);
+            return bundle;
+        } catch (McBasicRestException | RuntimeException e) {
+            // Failed issuances are not stored, so the client can retry with the same key
+            issuances.remove(scopedKey, newIssuance);
+            newIssuance.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Drops the oldest issuances while they have expired or there are too many. Issuances that are still running are
+     * kept, so the map can briefly grow past the limit by the number of issuances in progress.
+     */
+    private void removeExpired(long now) {
+        IdempotentIssuance oldest;
+        while ((oldest = order.peek()) != null) {
+            boolean stored = issuances.get(oldest.key) == oldest;
+            if (stored && (!oldest.result.isDone() || (oldest.expiresAt >= now && issuances.size() < maxEntries))) {
+                break;
+            }
+            // Another request might have removed it in the meantime
+            if (order.remove(oldest)) {
+                issuances.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    private static final class IdempotentIssuance {
+        private final String key;
+        private final String fingerprint;
+        private final long expiresAt;
+        private final CompletableFuture<CertificateBundle> result = new CompletableFuture<>();
+
+        IdempotentIssuance(String key, String fingerprint, long expiresAt) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+
+        CertificateBundle await() throws McBasicRestException {
+            try {
+                return result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e.getMessage(), e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof McBasicRestException) {
+                    throw (McBasicRestException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+}
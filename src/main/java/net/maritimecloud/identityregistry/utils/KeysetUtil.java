@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.utils;
+
+import net.maritimecloud.identityregistry.exception.McBasicRestException;
+import net.maritimecloud.identityregistry.model.data.KeysetPage;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Utility class for keyset pagination of lists ordered by ID. A page is read as the rows with an ID after the last
+ * ID of the previous page, so deep pages are as fast as the first one and no count is needed.
+ */
+public class KeysetUtil {
+
+    public static final String CURSOR_PARAM = "cursor";
+    public static final String DEFAULT_SIZE = "20";
+    public static final int MAX_SIZE = 2000;
+
+    private KeysetUtil() {
+    }
+
+    /**
+     * Decodes the cursor given by a client, an empty cursor starts from the beginning
+     *
+     * @param cursor the cursor
+     * @param path the path of the request, used in error messages
+     * @return the ID the page continues after
+     * @throws McBasicRestException if the cursor is not one that was given out
+     */
+    public static Long decodeCursor(String cursor, String path) throws McBasicRestException {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0L;
+        }
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.INVALID_CURSOR, path);
+        }
+    }
+
+    public static String encodeCursor(Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the given page size limited to what is allowed
+     */
+    public static int limit(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    /**
+     * Builds the page from rows read with a limit of one more than the page size, so that it can be seen if there
+     * is a next page without reading it
+     *
+     * @param rows the rows, ordered by ID
+     * @param size the size of the page
+     * @param getId gets the ID of a row
+     * @return the page
+     */
+    public static <T> KeysetPage<T> toPage(List<T> rows, int size, Function<T, Long> getId) {
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> content = rows.subList(0, size);
+        return new KeysetPage<>(content, encodeCursor(getId.apply(content.get(size - 1))));
+    }
+}
@@ -42,5 +42,16 @@ public class MCIdRegConstants {
     public static final String OIDC_CONF_FILE_NOT_AVAILABLE = "There is no OIDC configuration file available for this service!";
     public static final String VESSEL_IMAGE_NOT_FOUND = "This vessel does not have an image!";
     public static final String ORG_IS_FEDERATED = "Users need to be created and updated through their own identity provider for federated organizations!";
+    public static final String CERTIFICATE_NOT_FOUND = "The certificate could not be found.";
+    public static final String CERTIFICATE_REVOKED = "The certificate has been revoked and can not be renewed!";
+    public static final String CERTIFICATE_EXPIRED = "The certificate has expired and can not be renewed!";
+    public static final String CERTIFICATE_JOB_NOT_FOUND = "The certificate job could not be found, it might have expired.";
+    public static final String CERTIFICATE_JOB_FAILED = "The certificate could not be issued!";
+    public static final String TOO_MANY_CERTIFICATE_JOBS = "Too many certificates are waiting to be issued, please try again later!";
+    public static final String INVALID_IDEMPOTENCY_KEY = "The Idempotency-Key must not be longer than 255 characters!";
+    public static final String IDEMPOTENCY_KEY_REUSED = "The Idempotency-Key has already been used for a different request!";
+    public static final String CERTIFICATE_ALREADY_ISSUED = "A certificate has already been issued for this Idempotency-Key, but the result is no longer available!";
+    public static final String INVALID_CURSOR = "The cursor is not valid, it must be the next token of an earlier page!";
+    public static final String TOO_MANY_REQUESTS = "Too many requests, please try again later!";
     public static final String USER_EMAIL_UPDATE_NOT_ALLOWED = "No users with given email were found. This might be due to trying to update a user with a new email address with is not currently possible.";
 }
@@ -15,6 +15,7 @@
  */
 package net.maritimecloud.identityregistry.utils;
 
+import java.util.Locale;
 import java.util.regex.Pattern;
 
 /**
@@ -111,6 +112,16 @@ public class MrnUtil {
         return mrn;
     }
 
+    /**
+     * MRNs are case insensitive, so they are stored and looked up in lowercase
+     *
+     * @param mrn the MRN
+     * @return the MRN in lowercase
+     */
+    public static String normalize(String mrn) {
+        return mrn == null ? null : mrn.toLowerCase(Locale.ROOT);
+    }
+
     public static boolean validateMrn(String mrn) {
         if (mrn == null || mrn.trim().isEmpty()) {
             throw new IllegalArgumentException("MRN is empty");
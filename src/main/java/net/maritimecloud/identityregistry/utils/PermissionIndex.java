@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.utils;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The permissions seen for the users of an organization, each with an index, so that the permissions of a user are
+ * kept as a bitset and checking one is a map lookup and a bit test. Permissions are case insensitive and indexed in
+ * lower case. A permission once indexed keeps its index, and the number of permissions of an organization is bounded,
+ * as they come from tokens and certificates. The permissions after that are kept by name by AuthorizationContext.
+ */
+final class PermissionIndex {
+
+    private static final int MAX_SIZE = 1024;
+
+    // Maps the normalized MRN of an organization to its permissions, users without an organization share one
+    private static final Map<String, PermissionIndex> ORGANIZATIONS = new ConcurrentHashMap<>();
+    private static final String NO_ORGANIZATION = "";
+
+    // Maps the permissions in lower case to their index
+    private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+
+    private PermissionIndex() {
+    }
+
+    static PermissionIndex of(String orgMrn) {
+        String key = orgMrn == null ? NO_ORGANIZATION : MrnUtil.normalize(orgMrn);
+        return ORGANIZATIONS.computeIfAbsent(key, k -> new PermissionIndex());
+    }
+
+    static String normalize(String permission) {
+        return permission.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return the index of the permission, which is added if it is new and there is room, otherwise -1
+     */
+    int add(String permission) {
+        String normalized = normalize(permission);
+        Integer index = indexes.get(normalized);
+        if (index != null) {
+            return index;
+        }
+        synchronized (indexes) {
+            index = indexes.get(normalized);
+            if (index == null) {
+                if (indexes.size() >= MAX_SIZE) {
+                    return -1;
+                }
+                index = indexes.size();
+                indexes.put(normalized, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * @return the index of the permission, or -1 if it has none. Permissions in lower case, which is how they are
+     * usually checked, are looked up without converting them.
+     */
+    int indexOf(String permission) {
+        Integer index = indexes.get(permission);
+        if (index == null) {
+            index = indexes.get(normalize(permission));
+        }
+        return index != null ? index : -1;
+    }
+}
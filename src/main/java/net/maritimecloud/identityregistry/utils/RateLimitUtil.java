@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory token bucket rate limiting of expensive endpoints, with a bucket per client and budget.
+ *
+ * Each bucket is a single counter holding the time at which it is full again, which is updated with compare-and-set,
+ * so concurrent requests never wait on a lock. At most max-clients buckets are kept, beyond that the oldest buckets
+ * are dropped, which gives those clients a full bucket again.
+ */
+@Component
+@Slf4j
+public class RateLimitUtil {
+
+    /**
+     * The classes of endpoints that share a budget
+     */
+    public enum Budget {
+        CERTIFICATE_ISSUANCE,
+        ORGANIZATION_APPLICATION,
+        OCSP
+    }
+
+    @Value("${net.maritimecloud.idreg.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${net.maritimecloud.idreg.rate-limit.max-clients:100000}")
+    private int maxClients;
+
+    @Value("${net.maritimecloud.idreg.rate-limit.certificate-issuance.per-minute:10}")
+    private long certificateIssuancePerMinute;
+
+    @Value("${net.maritimecloud.idreg.rate-limit.certificate-issuance.burst:10}")
+    private long certificateIssuanceBurst;
+
+    @Value("${net.maritimecloud.idreg.rate-limit.organization-application.per-minute:2}")
+    private long organizationApplicationPerMinute;
+
+    @Value("${net.maritimecloud.idreg.rate-limit.organization-application.burst:5}")
+    private long organizationApplicationBurst;
+
+    @Value("${net.maritimecloud.idreg.rate-limit.ocsp.per-minute:600}")
+    private long ocspPerMinute;
+
+    @Value("${net.maritimecloud.idreg.rate-limit.ocsp.burst:100}")
+    private long ocspBurst;
+
+    private final Map<Budget, Limit> limits = new EnumMap<>(Budget.class);
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    // The keys of the buckets in the order they were created, the oldest are dropped first when there are too many
+    private final Queue<String> bucketOrder = new ConcurrentLinkedQueue<>();
+
+    @PostConstruct
+    public void setup() {
+        limits.put(Budget.CERTIFICATE_ISSUANCE, new Limit(certificateIssuancePerMinute, certificateIssuanceBurst));
+        limits.put(Budget.ORGANIZATION_APPLICATION, new Limit(organizationApplicationPerMinute, organizationApplicationBurst));
+        limits.put(Budget.OCSP, new Limit(ocspPerMinute, ocspBurst));
+    }
+
+    /**
+     * Takes a token from the bucket of the given client in the given budget
+     *
+     * @param budget the budget of the endpoint
+     * @param clientId identifies the client
+     * @return 0 if the request is allowed, otherwise the number of seconds until it will be
+     */
+    public long acquire(Budget budget, String clientId) {
+        if (!enabled) {
+            return 0;
+        }
+        Limit limit = limits.get(budget);
+        long now = System.nanoTime();
+        String key = budget.name() + ':' + clientId;
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            AtomicLong created = new AtomicLong(now);
+            bucket = buckets.putIfAbsent(key, created);
+            if (bucket == null) {
+                bucket = created;
+                bucketOrder.add(key);
+                removeOldest();
+            }
+        }
+        while (true) {
+            long fullAt = bucket.get();
+            // Each request moves the time at which the bucket is full one interval ahead, and the request is only
+            // allowed if that is no more than the burst ahead of now
+            long newFullAt = now + Math.max(fullAt - now, 0) + limit.interval;
+            long wait = newFullAt - now - limit.tolerance;
+            if (wait > 0) {
+                log.debug("Rate limit of {} exceeded by {}", budget, clientId);
+                return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+            }
+            if (bucket.compareAndSet(fullAt, newFullAt)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops the oldest buckets while there are too many. Each bucket has one entry in the order, so this is constant
+     * time per new client.
+     */
+    private void removeOldest() {
+        while (buckets.size() > maxClients) {
+            String oldest = bucketOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            buckets.remove(oldest);
+        }
+    }
+
+    private static final class Limit {
+        // Nanoseconds it takes to get a new token
+        private final long interval;
+        // Nanoseconds of tokens a full bucket holds
+        private final long tolerance;
+
+        Limit(long perMinute, long burst) {
+            this.interval = TimeUnit.MINUTES.toNanos(1) / Math.max(perMinute, 1);
+            this.tolerance = interval * Math.max(burst, 1);
+        }
+    }
+}
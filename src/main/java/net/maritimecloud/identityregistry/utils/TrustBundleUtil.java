@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.utils;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.maritimecloud.pki.CertificateHandler;
+import org.bouncycastle.util.encoders.Hex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds and caches the trust bundle, which is the MC root and sub CA certificates of the truststore, in PEM, JKS
+ * and PKCS12 format. The bundle is built on first use and rebuilt when the truststore file changes, since mc-pki
+ * reads the truststore from disk.
+ */
+@Component
+@Slf4j
+public class TrustBundleUtil {
+
+    // The truststore only contains public certificates, so the password only protects the integrity of the keystores
+    public static final String TRUST_BUNDLE_PASSWORD = "changeit";
+
+    private CertificateUtil certificateUtil;
+
+    private volatile BuiltTrustBundle trustBundle;
+
+    @Autowired
+    public void setCertificateUtil(CertificateUtil certificateUtil) {
+        this.certificateUtil = certificateUtil;
+    }
+
+    /**
+     * @return the cached trust bundle, which is built if it does not exist yet or the truststore has changed
+     */
+    public TrustBundle getTrustBundle() {
+        long lastModified = certificateUtil.getTruststoreLastModified();
+        BuiltTrustBundle built = trustBundle;
+        if (built == null || built.truststoreLastModified != lastModified) {
+            synchronized (this) {
+                built = trustBundle;
+                if (built == null || built.truststoreLastModified != lastModified) {
+                    built = new BuiltTrustBundle(buildTrustBundle(), lastModified);
+                    trustBundle = built;
+                }
+            }
+        }
+        return built.bundle;
+    }
+
+    private TrustBundle buildTrustBundle() {
+        try {
+            KeyStore trustStore = certificateUtil.getKeystoreHandler().getTrustStore();
+            List<String> aliases = Collections.list(trustStore.aliases());
+            // Sort the aliases so that the bundle, and hence the ETag, is the same on every instance
+            Collections.sort(aliases);
+            KeyStore jks = KeyStore.getInstance("JKS");
+            jks.load(null, null);
+            KeyStore pkcs12 = KeyStore.getInstance("PKCS12");
+            pkcs12.load(null, null);
+            StringBuilder pem = new StringBuilder();
+            List<String> included = new ArrayList<>();
+            for (String alias : aliases) {
+                Certificate cert = trustStore.getCertificate(alias);
+                if (cert == null) {
+                    continue;
+                }
+                String certPem = CertificateHandler.getPemFromEncoded("CERTIFICATE", cert.getEncoded());
+                pem.append(certPem);
+                if (!certPem.endsWith("\n")) {
+                    pem.append('\n');
+                }
+                jks.setCertificateEntry(alias, cert);
+                pkcs12.setCertificateEntry(alias, cert);
+                included.add(alias);
+            }
+            String pemBundle = pem.toString();
+            String hash = Hex.toHexString(MessageDigest.getInstance("SHA-256").digest(pemBundle.getBytes(StandardCharsets.UTF_8)));
+            log.debug("Built trust bundle with the certificates {}", included);
+            return new TrustBundle(pemBundle, store(jks), store(pkcs12), hash);
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private static byte[] store(KeyStore keyStore) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        keyStore.store(out, TRUST_BUNDLE_PASSWORD.toCharArray());
+        return out.toByteArray();
+    }
+
+    private static final class BuiltTrustBundle {
+        private final TrustBundle bundle;
+        private final long truststoreLastModified;
+
+        BuiltTrustBundle(TrustBundle bundle, long truststoreLastModified) {
+            this.bundle = bundle;
+            this.truststoreLastModified = truststoreLastModified;
+        }
+    }
+
+    /**
+     * The CA chain in the supported formats, and a hash of it that changes whenever the chain does
+     */
+    @Getter
+    public static final class TrustBundle {
+        private final String pem;
+        private final byte[] jks;
+        private final byte[] pkcs12;
+        private final String hash;
+
+        public TrustBundle(String pem, byte[] jks, byte[] pkcs12, String hash) {
+            this.pem = pem;
+            this.jks = jks;
+            this.pkcs12 = pkcs12;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+CREATE TABLE `id_sequences` (
+  `sequence_name` VARCHAR(255) NOT NULL,
+  `next_val` BIGINT,
+  PRIMARY KEY (`sequence_name`)
+);
+
+-- The IDs of each table continue after the highest ID in use
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`) SELECT 'logos', COALESCE(MAX(`id`), 0) + 1 FROM `logos`;
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`) SELECT 'organizations', COALESCE(MAX(`id`), 0) + 1 FROM `organizations`;
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`) SELECT 'identity_provider_attributes', COALESCE(MAX(`id`), 0) + 1 FROM `identity_provider_attributes`;
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`) SELECT 'roles', COALESCE(MAX(`id`), 0) + 1 FROM `roles`;
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`) SELECT 'vessel_images', COALESCE(MAX(`id`), 0) + 1 FROM `vessel_images`;
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`) SELECT 'vessels', COALESCE(MAX(`id`), 0) + 1 FROM `vessels`;
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`) SELECT 'vessel_attributes', COALESCE(MAX(`id`), 0) + 1 FROM `vessel_attributes`;
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`) SELECT 'users', COALESCE(MAX(`id`), 0) + 1 FROM `users`;
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`) SELECT 'devices', COALESCE(MAX(`id`), 0) + 1 FROM `devices`;
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`) SELECT 'services', COALESCE(MAX(`id`), 0) + 1 FROM `services`;
+INSERT INTO `id_sequences` (`sequence_name`, `next_val`) SELECT 'certificates', COALESCE(MAX(`id`), 0) + 1 FROM `certificates`;
@@ -0,0 +1,6 @@
+-- MRNs are case insensitive and are looked up by exact match, so they are stored in lowercase
+UPDATE `organizations` SET `mrn` = LOWER(`mrn`);
+UPDATE `vessels` SET `mrn` = LOWER(`mrn`);
+UPDATE `users` SET `mrn` = LOWER(`mrn`);
+UPDATE `devices` SET `mrn` = LOWER(`mrn`);
+UPDATE `services` SET `mrn` = LOWER(`mrn`);
@@ -0,0 +1,20 @@
+-- The IDs are generated by Hibernate from id_sequences since V10. Without AUTO_INCREMENT, an insert that does not go
+-- through the generator fails instead of taking an ID the generator hands out later.
+-- The columns that no foreign key references are changed with the keys checked.
+ALTER TABLE `identity_provider_attributes` MODIFY `id` INT NOT NULL;
+ALTER TABLE `roles` MODIFY `id` INT NOT NULL;
+ALTER TABLE `vessel_attributes` MODIFY `id` INT NOT NULL;
+ALTER TABLE `certificates` MODIFY `id` INT NOT NULL;
+-- MySQL does not change a column referenced by a foreign key while the keys are checked, even if its type stays the
+-- same. The keys were created without names, so they can not be dropped and added again portably. Instead the checks
+-- are turned off for this session only, around the statements that need it. Only AUTO_INCREMENT is removed, so no
+-- values change and no key can be broken.
+SET FOREIGN_KEY_CHECKS = 0;
+ALTER TABLE `logos` MODIFY `id` INT NOT NULL;
+ALTER TABLE `organizations` MODIFY `id` INT NOT NULL;
+ALTER TABLE `vessel_images` MODIFY `id` INT NOT NULL;
+ALTER TABLE `vessels` MODIFY `id` INT NOT NULL;
+ALTER TABLE `users` MODIFY `id` INT NOT NULL;
+ALTER TABLE `devices` MODIFY `id` INT NOT NULL;
+ALTER TABLE `services` MODIFY `id` INT NOT NULL;
+SET FOREIGN_KEY_CHECKS = 1;
@@ -0,0 +1,3 @@
+ALTER TABLE `certificates` ADD COLUMN `idempotency_key` VARCHAR(255);
+
+CREATE INDEX `idx_certificates_idempotency_key` ON `certificates` (`idempotency_key`);
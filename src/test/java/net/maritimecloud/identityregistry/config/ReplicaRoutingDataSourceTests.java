@@ -0,0 +1,181 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.config;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Routes between two in-memory H2 databases, where each database knows which one it is
+ */
+@RunWith(SpringRunner.class)
+public class ReplicaRoutingDataSourceTests {
+
+    private ReplicaRoutingDataSource routingDataSource;
+    private DataSource dataSource;
+    private JdbcTemplate replicaTemplate;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate readWriteTransaction;
+    private EntityManagerFactory entityManagerFactory;
+
+    @Before
+    public void setUp() {
+        DataSource primary = database("primary");
+        DataSource replica = database("replica");
+        replicaTemplate = new JdbcTemplate(replica);
+        replicaTemplate.execute("CREATE TABLE replica_lag (seconds INT)");
+        replicaTemplate.execute("INSERT INTO replica_lag VALUES (0)");
+
+        routingDataSource = new ReplicaRoutingDataSource(primary, Collections.singletonMap("replica-0", replica), 5,
+                "SELECT seconds FROM replica_lag", 3600);
+        routingDataSource.afterPropertiesSet();
+        dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    private static DataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("DROP ALL OBJECTS");
+        template.execute("CREATE TABLE whoami (name VARCHAR(10))");
+        template.update("INSERT INTO whoami VALUES (?)", name);
+        return dataSource;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        RequestContextHolder.resetRequestAttributes();
+        if (entityManagerFactory != null) {
+            EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.unbindResourceIfPossible(entityManagerFactory);
+            if (holder != null) {
+                holder.getEntityManager().close();
+            }
+            entityManagerFactory.close();
+        }
+        routingDataSource.destroy();
+    }
+
+    private String readOnly() {
+        return readOnlyTransaction.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM whoami", String.class));
+    }
+
+    private String readWrite() {
+        return readWriteTransaction.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM whoami", String.class));
+    }
+
+    @Test
+    public void readOnlyTransactionsGoToReplica() {
+        assertEquals("replica", readOnly());
+        assertEquals("primary", readWrite());
+        assertEquals("primary", jdbcTemplate.queryForObject("SELECT name FROM whoami", String.class));
+    }
+
+    @Test
+    public void readsAfterWriteInRequestGoToPrimary() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertEquals("replica", readOnly());
+        readWrite();
+        assertEquals("primary", readOnly());
+
+        // A new request reads from the replica again
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertEquals("replica", readOnly());
+    }
+
+    @Test
+    public void laggingReplicaIsNotUsed() {
+        replicaTemplate.update("UPDATE replica_lag SET seconds = 60");
+        routingDataSource.checkReplicaLag();
+        assertTrue(routingDataSource.getUsableReplicas().isEmpty());
+        assertEquals("primary", readOnly());
+
+        replicaTemplate.update("UPDATE replica_lag SET seconds = 1");
+        routingDataSource.checkReplicaLag();
+        assertEquals("replica", readOnly());
+    }
+
+    /**
+     * Binds an entity manager for the whole request, as open-in-view does, and runs the transactions through JPA
+     */
+    @Test
+    public void jpaTransactionsInOpenEntityManagerAreRouted() {
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan(ReplicaRoutingDataSourceTests.class.getPackage().getName());
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        TransactionTemplate readOnlyJpaTransaction = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+        readOnlyJpaTransaction.setReadOnly(true);
+        Session session = entityManager.unwrap(Session.class);
+
+        assertEquals("replica", readOnlyJpaTransaction.execute(status -> {
+            String name = whoami(entityManager);
+            // Nothing read from the replica is put into the Hibernate caches
+            assertEquals(CacheMode.GET, session.getCacheMode());
+            return name;
+        }));
+        // The entity manager outlives the transaction and gets its cache mode back
+        assertEquals(CacheMode.NORMAL, session.getCacheMode());
+
+        // A load for a cache reads from the primary, also when the service call has started the transaction
+        assertEquals("primary", readOnlyJpaTransaction.execute(status -> ReplicaRoutingDataSource.readFromPrimary(() -> {
+            String name = whoami(entityManager);
+            assertEquals(CacheMode.NORMAL, session.getCacheMode());
+            return name;
+        })));
+        // without sending the rest of the request to the primary
+        assertEquals("replica", readOnlyJpaTransaction.execute(status -> whoami(entityManager)));
+    }
+
+    private static String whoami(EntityManager entityManager) {
+        return (String) entityManager.createNativeQuery("SELECT name FROM whoami").getSingleResult();
+    }
+}
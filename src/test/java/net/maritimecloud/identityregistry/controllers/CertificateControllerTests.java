@@ -17,6 +17,7 @@
 package net.maritimecloud.identityregistry.controllers;
 
 import net.maritimecloud.identityregistry.services.CertificateService;
+import net.maritimecloud.identityregistry.utils.TrustBundleUtil;
 import org.bouncycastle.util.encoders.DecoderException;
 import org.junit.Before;
 import org.junit.Test;
@@ -38,9 +39,11 @@ import java.net.URI;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -63,6 +66,9 @@ public class CertificateControllerTests {
     @Before
     public void setup() {
         this.certificateController = spy(CertificateController.class);
+        TrustBundleUtil trustBundleUtil = mock(TrustBundleUtil.class);
+        doReturn(new TrustBundleUtil.TrustBundle("fake PEM chain", new byte[0], new byte[0], "abcd")).when(trustBundleUtil).getTrustBundle();
+        this.certificateController.setTrustBundleUtil(trustBundleUtil);
         mvc = MockMvcBuilders.standaloneSetup(certificateController).build();
     }
 
@@ -97,4 +103,38 @@ public class CertificateControllerTests {
         }
     }
 
+    @Test
+    public void testGetTrustBundle() {
+        try {
+            mvc.perform(get("/x509/api/certificates/trust-bundle/pem").header("Origin", "bla"))
+                    .andExpect(status().isOk()).andExpect(content().string("fake PEM chain"))
+                    .andExpect(header().string("ETag", "\"abcd-pem\""));
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+    }
+
+    @Test
+    public void testGetTrustBundleNotModified() {
+        try {
+            mvc.perform(get("/x509/api/certificates/trust-bundle/pem").header("Origin", "bla").header("If-None-Match", "\"abcd-pem\""))
+                    .andExpect(status().isNotModified());
+            // Lists of ETags, weak ETags and * are matched as well
+            mvc.perform(get("/x509/api/certificates/trust-bundle/pem").header("Origin", "bla").header("If-None-Match", "\"0000-pem\", \"abcd-pem\""))
+                    .andExpect(status().isNotModified());
+            mvc.perform(get("/x509/api/certificates/trust-bundle/pem").header("Origin", "bla").header("If-None-Match", "W/\"abcd-pem\""))
+                    .andExpect(status().isNotModified());
+            mvc.perform(get("/x509/api/certificates/trust-bundle/pem").header("Origin", "bla").header("If-None-Match", "*"))
+                    .andExpect(status().isNotModified());
+            mvc.perform(get("/x509/api/certificates/trust-bundle/jks").header("Origin", "bla").header("If-None-Match", "\"abcd-pem\""))
+                    .andExpect(status().isOk()).andExpect(header().string("ETag", "\"abcd-jks\""));
+            mvc.perform(get("/x509/api/certificates/trust-bundle/pfx").header("Origin", "bla"))
+                    .andExpect(status().isNotFound());
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+    }
+
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.maritimecloud.identityregistry.controllers;
+
+import net.maritimecloud.identityregistry.model.database.Certificate;
+import net.maritimecloud.pki.CertificateBuilder;
+import net.maritimecloud.pki.CertificateHandler;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.Security;
+import java.util.Date;
+
+/**
+ * Helper class to generate certificates as they are stored by the controllers, for use when testing controllers.
+ */
+public class CertificateGenerator {
+
+    static {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    /**
+     * Helper function to build a self signed certificate with the given validity, stored as a PEM with escaped newlines
+     * @param serialNumber
+     * @param notBefore
+     * @param notAfter
+     * @return
+     */
+    public static Certificate generateCertificate(BigInteger serialNumber, Date notBefore, Date notAfter) {
+        try {
+            KeyPair keyPair = CertificateBuilder.generateKeyPair();
+            X500Name name = new X500Name("C=DK, O=urn:mrn:mcl:org:dma, CN=Test");
+            X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(name, serialNumber, notBefore, notAfter, name, keyPair.getPublic());
+            byte[] encoded = builder.build(new JcaContentSignerBuilder("SHA384withECDSA").setProvider(BouncyCastleProvider.PROVIDER_NAME)
+                    .build(keyPair.getPrivate())).getEncoded();
+            Certificate cert = new Certificate();
+            cert.setSerialNumber(serialNumber);
+            cert.setCertificate(CertificateHandler.getPemFromEncoded("CERTIFICATE", encoded).replace("\n", "\\n"));
+            cert.setStart(notBefore);
+            cert.setEnd(notAfter);
+            return cert;
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Helper function to build a certificate that is valid from yesterday and a year ahead
+     * @param serialNumber
+     * @return
+     */
+    public static Certificate generateValidCertificate(BigInteger serialNumber) {
+        long day = 24L * 60 * 60 * 1000;
+        return generateCertificate(serialNumber, new Date(System.currentTimeMillis() - day), new Date(System.currentTimeMillis() + 365 * day));
+    }
+
+    /**
+     * Helper function to build a certificate that expired yesterday
+     * @param serialNumber
+     * @return
+     */
+    public static Certificate generateExpiredCertificate(BigInteger serialNumber) {
+        long day = 24L * 60 * 60 * 1000;
+        return generateCertificate(serialNumber, new Date(System.currentTimeMillis() - 365 * day), new Date(System.currentTimeMillis() - day));
+    }
+}
@@ -16,6 +16,8 @@
 package net.maritimecloud.identityregistry.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import net.maritimecloud.identityregistry.model.data.CertificateBundle;
+import net.maritimecloud.identityregistry.model.data.CertificateJob;
 import net.maritimecloud.identityregistry.model.database.IdentityProviderAttribute;
 import net.maritimecloud.identityregistry.model.database.Organization;
 import net.maritimecloud.identityregistry.model.database.entities.Device;
@@ -27,6 +29,7 @@ import net.maritimecloud.identityregistry.services.EntityService;
 import net.maritimecloud.identityregistry.services.OrganizationService;
 import net.maritimecloud.identityregistry.services.RoleService;
 import net.maritimecloud.identityregistry.utils.AccessControlUtil;
+import net.maritimecloud.identityregistry.utils.CertificateJobUtil;
 import net.maritimecloud.identityregistry.utils.EmailUtil;
 import net.maritimecloud.identityregistry.utils.KeycloakAdminUtil;
 import org.junit.Before;
@@ -48,10 +51,12 @@ import org.springframework.web.context.WebApplicationContext;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.verify;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -95,6 +100,9 @@ public class OrganizationControllerTests {
     @MockBean
     private AccessControlUtil accessControlUtil;
 
+    @Autowired
+    private CertificateJobUtil certificateJobUtil;
+
     @Before
     public void setup() {
         mvc = MockMvcBuilders
@@ -352,6 +360,32 @@ public class OrganizationControllerTests {
         }
     }
 
+    /**
+     * Try to get an organization from another organization. Anyone may see an organization, so it is looked up and
+     * a missing one gives 404 rather than 403.
+     */
+    @Test
+    public void testGetOrgOfOtherOrg() {
+        Organization org = new Organization();
+        org.setMrn("urn:mrn:mcl:org:dma");
+        org.setName("Danish Maritime Authority");
+        org.setIdentityProviderAttributes(new HashSet<>());
+        Authentication auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:sma", "ROLE_USER", "");
+        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:dma")).willReturn(org);
+        try {
+            mvc.perform(get("/oidc/api/org/urn:mrn:mcl:org:dma").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isOk());
+            mvc.perform(get("/oidc/api/org/urn:mrn:mcl:org:unknown").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isNotFound());
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+        verify(this.organizationService).getOrganizationByMrn("urn:mrn:mcl:org:unknown");
+    }
+
     /**
      * Try to access an organization with the appropriate role
      */
@@ -413,6 +447,38 @@ public class OrganizationControllerTests {
     }
 
 
+    /**
+     * Try to fetch a pending certificate job as the user that started it, as another user in the same organization
+     * and as a user in another organization
+     */
+    @Test
+    public void testAccessCertificateJob() throws Exception {
+        Authentication owner = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_USER", "");
+        Authentication otherUser = TokenGenerator.generatePreAuthenticatedAuthenticationToken("urn:mrn:mcl:org:dma", "ROLE_USER", "");
+        Authentication otherOrg = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:sma", "ROLE_USER", "");
+        CountDownLatch release = new CountDownLatch(1);
+        CertificateJob job = certificateJobUtil.submit("urn:mrn:mcl:org:dma", owner.getName(), () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new CertificateBundle(null, "jks", "p12", "pass");
+        }, "/oidc/api/org/urn:mrn:mcl:org:dma/certificate/job");
+        String url = "/oidc/api/org/urn:mrn:mcl:org:dma/certificate/job/" + job.getJobId();
+        try {
+            mvc.perform(get(url).with(authentication(owner)).header("Origin", "bla")).andExpect(status().isAccepted());
+            // Other users can not see that the job exists
+            mvc.perform(get(url).with(authentication(otherUser)).header("Origin", "bla")).andExpect(status().isNotFound());
+            mvc.perform(get(url).with(authentication(otherOrg)).header("Origin", "bla")).andExpect(status().isForbidden());
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        } finally {
+            release.countDown();
+        }
+    }
+
     /**
      * Helper function to serialize an organization to json
      * @param org
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.controllers;
+
+import net.maritimecloud.identityregistry.utils.RateLimitUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+public class RateLimitInterceptorTests {
+
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    @Before
+    public void setUp() {
+        rateLimitInterceptor = new RateLimitInterceptor();
+        rateLimitInterceptor.setRateLimitUtil(mock(RateLimitUtil.class));
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+
+    @Test
+    public void anonymousClientBehindTrustedProxyIsIdentifiedByForwardedAddress() {
+        assertEquals("ip:10.0.0.1", rateLimitInterceptor.getClientId(request("127.0.0.1", "10.0.0.1")));
+        assertEquals("ip:10.0.0.1", rateLimitInterceptor.getClientId(request("0:0:0:0:0:0:0:1", "10.0.0.1")));
+        // The addresses before the one added by the proxy are sent by the client
+        assertEquals("ip:10.0.0.1", rateLimitInterceptor.getClientId(request("127.0.0.1", "192.168.1.1, 10.0.0.1")));
+        // Without the header the address of the proxy is all there is
+        assertEquals("ip:127.0.0.1", rateLimitInterceptor.getClientId(request("127.0.0.1", null)));
+    }
+
+    @Test
+    public void forwardedAddressFromUntrustedClientIsIgnored() {
+        assertEquals("ip:10.0.0.2", rateLimitInterceptor.getClientId(request("10.0.0.2", "10.0.0.1")));
+    }
+
+    @Test
+    public void authenticatedClientIsIdentifiedByName() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("urn:mrn:mcl:vessel:dma:myboat", null, "ROLE_USER"));
+        assertEquals("client:urn:mrn:mcl:vessel:dma:myboat", rateLimitInterceptor.getClientId(request("127.0.0.1", "10.0.0.1")));
+    }
+}
@@ -18,6 +18,8 @@ package net.maritimecloud.identityregistry.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import net.maritimecloud.identityregistry.exception.DuplicatedKeycloakEntry;
+import net.maritimecloud.identityregistry.model.data.OrganizationSnapshot;
+import net.maritimecloud.identityregistry.model.database.Certificate;
 import net.maritimecloud.identityregistry.model.database.IdentityProviderAttribute;
 import net.maritimecloud.identityregistry.model.database.Organization;
 import net.maritimecloud.identityregistry.model.database.entities.Service;
@@ -47,12 +49,14 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import java.io.IOException;
+import java.math.BigInteger;
 import java.util.HashSet;
 import java.util.Set;
 
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -63,6 +67,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -138,7 +143,7 @@ public class ServiceControllerTests {
         // Create fake authentication token
         KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_USER", "");
         // Setup mock returns
-        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:dma")).willReturn(org);
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
         given(((ServiceService) this.entityService).getServiceByMrnAndVersion("urn:mrn:mcl:service:instance:dma:nw-nm", "0.3.4")).willReturn(service);
         when(org.getId()).thenReturn(1l);
         try {
@@ -176,8 +181,8 @@ public class ServiceControllerTests {
         // Create fake authentication token, note that the user mrn is different from the org mrn, but being SITE_ADMIN should overrule that
         Authentication auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:sma", "ROLE_ORG_ADMIN,ROLE_SITE_ADMIN", "");
         // Setup mock returns
-        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:dma")).willReturn(org);
-        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:sma")).willReturn(org);
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:sma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
         given(((ServiceService) this.entityService).getServiceByMrnAndVersion("urn:mrn:mcl:service:instance:dma:nw-nm", "0.3.4")).willReturn(service);
         when(org.getId()).thenReturn(1l);
         try {
@@ -216,7 +221,7 @@ public class ServiceControllerTests {
         // Create fake authentication token
         KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_USER_ADMIN", "");
         // Setup mock returns
-        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:dma")).willReturn(org);
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
         given(((ServiceService) this.entityService).getServiceByMrnAndVersion("urn:mrn:mcl:service:instance:dma:nw-nm", "0.3.4")).willReturn(service);
         when(org.getId()).thenReturn(1l);
         try {
@@ -258,7 +263,7 @@ public class ServiceControllerTests {
         // Create fake authentication token
         KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_SERVICE_ADMIN", "");
         // Setup mock returns
-        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:dma")).willReturn(org);
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
         given(((ServiceService) this.entityService).getServiceByMrnAndVersion("urn:mrn:mcl:service:instance:dma:nw-nm", "0.3.4")).willReturn(service);
         when(org.getId()).thenReturn(1l);
         try {
@@ -304,7 +309,7 @@ public class ServiceControllerTests {
         // Create fake authentication token
         KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_SERVICE_ADMIN", "");
         // Setup mock returns
-        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:dma")).willReturn(org);
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
         when(org.getId()).thenReturn(1l);
         try {
             mvc.perform(post("/oidc/api/org/urn:mrn:mcl:org:dma/service").with(authentication(auth))
@@ -345,7 +350,7 @@ public class ServiceControllerTests {
         // Create fake authentication token
         KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_SERVICE_ADMIN", "");
         // Setup mock returns
-        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:dma")).willReturn(org);
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
         given(((ServiceService) this.entityService).getServiceByMrnAndVersion("urn:mrn:mcl:service:instance:dma:nw-nm", "0.3.4")).willReturn(service);
         when(org.getId()).thenReturn(1l);
         given(this.keycloakAU.getClientJbossXml("0.3.4-urn:mrn:mcl:service:instance:dma:nw-nm")).willReturn("<secure-deployment name=\"WAR MODULE NAME.war\"><realm>MaritimeCloud</realm>...</secure-deployment>");
@@ -385,7 +390,7 @@ public class ServiceControllerTests {
         // Create fake authentication token
         KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_SERVICE_ADMIN", "");
         // Setup mock returns
-        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:dma")).willReturn(org);
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
         given(((ServiceService) this.entityService).getServiceByMrnAndVersion("urn:mrn:mcl:service:instance:dma:nw-nm", "0.3.4")).willReturn(service);
         when(org.getId()).thenReturn(1l);
         try {
@@ -433,7 +438,7 @@ public class ServiceControllerTests {
         // Create fake authentication token
         KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_SERVICE_ADMIN", "");
         // Setup mock returns
-        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:dma")).willReturn(org);
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
         given(((ServiceService) this.entityService).getServiceByMrnAndVersion("urn:mrn:mcl:service:instance:dma:nw-nm", "0.3.4")).willReturn(oldService);
         when(org.getId()).thenReturn(1l);
         try {
@@ -489,7 +494,7 @@ public class ServiceControllerTests {
         // Create fake authentication token
         KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_SERVICE_ADMIN", "");
         // Setup mock returns
-        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:dma")).willReturn(org);
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
         given(((ServiceService) this.entityService).getServiceByMrnAndVersion("urn:mrn:mcl:service:instance:dma:nw-nm", "0.3.4")).willReturn(oldService);
         when(org.getId()).thenReturn(1l);
         try {
@@ -539,7 +544,7 @@ public class ServiceControllerTests {
         // Create fake authentication token
         KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_SERVICE_ADMIN", "");
         // Setup mock returns
-        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:dma")).willReturn(org);
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
         given(((ServiceService) this.entityService).getServiceByMrnAndVersion("urn:mrn:mcl:service:instance:dma:nw-nm", "0.3.4")).willReturn(oldService);
         when(org.getId()).thenReturn(1l);
         try {
@@ -556,6 +561,41 @@ public class ServiceControllerTests {
     }
 
 
+    /**
+     * Try to renew a certificate of a service
+     */
+    @Test
+    public void testRenewServiceCert() {
+        Service service = spy(Service.class);
+        service.setMrn("urn:mrn:mcl:service:instance:dma:nw-nm");
+        service.setName("NW NM Service");
+        service.setInstanceVersion("0.3.4");
+        service.setIdOrganization(1l);
+        when(service.getId()).thenReturn(1l);
+        Certificate cert = CertificateGenerator.generateValidCertificate(BigInteger.valueOf(1234));
+        cert.setService(service);
+        Organization org = spy(Organization.class);
+        org.setMrn("urn:mrn:mcl:org:dma");
+        org.setCountry("Denmark");
+        org.setName("Danish Maritime Authority");
+        org.setCertificateAuthority("urn:mrn:mcl:ca:maritimecloud-idreg");
+        org.setIdentityProviderAttributes(new HashSet<>());
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_SERVICE_ADMIN", "");
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
+        given(((ServiceService) this.entityService).getServiceByMrnAndVersion("urn:mrn:mcl:service:instance:dma:nw-nm", "0.3.4")).willReturn(service);
+        given(this.certificateService.getCertificateBySerialNumber(cert.getSerialNumber())).willReturn(cert);
+        when(org.getId()).thenReturn(1l);
+        try {
+            mvc.perform(post("/oidc/api/org/urn:mrn:mcl:org:dma/service/urn:mrn:mcl:service:instance:dma:nw-nm/0.3.4/certificate/1234/renew").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isOk()).andExpect(jsonPath("$.certificate").isNotEmpty()).andExpect(jsonPath("$.privateKey").doesNotExist());
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+        verify(this.certificateService, times(1)).saveCertificate(any(Certificate.class));
+    }
+
     /**
      * Helper function to serialize a service to json
      * @param service
@@ -18,6 +18,8 @@ package net.maritimecloud.identityregistry.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import net.maritimecloud.identityregistry.exception.McBasicRestException;
+import net.maritimecloud.identityregistry.model.data.OrganizationSnapshot;
+import net.maritimecloud.identityregistry.model.database.Certificate;
 import net.maritimecloud.identityregistry.model.database.IdentityProviderAttribute;
 import net.maritimecloud.identityregistry.model.database.Organization;
 import net.maritimecloud.identityregistry.model.database.entities.User;
@@ -33,6 +35,8 @@ import org.keycloak.adapters.springsecurity.token.KeycloakAuthenticationToken;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
@@ -45,13 +49,19 @@ import org.springframework.web.context.WebApplicationContext;
 import org.subethamail.wiser.Wiser;
 
 import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -61,6 +71,8 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -108,6 +120,42 @@ public class UserControllerTests {
         }
     }
 
+    /**
+     * Try to get a user of an unknown organization without access to it. The caller must not learn whether the
+     * organization exists, and it is not looked up before the caller is authorized.
+     */
+    @Test
+    public void testAccessGetUserOfUnknownOrgWithoutRights() {
+        Authentication auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:sma", "ROLE_USER_ADMIN", "");
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:unknown")).willReturn(null);
+        try {
+            mvc.perform(get("/oidc/api/org/urn:mrn:mcl:org:unknown/user/urn:mrn:mcl:user:unknown:thc").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isForbidden());
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+        verify(this.organizationService, never()).getOrganizationSnapshot("urn:mrn:mcl:org:unknown");
+    }
+
+    /**
+     * Try to get a user of an unknown organization with access to all organizations
+     */
+    @Test
+    public void testAccessGetUserOfUnknownOrgWithRights() {
+        Authentication auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:sma", "ROLE_SITE_ADMIN", "");
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:unknown")).willReturn(null);
+        try {
+            mvc.perform(get("/oidc/api/org/urn:mrn:mcl:org:unknown/user/urn:mrn:mcl:user:unknown:thc").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isNotFound());
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+    }
+
     /**
      * Try to get a user with the appropriate association
      */
@@ -134,7 +182,7 @@ public class UserControllerTests {
         // Create fake authentication token
         KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_USER", "");
         // Setup mock returns
-        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:dma")).willReturn(org);
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
         given(this.entityService.getByMrn("urn:mrn:mcl:user:dma:thc")).willReturn(user);
         when(org.getId()).thenReturn(1l);
         try {
@@ -148,6 +196,38 @@ public class UserControllerTests {
         verify(this.entityService, atLeastOnce()).getByMrn("urn:mrn:mcl:user:dma:thc");
     }
 
+    /**
+     * The list of users keeps returning the full users, the summaries are on their own path
+     */
+    @Test
+    public void testGetOrganizationUsersReturnsFullUsers() {
+        User user = new User();
+        user.setMrn("urn:mrn:mcl:user:dma:thc");
+        user.setFirstName("Thomas");
+        user.setLastName("Christensen");
+        user.setIdOrganization(1l);
+        user.setEmail("thcc@dma.dk");
+        Organization org = spy(Organization.class);
+        org.setMrn("urn:mrn:mcl:org:dma");
+        org.setName("Danish Maritime Authority");
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_USER", "");
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
+        given(this.entityService.listPageFromOrg(eq(1l), any(Pageable.class))).willReturn(new PageImpl<>(Collections.singletonList(user)));
+        when(org.getId()).thenReturn(1l);
+        try {
+            mvc.perform(get("/oidc/api/org/urn:mrn:mcl:org:dma/users").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content[0].mrn").value("urn:mrn:mcl:user:dma:thc"))
+                    .andExpect(jsonPath("$.content[0].firstName").value("Thomas"))
+                    .andExpect(jsonPath("$.content[0].email").value("thcc@dma.dk"));
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+        verify(this.entityService, never()).listPageFromOrg(any(), any(), any());
+    }
+
     /**
      * Try to get a user with the appropriate rights, but different org
      */
@@ -173,8 +253,8 @@ public class UserControllerTests {
         // Create fake authentication token, note that the user mrn is different from the org mrn, but being SITE_ADMIN should overrule that
         Authentication auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:sma", "ROLE_ORG_ADMIN,ROLE_SITE_ADMIN", "");
         // Setup mock returns
-        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:dma")).willReturn(org);
-        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:sma")).willReturn(org);
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:sma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
         given(this.entityService.getByMrn("urn:mrn:mcl:user:dma:thc")).willReturn(user);
         when(org.getId()).thenReturn(1l);
         try {
@@ -307,7 +387,7 @@ public class UserControllerTests {
         // Create fake authentication token
         KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma@dma", "ROLE_USER", "");
         // Setup mock returns
-        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:dma@dma")).willReturn(org);
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma@dma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
         given(this.entityService.getByMrn("urn:mrn:mcl:user:DMA@dma:thc")).willReturn(user);
         when(org.getId()).thenReturn(1l);
         try {
@@ -454,6 +534,150 @@ public class UserControllerTests {
         }
     }
 
+    /**
+     * Try to renew a certificate of a user
+     */
+    @Test
+    public void testRenewUserCert() {
+        Certificate cert = CertificateGenerator.generateValidCertificate(BigInteger.valueOf(1234));
+        setupRenewal(cert);
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_USER_ADMIN", "");
+        try {
+            mvc.perform(post("/oidc/api/org/urn:mrn:mcl:org:dma/user/urn:mrn:mcl:user:dma:thc/certificate/1234/renew").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isOk()).andExpect(jsonPath("$.certificate").isNotEmpty()).andExpect(jsonPath("$.privateKey").doesNotExist());
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+        verify(this.certificateService, times(1)).saveCertificate(any(Certificate.class));
+    }
+
+    /**
+     * Try to renew an expired certificate of a user
+     */
+    @Test
+    public void testRenewExpiredUserCert() {
+        Certificate cert = CertificateGenerator.generateExpiredCertificate(BigInteger.valueOf(1234));
+        setupRenewal(cert);
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_USER_ADMIN", "");
+        try {
+            mvc.perform(post("/oidc/api/org/urn:mrn:mcl:org:dma/user/urn:mrn:mcl:user:dma:thc/certificate/1234/renew").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isBadRequest()).andExpect(jsonPath("$.message").value(MCIdRegConstants.CERTIFICATE_EXPIRED));
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+        verify(this.certificateService, never()).saveCertificate(any(Certificate.class));
+    }
+
+    /**
+     * Try to renew a revoked certificate of a user
+     */
+    @Test
+    public void testRenewRevokedUserCert() {
+        Certificate cert = CertificateGenerator.generateValidCertificate(BigInteger.valueOf(1234));
+        cert.setRevoked(true);
+        setupRenewal(cert);
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_USER_ADMIN", "");
+        try {
+            mvc.perform(post("/oidc/api/org/urn:mrn:mcl:org:dma/user/urn:mrn:mcl:user:dma:thc/certificate/1234/renew").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isBadRequest()).andExpect(jsonPath("$.message").value(MCIdRegConstants.CERTIFICATE_REVOKED));
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+        verify(this.certificateService, never()).saveCertificate(any(Certificate.class));
+    }
+
+    /**
+     * Try to renew a certificate that belongs to another user
+     */
+    @Test
+    public void testRenewOtherUsersCert() {
+        Certificate cert = CertificateGenerator.generateValidCertificate(BigInteger.valueOf(1234));
+        setupRenewal(cert);
+        User otherUser = spy(User.class);
+        when(otherUser.getId()).thenReturn(2l);
+        cert.setUser(otherUser);
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_USER_ADMIN", "");
+        try {
+            mvc.perform(post("/oidc/api/org/urn:mrn:mcl:org:dma/user/urn:mrn:mcl:user:dma:thc/certificate/1234/renew").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isForbidden());
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+        verify(this.certificateService, never()).saveCertificate(any(Certificate.class));
+    }
+
+    /**
+     * Try to start an asynchronous issuance of a certificate for a user
+     */
+    @Test
+    public void testIssueUserCertAsync() {
+        setupRenewal(CertificateGenerator.generateValidCertificate(BigInteger.valueOf(1234)));
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_USER_ADMIN", "");
+        try {
+            mvc.perform(post("/oidc/api/org/urn:mrn:mcl:org:dma/user/urn:mrn:mcl:user:dma:thc/certificate/issue-new").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isAccepted())
+                    .andExpect(jsonPath("$.jobId").isNotEmpty())
+                    .andExpect(header().string("Location", startsWith("/oidc/api/org/urn:mrn:mcl:org:dma/certificate/job/")));
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+    }
+
+    /**
+     * Try to start an asynchronous issuance of a certificate for a user that belongs to another organization
+     */
+    @Test
+    public void testIssueOtherOrgUserCertAsync() {
+        Certificate cert = CertificateGenerator.generateValidCertificate(BigInteger.valueOf(1234));
+        setupRenewal(cert);
+        cert.getUser().setIdOrganization(2l);
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_USER_ADMIN", "");
+        try {
+            mvc.perform(post("/oidc/api/org/urn:mrn:mcl:org:dma/user/urn:mrn:mcl:user:dma:thc/certificate/issue-new").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isForbidden());
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+        verify(this.certificateService, never()).saveCertificate(any(Certificate.class));
+    }
+
+    /**
+     * Helper function to set up the mocks of a user in the DMA organization owning the given certificate
+     * @param cert
+     */
+    private void setupRenewal(Certificate cert) {
+        User user = spy(User.class);
+        user.setMrn("urn:mrn:mcl:user:dma:thc");
+        user.setFirstName("Thomas");
+        user.setLastName("Christensen");
+        user.setIdOrganization(1l);
+        user.setEmail("thcc@dma.dk");
+        when(user.getId()).thenReturn(1l);
+        cert.setUser(user);
+        Organization org = spy(Organization.class);
+        org.setMrn("urn:mrn:mcl:org:dma");
+        org.setCountry("Denmark");
+        org.setName("Danish Maritime Authority");
+        org.setCertificateAuthority("urn:mrn:mcl:ca:maritimecloud-idreg");
+        org.setIdentityProviderAttributes(new HashSet<>());
+        when(org.getId()).thenReturn(1l);
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma")).willAnswer(invocation -> OrganizationSnapshot.of(org));
+        given(this.entityService.getByMrn("urn:mrn:mcl:user:dma:thc")).willReturn(user);
+        given(this.certificateService.getCertificateBySerialNumber(cert.getSerialNumber())).willReturn(cert);
+    }
+
     /**
      * Helper function to serialize a user to json
      * @param user
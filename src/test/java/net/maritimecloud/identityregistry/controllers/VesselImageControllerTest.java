@@ -97,7 +97,7 @@ public class VesselImageControllerTest {
         try {
             vesselImageController.deleteVesselImage(new MockHttpServletRequest("DELETE", "/path"), org.getMrn(), vessel.getMrn());
 
-            Vessel reloaded = vesselRepo.getByMrnIgnoreCase(vessel.getMrn());
+            Vessel reloaded = vesselRepo.getByMrn(vessel.getMrn());
             assertNull("Image should be deleted", reloaded.getImage());
 
             assertNumberOfImages(0);
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.repositories;
+
+import net.maritimecloud.identityregistry.model.database.entities.Vessel;
+import net.maritimecloud.identityregistry.model.database.entities.VesselAttribute;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class BatchInsertTests {
+
+    private static final int ATTRIBUTES = 40;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private VesselRepository vesselRepository;
+
+    @Test
+    public void vesselAttributesAreInsertedInBatches() {
+        Vessel vessel = new Vessel();
+        vessel.setIdOrganization(1L);
+        vessel.setMrn("urn:mrn:mcl:vessel:dma:batch");
+        vessel.setName("Batch");
+        vessel.setAttributes(new HashSet<>());
+        for (int i = 0; i < ATTRIBUTES; i++) {
+            VesselAttribute attribute = new VesselAttribute();
+            attribute.setAttributeName("callsign");
+            attribute.setAttributeValue("CALL" + i);
+            attribute.setVessel(vessel);
+            vessel.getAttributes().add(attribute);
+        }
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        vesselRepository.save(vessel);
+        // The IDs are known before anything is inserted
+        assertNotNull(vessel.getId());
+        vessel.getAttributes().forEach(attribute -> assertNotNull(attribute.getId()));
+        entityManager.flush();
+
+        // One insert of the vessel and one batch of attributes, plus reading blocks of IDs for the two tables
+        assertTrue("Expected batched inserts, but got " + statistics.getPrepareStatementCount() + " statements",
+                statistics.getPrepareStatementCount() < 10);
+        entityManager.clear();
+        assertEquals(ATTRIBUTES, vesselRepository.getByMrn("urn:mrn:mcl:vessel:dma:batch").getAttributes().size());
+    }
+}
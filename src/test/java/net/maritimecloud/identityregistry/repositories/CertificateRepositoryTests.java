@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.repositories;
+
+import net.maritimecloud.identityregistry.model.database.Certificate;
+import net.maritimecloud.identityregistry.model.database.Organization;
+import net.maritimecloud.identityregistry.model.database.entities.Device;
+import net.maritimecloud.identityregistry.model.database.entities.Service;
+import net.maritimecloud.identityregistry.model.database.entities.User;
+import net.maritimecloud.identityregistry.model.database.entities.Vessel;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class CertificateRepositoryTests {
+
+    private static final Date OLD_REVOCATION = new Date(1000000000000L);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CertificateRepository certificateRepository;
+
+    private Organization org;
+    private Certificate orgCert;
+    private Certificate vesselCert;
+    private Certificate userCert;
+    private Certificate deviceCert;
+    private Certificate serviceCert;
+    private Certificate revokedCert;
+    private Certificate otherOrgCert;
+    private Certificate otherVesselCert;
+
+    private Organization organization(String shortName) {
+        Organization organization = new Organization();
+        organization.setName(shortName);
+        organization.setMrn("urn:mrn:mcl:org:" + shortName);
+        organization.setEmail(shortName + "@dma.dk");
+        organization.setUrl("http://dma.dk");
+        organization.setAddress("Carl Jakobsensvej 31, 2500 Valby");
+        organization.setCountry("Denmark");
+        organization.setFederationType("test-idp");
+        organization.setApproved(true);
+        organization.setCertificateAuthority("urn:mrn:mcl:ca:maritimecloud-idreg");
+        return entityManager.persist(organization);
+    }
+
+    private Vessel vessel(Organization organization, String name) {
+        Vessel vessel = new Vessel();
+        vessel.setIdOrganization(organization.getId());
+        vessel.setMrn("urn:mrn:mcl:vessel:" + organization.getName() + ":" + name);
+        vessel.setName(name);
+        return entityManager.persist(vessel);
+    }
+
+    private Certificate certificate(int serialNumber) {
+        Certificate cert = new Certificate();
+        cert.setCertificate("-----BEGIN CERTIFICATE-----");
+        cert.setStart(new Date());
+        cert.setEnd(new Date());
+        cert.setSerialNumber(BigInteger.valueOf(serialNumber));
+        cert.setCertificateAuthority("urn:mrn:mcl:ca:maritimecloud-idreg");
+        return cert;
+    }
+
+    @Before
+    public void setUp() {
+        org = organization("dma");
+        Organization other = organization("sma");
+
+        orgCert = certificate(1);
+        orgCert.setOrganization(org);
+        entityManager.persist(orgCert);
+
+        vesselCert = certificate(2);
+        vesselCert.setVessel(vessel(org, "vessel1"));
+        entityManager.persist(vesselCert);
+
+        User user = new User();
+        user.setIdOrganization(org.getId());
+        user.setMrn("urn:mrn:mcl:user:dma:user1");
+        user.setFirstName("Thomas");
+        user.setLastName("Christensen");
+        user.setEmail("user1@dma.dk");
+        userCert = certificate(3);
+        userCert.setUser(entityManager.persist(user));
+        entityManager.persist(userCert);
+
+        Device device = new Device();
+        device.setIdOrganization(org.getId());
+        device.setMrn("urn:mrn:mcl:device:dma:device1");
+        device.setName("Device");
+        deviceCert = certificate(4);
+        deviceCert.setDevice(entityManager.persist(device));
+        entityManager.persist(deviceCert);
+
+        Service service = new Service();
+        service.setIdOrganization(org.getId());
+        service.setMrn("urn:mrn:mcl:service:instance:dma:service1");
+        service.setName("Service");
+        service.setInstanceVersion("1.0");
+        serviceCert = certificate(5);
+        serviceCert.setService(entityManager.persist(service));
+        entityManager.persist(serviceCert);
+
+        revokedCert = certificate(6);
+        revokedCert.setVessel(vessel(org, "vessel2"));
+        revokedCert.setRevoked(true);
+        revokedCert.setRevokedAt(OLD_REVOCATION);
+        revokedCert.setRevokeReason("keycompromise");
+        entityManager.persist(revokedCert);
+
+        otherOrgCert = certificate(7);
+        otherOrgCert.setOrganization(other);
+        entityManager.persist(otherOrgCert);
+
+        otherVesselCert = certificate(8);
+        otherVesselCert.setVessel(vessel(other, "vessel3"));
+        entityManager.persist(otherVesselCert);
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Certificate reload(Certificate cert) {
+        return entityManager.find(Certificate.class, cert.getId());
+    }
+
+    private void assertRevokedNow(Certificate cert, Date revokedAt) {
+        Certificate reloaded = reload(cert);
+        assertTrue(reloaded.isRevoked());
+        assertEquals(revokedAt.getTime(), reloaded.getRevokedAt().getTime());
+        assertEquals("cessationofoperation", reloaded.getRevokeReason());
+    }
+
+    private void assertNotRevoked(Certificate cert) {
+        Certificate reloaded = reload(cert);
+        assertFalse(reloaded.isRevoked());
+        assertNull(reloaded.getRevokedAt());
+        assertNull(reloaded.getRevokeReason());
+    }
+
+    private void assertRevokedBefore(Certificate cert) {
+        Certificate reloaded = reload(cert);
+        assertTrue(reloaded.isRevoked());
+        assertEquals(OLD_REVOCATION.getTime(), reloaded.getRevokedAt().getTime());
+        assertEquals("keycompromise", reloaded.getRevokeReason());
+    }
+
+    @Test
+    public void revokeBySerialNumbersOnlyTouchesCertificatesOfTheOrganization() {
+        Date now = new Date();
+        int revoked = certificateRepository.revokeBySerialNumbers(org.getId(),
+                Arrays.asList(vesselCert.getSerialNumber(), userCert.getSerialNumber(), revokedCert.getSerialNumber(),
+                        otherOrgCert.getSerialNumber(), otherVesselCert.getSerialNumber()),
+                now, "cessationofoperation", now);
+        entityManager.clear();
+
+        // The already revoked certificate and the certificates of the other organization are not counted
+        assertEquals(2, revoked);
+        assertRevokedNow(vesselCert, now);
+        assertRevokedNow(userCert, now);
+        assertRevokedBefore(revokedCert);
+        assertNotRevoked(orgCert);
+        assertNotRevoked(deviceCert);
+        assertNotRevoked(serviceCert);
+        assertNotRevoked(otherOrgCert);
+        assertNotRevoked(otherVesselCert);
+    }
+
+    @Test
+    public void revokeAllInOrganizationOnlyTouchesCertificatesOfTheOrganization() {
+        Date now = new Date();
+        int revoked = certificateRepository.revokeAllInOrganization(org.getId(), now, "cessationofoperation", now);
+        entityManager.clear();
+
+        assertEquals(5, revoked);
+        for (Certificate cert : new Certificate[]{orgCert, vesselCert, userCert, deviceCert, serviceCert}) {
+            assertRevokedNow(cert, now);
+        }
+        assertRevokedBefore(revokedCert);
+        assertNotRevoked(otherOrgCert);
+        assertNotRevoked(otherVesselCert);
+    }
+
+    @Test
+    public void revokeAllOfOwnerOnlyTouchesCertificatesOfTheOwner() {
+        Date now = new Date();
+        Vessel vessel = entityManager.find(Vessel.class, vesselCert.getVessel().getId());
+        assertEquals(1, certificateRepository.revokeAllOfVessel(vessel, now, "cessationofoperation", now));
+        User user = entityManager.find(User.class, userCert.getUser().getId());
+        assertEquals(1, certificateRepository.revokeAllOfUser(user, now, "cessationofoperation", now));
+        // The already revoked certificate of the other vessel is not counted
+        Vessel revokedVessel = entityManager.find(Vessel.class, revokedCert.getVessel().getId());
+        assertEquals(0, certificateRepository.revokeAllOfVessel(revokedVessel, now, "cessationofoperation", now));
+        entityManager.clear();
+
+        assertRevokedNow(vesselCert, now);
+        assertRevokedNow(userCert, now);
+        assertRevokedBefore(revokedCert);
+        for (Certificate cert : new Certificate[]{orgCert, deviceCert, serviceCert, otherOrgCert, otherVesselCert}) {
+            assertNotRevoked(cert);
+        }
+    }
+}
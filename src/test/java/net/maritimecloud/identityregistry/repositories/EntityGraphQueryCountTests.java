@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.repositories;
+
+import net.maritimecloud.identityregistry.model.data.NonHumanEntitySummary;
+import net.maritimecloud.identityregistry.model.data.OrganizationSummary;
+import net.maritimecloud.identityregistry.model.database.Certificate;
+import net.maritimecloud.identityregistry.model.database.Logo;
+import net.maritimecloud.identityregistry.model.database.Organization;
+import net.maritimecloud.identityregistry.model.database.entities.Service;
+import net.maritimecloud.identityregistry.model.database.entities.Vessel;
+import net.maritimecloud.identityregistry.model.database.entities.VesselAttribute;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Counts the queries run by the repository methods behind the endpoints, including the loading of everything that
+ * is serialized in the reply.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class EntityGraphQueryCountTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrganizationRepository organizationRepository;
+
+    @Autowired
+    private VesselRepository vesselRepository;
+
+    @Autowired
+    private ServiceRepository serviceRepository;
+
+    private Statistics statistics;
+    private Long idOrganization;
+
+    @Before
+    public void setUp() {
+        Organization org = new Organization();
+        org.setName("DMA");
+        org.setMrn("urn:mrn:mcl:org:dma");
+        org.setEmail("dma@dma.dk");
+        org.setUrl("http://dma.dk");
+        org.setAddress("Carl Jakobsensvej 31, 2500 Valby");
+        org.setCountry("Denmark");
+        org.setFederationType("test-idp");
+        org.setApproved(true);
+        org.setCertificateAuthority("urn:mrn:mcl:ca:maritimecloud-idreg");
+        Logo logo = new Logo();
+        logo.setImage(new byte[1024]);
+        logo.setOrganization(org);
+        org.setLogo(logo);
+        entityManager.persist(org);
+        idOrganization = org.getId();
+        Certificate orgCert = certificate(1);
+        orgCert.setOrganization(org);
+        entityManager.persist(orgCert);
+
+        for (int i = 1; i <= 3; i++) {
+            Vessel vessel = new Vessel();
+            vessel.setIdOrganization(idOrganization);
+            vessel.setMrn("urn:mrn:mcl:vessel:dma:vessel" + i);
+            vessel.setName("Vessel " + i);
+            vessel.setAttributes(new HashSet<>());
+            VesselAttribute attribute = new VesselAttribute();
+            attribute.setAttributeName("imo-number");
+            attribute.setAttributeValue("123456" + i);
+            attribute.setVessel(vessel);
+            vessel.getAttributes().add(attribute);
+            entityManager.persist(vessel);
+            Certificate cert = certificate(10 + i);
+            cert.setVessel(vessel);
+            entityManager.persist(cert);
+
+            Service service = new Service();
+            service.setIdOrganization(idOrganization);
+            service.setMrn("urn:mrn:mcl:service:instance:dma:service" + i);
+            service.setName("Service " + i);
+            service.setInstanceVersion("1.0");
+            service.setVessel(vessel);
+            entityManager.persist(service);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    private static Certificate certificate(int serialNumber) {
+        Certificate cert = new Certificate();
+        cert.setCertificate("-----BEGIN CERTIFICATE-----");
+        cert.setStart(new Date());
+        cert.setEnd(new Date());
+        cert.setSerialNumber(BigInteger.valueOf(serialNumber));
+        cert.setCertificateAuthority("urn:mrn:mcl:ca:maritimecloud-idreg");
+        return cert;
+    }
+
+    @Test
+    public void getOrganizationIsOneQuery() {
+        Organization org = organizationRepository.findByMrn("urn:mrn:mcl:org:dma");
+        assertTrue(Hibernate.isInitialized(org.getCertificates()));
+        assertEquals(1, org.getCertificates().size());
+        // The attributes are not joined with the certificates and the logo is only loaded when asked for
+        assertFalse(Hibernate.isInitialized(org.getIdentityProviderAttributes()));
+        assertFalse(Hibernate.isInitialized(org.getLogo()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        assertEquals(0, org.getIdentityProviderAttributes().size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void getOrganizationSnapshotJoinsNothing() {
+        Organization org = organizationRepository.findByMrnAndApprovedTrue("urn:mrn:mcl:org:dma");
+        assertFalse(Hibernate.isInitialized(org.getCertificates()));
+        assertFalse(Hibernate.isInitialized(org.getIdentityProviderAttributes()));
+        assertFalse(Hibernate.isInitialized(org.getLogo()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void getVesselIsOneQuery() {
+        Vessel vessel = vesselRepository.getByMrn("urn:mrn:mcl:vessel:dma:vessel1");
+        assertEquals(1, vessel.getAttributes().size());
+        assertEquals(1, vessel.getCertificates().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void listVesselsDoesNotLoadPerVessel() {
+        Page<Vessel> vessels = vesselRepository.findByidOrganization(idOrganization, PageRequest.of(0, 10));
+        assertEquals(3, vessels.getNumberOfElements());
+        for (Vessel vessel : vessels) {
+            assertEquals(1, vessel.getAttributes().size());
+            assertEquals(1, vessel.getCertificates().size());
+        }
+        // The page, and one batch for each of the collections
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void listVesselSummariesLoadsNoEntities() {
+        Page<NonHumanEntitySummary> vessels = vesselRepository.findByidOrganization(idOrganization, PageRequest.of(0, 10), NonHumanEntitySummary.class);
+        assertEquals(3, vessels.getNumberOfElements());
+        assertEquals("urn:mrn:mcl:vessel:dma:vessel1", vessels.getContent().get(0).getMrn());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void listOrganizationSummariesLoadsNoEntities() {
+        Page<OrganizationSummary> orgs = organizationRepository.findByApprovedTrue(PageRequest.of(0, 10), OrganizationSummary.class);
+        assertEquals("DMA", orgs.getContent().get(0).getName());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void getServiceIsOneQuery() {
+        Service service = serviceRepository.getByMrnAndInstanceVersion("urn:mrn:mcl:service:instance:dma:service1", "1.0");
+        assertEquals(0, service.getCertificates().size());
+        assertEquals(1, service.getVessel().getAttributes().size());
+        assertEquals(1, service.getVessel().getCertificates().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
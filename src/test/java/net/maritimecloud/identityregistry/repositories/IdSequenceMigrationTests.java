@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.repositories;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.StreamUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Table;
+import javax.persistence.metamodel.EntityType;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the migrations that moved the IDs to id_sequences: V10 must seed every entity table after the highest ID in
+ * use, and V12 must remove AUTO_INCREMENT from every entity table. The seeds are run on an in-memory database in
+ * MySQL mode, as the tests do not run the migrations.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class IdSequenceMigrationTests {
+
+    private static final String POOLED_IDS = "db/migration/V10__pooled_ids.sql";
+    private static final String DROP_AUTO_INCREMENT = "db/migration/V12__drop_auto_increment.sql";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Connection connection;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:id_sequence_migration;MODE=MySQL");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    private Set<String> entityTables() {
+        Set<String> tables = new TreeSet<>();
+        for (EntityType<?> entity : entityManager.getMetamodel().getEntities()) {
+            Table table = entity.getJavaType().getAnnotation(Table.class);
+            if (table != null) {
+                tables.add(table.name());
+            }
+        }
+        return tables;
+    }
+
+    private static String read(String migration) throws IOException {
+        return StreamUtils.copyToString(new ClassPathResource(migration).getInputStream(), StandardCharsets.UTF_8);
+    }
+
+    private static Set<String> find(String sql, String regex) {
+        Set<String> tables = new TreeSet<>();
+        Matcher matcher = Pattern.compile(regex).matcher(sql);
+        while (matcher.find()) {
+            tables.add(matcher.group(1));
+        }
+        return tables;
+    }
+
+    @Test
+    public void everyEntityTableIsMigrated() throws IOException {
+        Set<String> tables = entityTables();
+        assertEquals(11, tables.size());
+        assertEquals(tables, find(read(POOLED_IDS), "SELECT '(\\w+)'"));
+        assertEquals(tables, find(read(DROP_AUTO_INCREMENT), "ALTER TABLE `(\\w+)` MODIFY `id`"));
+    }
+
+    @Test
+    public void sequencesStartAfterHighestId() throws IOException, SQLException {
+        Set<String> tables = entityTables();
+        try (Statement statement = connection.createStatement()) {
+            // Existing rows with gaps in their IDs, and an empty table
+            int rows = 0;
+            for (String table : tables) {
+                statement.execute("CREATE TABLE `" + table + "` (`id` INT NOT NULL PRIMARY KEY)");
+                for (int i = 0; i < rows; i++) {
+                    statement.execute("INSERT INTO `" + table + "` (`id`) VALUES (" + (i * 7 + 3) + ")");
+                }
+                rows++;
+            }
+            for (String sql : read(POOLED_IDS).replaceAll("(?m)^--.*$", "").split(";")) {
+                if (!sql.trim().isEmpty()) {
+                    statement.execute(sql);
+                }
+            }
+
+            for (String table : tables) {
+                long maxId;
+                try (ResultSet result = statement.executeQuery("SELECT COALESCE(MAX(`id`), 0) FROM `" + table + "`")) {
+                    result.next();
+                    maxId = result.getLong(1);
+                }
+                try (ResultSet result = statement.executeQuery(
+                        "SELECT `next_val` FROM `id_sequences` WHERE `sequence_name` = '" + table + "'")) {
+                    assertTrue(table + " has no sequence", result.next());
+                    long nextVal = result.getLong(1);
+                    assertTrue(table + " starts at " + nextVal + " but has ID " + maxId, nextVal > maxId);
+                }
+            }
+        }
+    }
+}
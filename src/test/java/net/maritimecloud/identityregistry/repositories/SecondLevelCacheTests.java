@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.repositories;
+
+import net.maritimecloud.identityregistry.model.database.Role;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the reference data is served from the second-level cache. The test is not transactional, as the caches
+ * are only used for data that is committed.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SecondLevelCacheTests {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    private Statistics statistics;
+    private Role role;
+
+    @Before
+    public void setUp() {
+        role = new Role();
+        role.setIdOrganization(1L);
+        role.setPermission("MCADMIN");
+        role.setRoleName("ROLE_ORG_ADMIN");
+        role = roleRepository.save(role);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @After
+    public void tearDown() {
+        roleRepository.deleteAll();
+    }
+
+    @Test
+    public void roleIsReadFromCache() {
+        roleRepository.findById(role.getId());
+        roleRepository.findById(role.getId());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getSecondLevelCacheStatistics("role").getHitCount());
+    }
+
+    @Test
+    public void rolesOfPermissionAreReadFromQueryCache() {
+        roleRepository.findByIdOrganizationAndPermission(1L, "MCADMIN");
+        List<Role> roles = roleRepository.findByIdOrganizationAndPermission(1L, "MCADMIN");
+        assertEquals(1, roles.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    public void changedRoleIsNotReadFromQueryCache() {
+        roleRepository.findByIdOrganizationAndPermission(1L, "MCADMIN");
+        role.setRoleName("ROLE_USER_ADMIN");
+        roleRepository.save(role);
+        List<Role> roles = roleRepository.findByIdOrganizationAndPermission(1L, "MCADMIN");
+        assertEquals("ROLE_USER_ADMIN", roles.get(0).getRoleName());
+    }
+}
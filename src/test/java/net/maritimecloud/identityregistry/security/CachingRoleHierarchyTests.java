@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.security;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class CachingRoleHierarchyTests {
+
+    private RoleHierarchyImpl roleHierarchy;
+    private CachingRoleHierarchy cachingRoleHierarchy;
+
+    @Before
+    public void setUp() {
+        roleHierarchy = spy(new RoleHierarchyImpl());
+        roleHierarchy.setHierarchy("ROLE_SITE_ADMIN > ROLE_ORG_ADMIN\n" +
+                                    "ROLE_ORG_ADMIN > ROLE_ENTITY_ADMIN\n" +
+                                    "ROLE_ENTITY_ADMIN > ROLE_USER");
+        cachingRoleHierarchy = new CachingRoleHierarchy(roleHierarchy);
+    }
+
+    @Test
+    public void expressionsAndRoleChecksShareTheCache() {
+        // The reachable authorities used by the security expressions
+        Collection<? extends GrantedAuthority> reachable = cachingRoleHierarchy.getReachableGrantedAuthorities(
+                AuthorityUtils.createAuthorityList("ROLE_ORG_ADMIN", "ROLE_USER"));
+        assertEquals(3, reachable.size());
+        // The reachable roles used by authentication and AccessControlUtil, for the same roles in another order
+        ReachableRoles roles = ReachableRoles.of(cachingRoleHierarchy, AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ORG_ADMIN"));
+        assertTrue(roles.contains("ENTITY_ADMIN"));
+        assertFalse(roles.contains("SITE_ADMIN"));
+        verify(roleHierarchy, times(1)).getReachableGrantedAuthorities(any());
+
+        cachingRoleHierarchy.getReachableRoles(AuthorityUtils.createAuthorityList("ROLE_SITE_ADMIN"));
+        verify(roleHierarchy, times(2)).getReachableGrantedAuthorities(any());
+    }
+}
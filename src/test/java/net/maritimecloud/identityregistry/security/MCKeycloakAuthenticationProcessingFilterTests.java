@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.security;
+
+import net.maritimecloud.identityregistry.services.OrganizationChangedEvent;
+import net.maritimecloud.identityregistry.services.RolesChangedEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.keycloak.KeycloakPrincipal;
+import org.keycloak.KeycloakSecurityContext;
+import org.keycloak.adapters.RefreshableKeycloakSecurityContext;
+import org.keycloak.adapters.springsecurity.account.SimpleKeycloakAccount;
+import org.keycloak.adapters.springsecurity.token.KeycloakAuthenticationToken;
+import org.keycloak.representations.AccessToken;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class MCKeycloakAuthenticationProcessingFilterTests {
+
+    // Whole seconds, as the expiration of a token is given in seconds
+    private static final long NOW = 1500000000000L;
+
+    private MCKeycloakAuthenticationProcessingFilter filter;
+
+    // The expiration in seconds of the tokens the adapter verifies, and how many times it has been called per token
+    private final Map<String, Integer> expirations = new HashMap<>();
+    private final Map<String, Integer> verifications = new HashMap<>();
+    // The organization of the tokens that have one
+    private final Map<String, String> organizations = new HashMap<>();
+
+    @Before
+    public void setUp() {
+        filter = new MCKeycloakAuthenticationProcessingFilter(mock(AuthenticationManager.class)) {
+            @Override
+            protected Authentication authenticate(HttpServletRequest request, HttpServletResponse response) {
+                String token = request.getHeader("Authorization").substring("Bearer ".length());
+                verifications.merge(token, 1, Integer::sum);
+                return authentication(token, expirations.get(token), organizations.get(token));
+            }
+        };
+        ReflectionTestUtils.setField(filter, "cacheMaxTtl", 300L);
+        ReflectionTestUtils.setField(filter, "cacheSize", 10);
+        setTime(NOW);
+    }
+
+    private void setTime(long millis) {
+        filter.setClock(Clock.fixed(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+    }
+
+    private static Authentication authentication(String token, int expiration, String orgMrn) {
+        AccessToken accessToken = new AccessToken();
+        accessToken.expiration(expiration);
+        if (orgMrn != null) {
+            accessToken.setOtherClaims("org", orgMrn);
+        }
+        RefreshableKeycloakSecurityContext ksc = new RefreshableKeycloakSecurityContext(null, null, token, accessToken, null, null, null);
+        KeycloakPrincipal<RefreshableKeycloakSecurityContext> principal = new KeycloakPrincipal<>("name", ksc);
+        SimpleKeycloakAccount account = new SimpleKeycloakAccount(principal, Collections.singleton("ROLE_USER"), ksc);
+        return new KeycloakAuthenticationToken(account, AuthorityUtils.createAuthorityList("ROLE_USER"));
+    }
+
+    private Authentication attempt(String token) throws Exception {
+        return attempt(token, new MockHttpServletRequest());
+    }
+
+    private Authentication attempt(String token, MockHttpServletRequest request) throws Exception {
+        request.addHeader("Authorization", "Bearer " + token);
+        return filter.attemptAuthentication(request, new MockHttpServletResponse());
+    }
+
+    private void givenToken(String token, long expiresInSeconds) {
+        expirations.put(token, (int) (NOW / 1000 + expiresInSeconds));
+    }
+
+    @Test
+    public void cachedAuthenticationIsReused() throws Exception {
+        givenToken("token1", 60);
+        Authentication first = attempt("token1");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        Authentication second = attempt("token1", request);
+
+        assertSame(first, second);
+        assertEquals(1, (int) verifications.get("token1"));
+        // The security context is exposed to the rest of the request like when the adapter verifies the token
+        assertSame(first.getCredentials(), request.getAttribute(KeycloakSecurityContext.class.getName()));
+    }
+
+    @Test
+    public void cachedAuthenticationExpiresWithToken() throws Exception {
+        givenToken("token1", 60);
+        Authentication first = attempt("token1");
+
+        // The last millisecond before the token expires
+        setTime(NOW + 60 * 1000 - 1);
+        assertSame(first, attempt("token1"));
+        // Never served once the token has expired
+        setTime(NOW + 60 * 1000);
+        assertNotSame(first, attempt("token1"));
+        assertEquals(2, (int) verifications.get("token1"));
+    }
+
+    @Test
+    public void cachedAuthenticationIsVerifiedAgainAfterMaxTtl() throws Exception {
+        givenToken("token1", 3600);
+        Authentication first = attempt("token1");
+
+        setTime(NOW + 300 * 1000 - 1);
+        assertSame(first, attempt("token1"));
+        setTime(NOW + 300 * 1000);
+        assertNotSame(first, attempt("token1"));
+        assertEquals(2, (int) verifications.get("token1"));
+    }
+
+    @Test
+    public void expiredTokenIsNotCached() throws Exception {
+        givenToken("token1", 0);
+        attempt("token1");
+        attempt("token1");
+        assertEquals(2, (int) verifications.get("token1"));
+    }
+
+    @Test
+    public void oldestAuthenticationIsEvictedWhenFull() throws Exception {
+        ReflectionTestUtils.setField(filter, "cacheSize", 2);
+        givenToken("token1", 60);
+        givenToken("token2", 60);
+        givenToken("token3", 60);
+        attempt("token1");
+        attempt("token2");
+        attempt("token3");
+
+        attempt("token2");
+        attempt("token3");
+        assertEquals(1, (int) verifications.get("token2"));
+        assertEquals(1, (int) verifications.get("token3"));
+        attempt("token1");
+        assertEquals(2, (int) verifications.get("token1"));
+    }
+
+    @Test
+    public void cacheIsClearedWhenRolesChange() throws Exception {
+        givenToken("token1", 60);
+        attempt("token1");
+        filter.onRolesChanged(new RolesChangedEvent(1L));
+        attempt("token1");
+        assertEquals(2, (int) verifications.get("token1"));
+    }
+
+    @Test
+    public void tokensOfChangedOrganizationAreEvicted() throws Exception {
+        givenToken("token1", 60);
+        givenToken("token2", 60);
+        givenToken("token3", 60);
+        organizations.put("token1", "urn:mrn:mcl:org:dma");
+        organizations.put("token2", "urn:mrn:mcl:org:sma");
+        attempt("token1");
+        attempt("token2");
+        attempt("token3");
+
+        filter.onOrganizationChanged(new OrganizationChangedEvent(1L, "urn:mrn:mcl:org:DMA", false));
+        attempt("token1");
+        attempt("token2");
+        attempt("token3");
+        assertEquals(2, (int) verifications.get("token1"));
+        assertEquals(1, (int) verifications.get("token2"));
+        assertEquals(1, (int) verifications.get("token3"));
+    }
+
+    @Test
+    public void cacheIsClearedWhenOrganizationIsDeleted() throws Exception {
+        givenToken("token1", 60);
+        givenToken("token2", 60);
+        organizations.put("token1", "urn:mrn:mcl:org:dma");
+        attempt("token1");
+        attempt("token2");
+
+        filter.onOrganizationChanged(new OrganizationChangedEvent(1L, null, true));
+        attempt("token1");
+        attempt("token2");
+        assertEquals(2, (int) verifications.get("token1"));
+        assertEquals(2, (int) verifications.get("token2"));
+    }
+
+    @Test
+    public void requestWithoutBearerTokenIsNotCached() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Basic dXNlcjpwYXNz");
+        expirations.put("dXNlcjpwYXNz", (int) (NOW / 1000 + 60));
+        filter.attemptAuthentication(request, new MockHttpServletResponse());
+        filter.attemptAuthentication(request, new MockHttpServletResponse());
+        assertEquals(2, (int) verifications.get("dXNlcjpwYXNz"));
+        assertNull(request.getAttribute(KeycloakSecurityContext.class.getName()));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.security;
+
+import net.maritimecloud.identityregistry.controllers.TokenGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.security.access.expression.ExpressionUtils;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.parameters.DefaultSecurityParameterNameDiscoverer;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class MCMethodSecurityExpressionHandlerTests {
+
+    private MCMethodSecurityExpressionHandler expressionHandler;
+    private Method method;
+
+    // Stands in for a handler method of a controller
+    public void getUser(String orgMrn, String userMrn) {
+    }
+
+    @Before
+    public void setUp() throws NoSuchMethodException {
+        RoleHierarchyImpl roleHierarchy = new RoleHierarchyImpl();
+        roleHierarchy.setHierarchy("ROLE_SITE_ADMIN > ROLE_ORG_ADMIN\n" +
+                                    "ROLE_ORG_ADMIN > ROLE_USER");
+        expressionHandler = new MCMethodSecurityExpressionHandler();
+        expressionHandler.setRoleHierarchy(new CachingRoleHierarchy(roleHierarchy));
+        method = getClass().getMethod("getUser", String.class, String.class);
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private boolean evaluate(Expression expression, Authentication auth, String orgMrn) {
+        EvaluationContext context = expressionHandler.createEvaluationContext(auth,
+                new SimpleMethodInvocation(this, method, orgMrn, "urn:mrn:mcl:user:dma:thc"));
+        return ExpressionUtils.evaluateAsBoolean(expression, context);
+    }
+
+    @Test
+    public void expressionsAreCompiled() {
+        Authentication auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_ORG_ADMIN", "");
+        SecurityContextHolder.getContext().setAuthentication(auth);
+        Expression expression = expressionHandler.getExpressionParser().parseExpression("hasRole('USER') and hasAccessToOrg(#orgMrn)");
+        assertTrue(evaluate(expression, auth, "urn:mrn:mcl:org:dma"));
+        assertFalse(evaluate(expression, auth, "urn:mrn:mcl:org:sma"));
+
+        // Compiled now instead of after the interpreted calls, as there is no bean reference that prevents it
+        assertTrue(((SpelExpression) expression).compileExpression());
+        assertTrue(evaluate(expression, auth, "urn:mrn:mcl:org:dma"));
+        assertFalse(evaluate(expression, auth, "urn:mrn:mcl:org:sma"));
+    }
+
+    @Test
+    public void siteAdminHasAccessToEveryOrg() {
+        Authentication auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:sma", "ROLE_SITE_ADMIN", "");
+        SecurityContextHolder.getContext().setAuthentication(auth);
+        Expression expression = expressionHandler.getExpressionParser().parseExpression("hasRole('ORG_ADMIN') and hasAccessToOrg(#orgMrn)");
+        assertTrue(evaluate(expression, auth, "urn:mrn:mcl:org:dma"));
+    }
+
+    @Test
+    public void parameterNamesAreDiscoveredOnce() {
+        ParameterNameDiscoverer discoverer = spy(new DefaultSecurityParameterNameDiscoverer());
+        ParameterNameDiscoverer cachingDiscoverer = new MCMethodSecurityExpressionHandler.CachingParameterNameDiscoverer(discoverer);
+        assertArrayEquals(new String[] {"orgMrn", "userMrn"}, cachingDiscoverer.getParameterNames(method));
+        assertArrayEquals(new String[] {"orgMrn", "userMrn"}, cachingDiscoverer.getParameterNames(method));
+        verify(discoverer, times(1)).getParameterNames(method);
+    }
+}
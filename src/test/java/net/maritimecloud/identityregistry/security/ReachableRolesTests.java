@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.security;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReachableRolesTests {
+
+    private static final String HIERARCHY = "ROLE_SITE_ADMIN > ROLE_APPROVE_ORG\n" +
+                                            "ROLE_SITE_ADMIN > ROLE_ORG_ADMIN\n" +
+                                            "ROLE_ORG_ADMIN > ROLE_ENTITY_ADMIN\n" +
+                                            "ROLE_ENTITY_ADMIN > ROLE_USER_ADMIN\n" +
+                                            "ROLE_ENTITY_ADMIN > ROLE_VESSEL_ADMIN\n" +
+                                            "ROLE_ENTITY_ADMIN > ROLE_SERVICE_ADMIN\n" +
+                                            "ROLE_ENTITY_ADMIN > ROLE_DEVICE_ADMIN\n" +
+                                            "ROLE_USER_ADMIN > ROLE_USER\n" +
+                                            "ROLE_VESSEL_ADMIN > ROLE_USER\n" +
+                                            "ROLE_SERVICE_ADMIN > ROLE_USER\n" +
+                                            "ROLE_DEVICE_ADMIN > ROLE_USER";
+
+    private CachingRoleHierarchy roleHierarchy;
+
+    @Before
+    public void setUp() {
+        roleHierarchy = new CachingRoleHierarchy(HIERARCHY);
+    }
+
+    @Test
+    public void rolesBelowInHierarchyAreReachable() {
+        ReachableRoles roles = ReachableRoles.of(roleHierarchy, AuthorityUtils.createAuthorityList("ROLE_ENTITY_ADMIN"));
+        for (String role : new String[]{"ENTITY_ADMIN", "USER_ADMIN", "VESSEL_ADMIN", "SERVICE_ADMIN", "DEVICE_ADMIN", "USER"}) {
+            assertTrue(role, roles.contains(role));
+            assertTrue(role, roles.contains("ROLE_" + role));
+        }
+        for (String role : new String[]{"SITE_ADMIN", "ORG_ADMIN", "APPROVE_ORG"}) {
+            assertFalse(role, roles.contains(role));
+            assertFalse(role, roles.contains("ROLE_" + role));
+        }
+    }
+
+    @Test
+    public void siteAdminReachesAllRoles() {
+        ReachableRoles roles = ReachableRoles.of(roleHierarchy, AuthorityUtils.createAuthorityList("ROLE_SITE_ADMIN"));
+        for (String role : new String[]{"SITE_ADMIN", "ORG_ADMIN", "ENTITY_ADMIN", "USER_ADMIN", "VESSEL_ADMIN",
+                "SERVICE_ADMIN", "DEVICE_ADMIN", "APPROVE_ORG", "USER"}) {
+            assertTrue(role, roles.contains(role));
+        }
+    }
+
+    @Test
+    public void authoritiesOutsideHierarchyAreKeptByName() {
+        ReachableRoles roles = ReachableRoles.of(roleHierarchy, AuthorityUtils.createAuthorityList("ROLE_ROUTEPLANNER", "SCOPE_read"));
+        assertTrue(roles.contains("ROUTEPLANNER"));
+        assertTrue(roles.contains("ROLE_ROUTEPLANNER"));
+        assertTrue(roles.contains("SCOPE_read"));
+        assertFalse(roles.contains("read"));
+        assertFalse(roles.contains("USER"));
+        // Only authorities with the role prefix are roles of the hierarchy
+        ReachableRoles unprefixed = ReachableRoles.of(roleHierarchy, AuthorityUtils.createAuthorityList("USER"));
+        assertFalse(unprefixed.contains("USER"));
+        assertFalse(unprefixed.contains("ROLE_USER"));
+    }
+
+    @Test
+    public void rolesAreTakenFromTheHierarchy() {
+        CachingRoleHierarchy otherHierarchy = new CachingRoleHierarchy("ROLE_CAPTAIN > ROLE_OFFICER\n ROLE_OFFICER>ROLE_CREW");
+        ReachableRoles roles = ReachableRoles.of(otherHierarchy, AuthorityUtils.createAuthorityList("ROLE_OFFICER"));
+        assertTrue(roles.contains("OFFICER"));
+        assertTrue(roles.contains("ROLE_CREW"));
+        assertFalse(roles.contains("CAPTAIN"));
+        assertFalse(roles.contains("USER"));
+    }
+
+    @Test
+    public void hierarchyWithoutTextKeepsRolesByName() {
+        RoleHierarchyImpl plainHierarchy = new RoleHierarchyImpl();
+        plainHierarchy.setHierarchy(HIERARCHY);
+        ReachableRoles roles = ReachableRoles.of(plainHierarchy, AuthorityUtils.createAuthorityList("ROLE_ENTITY_ADMIN"));
+        assertTrue(roles.contains("USER"));
+        assertTrue(roles.contains("ROLE_VESSEL_ADMIN"));
+        assertFalse(roles.contains("ORG_ADMIN"));
+    }
+}
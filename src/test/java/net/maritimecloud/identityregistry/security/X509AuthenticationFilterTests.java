@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.security;
+
+import net.maritimecloud.identityregistry.model.database.Certificate;
+import net.maritimecloud.identityregistry.security.x509.MCPreAuthenticatedAuthenticationProvider;
+import net.maritimecloud.identityregistry.security.x509.X509HeaderUserDetailsService;
+import net.maritimecloud.identityregistry.services.CertificateService;
+import net.maritimecloud.identityregistry.services.CertificatesRevokedEvent;
+import net.maritimecloud.identityregistry.services.OrganizationService;
+import net.maritimecloud.identityregistry.services.RoleService;
+import net.maritimecloud.pki.CertificateHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.ldap.userdetails.InetOrgPerson;
+import org.springframework.security.web.authentication.preauth.x509.X509AuthenticationFilter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class X509AuthenticationFilterTests {
+
+    private CertificateService certificateService;
+    private X509HeaderUserDetailsService userDetailsService;
+    private X509AuthenticationFilter filter;
+    private X509Certificate clientCertificate;
+
+    @Before
+    public void setUp() throws Exception {
+        certificateService = mock(CertificateService.class);
+        userDetailsService = new X509HeaderUserDetailsService();
+        ReflectionTestUtils.setField(userDetailsService, "certificateService", certificateService);
+        ReflectionTestUtils.setField(userDetailsService, "organizationService", mock(OrganizationService.class));
+        ReflectionTestUtils.setField(userDetailsService, "roleService", mock(RoleService.class));
+        MCPreAuthenticatedAuthenticationProvider provider = new MCPreAuthenticatedAuthenticationProvider();
+        provider.setPreAuthenticatedUserDetailsService(userDetailsService);
+        provider.setRoleHierarchy(new RoleHierarchyImpl());
+        filter = MultiSecurityConfig.X509WebSecurityConfigurationAdapter.x509AuthenticationFilter(
+                new ProviderManager(Collections.singletonList(provider)));
+
+        String contents = Files.lines(Paths.get("src/test/resources/Certificate_Myboat.pem")).collect(Collectors.joining("\n"));
+        clientCertificate = CertificateHandler.getCertFromNginxHeader(contents);
+        given(certificateService.getCertificateBySerialNumber(clientCertificate.getSerialNumber())).willReturn(certificate(false));
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static Certificate certificate(boolean revoked) {
+        Certificate cert = new Certificate();
+        cert.setRevoked(revoked);
+        return cert;
+    }
+
+    // Sends a request in the given TLS session and returns the resulting authentication
+    private Authentication authenticate(String tlsSessionId) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("javax.servlet.request.X509Certificate", new X509Certificate[]{clientCertificate});
+        request.setAttribute(X509HeaderUserDetailsService.TLS_SESSION_ID_ATTRIBUTE, tlsSessionId);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Test
+    public void certificateFromTlsSessionIsAuthenticated() throws Exception {
+        Authentication authentication = authenticate("session1");
+        assertNotNull(authentication);
+        InetOrgPerson person = (InetOrgPerson) authentication.getPrincipal();
+        assertEquals("urn:mrn:mcl:vessel:dma:myboat", person.getUsername());
+        assertEquals("urn:mrn:mcl:org:dma", person.getO());
+        assertEquals("session1", authentication.getDetails());
+        assertEquals("ROLE_USER", authentication.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    public void revokedCertificateIsRejected() throws Exception {
+        given(certificateService.getCertificateBySerialNumber(clientCertificate.getSerialNumber())).willReturn(certificate(true));
+        assertNull(authenticate("session1"));
+    }
+
+    @Test
+    public void unknownCertificateIsRejected() throws Exception {
+        given(certificateService.getCertificateBySerialNumber(clientCertificate.getSerialNumber())).willReturn(null);
+        assertNull(authenticate("session1"));
+    }
+
+    @Test
+    public void userDetailsAreReusedWithinTlsSession() throws Exception {
+        Authentication first = authenticate("session1");
+        Authentication second = authenticate("session1");
+        assertEquals(first.getPrincipal(), second.getPrincipal());
+        verify(certificateService, times(1)).getCertificateBySerialNumber(clientCertificate.getSerialNumber());
+
+        // A new TLS session checks the certificate again
+        authenticate("session2");
+        verify(certificateService, times(2)).getCertificateBySerialNumber(clientCertificate.getSerialNumber());
+    }
+
+    @Test
+    public void revocationEndsReuseWithinTlsSession() throws Exception {
+        assertNotNull(authenticate("session1"));
+        given(certificateService.getCertificateBySerialNumber(clientCertificate.getSerialNumber())).willReturn(certificate(true));
+        userDetailsService.onCertificatesRevoked(new CertificatesRevokedEvent(1L, 1));
+        assertNull(authenticate("session1"));
+    }
+
+    @Test
+    public void userDetailsWithoutTlsSessionAreReusedByCertificate() throws Exception {
+        assertNotNull(authenticate(null));
+        assertNotNull(authenticate(null));
+        // Without a session id the user details are cached by the certificate
+        verify(certificateService, times(1)).getCertificateBySerialNumber(clientCertificate.getSerialNumber());
+    }
+}
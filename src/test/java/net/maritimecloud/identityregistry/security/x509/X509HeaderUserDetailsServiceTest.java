@@ -15,10 +15,11 @@
  */
 package net.maritimecloud.identityregistry.security.x509;
 
+import net.maritimecloud.identityregistry.model.data.OrganizationSnapshot;
 import net.maritimecloud.identityregistry.model.database.Organization;
-import net.maritimecloud.identityregistry.model.database.Role;
 import net.maritimecloud.identityregistry.services.OrganizationService;
 import net.maritimecloud.identityregistry.services.RoleService;
+import net.maritimecloud.identityregistry.services.RolesChangedEvent;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -35,6 +36,8 @@ import java.util.Arrays;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
@@ -81,6 +84,18 @@ public class X509HeaderUserDetailsServiceTest {
         assertEquals("ROLE_USER", person.getAuthorities().iterator().next().getAuthority());
     }
 
+    @Test
+    public void loadUserByUsernameIsCachedUntilRolesChange() throws Exception {
+        String contents = Files.lines(Paths.get("src/test/resources/Certificate_Myboat.pem")).collect(Collectors.joining("\n"));
+        InetOrgPerson first = (InetOrgPerson) x509HeaderUserDetailsService.loadUserByUsername(contents);
+        InetOrgPerson second = (InetOrgPerson) x509HeaderUserDetailsService.loadUserByUsername(contents);
+        assertSame(first, second);
+        x509HeaderUserDetailsService.onRolesChanged(new RolesChangedEvent(1L));
+        InetOrgPerson third = (InetOrgPerson) x509HeaderUserDetailsService.loadUserByUsername(contents);
+        assertNotSame(first, third);
+        assertEquals(first.getUsername(), third.getUsername());
+    }
+
     //@Test
     public void loadUserByUsernameVessel2() throws Exception {
         // Load certificate from file
@@ -93,12 +108,9 @@ public class X509HeaderUserDetailsServiceTest {
             fail("Loading Certificate from file failed!");
         }
         // Setup mocked role
-        Role role = new Role();
-        role.setPermission("routeplanner");
-        role.setRoleName("ROLE_ROUTEPLANNER");
-        given(this.roleService.getRolesByIdOrganizationAndPermission(any(Long.class), eq("routeplanner"))).willReturn(Arrays.asList(role));
+        given(this.roleService.getRoleNamesByIdOrganizationAndPermissions(any(Long.class), eq(Arrays.asList("routeplanner")))).willReturn(Arrays.asList("ROLE_ROUTEPLANNER"));
         // Setup mocked org
-        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:dma")).willReturn(new Organization());
+        given(this.organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma")).willReturn(OrganizationSnapshot.of(new Organization()));
         // Try to get user from certificate
         InetOrgPerson person = (InetOrgPerson) x509HeaderUserDetailsService.loadUserByUsername(contents);
         // Validate the user object
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.services;
+
+import net.maritimecloud.identityregistry.model.database.Certificate;
+import net.maritimecloud.identityregistry.model.database.Organization;
+import net.maritimecloud.identityregistry.model.database.Role;
+import net.maritimecloud.identityregistry.model.database.VesselImage;
+import net.maritimecloud.identityregistry.model.database.entities.Service;
+import net.maritimecloud.identityregistry.model.database.entities.User;
+import net.maritimecloud.identityregistry.model.database.entities.Vessel;
+import net.maritimecloud.identityregistry.model.database.entities.VesselAttribute;
+import net.maritimecloud.identityregistry.utils.AccessControlUtil;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import(OrganizationServiceImpl.class)
+public class OrganizationDeletionTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrganizationService organizationService;
+
+    @MockBean
+    private AccessControlUtil accessControlUtil;
+
+    private Organization organization(String shortName) {
+        Organization org = new Organization();
+        org.setName(shortName);
+        org.setMrn("urn:mrn:mcl:org:" + shortName);
+        org.setEmail(shortName + "@dma.dk");
+        org.setUrl("http://dma.dk");
+        org.setAddress("Carl Jakobsensvej 31, 2500 Valby");
+        org.setCountry("Denmark");
+        org.setFederationType("test-idp");
+        org.setApproved(true);
+        org.setCertificateAuthority("urn:mrn:mcl:ca:maritimecloud-idreg");
+        return entityManager.persist(org);
+    }
+
+    private static Certificate certificate(int serialNumber) {
+        Certificate cert = new Certificate();
+        cert.setCertificate("-----BEGIN CERTIFICATE-----");
+        cert.setStart(new Date());
+        cert.setEnd(new Date());
+        cert.setSerialNumber(BigInteger.valueOf(serialNumber));
+        cert.setCertificateAuthority("urn:mrn:mcl:ca:maritimecloud-idreg");
+        return cert;
+    }
+
+    @Test
+    public void organizationIsDeletedWithEntitiesAndCertificatesAreRevoked() {
+        Organization org = organization("dma");
+        Organization other = organization("sma");
+
+        VesselImage image = new VesselImage();
+        image.setImage(new byte[]{1, 2, 3});
+        Vessel vessel = new Vessel();
+        vessel.setIdOrganization(org.getId());
+        vessel.setMrn("urn:mrn:mcl:vessel:dma:vessel1");
+        vessel.setName("Vessel");
+        vessel.setImage(image);
+        vessel.setAttributes(new HashSet<>());
+        VesselAttribute attribute = new VesselAttribute();
+        attribute.setAttributeName("imo-number");
+        attribute.setAttributeValue("1234567");
+        attribute.setVessel(vessel);
+        vessel.getAttributes().add(attribute);
+        entityManager.persist(vessel);
+        Certificate vesselCert = certificate(1);
+        vesselCert.setVessel(vessel);
+        entityManager.persist(vesselCert);
+
+        User user = new User();
+        user.setIdOrganization(org.getId());
+        user.setMrn("urn:mrn:mcl:user:dma:user1");
+        user.setFirstName("Thomas");
+        user.setLastName("Christensen");
+        user.setEmail("user1@dma.dk");
+        entityManager.persist(user);
+        Certificate userCert = certificate(2);
+        userCert.setUser(user);
+        entityManager.persist(userCert);
+
+        // A service of another organization running on the vessel
+        Service otherService = new Service();
+        otherService.setIdOrganization(other.getId());
+        otherService.setMrn("urn:mrn:mcl:service:instance:sma:service1");
+        otherService.setName("Service");
+        otherService.setInstanceVersion("1.0");
+        otherService.setVessel(vessel);
+        entityManager.persist(otherService);
+
+        Role role = new Role();
+        role.setIdOrganization(org.getId());
+        role.setPermission("MCADMIN");
+        role.setRoleName("ROLE_ORG_ADMIN");
+        entityManager.persist(role);
+        entityManager.flush();
+        entityManager.clear();
+
+        organizationService.deleteWithEntities(org.getId());
+        entityManager.flush();
+        entityManager.clear();
+
+        assertNull(entityManager.find(Organization.class, org.getId()));
+        assertNull(entityManager.find(Vessel.class, vessel.getId()));
+        assertNull(entityManager.find(VesselAttribute.class, attribute.getId()));
+        assertNull(entityManager.find(VesselImage.class, image.getId()));
+        assertNull(entityManager.find(User.class, user.getId()));
+        assertNull(entityManager.find(Role.class, role.getId()));
+        assertNotNull(entityManager.find(Organization.class, other.getId()));
+        assertNull(entityManager.find(Service.class, otherService.getId()).getVessel());
+        for (Long certId : new Long[]{vesselCert.getId(), userCert.getId()}) {
+            Certificate cert = entityManager.find(Certificate.class, certId);
+            assertTrue(cert.isRevoked());
+            assertEquals("cessationofoperation", cert.getRevokeReason());
+            assertNull(cert.getVessel());
+            assertNull(cert.getUser());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.services;
+
+import net.maritimecloud.identityregistry.model.data.OrganizationSnapshot;
+import net.maritimecloud.identityregistry.model.database.Organization;
+import net.maritimecloud.identityregistry.repositories.OrganizationRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class OrganizationSnapshotTests {
+
+    private OrganizationRepository organizationRepository;
+    private OrganizationServiceImpl organizationService;
+    private Organization dma;
+
+    private static Organization organization(long id, String shortName) {
+        Organization org = spy(Organization.class);
+        ReflectionTestUtils.setField(org, "id", id);
+        org.setName(shortName);
+        org.setMrn("urn:mrn:mcl:org:" + shortName);
+        org.setCountry("Denmark");
+        org.setApproved(true);
+        org.setFederationType("external-idp");
+        org.setCertificateAuthority("urn:mrn:mcl:ca:maritimecloud-idreg");
+        return org;
+    }
+
+    @Before
+    public void setUp() {
+        organizationRepository = mock(OrganizationRepository.class);
+        organizationService = new OrganizationServiceImpl();
+        organizationService.setOrganizationRepository(organizationRepository);
+        ReflectionTestUtils.setField(organizationService, "snapshotTtl", 60L);
+        ReflectionTestUtils.setField(organizationService, "snapshotMaxEntries", 10);
+        dma = organization(1, "dma");
+        given(organizationRepository.findByMrnAndApprovedTrue("urn:mrn:mcl:org:dma")).willReturn(dma);
+        given(organizationRepository.findByMrnAndApprovedTrue("urn:mrn:mcl:org:sma")).willReturn(organization(2, "sma"));
+        given(organizationRepository.findByMrnAndApprovedTrue("urn:mrn:mcl:org:bsh")).willReturn(organization(3, "bsh"));
+    }
+
+    @Test
+    public void snapshotIsLoadedOnce() {
+        OrganizationSnapshot first = organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma");
+        OrganizationSnapshot second = organizationService.getOrganizationSnapshot("URN:MRN:MCL:ORG:DMA");
+        // The snapshot is immutable, so it is handed out as it is
+        assertSame(first, second);
+        assertEquals(Long.valueOf(1), first.getId());
+        assertEquals("urn:mrn:mcl:org:dma", first.getMrn());
+        assertEquals("Denmark", first.getCountry());
+        assertEquals("urn:mrn:mcl:ca:maritimecloud-idreg", first.getCertificateAuthority());
+        verify(organizationRepository, times(1)).findByMrnAndApprovedTrue("urn:mrn:mcl:org:dma");
+    }
+
+    @Test
+    public void snapshotDoesNotLoadAssociations() {
+        organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma");
+        verify(dma, never()).getCertificates();
+        verify(dma, never()).getIdentityProviderAttributes();
+        verify(dma, never()).getLogo();
+    }
+
+    @Test
+    public void unknownOrganizationIsNotCached() {
+        assertNull(organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:unknown"));
+        assertNull(organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:unknown"));
+        verify(organizationRepository, times(2)).findByMrnAndApprovedTrue("urn:mrn:mcl:org:unknown");
+    }
+
+    @Test
+    public void entityIsNotCached() {
+        // The entity is for the handlers that show or change the organization, so it is read every time
+        organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma");
+        assertSame(dma, organizationService.getOrganizationByMrnNoFilter("urn:mrn:mcl:org:dma"));
+        assertSame(dma, organizationService.getOrganizationByMrnNoFilter("urn:mrn:mcl:org:dma"));
+        verify(organizationRepository, times(3)).findByMrnAndApprovedTrue("urn:mrn:mcl:org:dma");
+    }
+
+    @Test
+    public void snapshotsExpire() {
+        // A negative TTL makes a snapshot expire as soon as it is loaded
+        ReflectionTestUtils.setField(organizationService, "snapshotTtl", -1L);
+        organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma");
+        organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma");
+        verify(organizationRepository, times(2)).findByMrnAndApprovedTrue("urn:mrn:mcl:org:dma");
+    }
+
+    @Test
+    public void oldestSnapshotsAreDroppedWhenFull() {
+        ReflectionTestUtils.setField(organizationService, "snapshotMaxEntries", 2);
+        organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma");
+        organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:sma");
+        organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:bsh");
+
+        organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:bsh");
+        organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:sma");
+        verify(organizationRepository, times(1)).findByMrnAndApprovedTrue("urn:mrn:mcl:org:sma");
+        verify(organizationRepository, times(1)).findByMrnAndApprovedTrue("urn:mrn:mcl:org:bsh");
+        organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma");
+        verify(organizationRepository, times(2)).findByMrnAndApprovedTrue("urn:mrn:mcl:org:dma");
+    }
+
+    @Test
+    public void changedOrganizationIsEvicted() {
+        organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma");
+        organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:sma");
+
+        organizationService.onOrganizationChanged(new OrganizationChangedEvent(1L, "urn:mrn:mcl:org:dma", false));
+        organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:dma");
+        organizationService.getOrganizationSnapshot("urn:mrn:mcl:org:sma");
+        verify(organizationRepository, times(2)).findByMrnAndApprovedTrue("urn:mrn:mcl:org:dma");
+        verify(organizationRepository, times(1)).findByMrnAndApprovedTrue("urn:mrn:mcl:org:sma");
+    }
+}
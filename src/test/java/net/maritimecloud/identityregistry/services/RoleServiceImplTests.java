@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.services;
+
+import net.maritimecloud.identityregistry.model.database.Role;
+import net.maritimecloud.identityregistry.repositories.RoleRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class RoleServiceImplTests {
+
+    private RoleRepository roleRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private RoleServiceImpl roleService;
+
+    private static Role role(Long idOrganization, String permission, String roleName) {
+        Role role = new Role();
+        role.setIdOrganization(idOrganization);
+        role.setPermission(permission);
+        role.setRoleName(roleName);
+        return role;
+    }
+
+    @Before
+    public void setUp() {
+        roleRepository = mock(RoleRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        roleService = new RoleServiceImpl();
+        roleService.setRoleRepository(roleRepository);
+        roleService.setEventPublisher(eventPublisher);
+        given(roleRepository.findByidOrganization(1L)).willReturn(Arrays.asList(
+                role(1L, "MCADMIN", "ROLE_ORG_ADMIN"),
+                role(1L, "MCADMIN", "ROLE_USER_ADMIN"),
+                role(1L, "MCUSER", "ROLE_USER"),
+                role(1L, "McUser", "ROLE_APPROVE_ORG")));
+        given(roleRepository.findByidOrganization(2L)).willReturn(Collections.singletonList(
+                role(2L, "MCADMIN", "ROLE_SITE_ADMIN")));
+    }
+
+    @Test
+    public void roleNamesAreMappedFromPermissions() {
+        assertEquals(Arrays.asList("ROLE_ORG_ADMIN", "ROLE_USER_ADMIN"),
+                roleService.getRoleNamesByIdOrganizationAndPermissions(1L, Collections.singletonList("MCADMIN")));
+        // Each role name is only returned once, even when granted by several permissions
+        assertEquals(Arrays.asList("ROLE_ORG_ADMIN", "ROLE_USER_ADMIN", "ROLE_USER", "ROLE_APPROVE_ORG"),
+                roleService.getRoleNamesByIdOrganizationAndPermissions(1L, Arrays.asList("MCUSER", "MCADMIN", "unknown")));
+        assertEquals(Collections.singletonList("ROLE_SITE_ADMIN"),
+                roleService.getRoleNamesByIdOrganizationAndPermissions(2L, Collections.singletonList("MCADMIN")));
+        assertTrue(roleService.getRoleNamesByIdOrganizationAndPermissions(1L, Collections.singletonList("unknown")).isEmpty());
+        assertTrue(roleService.getRoleNamesByIdOrganizationAndPermissions(1L, Collections.emptyList()).isEmpty());
+        assertTrue(roleService.getRoleNamesByIdOrganizationAndPermissions(null, Collections.singletonList("MCADMIN")).isEmpty());
+    }
+
+    @Test
+    public void permissionsAreMatchedCaseInsensitively() {
+        assertEquals(Arrays.asList("ROLE_ORG_ADMIN", "ROLE_USER_ADMIN"),
+                roleService.getRoleNamesByIdOrganizationAndPermissions(1L, Collections.singletonList("mcadmin")));
+        // Roles stored with differently cased permissions are grouped together
+        assertEquals(Arrays.asList("ROLE_USER", "ROLE_APPROVE_ORG"),
+                roleService.getRoleNamesByIdOrganizationAndPermissions(1L, Collections.singletonList("mcUSER")));
+        List<Role> roles = roleService.getRolesByIdOrganizationAndPermission(1L, "McAdmin");
+        assertEquals(2, roles.size());
+    }
+
+    @Test
+    public void roleNamesOfManyRolesAreMappedFromPermissions() {
+        // More roles than fit in a single word of the bitsets, granted by overlapping permissions
+        List<Role> roles = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            roles.add(role(3L, i % 2 == 0 ? "EVEN" : "ODD", "ROLE_" + i));
+            if (i % 10 == 0) {
+                roles.add(role(3L, "TENS", "ROLE_" + i));
+            }
+        }
+        given(roleRepository.findByidOrganization(3L)).willReturn(roles);
+
+        List<String> tens = roleService.getRoleNamesByIdOrganizationAndPermissions(3L, Collections.singletonList("TENS"));
+        assertEquals(Arrays.asList("ROLE_0", "ROLE_10", "ROLE_20", "ROLE_30", "ROLE_40", "ROLE_50", "ROLE_60",
+                "ROLE_70", "ROLE_80", "ROLE_90"), tens);
+        List<String> odd = roleService.getRoleNamesByIdOrganizationAndPermissions(3L, Arrays.asList("ODD", "TENS"));
+        assertEquals(60, odd.size());
+        assertEquals("ROLE_0", odd.get(0));
+        assertEquals("ROLE_99", odd.get(odd.size() - 1));
+        assertEquals(100, roleService.getRoleNamesByIdOrganizationAndPermissions(3L, Arrays.asList("odd", "even")).size());
+    }
+
+    @Test
+    public void rolesAreLoadedOncePerOrganization() {
+        for (int i = 0; i < 3; i++) {
+            roleService.getRoleNamesByIdOrganizationAndPermissions(1L, Collections.singletonList("MCADMIN"));
+            roleService.getRolesByIdOrganizationAndPermission(1L, "MCUSER");
+            roleService.getRoleNamesByIdOrganizationAndPermissions(2L, Collections.singletonList("MCADMIN"));
+        }
+        verify(roleRepository, times(1)).findByidOrganization(1L);
+        verify(roleRepository, times(1)).findByidOrganization(2L);
+    }
+
+    @Test
+    public void changedRolesAreReloaded() {
+        roleService.getRoleNamesByIdOrganizationAndPermissions(1L, Collections.singletonList("MCADMIN"));
+        roleService.getRoleNamesByIdOrganizationAndPermissions(2L, Collections.singletonList("MCADMIN"));
+        given(roleRepository.findByidOrganization(1L)).willReturn(Collections.singletonList(role(1L, "MCADMIN", "ROLE_SITE_ADMIN")));
+
+        roleService.onRolesChanged(new RolesChangedEvent(1L));
+        assertEquals(Collections.singletonList("ROLE_SITE_ADMIN"),
+                roleService.getRoleNamesByIdOrganizationAndPermissions(1L, Collections.singletonList("MCADMIN")));
+        roleService.getRoleNamesByIdOrganizationAndPermissions(2L, Collections.singletonList("MCADMIN"));
+        verify(roleRepository, times(2)).findByidOrganization(1L);
+        // Only the organization with the changed roles is reloaded
+        verify(roleRepository, times(1)).findByidOrganization(2L);
+
+        // Changes without an organization drop everything
+        roleService.onRolesChanged(new RolesChangedEvent(null));
+        roleService.getRoleNamesByIdOrganizationAndPermissions(1L, Collections.singletonList("MCADMIN"));
+        roleService.getRoleNamesByIdOrganizationAndPermissions(2L, Collections.singletonList("MCADMIN"));
+        verify(roleRepository, times(3)).findByidOrganization(1L);
+        verify(roleRepository, times(2)).findByidOrganization(2L);
+    }
+
+    @Test
+    public void savingRolePublishesChange() {
+        Role role = role(1L, "MCADMIN", "ROLE_ORG_ADMIN");
+        given(roleRepository.save(role)).willReturn(role);
+        roleService.save(role);
+        verify(eventPublisher, times(1)).publishEvent(any(RolesChangedEvent.class));
+    }
+}
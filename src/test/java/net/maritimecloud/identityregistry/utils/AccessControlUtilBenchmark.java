@@ -0,0 +1,223 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.utils;
+
+import net.maritimecloud.identityregistry.security.CachingRoleHierarchy;
+import net.maritimecloud.identityregistry.security.ReachableRoles;
+import net.maritimecloud.identityregistry.security.x509.MCPreAuthenticatedAuthenticationToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.ExpressionBasedAnnotationAttributeFactory;
+import org.springframework.security.access.expression.method.ExpressionBasedPreInvocationAdvice;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
+import org.springframework.security.access.intercept.aopalliance.MethodSecurityInterceptor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.access.prepost.PreInvocationAuthorizationAdviceVoter;
+import org.springframework.security.access.prepost.PrePostAnnotationSecurityMetadataSource;
+import org.springframework.security.access.vote.AffirmativeBased;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways of answering role checks:
+ * <ul>
+ *     <li>calling a method guarded by @PreAuthorize("hasRole(#role)") through the method security proxy, which
+ *     throws an AccessDeniedException when the role is missing. This is how AccessControlUtil checked roles before
+ *     the roles were precomputed.</li>
+ *     <li>walking the role hierarchy on every check.</li>
+ *     <li>the roles attached to the authentication, and the cache used for authentications without attached roles.</li>
+ * </ul>
+ * The negative checks are like those of BaseServiceImpl.isAuthorized for most users, the positive checks are of a role
+ * reachable through the hierarchy. Run with the main method, it is not part of the unit tests.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AccessControlUtilBenchmark {
+
+    private static final String HIERARCHY = "ROLE_SITE_ADMIN > ROLE_APPROVE_ORG\n" +
+                                            "ROLE_SITE_ADMIN > ROLE_ORG_ADMIN\n" +
+                                            "ROLE_ORG_ADMIN > ROLE_ENTITY_ADMIN\n" +
+                                            "ROLE_ENTITY_ADMIN > ROLE_USER_ADMIN\n" +
+                                            "ROLE_ENTITY_ADMIN > ROLE_VESSEL_ADMIN\n" +
+                                            "ROLE_ENTITY_ADMIN > ROLE_SERVICE_ADMIN\n" +
+                                            "ROLE_ENTITY_ADMIN > ROLE_DEVICE_ADMIN\n" +
+                                            "ROLE_USER_ADMIN > ROLE_USER\n" +
+                                            "ROLE_VESSEL_ADMIN > ROLE_USER\n" +
+                                            "ROLE_SERVICE_ADMIN > ROLE_USER\n" +
+                                            "ROLE_DEVICE_ADMIN > ROLE_USER";
+
+    // The roles checked by BaseServiceImpl.isAuthorized, which the user does not have
+    private static final List<String> AUTHORIZED_ROLES = Arrays.asList("ORG_ADMIN", "SITE_ADMIN");
+    // A role the user has through the hierarchy
+    private static final List<String> REACHABLE_ROLES = Collections.singletonList("VESSEL_ADMIN");
+
+    /**
+     * The helper that AccessControlUtil called to check a role, which only returns when the role is reachable
+     */
+    public static class HasRoleUtil {
+        @PreAuthorize("hasRole(#role)")
+        public void testRole(String role) {
+        }
+    }
+
+    private RoleHierarchyImpl roleHierarchy;
+    private HasRoleUtil hasRoleUtil;
+    private AccessControlUtil accessControlUtil;
+    private Authentication plainAuthentication;
+    private Authentication authenticationWithRoles;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        roleHierarchy = new RoleHierarchyImpl();
+        roleHierarchy.setHierarchy(HIERARCHY);
+        CachingRoleHierarchy cachingRoleHierarchy = new CachingRoleHierarchy(HIERARCHY);
+
+        // The method security of the time, which walked the hierarchy on every call
+        DefaultMethodSecurityExpressionHandler expressionHandler = new DefaultMethodSecurityExpressionHandler();
+        expressionHandler.setRoleHierarchy(roleHierarchy);
+        ExpressionBasedPreInvocationAdvice preInvocationAdvice = new ExpressionBasedPreInvocationAdvice();
+        preInvocationAdvice.setExpressionHandler(expressionHandler);
+        MethodSecurityInterceptor interceptor = new MethodSecurityInterceptor();
+        interceptor.setSecurityMetadataSource(new PrePostAnnotationSecurityMetadataSource(
+                new ExpressionBasedAnnotationAttributeFactory(expressionHandler)));
+        interceptor.setAccessDecisionManager(new AffirmativeBased(Collections.singletonList(
+                new PreInvocationAuthorizationAdviceVoter(preInvocationAdvice))));
+        // The authentications are authenticated already, so they are not passed to the manager
+        interceptor.setAuthenticationManager(authentication -> authentication);
+        interceptor.afterPropertiesSet();
+        ProxyFactory proxyFactory = new ProxyFactory(new HasRoleUtil());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        hasRoleUtil = (HasRoleUtil) proxyFactory.getProxy();
+
+        accessControlUtil = new AccessControlUtil();
+        accessControlUtil.setRoleHierarchy(cachingRoleHierarchy);
+        List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_ENTITY_ADMIN", "ROLE_USER");
+        plainAuthentication = new TestingAuthenticationToken("user", null, authorities);
+        authenticationWithRoles = new MCPreAuthenticatedAuthenticationToken("user", null, authorities,
+                ReachableRoles.of(cachingRoleHierarchy, authorities));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    // The former AccessControlUtil.hasAnyRoles
+    private boolean proxyHasAnyRoles(List<String> roles) {
+        for (String role : roles) {
+            try {
+                hasRoleUtil.testRole(role);
+                return true;
+            } catch (AccessDeniedException ade) {
+                // Checks the next role
+            }
+        }
+        return false;
+    }
+
+    private boolean walkHierarchy(List<String> roles) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        for (String role : roles) {
+            for (GrantedAuthority authority : roleHierarchy.getReachableGrantedAuthorities(auth.getAuthorities())) {
+                if (authority.getAuthority().equals("ROLE_" + role)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean proxyNegative() {
+        SecurityContextHolder.getContext().setAuthentication(plainAuthentication);
+        return proxyHasAnyRoles(AUTHORIZED_ROLES);
+    }
+
+    @Benchmark
+    public boolean proxyPositive() {
+        SecurityContextHolder.getContext().setAuthentication(plainAuthentication);
+        return proxyHasAnyRoles(REACHABLE_ROLES);
+    }
+
+    @Benchmark
+    public boolean walkHierarchyNegative() {
+        SecurityContextHolder.getContext().setAuthentication(plainAuthentication);
+        return walkHierarchy(AUTHORIZED_ROLES);
+    }
+
+    @Benchmark
+    public boolean walkHierarchyPositive() {
+        SecurityContextHolder.getContext().setAuthentication(plainAuthentication);
+        return walkHierarchy(REACHABLE_ROLES);
+    }
+
+    @Benchmark
+    public boolean cachedRolesNegative() {
+        SecurityContextHolder.getContext().setAuthentication(plainAuthentication);
+        return accessControlUtil.hasAnyRoles(AUTHORIZED_ROLES);
+    }
+
+    @Benchmark
+    public boolean cachedRolesPositive() {
+        SecurityContextHolder.getContext().setAuthentication(plainAuthentication);
+        return accessControlUtil.hasAnyRoles(REACHABLE_ROLES);
+    }
+
+    @Benchmark
+    public boolean rolesOfAuthenticationNegative() {
+        SecurityContextHolder.getContext().setAuthentication(authenticationWithRoles);
+        return accessControlUtil.hasAnyRoles(AUTHORIZED_ROLES);
+    }
+
+    @Benchmark
+    public boolean rolesOfAuthenticationPositive() {
+        SecurityContextHolder.getContext().setAuthentication(authenticationWithRoles);
+        return accessControlUtil.hasAnyRoles(REACHABLE_ROLES);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AccessControlUtilBenchmark.class.getSimpleName()).build()).run();
+    }
+}
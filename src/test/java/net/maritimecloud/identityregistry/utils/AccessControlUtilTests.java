@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.utils;
+
+import net.maritimecloud.identityregistry.controllers.TokenGenerator;
+import net.maritimecloud.identityregistry.security.ReachableRoles;
+import net.maritimecloud.identityregistry.security.x509.MCPreAuthenticatedAuthenticationToken;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchyImpl;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.ldap.userdetails.InetOrgPerson;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SpringRunner.class)
+public class AccessControlUtilTests {
+
+    private AccessControlUtil accessControlUtil;
+    private RoleHierarchyImpl roleHierarchy;
+
+    @Before
+    public void setUp() {
+        roleHierarchy = spy(new RoleHierarchyImpl());
+        roleHierarchy.setHierarchy("ROLE_SITE_ADMIN > ROLE_ORG_ADMIN\n" +
+                                    "ROLE_ORG_ADMIN > ROLE_ENTITY_ADMIN\n" +
+                                    "ROLE_ENTITY_ADMIN > ROLE_USER");
+        accessControlUtil = new AccessControlUtil();
+        accessControlUtil.setRoleHierarchy(roleHierarchy);
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void hasRoleThroughHierarchy() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", null, "ROLE_ORG_ADMIN"));
+        assertTrue(accessControlUtil.hasRole("ORG_ADMIN"));
+        assertTrue(accessControlUtil.hasRole("ROLE_ORG_ADMIN"));
+        assertTrue(accessControlUtil.hasRole("USER"));
+        assertFalse(accessControlUtil.hasRole("SITE_ADMIN"));
+        assertTrue(accessControlUtil.hasAnyRoles(Arrays.asList("SITE_ADMIN", "ENTITY_ADMIN")));
+        assertFalse(accessControlUtil.hasAnyRoles(Arrays.asList("SITE_ADMIN", "APPROVE_ORG")));
+    }
+
+    @Test
+    public void reachableRolesFollowTheAuthentication() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", null, "ROLE_USER"));
+        assertFalse(accessControlUtil.hasRole("ORG_ADMIN"));
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("admin", null, "ROLE_SITE_ADMIN"));
+        assertTrue(accessControlUtil.hasRole("ORG_ADMIN"));
+    }
+
+    @Test
+    public void reachableRolesAreComputedOncePerSetOfRoleNames() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", null, "ROLE_USER", "ROLE_ORG_ADMIN"));
+        assertTrue(accessControlUtil.hasRole("ENTITY_ADMIN"));
+        // Another authentication with the same roles in another order
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("other", null, "ROLE_ORG_ADMIN", "ROLE_USER"));
+        assertTrue(accessControlUtil.hasRole("ENTITY_ADMIN"));
+        assertFalse(accessControlUtil.hasRole("SITE_ADMIN"));
+        verify(roleHierarchy, times(1)).getReachableGrantedAuthorities(any());
+    }
+
+    @Test
+    public void reachableRolesOfAuthenticationAreUsed() {
+        // The attached roles are used as they are, so they are deliberately different from those of the hierarchy
+        List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_USER");
+        ReachableRoles reachable = new ReachableRoles(AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_APPROVE_ORG"));
+        SecurityContextHolder.getContext().setAuthentication(new MCPreAuthenticatedAuthenticationToken("user", null, authorities, reachable));
+        assertTrue(accessControlUtil.hasRole("APPROVE_ORG"));
+        assertTrue(accessControlUtil.hasRole("ROLE_USER"));
+        assertFalse(accessControlUtil.hasRole("ORG_ADMIN"));
+        verify(roleHierarchy, never()).getReachableGrantedAuthorities(any());
+    }
+
+    @Test
+    public void noRoleWithoutAuthentication() {
+        SecurityContextHolder.clearContext();
+        assertFalse(accessControlUtil.hasRole("USER"));
+    }
+
+    @Test
+    public void certificateAuthorizationContext() {
+        InetOrgPerson.Essence essence = new InetOrgPerson.Essence();
+        essence.setUsername("urn:mrn:mcl:vessel:dma:myboat");
+        essence.setDn("CN=My Boat");
+        essence.setO("urn:mrn:mcl:org:dma");
+        essence.setAuthorities(Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+        InetOrgPerson person = (InetOrgPerson) essence.createUserDetails();
+        SecurityContextHolder.getContext().setAuthentication(new PreAuthenticatedAuthenticationToken(person, "", person.getAuthorities()));
+        assertTrue(AccessControlUtil.hasAccessToOrg("urn:mrn:mcl:org:DMA"));
+        assertFalse(AccessControlUtil.hasAccessToOrg("urn:mrn:mcl:org:sma"));
+        assertTrue(AccessControlUtil.hasPermission("role_user"));
+        assertEquals(Collections.singletonList("ROLE_USER"), AccessControlUtil.getMyRoles());
+    }
+
+    @Test
+    public void permissionsAreCheckedAsBits() {
+        SecurityContextHolder.getContext().setAuthentication(
+                TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:dma", "ROLE_USER", "MCADMIN,Vessel_Admin"));
+        assertTrue(AccessControlUtil.hasPermission("mcadmin"));
+        assertTrue(AccessControlUtil.hasPermission("VESSEL_ADMIN"));
+        assertFalse(AccessControlUtil.hasPermission("user_admin"));
+        assertFalse(AccessControlUtil.hasPermission(null));
+
+        // The permissions of another user of the organization use the same index
+        SecurityContextHolder.getContext().setAuthentication(
+                TokenGenerator.generateKeycloakToken("urn:mrn:mcl:org:DMA", "ROLE_USER", "user_admin"));
+        assertTrue(AccessControlUtil.hasPermission("USER_ADMIN"));
+        assertFalse(AccessControlUtil.hasPermission("mcadmin"));
+        assertFalse(AccessControlUtil.hasPermission("vessel_admin"));
+    }
+}
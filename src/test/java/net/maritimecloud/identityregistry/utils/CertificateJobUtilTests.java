@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.utils;
+
+import net.maritimecloud.identityregistry.exception.McBasicRestException;
+import net.maritimecloud.identityregistry.model.data.CertificateBundle;
+import net.maritimecloud.identityregistry.model.data.CertificateJob;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CertificateJobUtilTests {
+
+    private static final String ORG_MRN = "urn:mrn:mcl:org:dma";
+    private static final String OWNER = "urn:mrn:mcl:user:dma:dmauser";
+    private static final String PATH = "/oidc/api/org/urn:mrn:mcl:org:dma/user/urn:mrn:mcl:user:dma:dmauser/certificate/issue-new";
+
+    private CertificateJobUtil certificateJobUtil;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private void setUp(long retention, int threads, int queueSize) {
+        certificateJobUtil = new CertificateJobUtil();
+        ReflectionTestUtils.setField(certificateJobUtil, "retention", retention);
+        ReflectionTestUtils.setField(certificateJobUtil, "threads", threads);
+        ReflectionTestUtils.setField(certificateJobUtil, "queueSize", queueSize);
+        certificateJobUtil.setup();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        certificateJobUtil.shutdown();
+    }
+
+    private CertificateJob waitForJob(String jobId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            CertificateJob job = certificateJobUtil.getJob(jobId, ORG_MRN, OWNER);
+            if (job == null || job.getStatus() != CertificateJob.Status.PENDING) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Job " + jobId + " did not finish");
+    }
+
+    private CertificateBundle blockingIssuance() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new CertificateBundle(null, "jks", "p12", "pass");
+    }
+
+    @Test
+    public void submitAndPoll() throws Exception {
+        setUp(900, 1, 10);
+        CertificateBundle bundle = new CertificateBundle(null, "jks", "p12", "pass");
+        CertificateJob job = certificateJobUtil.submit(ORG_MRN, OWNER, () -> bundle, PATH);
+        assertNotNull(job.getJobId());
+
+        CertificateJob done = waitForJob(job.getJobId());
+        assertNotNull(done);
+        assertEquals(CertificateJob.Status.DONE, done.getStatus());
+        assertSame(bundle, done.getCertificateBundle());
+        assertNull(done.getError());
+        // The result can be fetched again until the retention window has passed
+        assertSame(done, certificateJobUtil.getJob(job.getJobId(), ORG_MRN, OWNER));
+    }
+
+    @Test
+    public void failedIssuanceKeepsTheError() throws Exception {
+        setUp(900, 1, 10);
+        CertificateJob job = certificateJobUtil.submit(ORG_MRN, OWNER, () -> {
+            throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.MISSING_RIGHTS, PATH);
+        }, PATH);
+
+        CertificateJob failed = waitForJob(job.getJobId());
+        assertNotNull(failed);
+        assertEquals(CertificateJob.Status.FAILED, failed.getStatus());
+        assertNull(failed.getCertificateBundle());
+        assertEquals(HttpStatus.BAD_REQUEST.value(), failed.getError().getStatus());
+        assertEquals(MCIdRegConstants.MISSING_RIGHTS, failed.getError().getMessage());
+    }
+
+    @Test
+    public void finishedJobsExpireAfterRetention() throws Exception {
+        // A negative retention makes the job expire as soon as it is done
+        setUp(-1, 1, 10);
+        CertificateJob job = certificateJobUtil.submit(ORG_MRN, OWNER, this::blockingIssuance, PATH);
+        // Pending jobs are never expired, no matter the retention
+        assertSame(job, certificateJobUtil.getJob(job.getJobId(), ORG_MRN, OWNER));
+
+        release.countDown();
+        assertNull(waitForJob(job.getJobId()));
+    }
+
+    @Test
+    public void fullQueueIsRejected() throws Exception {
+        setUp(900, 1, 1);
+        // The first job occupies the only thread and the second the only place in the queue
+        CertificateJob running = certificateJobUtil.submit(ORG_MRN, OWNER, this::blockingIssuance, PATH);
+        CertificateJob queued = certificateJobUtil.submit(ORG_MRN, OWNER, this::blockingIssuance, PATH);
+        try {
+            certificateJobUtil.submit(ORG_MRN, OWNER, this::blockingIssuance, PATH);
+            assertTrue(false);
+        } catch (McBasicRestException e) {
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+            assertEquals(MCIdRegConstants.TOO_MANY_CERTIFICATE_JOBS, e.getErrorMessage());
+        }
+
+        release.countDown();
+        assertEquals(CertificateJob.Status.DONE, waitForJob(running.getJobId()).getStatus());
+        assertEquals(CertificateJob.Status.DONE, waitForJob(queued.getJobId()).getStatus());
+    }
+
+    @Test
+    public void onlyOwnerCanFetchJob() throws Exception {
+        setUp(900, 1, 10);
+        CertificateJob job = certificateJobUtil.submit(ORG_MRN, OWNER, this::blockingIssuance, PATH);
+
+        assertNull(certificateJobUtil.getJob(job.getJobId(), ORG_MRN, "urn:mrn:mcl:user:dma:otheruser"));
+        assertNull(certificateJobUtil.getJob(job.getJobId(), "urn:mrn:mcl:org:sma", OWNER));
+        assertNull(certificateJobUtil.getJob("unknown", ORG_MRN, OWNER));
+        // The organization MRN is matched case insensitively like the rest of the API
+        assertSame(job, certificateJobUtil.getJob(job.getJobId(), ORG_MRN.toUpperCase(), OWNER));
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.utils;
+
+import net.maritimecloud.pki.CertificateBuilder;
+import net.maritimecloud.pki.PKIConstants;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.ASN1TaggedObject;
+import org.bouncycastle.asn1.DERUTF8String;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.openssl.PEMParser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.FileReader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class CertificateTemplateUtilTests {
+
+    private static final String CA = "urn:mrn:mcl:ca:maritimecloud-idreg";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CertificateUtil certificateUtil;
+    private CertificateTemplateUtil certificateTemplateUtil;
+
+    @Before
+    public void setUp() {
+        certificateUtil = new CertificateUtil();
+        ReflectionTestUtils.setField(certificateUtil, "subCaKeystorePath", "mc-sub-ca-keystore.jks");
+        ReflectionTestUtils.setField(certificateUtil, "subCaKeystorePassword", "changeit");
+        ReflectionTestUtils.setField(certificateUtil, "subCaKeyPassword", "changeit");
+        ReflectionTestUtils.setField(certificateUtil, "truststorePath", "mc-truststore.jks");
+        ReflectionTestUtils.setField(certificateUtil, "truststorePassword", "changeit");
+        ReflectionTestUtils.setField(certificateUtil, "baseCrlOcspCrlURI", "https://localhost/x509/api/certificates/");
+        certificateUtil.setup();
+        certificateTemplateUtil = new CertificateTemplateUtil();
+        certificateTemplateUtil.setCertificateUtil(certificateUtil);
+    }
+
+    private X509Certificate issue(PublicKey publicKey) throws Exception {
+        Map<String, String> attrs = new HashMap<>();
+        attrs.put(PKIConstants.MC_OID_MRN, "urn:mrn:mcl:vessel:dma:myboat");
+        attrs.put(PKIConstants.MC_OID_PERMISSIONS, "boat-permission");
+        return certificateTemplateUtil.generateCertForEntity(certificateUtil.getCertificateBuilder().generateSerialNumber(),
+                "Denmark", "urn:mrn:mcl:org:dma", "vessel", "Myboat", "myboat@dma.dk", "urn:mrn:mcl:vessel:dma:myboat",
+                publicKey, attrs, CA);
+    }
+
+    private Object getTemplate() {
+        Map<?, ?> templates = (Map<?, ?>) ReflectionTestUtils.getField(certificateTemplateUtil, "templates");
+        return templates.get(CA + "|vessel");
+    }
+
+    @Test
+    public void templateCertificateMatchesIssuedCertificate() throws Exception {
+        PublicKey publicKey = CertificateBuilder.generateKeyPair().getPublic();
+        // The first certificate is issued by mc-pki and becomes the template of the second
+        X509Certificate issued = issue(publicKey);
+        X509Certificate fromTemplate = issue(publicKey);
+        assertNotNull(getTemplate());
+
+        JcaX509CertificateHolder issuedHolder = new JcaX509CertificateHolder(issued);
+        JcaX509CertificateHolder templateHolder = new JcaX509CertificateHolder(fromTemplate);
+        assertArrayEquals(issuedHolder.getIssuer().getEncoded(), templateHolder.getIssuer().getEncoded());
+        // Compared encoded, since X500Name equality ignores the order of the RDNs
+        assertArrayEquals(issuedHolder.getSubject().getEncoded(), templateHolder.getSubject().getEncoded());
+        assertEquals(issuedHolder.getExtensionOIDs(), templateHolder.getExtensionOIDs());
+        for (Object oid : issuedHolder.getExtensionOIDs()) {
+            assertEquals(issuedHolder.getExtension((ASN1ObjectIdentifier) oid), templateHolder.getExtension((ASN1ObjectIdentifier) oid));
+        }
+        assertEquals(issued.getNotAfter().getTime() - issued.getNotBefore().getTime(),
+                fromTemplate.getNotAfter().getTime() - fromTemplate.getNotBefore().getTime());
+        assertEquals(issued.getSigAlgName(), fromTemplate.getSigAlgName());
+        fromTemplate.verify(certificateUtil.getKeystoreHandler().getSigningCertEntry(CA).getCertificate().getPublicKey());
+    }
+
+    @Test
+    public void templateIsReplacedWhenKeystoreChanges() throws Exception {
+        File keystore = folder.newFile("mc-sub-ca-keystore.jks");
+        Files.copy(new File("mc-sub-ca-keystore.jks").toPath(), keystore.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        ReflectionTestUtils.setField(certificateUtil, "subCaKeystorePath", keystore.getPath());
+        certificateUtil.setup();
+
+        PublicKey publicKey = CertificateBuilder.generateKeyPair().getPublic();
+        issue(publicKey);
+        Object template = getTemplate();
+        issue(publicKey);
+        assertSame(template, getTemplate());
+
+        assertEquals(true, keystore.setLastModified(keystore.lastModified() - 60000));
+        issue(publicKey);
+        assertNotSame(template, getTemplate());
+    }
+
+    @Test
+    public void templateIsReplacedWhenCrlOcspUriChanges() throws Exception {
+        PublicKey publicKey = CertificateBuilder.generateKeyPair().getPublic();
+        issue(publicKey);
+        Object template = getTemplate();
+        ReflectionTestUtils.setField(certificateUtil, "baseCrlOcspCrlURI", "https://idreg.example.com/x509/api/certificates/");
+        issue(publicKey);
+        assertNotSame(template, getTemplate());
+    }
+
+    @Test
+    public void templateIsUsedWithoutCrlOcspUri() throws Exception {
+        ReflectionTestUtils.setField(certificateUtil, "baseCrlOcspCrlURI", null);
+        PublicKey publicKey = CertificateBuilder.generateKeyPair().getPublic();
+        issue(publicKey);
+        Object template = getTemplate();
+        issue(publicKey);
+        assertSame(template, getTemplate());
+    }
+
+    @Test
+    public void subjectAlternativeNamesMatchIssuedCertificate() throws Exception {
+        X509CertificateHolder cert;
+        try (PEMParser parser = new PEMParser(new FileReader("src/test/resources/Certificate_Myboat.pem"))) {
+            cert = (X509CertificateHolder) parser.readObject();
+        }
+        GeneralNames issuedNames = GeneralNames.fromExtensions(cert.getExtensions(), Extension.subjectAlternativeName);
+        assertEquals(3, issuedNames.getNames().length);
+        // Each name put in by mc-pki must be encoded identically when rebuilt from its OID and value
+        for (GeneralName issuedName : issuedNames.getNames()) {
+            ASN1Sequence otherName = ASN1Sequence.getInstance(issuedName.getName());
+            String oid = ASN1ObjectIdentifier.getInstance(otherName.getObjectAt(0)).getId();
+            String value = DERUTF8String.getInstance(ASN1TaggedObject.getInstance(otherName.getObjectAt(1)).getObject()).getString();
+            Map<String, String> attrs = Collections.singletonMap(oid, value);
+            GeneralName rebuiltName = CertificateTemplateUtil.getSubjectAlternativeNames(attrs).getNames()[0];
+            assertArrayEquals(issuedName.getEncoded(), rebuiltName.getEncoded());
+        }
+    }
+
+    @Test
+    public void dnsNamesAreNotOtherNames() {
+        Map<String, String> attrs = Collections.singletonMap(PKIConstants.X509_SAN_DNSNAME, "service.example.com");
+        GeneralName name = CertificateTemplateUtil.getSubjectAlternativeNames(attrs).getNames()[0];
+        assertEquals(GeneralName.dNSName, name.getTagNo());
+        assertEquals("service.example.com", name.getName().toString());
+    }
+}
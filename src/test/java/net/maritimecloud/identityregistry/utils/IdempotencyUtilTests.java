@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.utils;
+
+import net.maritimecloud.identityregistry.exception.McBasicRestException;
+import net.maritimecloud.identityregistry.model.data.CertificateBundle;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(SpringRunner.class)
+public class IdempotencyUtilTests {
+
+    private static final String OWNER = "urn:mrn:mcl:user:dma:dma-employee";
+    private static final String PATH = "/oidc/api/org/urn:mrn:mcl:org:dma/device/urn:mrn:mcl:device:dma:device1/certificate/issue-new";
+
+    private IdempotencyUtil idempotencyUtil;
+    private AtomicInteger issued;
+
+    @Before
+    public void setUp() {
+        idempotencyUtil = new IdempotencyUtil();
+        ReflectionTestUtils.setField(idempotencyUtil, "ttl", 900L);
+        ReflectionTestUtils.setField(idempotencyUtil, "maxEntries", 100);
+        issued = new AtomicInteger();
+    }
+
+    private CertificateBundle issue() {
+        issued.incrementAndGet();
+        return new CertificateBundle(null, "jks", "pkcs12", "password");
+    }
+
+    @Test
+    public void retryReturnsStoredResult() throws McBasicRestException {
+        CertificateBundle first = idempotencyUtil.issueOnce(OWNER, "key1", PATH, this::issue, PATH);
+        CertificateBundle second = idempotencyUtil.issueOnce(OWNER, "key1", PATH, this::issue, PATH);
+        assertSame(first, second);
+        assertEquals(1, issued.get());
+    }
+
+    @Test
+    public void resultIsNotReturnedToOtherPrincipal() throws McBasicRestException {
+        CertificateBundle first = idempotencyUtil.issueOnce(OWNER, "key1", PATH, this::issue, PATH);
+        CertificateBundle second = idempotencyUtil.issueOnce("urn:mrn:mcl:user:dma:other", "key1", PATH, this::issue, PATH);
+        assertNotSame(first, second);
+        assertEquals(2, issued.get());
+    }
+
+    @Test
+    public void scopedKeyDependsOnPrincipal() {
+        assertEquals(IdempotencyUtil.scopeKey(OWNER, "key1"), IdempotencyUtil.scopeKey(OWNER, "key1"));
+        assertNotEquals(IdempotencyUtil.scopeKey(OWNER, "key1"), IdempotencyUtil.scopeKey("urn:mrn:mcl:user:dma:other", "key1"));
+        // The principal and key can not be split differently to give the same scoped key
+        assertNotEquals(IdempotencyUtil.scopeKey("ab", "c"), IdempotencyUtil.scopeKey("a", "bc"));
+    }
+
+    @Test
+    public void numberOfStoredResultsIsBounded() throws McBasicRestException {
+        ReflectionTestUtils.setField(idempotencyUtil, "maxEntries", 2);
+        idempotencyUtil.issueOnce(OWNER, "key1", PATH, this::issue, PATH);
+        idempotencyUtil.issueOnce(OWNER, "key2", PATH, this::issue, PATH);
+        CertificateBundle third = idempotencyUtil.issueOnce(OWNER, "key3", PATH, this::issue, PATH);
+        Map<?, ?> issuances = (Map<?, ?>) ReflectionTestUtils.getField(idempotencyUtil, "issuances");
+        assertTrue(issuances.size() <= 2);
+        // The newest result is kept, while the oldest has been dropped
+        assertSame(third, idempotencyUtil.issueOnce(OWNER, "key3", PATH, this::issue, PATH));
+        assertEquals(3, issued.get());
+        idempotencyUtil.issueOnce(OWNER, "key1", PATH, this::issue, PATH);
+        assertEquals(4, issued.get());
+    }
+
+    @Test
+    public void keyCanNotBeReusedForOtherRequest() throws McBasicRestException {
+        idempotencyUtil.issueOnce(OWNER, "key1", PATH, this::issue, PATH);
+        try {
+            idempotencyUtil.issueOnce(OWNER, "key1", PATH.replace("device1", "device2"), this::issue, PATH);
+            fail("Reusing the key for another request should fail");
+        } catch (McBasicRestException e) {
+            assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, e.getStatus());
+        }
+        assertEquals(1, issued.get());
+    }
+
+    private static String fingerprint(String path, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        if (body != null) {
+            request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return IdempotencyUtil.fingerprint(request);
+    }
+
+    @Test
+    public void fingerprintCoversPathAndBody() {
+        assertEquals(fingerprint(PATH, null), fingerprint(PATH, ""));
+        assertEquals(fingerprint(PATH, "{\"a\":1}"), fingerprint(PATH, "{\"a\":1}"));
+        assertNotEquals(fingerprint(PATH, "{\"a\":1}"), fingerprint(PATH, "{\"a\":2}"));
+        assertNotEquals(fingerprint(PATH, null), fingerprint(PATH.replace("device1", "device2"), null));
+    }
+
+    @Test
+    public void keyCanNotBeReusedForOtherBody() throws McBasicRestException {
+        idempotencyUtil.issueOnce(OWNER, "key1", fingerprint(PATH, "{\"a\":1}"), this::issue, PATH);
+        assertEquals(1, issued.get());
+        idempotencyUtil.issueOnce(OWNER, "key1", fingerprint(PATH, "{\"a\":1}"), this::issue, PATH);
+        assertEquals(1, issued.get());
+        try {
+            idempotencyUtil.issueOnce(OWNER, "key1", fingerprint(PATH, "{\"a\":2}"), this::issue, PATH);
+            fail("Reusing the key with another body should fail");
+        } catch (McBasicRestException e) {
+            assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, e.getStatus());
+        }
+        assertEquals(1, issued.get());
+    }
+
+    @Test
+    public void failedIssuanceIsNotStored() throws McBasicRestException {
+        try {
+            idempotencyUtil.issueOnce(OWNER, "key1", PATH, () -> {
+                throw new McBasicRestException(HttpStatus.BAD_REQUEST, MCIdRegConstants.ENTITY_ORG_ID_MISSING, PATH);
+            }, PATH);
+            fail("The issuance should fail");
+        } catch (McBasicRestException e) {
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+        }
+        idempotencyUtil.issueOnce(OWNER, "key1", PATH, this::issue, PATH);
+        assertEquals(1, issued.get());
+    }
+
+    @Test
+    public void expiredResultIsNotReturned() throws McBasicRestException {
+        ReflectionTestUtils.setField(idempotencyUtil, "ttl", -1L);
+        idempotencyUtil.issueOnce(OWNER, "key1", PATH, this::issue, PATH);
+        idempotencyUtil.issueOnce(OWNER, "key1", PATH, this::issue, PATH);
+        assertEquals(2, issued.get());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.utils;
+
+import net.maritimecloud.identityregistry.exception.McBasicRestException;
+import net.maritimecloud.identityregistry.model.data.KeysetPage;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+@RunWith(SpringRunner.class)
+public class KeysetUtilTests {
+
+    private static final String PATH = "/oidc/api/orgs";
+
+    @Test
+    public void nextCursorContinuesAfterLastRow() throws McBasicRestException {
+        KeysetPage<Long> page = KeysetUtil.toPage(Arrays.asList(3L, 7L, 9L), 2, Function.identity());
+        assertEquals(Arrays.asList(3L, 7L), page.getContent());
+        assertEquals(Long.valueOf(7L), KeysetUtil.decodeCursor(page.getNext(), PATH));
+    }
+
+    @Test
+    public void lastPageHasNoNextCursor() throws McBasicRestException {
+        KeysetPage<Long> page = KeysetUtil.toPage(Arrays.asList(3L, 7L), 2, Function.identity());
+        assertEquals(2, page.getContent().size());
+        assertNull(page.getNext());
+        assertEquals(Long.valueOf(0L), KeysetUtil.decodeCursor("", PATH));
+    }
+
+    @Test
+    public void invalidCursorIsRejected() {
+        try {
+            KeysetUtil.decodeCursor("not a cursor", PATH);
+            fail("An invalid cursor should be rejected");
+        } catch (McBasicRestException e) {
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+        }
+    }
+
+    @Test
+    public void sizeIsLimited() {
+        assertEquals(1, KeysetUtil.limit(0));
+        assertEquals(KeysetUtil.MAX_SIZE, KeysetUtil.limit(KeysetUtil.MAX_SIZE + 1));
+    }
+}
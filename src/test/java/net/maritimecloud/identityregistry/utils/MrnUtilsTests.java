@@ -155,4 +155,10 @@ public class MrnUtilsTests {
         assertEquals("Prefix should be 'urn:mrn:iala'","urn:mrn:iala", prefix);
     }
 
+    @Test
+    public void normalizeMrn() {
+        assertEquals("urn:mrn:mcl:user:dma@dma:thc", MrnUtil.normalize("urn:mrn:mcl:user:DMA@dma:THC"));
+        assertEquals(null, MrnUtil.normalize(null));
+    }
+
 }
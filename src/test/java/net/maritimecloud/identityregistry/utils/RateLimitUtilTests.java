@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+public class RateLimitUtilTests {
+
+    private RateLimitUtil rateLimitUtil;
+
+    @Before
+    public void setUp() {
+        rateLimitUtil = new RateLimitUtil();
+        ReflectionTestUtils.setField(rateLimitUtil, "enabled", true);
+        ReflectionTestUtils.setField(rateLimitUtil, "maxClients", 100);
+        ReflectionTestUtils.setField(rateLimitUtil, "certificateIssuancePerMinute", 1L);
+        ReflectionTestUtils.setField(rateLimitUtil, "certificateIssuanceBurst", 3L);
+        ReflectionTestUtils.setField(rateLimitUtil, "organizationApplicationPerMinute", 1L);
+        ReflectionTestUtils.setField(rateLimitUtil, "organizationApplicationBurst", 1L);
+        ReflectionTestUtils.setField(rateLimitUtil, "ocspPerMinute", 1L);
+        ReflectionTestUtils.setField(rateLimitUtil, "ocspBurst", 1L);
+        rateLimitUtil.setup();
+    }
+
+    @Test
+    public void burstIsAllowedAndThenLimited() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimitUtil.acquire(RateLimitUtil.Budget.CERTIFICATE_ISSUANCE, "client:vessel1"));
+        }
+        long retryAfter = rateLimitUtil.acquire(RateLimitUtil.Budget.CERTIFICATE_ISSUANCE, "client:vessel1");
+        assertTrue(retryAfter > 0 && retryAfter <= 60);
+    }
+
+    @Test
+    public void clientsAndBudgetsHaveSeparateBuckets() {
+        assertEquals(0, rateLimitUtil.acquire(RateLimitUtil.Budget.OCSP, "ip:10.0.0.1"));
+        assertTrue(rateLimitUtil.acquire(RateLimitUtil.Budget.OCSP, "ip:10.0.0.1") > 0);
+        assertEquals(0, rateLimitUtil.acquire(RateLimitUtil.Budget.OCSP, "ip:10.0.0.2"));
+        assertEquals(0, rateLimitUtil.acquire(RateLimitUtil.Budget.ORGANIZATION_APPLICATION, "ip:10.0.0.1"));
+    }
+
+    @Test
+    public void oldestBucketsAreDroppedWhenThereAreTooManyClients() {
+        ReflectionTestUtils.setField(rateLimitUtil, "maxClients", 2);
+        assertEquals(0, rateLimitUtil.acquire(RateLimitUtil.Budget.OCSP, "ip:10.0.0.1"));
+        assertEquals(0, rateLimitUtil.acquire(RateLimitUtil.Budget.OCSP, "ip:10.0.0.2"));
+        assertEquals(0, rateLimitUtil.acquire(RateLimitUtil.Budget.OCSP, "ip:10.0.0.3"));
+        assertEquals(2, ((Map<?, ?>) ReflectionTestUtils.getField(rateLimitUtil, "buckets")).size());
+
+        // The newer clients are still limited, the oldest got a new bucket
+        assertTrue(rateLimitUtil.acquire(RateLimitUtil.Budget.OCSP, "ip:10.0.0.3") > 0);
+        assertTrue(rateLimitUtil.acquire(RateLimitUtil.Budget.OCSP, "ip:10.0.0.2") > 0);
+        assertEquals(0, rateLimitUtil.acquire(RateLimitUtil.Budget.OCSP, "ip:10.0.0.1"));
+        assertEquals(2, ((Map<?, ?>) ReflectionTestUtils.getField(rateLimitUtil, "buckets")).size());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimecloud.identityregistry.utils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TrustBundleUtilTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File truststore;
+    private TrustBundleUtil trustBundleUtil;
+
+    @Before
+    public void setUp() throws Exception {
+        truststore = folder.newFile("mc-truststore.jks");
+        Files.copy(new File("mc-truststore.jks").toPath(), truststore.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        CertificateUtil certificateUtil = new CertificateUtil();
+        ReflectionTestUtils.setField(certificateUtil, "subCaKeystorePath", "mc-sub-ca-keystore.jks");
+        ReflectionTestUtils.setField(certificateUtil, "subCaKeystorePassword", "changeit");
+        ReflectionTestUtils.setField(certificateUtil, "subCaKeyPassword", "changeit");
+        ReflectionTestUtils.setField(certificateUtil, "truststorePath", truststore.getPath());
+        ReflectionTestUtils.setField(certificateUtil, "truststorePassword", "changeit");
+        certificateUtil.setup();
+        trustBundleUtil = new TrustBundleUtil();
+        trustBundleUtil.setCertificateUtil(certificateUtil);
+    }
+
+    @Test
+    public void bundleIsCachedUntilTruststoreChanges() {
+        TrustBundleUtil.TrustBundle bundle = trustBundleUtil.getTrustBundle();
+        assertTrue(bundle.getPem().startsWith("-----BEGIN CERTIFICATE-----"));
+        assertSame(bundle, trustBundleUtil.getTrustBundle());
+
+        assertTrue(truststore.setLastModified(truststore.lastModified() - 60000));
+        TrustBundleUtil.TrustBundle rebuilt = trustBundleUtil.getTrustBundle();
+        assertNotSame(bundle, rebuilt);
+        // The content is the same, so the hash and thereby the ETag is too
+        assertEquals(bundle.getHash(), rebuilt.getHash());
+    }
+}